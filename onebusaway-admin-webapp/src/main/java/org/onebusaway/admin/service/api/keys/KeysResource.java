@@ -186,6 +186,8 @@ public class KeysResource {
         result.put("contactEmail", bean.getContactEmail());
         result.put("contactDetails", bean.getContactDetails());
         result.put("minApiRequestInterval", bean.getMinApiRequestInterval().toString());
+        if (bean.getApiRequestBurst() != null)
+          result.put("apiRequestBurst", bean.getApiRequestBurst().toString());
         Response response = constructResponse(result);
         log.info("Returning response from listKeyDetails");
         return response;
@@ -203,7 +205,8 @@ public class KeysResource {
 	    @DefaultValue("") @QueryParam("company") String company, 
 	    @DefaultValue("") @QueryParam("email") String email, 
 	    @DefaultValue("") @QueryParam("details") String details,
-	    @DefaultValue("100") @QueryParam("minApiReqInt") String minApiReqInt
+	    @DefaultValue("100") @QueryParam("minApiReqInt") String minApiReqInt,
+	    @DefaultValue("") @QueryParam("apiRequestBurst") String apiRequestBurst
 	    ) throws JsonGenerationException,
 	      JsonMappingException, IOException {
 
@@ -211,7 +214,7 @@ public class KeysResource {
 	    try {
 			validateSecurity();
 			return createKey(UUID.randomUUID().toString(), name, company,
-					email, details, minApiReqInt);
+					email, details, minApiReqInt, apiRequestBurst);
 		} catch (Exception e) {
 	    	log.error(e.getMessage());
 	    	throw new WebApplicationException(e, Response.serverError().build());
@@ -227,12 +230,14 @@ public class KeysResource {
 	    @DefaultValue("") @QueryParam("company") String company, 
 	    @DefaultValue("") @QueryParam("email") String email, 
 	    @DefaultValue("") @QueryParam("details") String details,
-      @DefaultValue("100") @QueryParam("minApiReqInt") String minApiReqInt
+      @DefaultValue("100") @QueryParam("minApiReqInt") String minApiReqInt,
+      @DefaultValue("") @QueryParam("apiRequestBurst") String apiRequestBurst
 	    )  throws JsonGenerationException, JsonMappingException, IOException {
 
 	    log.info("Starting createKey with keyValue: " + keyValue + ", name: " 
 	      + name + ", company: " + company +", email: " + email + ", details: " 
-	      + details + ", minApiReqInt: " + minApiReqInt);
+	      + details + ", minApiReqInt: " + minApiReqInt
+	      + ", apiRequestBurst: " + apiRequestBurst);
 
 	    Long minApiReqIntervalLong = 0L;
 	    try {
@@ -240,11 +245,13 @@ public class KeysResource {
 	    } catch (NumberFormatException e) {
 	      log.error("Could not parse minApiReqInt: " + minApiReqInt);
 	    }
+	    Integer apiRequestBurstInteger = parseApiRequestBurst(apiRequestBurst);
 
 	    String message = "API Key created: " + keyValue;
 	    try {
 			validateSecurity();
-	      saveOrUpdateKey(keyValue, minApiReqIntervalLong, name, company, email, details);
+	      saveOrUpdateKey(keyValue, minApiReqIntervalLong, apiRequestBurstInteger,
+	          name, company, email, details);
 	    } catch (Exception e) {
 	      log.error(e.getMessage());
 	      message = e.getMessage();
@@ -263,13 +270,15 @@ public class KeysResource {
 	    @QueryParam("company") String company, 
 	    @QueryParam("email") String email, 
 	    @QueryParam("details") String details,
-	    @QueryParam("minApiReqInt") String minApiReqInt
+	    @QueryParam("minApiReqInt") String minApiReqInt,
+	    @QueryParam("apiRequestBurst") String apiRequestBurst
 	    )  throws JsonGenerationException, JsonMappingException, IOException {
 
 	        
 	    log.info("Starting updateKey with keyValue: " + keyValue + ", name: " 
 	      + name + ", company: " + company +", email: " + email + ", details: " 
-	      + details + ", minApiReqInt: " + minApiReqInt);
+	      + details + ", minApiReqInt: " + minApiReqInt
+	      + ", apiRequestBurst: " + apiRequestBurst);
 
       Long minApiReqIntervalLong = 0L;
       if (!minApiReqInt.isEmpty()) {
@@ -284,7 +293,7 @@ public class KeysResource {
 	    try {
 			validateSecurity();
 	      updateKeyContactInfo(keyValue, name, company, email, details,
-	          minApiReqIntervalLong);
+	          minApiReqIntervalLong, apiRequestBurst);
 	    } catch (Exception e) {
 	      log.error(e.getMessage());
 	      message = e.getMessage();
@@ -319,6 +328,7 @@ public class KeysResource {
 	  // Private methods
 
 	  private void saveOrUpdateKey(String apiKey, Long minApiRequestInterval, 
+	      Integer apiRequestBurst,
 	      String contactName, String contactCompany, String contactEmail, 
 	      String contactDetails) throws Exception {
 	    UserIndexKey key = new UserIndexKey(UserIndexTypes.API_KEY, apiKey);
@@ -331,19 +341,24 @@ public class KeysResource {
 
 	    _userPropertiesService.authorizeApi(userIndex.getUser(),
 	        minApiRequestInterval);
+	    if (apiRequestBurst != null)
+	      _userPropertiesService.setApiRequestBurst(userIndex.getUser(),
+	          apiRequestBurst);
 
 	    // Set the API Key contact info
 	    User user = userIndex.getUser();
 	    _userPropertiesService.updateApiKeyContactInfo(user, contactName, 
         contactCompany, contactEmail, contactDetails);
 
-	    // Clear the cached value here
+	    // Clear the cached values here
 	    _userService.getMinApiRequestIntervalForKey(apiKey, true);
+	    _userService.getApiRequestBurstForKey(apiKey, true);
 	  }
 
 	  private void updateKeyContactInfo(String apiKey, String contactName, 
 	      String contactCompany, String contactEmail, 
-	      String contactDetails, Long minApiReqIntervalLong) throws Exception {
+	      String contactDetails, Long minApiReqIntervalLong,
+	      String apiRequestBurst) throws Exception {
 	    UserIndexKey key = new UserIndexKey(UserIndexTypes.API_KEY, apiKey);
 	    UserIndex userIndex = _userService.getUserIndexForId(key);
 
@@ -373,8 +388,29 @@ public class KeysResource {
       _userPropertiesService.authorizeApi(userIndex.getUser(),
           minApiReqIntervalLong);
 
+      // an empty value resets the burst to the default
+      if (apiRequestBurst != null) {
+        _userPropertiesService.setApiRequestBurst(user,
+            parseApiRequestBurst(apiRequestBurst));
+      }
+
 	    _userPropertiesService.updateApiKeyContactInfo(user, keyContactName, 
         keyContactCompany, keyContactEmail, keyContactDetails);
+
+	    // Clear the cached values here
+	    _userService.getMinApiRequestIntervalForKey(apiKey, true);
+	    _userService.getApiRequestBurstForKey(apiKey, true);
+	  }
+
+	  private Integer parseApiRequestBurst(String apiRequestBurst) {
+	    if (apiRequestBurst == null || apiRequestBurst.isEmpty())
+	      return null;
+	    try {
+	      return Integer.valueOf(apiRequestBurst);
+	    } catch (NumberFormatException e) {
+	      log.error("Could not parse apiRequestBurst: " + apiRequestBurst);
+	      return null;
+	    }
 	  }
 
 	  private void delete(String apiKey) throws Exception {
@@ -405,6 +441,7 @@ public class KeysResource {
 	    // Clear the cached value here
 	    try {
 	    _userService.getMinApiRequestIntervalForKey(apiKey, true);
+	    _userService.getApiRequestBurstForKey(apiKey, true);
 	    } catch (Exception e) {
 	      // Ignore this
 	    }
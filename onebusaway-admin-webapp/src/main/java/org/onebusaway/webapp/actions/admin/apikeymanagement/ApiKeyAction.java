@@ -43,6 +43,7 @@ public class ApiKeyAction extends NextActionSupport{
 	private static final long serialVersionUID = 1L;
   private static final long MIN_API_REQ_INT_DEFAULT = 100L;
 	private Long minApiReqInt = 100L;
+	private Integer apiRequestBurst;
 	private String contactName;
 	private String contactCompany;
 	private String contactEmail;
@@ -65,6 +66,20 @@ public class ApiKeyAction extends NextActionSupport{
     this.minApiReqInt = minApiReqInt;
   }
 
+  /**
+   * @return the apiRequestBurst, null for the default
+   */
+  public Integer getApiRequestBurst() {
+    return apiRequestBurst;
+  }
+
+  /**
+   * @param apiRequestBurst the apiRequestBurst to set, null for the default
+   */
+  public void setApiRequestBurst(Integer apiRequestBurst) {
+    this.apiRequestBurst = apiRequestBurst;
+  }
+
   /**
    * @return the contactName
    */
@@ -189,13 +204,18 @@ public class ApiKeyAction extends NextActionSupport{
       minApiReqInt = MIN_API_REQ_INT_DEFAULT;
     }
     userPropertiesService.authorizeApi(userIndex.getUser(), minApiReqInt);
+    if (apiRequestBurst != null) {
+      userPropertiesService.setApiRequestBurst(userIndex.getUser(),
+          apiRequestBurst);
+    }
     // Set the API Key contact info
     User user = userIndex.getUser();
     userPropertiesService.updateApiKeyContactInfo(user, contactName,
       contactCompany, contactEmail, contactDetails);
 
-    // Clear the cached value here
+    // Clear the cached values here
     userService.getMinApiRequestIntervalForKey(apiKey, true);
+    userService.getApiRequestBurstForKey(apiKey, true);
 		return;
 	}
 
@@ -221,11 +241,15 @@ public class ApiKeyAction extends NextActionSupport{
       keyContactDetails = contactDetails;
     }
     userPropertiesService.authorizeApi(user, minApiReqInt);
+    if (apiRequestBurst != null) {
+      userPropertiesService.setApiRequestBurst(user, apiRequestBurst);
+    }
     userPropertiesService.updateApiKeyContactInfo(user, keyContactName,
       keyContactCompany, keyContactEmail, keyContactDetails);
 
-    // Clear the cached value here
+    // Clear the cached values here
     userService.getMinApiRequestIntervalForKey(key, true);
+    userService.getApiRequestBurstForKey(key, true);
     return;
   }
 
@@ -239,6 +263,7 @@ public class ApiKeyAction extends NextActionSupport{
       User user = userIndexForId.getUser();
       UserBean bean = userService.getUserAsBean(user);
       minApiReqInt = bean.getMinApiRequestInterval();
+      apiRequestBurst = bean.getApiRequestBurst();
       contactName = bean.getContactName();
       contactCompany = bean.getContactCompany();
       contactEmail = bean.getContactEmail();
@@ -268,6 +293,7 @@ public class ApiKeyAction extends NextActionSupport{
         UserBean bean = userService.getUserAsBean(user);
         if (contactEmail.equals(bean.getContactEmail())) {
           minApiReqInt = bean.getMinApiRequestInterval();
+          apiRequestBurst = bean.getApiRequestBurst();
           contactName = bean.getContactName();
           contactCompany = bean.getContactCompany();
           contactDetails = bean.getContactDetails();
@@ -304,8 +330,9 @@ public class ApiKeyAction extends NextActionSupport{
       if (user.getUserIndices().isEmpty()) {
         userService.deleteUser(user);
       }
-      // Clear the cached value here
+      // Clear the cached values here
       userService.getMinApiRequestIntervalForKey(key, true);
+      userService.getApiRequestBurstForKey(key, true);
 
       addActionMessage("Key '" + key + "' deleted");
       clearContactInfoAndKey();
@@ -315,6 +342,7 @@ public class ApiKeyAction extends NextActionSupport{
 
 	private void clearContactInfoAndKey() {
 	  minApiReqInt = 100L;
+	  apiRequestBurst = null;
     contactName = "";
     contactCompany = "";
     contactEmail = "";
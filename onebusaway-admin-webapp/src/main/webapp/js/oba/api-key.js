@@ -94,6 +94,7 @@ function showEditApiKey() {
 
 function clearApiKeyFields() {
 	$("#minApiReqInt").val("100");
+	$("#apiRequestBurst").val("");
 	$("#contactName").val("");
 	$("#contactCompany").val("");
 	$("#contactEmail").val("");
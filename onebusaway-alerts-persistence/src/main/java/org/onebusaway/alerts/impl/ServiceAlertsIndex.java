@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.alerts.impl;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the service alerts in a {@link ServiceAlertsCache},
+ * indexed by each of the affects keys that {@link ServiceAlertsServiceImpl}
+ * supports. Each key maps to an array of alert entries, and each entry keeps
+ * its publication windows merged and sorted so that checking them against a
+ * time is a binary search. Readers take the current snapshot and never block;
+ * writers build a new snapshot and swap it in.
+ */
+final class ServiceAlertsIndex {
+
+  public static final ServiceAlertsIndex EMPTY = new ServiceAlertsIndex();
+
+  private final Map<AgencyAndId, Entry> _entriesById;
+
+  private final Map<String, Entry[]> _byServiceAlertAgencyId;
+
+  private final Map<String, Entry[]> _byAgencyId;
+
+  private final Map<AgencyAndId, Entry[]> _byStopId;
+
+  private final Map<AgencyAndId, Entry[]> _byRouteId;
+
+  private final Map<RouteAndDirectionRef, Entry[]> _byRouteAndDirectionId;
+
+  private final Map<RouteAndStopCallRef, Entry[]> _byRouteAndStop;
+
+  private final Map<RouteDirectionAndStopCallRef, Entry[]> _byRouteDirectionAndStopCall;
+
+  private final Map<AgencyAndId, Entry[]> _byTripId;
+
+  private final Map<TripAndStopCallRef, Entry[]> _byTripAndStopId;
+
+  private ServiceAlertsIndex() {
+    _entriesById = Collections.emptyMap();
+    _byServiceAlertAgencyId = Collections.emptyMap();
+    _byAgencyId = Collections.emptyMap();
+    _byStopId = Collections.emptyMap();
+    _byRouteId = Collections.emptyMap();
+    _byRouteAndDirectionId = Collections.emptyMap();
+    _byRouteAndStop = Collections.emptyMap();
+    _byRouteDirectionAndStopCall = Collections.emptyMap();
+    _byTripId = Collections.emptyMap();
+    _byTripAndStopId = Collections.emptyMap();
+  }
+
+  private ServiceAlertsIndex(ServiceAlertsCache cache) {
+
+    Map<AgencyAndId, ServiceAlertRecord> serviceAlerts = cache.getServiceAlerts();
+    _entriesById = new HashMap<AgencyAndId, Entry>(serviceAlerts.size() * 2);
+    for (Map.Entry<AgencyAndId, ServiceAlertRecord> entry : serviceAlerts.entrySet())
+      _entriesById.put(entry.getKey(), new Entry(entry.getValue()));
+
+    _byServiceAlertAgencyId = index(cache.getServiceAlertIdsByServiceAlertAgencyId());
+    _byAgencyId = index(cache.getServiceAlertIdsByAgencyId());
+    _byStopId = index(cache.getServiceAlertIdsByStopId());
+    _byRouteId = index(cache.getServiceAlertIdsByRouteId());
+    _byRouteAndDirectionId = index(cache.getServiceAlertIdsByRouteAndDirectionId());
+    _byRouteAndStop = index(cache.getServiceAlertIdsByRouteAndStop());
+    _byRouteDirectionAndStopCall = index(cache.getServiceAlertIdsByRouteDirectionAndStopCall());
+    _byTripId = index(cache.getServiceAlertIdsByTripId());
+    _byTripAndStopId = index(cache.getServiceAlertIdsByTripAndStopId());
+  }
+
+  /**
+   * Must be called while the cache is not being modified.
+   */
+  public static ServiceAlertsIndex build(ServiceAlertsCache cache) {
+    return new ServiceAlertsIndex(cache);
+  }
+
+  public int size() {
+    return _entriesById.size();
+  }
+
+  public ServiceAlertRecord getServiceAlertForId(AgencyAndId serviceAlertId) {
+    Entry entry = _entriesById.get(serviceAlertId);
+    return entry != null ? entry.getServiceAlert() : null;
+  }
+
+  public List<ServiceAlertRecord> getAllServiceAlerts() {
+    List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>(
+        _entriesById.size());
+    for (Entry entry : _entriesById.values())
+      serviceAlerts.add(entry.getServiceAlert());
+    return serviceAlerts;
+  }
+
+  public Map<String, Entry[]> getByServiceAlertAgencyId() {
+    return _byServiceAlertAgencyId;
+  }
+
+  public Map<String, Entry[]> getByAgencyId() {
+    return _byAgencyId;
+  }
+
+  public Map<AgencyAndId, Entry[]> getByStopId() {
+    return _byStopId;
+  }
+
+  public Map<AgencyAndId, Entry[]> getByRouteId() {
+    return _byRouteId;
+  }
+
+  public Map<RouteAndDirectionRef, Entry[]> getByRouteAndDirectionId() {
+    return _byRouteAndDirectionId;
+  }
+
+  public Map<RouteAndStopCallRef, Entry[]> getByRouteAndStop() {
+    return _byRouteAndStop;
+  }
+
+  public Map<RouteDirectionAndStopCallRef, Entry[]> getByRouteDirectionAndStopCall() {
+    return _byRouteDirectionAndStopCall;
+  }
+
+  public Map<AgencyAndId, Entry[]> getByTripId() {
+    return _byTripId;
+  }
+
+  public Map<TripAndStopCallRef, Entry[]> getByTripAndStopId() {
+    return _byTripAndStopId;
+  }
+
+  /**
+   * Adds the alerts indexed under the key that are published at the given
+   * time, or all of them if the time is -1, to the matches, skipping alerts
+   * that are already there.
+   */
+  public static <T> void getServiceAlertsForKey(Map<T, Entry[]> index, T key,
+      long time, List<ServiceAlertRecord> matches) {
+    Entry[] entries = index.get(key);
+    if (entries == null)
+      return;
+    for (Entry entry : entries) {
+      if (entry.isPublishedAt(time) && !containsSame(matches, entry.getServiceAlert()))
+        matches.add(entry.getServiceAlert());
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private <T> Map<T, Entry[]> index(Map<T, Set<AgencyAndId>> idsByKey) {
+    if (idsByKey == null || idsByKey.isEmpty())
+      return Collections.emptyMap();
+    Map<T, Entry[]> index = new HashMap<T, Entry[]>(idsByKey.size() * 2);
+    for (Map.Entry<T, Set<AgencyAndId>> mapEntry : idsByKey.entrySet()) {
+      List<Entry> entries = new ArrayList<Entry>(mapEntry.getValue().size());
+      for (AgencyAndId id : mapEntry.getValue()) {
+        Entry entry = _entriesById.get(id);
+        if (entry != null)
+          entries.add(entry);
+      }
+      if (!entries.isEmpty())
+        index.put(mapEntry.getKey(), entries.toArray(new Entry[entries.size()]));
+    }
+    return index;
+  }
+
+  private static boolean containsSame(List<ServiceAlertRecord> records,
+      ServiceAlertRecord record) {
+    for (int i = 0; i < records.size(); i++) {
+      if (records.get(i) == record)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * A service alert along with its publication windows, merged into sorted,
+   * non-overlapping [from, to] ranges. An alert without any windows is always
+   * published.
+   */
+  static final class Entry {
+
+    private final ServiceAlertRecord _serviceAlert;
+
+    private final long[] _from;
+
+    private final long[] _to;
+
+    public Entry(ServiceAlertRecord serviceAlert) {
+
+      _serviceAlert = serviceAlert;
+
+      Set<ServiceAlertTimeRange> windows = serviceAlert.getPublicationWindows();
+      if (windows == null || windows.isEmpty()) {
+        _from = null;
+        _to = null;
+        return;
+      }
+
+      long[][] ranges = new long[windows.size()][];
+      int n = 0;
+      for (ServiceAlertTimeRange window : windows) {
+        long from = window.getFromValue() != null ? window.getFromValue()
+            : Long.MIN_VALUE;
+        long to = window.getToValue() != null ? window.getToValue()
+            : Long.MAX_VALUE;
+        ranges[n++] = new long[] {from, to};
+      }
+      Arrays.sort(ranges, RangeComparator.INSTANCE);
+
+      long[] fromValues = new long[n];
+      long[] toValues = new long[n];
+      int merged = 0;
+      for (long[] range : ranges) {
+        if (merged > 0 && range[0] <= toValues[merged - 1]) {
+          toValues[merged - 1] = Math.max(toValues[merged - 1], range[1]);
+        } else {
+          fromValues[merged] = range[0];
+          toValues[merged] = range[1];
+          merged++;
+        }
+      }
+      _from = Arrays.copyOf(fromValues, merged);
+      _to = Arrays.copyOf(toValues, merged);
+    }
+
+    public ServiceAlertRecord getServiceAlert() {
+      return _serviceAlert;
+    }
+
+    public boolean isPublishedAt(long time) {
+      if (time == -1 || _from == null)
+        return true;
+      int index = Arrays.binarySearch(_from, time);
+      if (index < 0)
+        index = -(index + 1) - 1;
+      return index >= 0 && time <= _to[index];
+    }
+  }
+
+  private static class RangeComparator implements Comparator<long[]> {
+
+    public static final RangeComparator INSTANCE = new RangeComparator();
+
+    @Override
+    public int compare(long[] a, long[] b) {
+      return Long.compare(a[0], b[0]);
+    }
+  }
+}
@@ -51,6 +51,12 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	
 	private ServiceAlertsPersistence _persister;
 
+	/**
+	 * Snapshot of the cache that reads go through, rebuilt and swapped in by
+	 * every change to the cache so that reads never take the lock
+	 */
+	private volatile ServiceAlertsIndex _index = ServiceAlertsIndex.EMPTY;
+
 	@Autowired
 	public void setServiceAlertsCache(ServiceAlertsCache cache) {
 	  _cache = cache;
@@ -103,6 +109,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
         serviceAlertRecord.setCreationTime(lastModified);
 
 		updateReferences(serviceAlertRecord);
+		updateIndex();
 		saveDBServiceAlerts(serviceAlertRecord, lastModified);
 		return serviceAlertRecord;
 	}
@@ -124,6 +131,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 
 			updateReferences(serviceAlertRecord);
 		}
+		updateIndex();
 		saveDBServiceAlerts(records, lastModified);
 		return records;
 
@@ -142,6 +150,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
         serviceAlertRecord.setCopy(Boolean.TRUE);
 		
 		updateReferences(serviceAlertRecord);
+		updateIndex();
 		saveDBServiceAlerts(serviceAlertRecord, lastModified);
 		return serviceAlertRecord;
 	}	
@@ -154,20 +163,24 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	@Override
 	public synchronized void removeServiceAlerts(List<AgencyAndId> serviceAlertIds) {
 	  if (_persister.needsSync()) this.loadServiceAlerts();
-		for (AgencyAndId serviceAlertId : serviceAlertIds) {
-      ServiceAlertRecord existingServiceAlert = _cache.removeServiceAlert(serviceAlertId);
-
-			if (existingServiceAlert != null) {
-				updateReferences(existingServiceAlert, null);
-			}
-			
-			//Now remove from the DataBase.
-			ServiceAlertRecord existingServiceAlertRecord = getServiceAlertRecordByAlertId(serviceAlertId.getAgencyId(), serviceAlertId.getId());
-			_log.debug("deleting service alert " + serviceAlertId.getId());
-			if (existingServiceAlertRecord != null) {
-			  _persister.delete(existingServiceAlertRecord);
+		try {
+			for (AgencyAndId serviceAlertId : serviceAlertIds) {
+				ServiceAlertRecord existingServiceAlert = _cache.removeServiceAlert(serviceAlertId);
+
+				if (existingServiceAlert != null) {
+					updateReferences(existingServiceAlert, null);
+				}
+
+				//Now remove from the DataBase.
+				ServiceAlertRecord existingServiceAlertRecord = getServiceAlertRecordByAlertId(serviceAlertId.getAgencyId(), serviceAlertId.getId());
+				_log.debug("deleting service alert " + serviceAlertId.getId());
+				if (existingServiceAlertRecord != null) {
+				  _persister.delete(existingServiceAlertRecord);
+				}
 			}
-		}    
+		} finally {
+			updateIndex();
+		}
 	}
 
 	@Override
@@ -181,94 +194,103 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	@Override
 	public ServiceAlertRecord getServiceAlertForId(AgencyAndId serviceAlertId) {
 	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		return _cache.getServiceAlerts().get(serviceAlertId);
+		return _index.getServiceAlertForId(serviceAlertId);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getAllServiceAlerts() {
 	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		return new ArrayList<ServiceAlertRecord>(_cache.getServiceAlerts().values());
+		return _index.getAllServiceAlerts();
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForFederatedAgencyId(String agencyId) {
 	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		Set<AgencyAndId> serviceAlertIds = _cache.getServiceAlertIdsByServiceAlertAgencyId().get(agencyId);
-		return getServiceAlertIdsAsObjects(serviceAlertIds);
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		ServiceAlertsIndex.getServiceAlertsForKey(_index.getByServiceAlertAgencyId(),
+				agencyId, -1, serviceAlerts);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForAgencyId(long time,
 			String agencyId) {
 	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), agencyId,
-				serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		ServiceAlertsIndex.getServiceAlertsForKey(_index.getByAgencyId(), agencyId,
+				time, serviceAlerts);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForStopId(long time,
 			AgencyAndId stopId) {
 	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), stopId.getAgencyId(),
-				serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByStopId(), stopId, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		ServiceAlertsIndex index = _index;
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByAgencyId(),
+				stopId.getAgencyId(), time, serviceAlerts);
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(), stopId,
+				time, serviceAlerts);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForRouteId(long time, AgencyAndId routeId) {
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		ServiceAlertsIndex.getServiceAlertsForKey(_index.getByRouteId(), routeId,
+				time, serviceAlerts);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForRouteAndStopId(long time, AgencyAndId routeId, AgencyAndId stopId) {
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
 		RouteAndStopCallRef routeAndStopCallRef = new RouteAndStopCallRef(routeId,
 				stopId);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndStop(),
-				routeAndStopCallRef, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		ServiceAlertsIndex.getServiceAlertsForKey(_index.getByRouteAndStop(),
+				routeAndStopCallRef, time, serviceAlerts);
+		return serviceAlerts;
 	}
 
 	public List<ServiceAlertRecord> getServiceAlertsForRouteAndDirection(long time, AgencyAndId routeId, AgencyAndId tripId, String directionId) {
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
+		ServiceAlertsIndex index = _index;
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
 		RouteAndDirectionRef lineAndDirectionRef = new RouteAndDirectionRef(routeId,
 				directionId);
 
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByAgencyId(),
+				routeId.getAgencyId(), time, serviceAlerts);
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteId(), routeId,
+				time, serviceAlerts);
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteAndDirectionId(),
+				lineAndDirectionRef, time, serviceAlerts);
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByTripId(), tripId,
+				time, serviceAlerts);
 
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), routeId.getAgencyId(),
-				serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndDirectionId(),
-				lineAndDirectionRef, serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
-				serviceAlertIds);
-
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForTripAndStopId(long time, AgencyAndId tripId, AgencyAndId stopId) {
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
-				serviceAlertIds);
+		ServiceAlertsIndex index = _index;
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByTripId(), tripId,
+				time, serviceAlerts);
 		TripAndStopCallRef tripAndStopCallRef = new TripAndStopCallRef(tripId,
 				stopId);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripAndStopId(),
-				tripAndStopCallRef, serviceAlertIds);
+		ServiceAlertsIndex.getServiceAlertsForKey(index.getByTripAndStopId(),
+				tripAndStopCallRef, time, serviceAlerts);
 
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return serviceAlerts;
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlerts(SituationQueryBean query) {
-		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
 		if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
+		ServiceAlertsIndex index = _index;
+		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>();
+		long time = query.getTime();
 		for (SituationQueryBean.AffectsBean affects : query.getAffects()) {
 
 			AgencyAndId routeId = AgencyAndId.convertFromString(affects.getRouteId());
@@ -284,51 +306,50 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 				 * Note we are treating the query's agency ID as that of what the
 				 * service alert affects, not the alert's federated agency ID.
 				 */
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(),
-						affects.getAgencyId(), serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByAgencyId(),
+						affects.getAgencyId(), time, serviceAlerts);
 				break;
 			}
 			case ROUTE: {
-
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId,
-						serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteId(), routeId,
+						time, serviceAlerts);
 				break;
 			}
 			case TRIP: {
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
-						serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByTripId(), tripId,
+						time, serviceAlerts);
 				break;
 			}
 			case STOP: {
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByStopId(), stopId,
-						serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(), stopId,
+						time, serviceAlerts);
 				break;
 			}
 			case ROUTE_DIRECTION: {
 				RouteAndDirectionRef routeAndDirectionRef = new RouteAndDirectionRef(
 						routeId, affects.getDirectionId());
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndDirectionId(),
-						routeAndDirectionRef, serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteAndDirectionId(),
+						routeAndDirectionRef, time, serviceAlerts);
 				break;
 			}
 			case ROUTE_DIRECTION_STOP: {
 				RouteDirectionAndStopCallRef ref = new RouteDirectionAndStopCallRef(
 						routeId, affects.getDirectionId(), stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteDirectionAndStopCall(),
-						ref, serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteDirectionAndStopCall(),
+						ref, time, serviceAlerts);
 				break;
 			}
 			case ROUTE_STOP: {
 				RouteAndStopCallRef routeAndStopRef = new RouteAndStopCallRef(
 						routeId, stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndStop(),
-						routeAndStopRef, serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByRouteAndStop(),
+						routeAndStopRef, time, serviceAlerts);
 				break;
 			}
 			case TRIP_STOP: {
 				TripAndStopCallRef ref = new TripAndStopCallRef(tripId, stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripAndStopId(), ref,
-						serviceAlertIds);
+				ServiceAlertsIndex.getServiceAlertsForKey(index.getByTripAndStopId(), ref,
+						time, serviceAlerts);
 				break;
 			}
 			default: {
@@ -337,15 +358,20 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 			}
 		}
 
-		List<ServiceAlertRecord> alerts = getServiceAlertIdsAsObjects(serviceAlertIds, query.getTime());
-
-		return alerts;
+		return serviceAlerts;
 	}
 
 	/****
 	 * Private Methods
 	 ****/
 
+	/**
+	 * Must be called while holding the lock, after any change to the cache
+	 */
+	private void updateIndex() {
+		_index = ServiceAlertsIndex.build(_cache);
+	}
+
 	private void updateReferences(ServiceAlertRecord serviceAlert) {
 		AgencyAndId id = ServiceAlertLibrary.agencyAndId(serviceAlert.getAgencyId(), serviceAlert.getServiceAlertId());
     	ServiceAlertRecord existingServiceAlert = _cache.putServiceAlert(id, serviceAlert);
@@ -424,50 +450,6 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 		}
 	}
 
-	private synchronized <T> void getServiceAlertIdsForKey(
-			Map<T, Set<AgencyAndId>> serviceAlertIdsByKey, T key,
-			Collection<AgencyAndId> matches) {
-		if (serviceAlertIdsByKey != null) {
-			Set<AgencyAndId> ids = serviceAlertIdsByKey.get(key);
-			if (ids != null) {
-				// copy to guard against changes
-				Set<AgencyAndId> copyOfIds = new HashSet<>(ids);
-				matches.addAll(copyOfIds);
-			}
-		}
-	}
-
-	private List<ServiceAlertRecord> getServiceAlertIdsAsObjects(
-			Collection<AgencyAndId> serviceAlertIds) {
-		return getServiceAlertIdsAsObjects(serviceAlertIds, -1);
-	}
-
-	private List<ServiceAlertRecord> getServiceAlertIdsAsObjects(
-			Collection<AgencyAndId> serviceAlertIds, long time) {
-		if (serviceAlertIds == null || serviceAlertIds.isEmpty())
-			return Collections.emptyList();
-		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>(
-				serviceAlertIds.size());
-		for (AgencyAndId serviceAlertId : serviceAlertIds) {
-			ServiceAlertRecord serviceAlert = _cache.getServiceAlerts().get(serviceAlertId);
-			if (serviceAlert != null && filterByTime(serviceAlert, time))
-				serviceAlerts.add(serviceAlert);
-		}
-		return serviceAlerts;
-	}
-
-	private boolean filterByTime(ServiceAlertRecord serviceAlert, long time) {
-		if (time == -1 || serviceAlert.getPublicationWindows().size() == 0)
-			return true;
-		for (ServiceAlertTimeRange publicationWindow : serviceAlert.getPublicationWindows()) {
-			if ((publicationWindow.getFromValue() == null || publicationWindow.getFromValue() <= time)
-					&& (publicationWindow.getToValue() == null || publicationWindow.getToValue() >= time)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	private AffectsType getAffectsType(String agencyId, String routeId,
 			String directionId, String tripId, String stopId) {
 		int count = getNonNullCount(agencyId, routeId, directionId, tripId, stopId);
@@ -554,6 +536,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 		} catch (Exception ex) {
 			_log.error("error loading service alerts from DB ", ex);
 		}
+		updateIndex();
 	}
 
 	// this is admittedly slow performing, but it is only called on an update
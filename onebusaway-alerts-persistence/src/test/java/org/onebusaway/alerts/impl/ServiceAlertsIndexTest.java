@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.alerts.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.gtfs.model.AgencyAndId;
+
+public class ServiceAlertsIndexTest {
+
+  @Test
+  public void testPublicationWindows() {
+
+    ServiceAlertRecord alert = new ServiceAlertRecord();
+    alert.getPublicationWindows().add(range(100L, 200L));
+    alert.getPublicationWindows().add(range(150L, 250L));
+    alert.getPublicationWindows().add(range(400L, 500L));
+    alert.getPublicationWindows().add(range(1000L, null));
+
+    ServiceAlertsIndex.Entry entry = new ServiceAlertsIndex.Entry(alert);
+
+    assertTrue(entry.isPublishedAt(-1));
+    assertFalse(entry.isPublishedAt(99));
+    assertTrue(entry.isPublishedAt(100));
+    assertTrue(entry.isPublishedAt(220));
+    assertTrue(entry.isPublishedAt(250));
+    assertFalse(entry.isPublishedAt(251));
+    assertTrue(entry.isPublishedAt(400));
+    assertFalse(entry.isPublishedAt(999));
+    assertTrue(entry.isPublishedAt(Long.MAX_VALUE));
+
+    alert.setPublicationWindows(new HashSet<ServiceAlertTimeRange>());
+    alert.getPublicationWindows().add(range(null, 100L));
+    entry = new ServiceAlertsIndex.Entry(alert);
+    assertTrue(entry.isPublishedAt(0));
+    assertFalse(entry.isPublishedAt(101));
+
+    alert.setPublicationWindows(new HashSet<ServiceAlertTimeRange>());
+    entry = new ServiceAlertsIndex.Entry(alert);
+    assertTrue(entry.isPublishedAt(12345));
+  }
+
+  @Test
+  public void testBuild() {
+
+    ServiceAlertsCache cache = new ServiceAlertsCacheInMemoryImpl();
+
+    ServiceAlertRecord alertA = alert(cache, "A", "10020", null);
+    ServiceAlertRecord alertB = alert(cache, "B", "10020", range(100L, 200L));
+    alert(cache, "C", "10030", null);
+
+    ServiceAlertsIndex index = ServiceAlertsIndex.build(cache);
+    assertEquals(3, index.size());
+    assertSame(alertA, index.getServiceAlertForId(new AgencyAndId("1", "A")));
+
+    AgencyAndId stopId = new AgencyAndId("1", "10020");
+
+    List<ServiceAlertRecord> matches = new ArrayList<ServiceAlertRecord>();
+    ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(), stopId, 150,
+        matches);
+    assertEquals(2, matches.size());
+
+    // The same alerts found again are not added twice
+    ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(), stopId, 150,
+        matches);
+    assertEquals(2, matches.size());
+
+    matches.clear();
+    ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(), stopId, 300,
+        matches);
+    assertEquals(1, matches.size());
+    assertSame(alertA, matches.get(0));
+
+    matches.clear();
+    ServiceAlertsIndex.getServiceAlertsForKey(index.getByStopId(),
+        new AgencyAndId("1", "dne"), 150, matches);
+    assertTrue(matches.isEmpty());
+
+    // Later changes to the cache don't show through a built index
+    cache.removeServiceAlert(new AgencyAndId("1", "B"));
+    assertSame(alertB, index.getServiceAlertForId(new AgencyAndId("1", "B")));
+  }
+
+  private static ServiceAlertRecord alert(ServiceAlertsCache cache, String id,
+      String stopId, ServiceAlertTimeRange window) {
+    ServiceAlertRecord alert = new ServiceAlertRecord();
+    alert.setAgencyId("1");
+    alert.setServiceAlertId(id);
+    if (window != null)
+      alert.getPublicationWindows().add(window);
+    AgencyAndId alertId = new AgencyAndId("1", id);
+    cache.putServiceAlert(alertId, alert);
+    AgencyAndId key = new AgencyAndId("1", stopId);
+    if (!cache.getServiceAlertIdsByStopId().containsKey(key))
+      cache.getServiceAlertIdsByStopId().put(key, new HashSet<AgencyAndId>());
+    cache.getServiceAlertIdsByStopId().get(key).add(alertId);
+    return alert;
+  }
+
+  private static ServiceAlertTimeRange range(Long from, Long to) {
+    ServiceAlertTimeRange range = new ServiceAlertTimeRange();
+    range.setFromValue(from);
+    range.setToValue(to);
+    return range;
+  }
+}
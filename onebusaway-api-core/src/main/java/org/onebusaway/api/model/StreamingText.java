@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.model;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Text response data that writes itself out, for responses such as SIRI that
+ * are serialized in their own format and are large enough that they shouldn't
+ * be built up as a String first. Content handlers that can stream call
+ * {@link #writeTo(Writer)}; the rest fall back to {@link #toString()}, which
+ * must return the same text.
+ */
+public interface StreamingText {
+
+  public void writeTo(Writer out) throws IOException;
+}
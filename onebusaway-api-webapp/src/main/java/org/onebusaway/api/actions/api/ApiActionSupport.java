@@ -24,6 +24,7 @@ import org.onebusaway.api.ResponseCodes;
 import org.onebusaway.api.actions.OneBusAwayApiActionSupport;
 import org.onebusaway.api.impl.MaxCountSupport;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.model.StreamingText;
 import org.onebusaway.api.model.transit.BeanFactoryV2;
 import org.onebusaway.transit_data.model.AgencyWithCoverageBean;
 import org.onebusaway.transit_data.services.TransitDataService;
@@ -132,6 +133,12 @@ public class ApiActionSupport extends OneBusAwayApiActionSupport implements
     return new DefaultHttpHeaders();
   }
 
+  protected DefaultHttpHeaders setOkResponseText(StreamingText text) {
+    _response = new ResponseBean(getReturnVersion(), ResponseCodes.RESPONSE_OK,
+            "OK", text, true);
+    return new DefaultHttpHeaders();
+  }
+
   protected DefaultHttpHeaders setValidationErrorsResponse() {
     ValidationErrorBean bean = new ValidationErrorBean(new ArrayList<String>(
         getActionErrors()), getFieldErrors());
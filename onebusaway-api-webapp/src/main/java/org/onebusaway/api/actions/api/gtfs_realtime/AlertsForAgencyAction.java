@@ -60,6 +60,5 @@ public class AlertsForAgencyAction extends GtfsRealtimeActionSupport {
     } else {
       ServiceAlertBuilderHelper.fillFeedMessage(feed, alerts, agencyId, timestamp);
     }
-    setLastModifiedHeader(timestamp);
   }
 }
@@ -15,16 +15,16 @@
  */
 package org.onebusaway.api.actions.api.gtfs_realtime;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.DefaultHttpHeaders;
 import org.onebusaway.api.actions.api.ApiActionSupport;
 import org.onebusaway.api.model.transit.realtime.GtfsRealtimeConstantsV2;
 import org.onebusaway.api.services.AgencyAndIdModificationStrategy;
+import org.onebusaway.api.services.GtfsRealtimeFeedCache;
+import org.onebusaway.api.services.GtfsRealtimeFeedCache.FeedSource;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.services.TransitDataService;
@@ -38,7 +38,7 @@ import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 import com.opensymphony.xwork2.conversion.annotations.TypeConversion;
 import com.opensymphony.xwork2.validator.annotations.RequiredFieldValidator;
 
-import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletRequest;
 
 public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
 
@@ -58,6 +58,9 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
   @Autowired(required = false)
   protected AgencyAndIdModificationStrategy _stopIdModificationStrategy;
 
+  @Autowired(required = false)
+  private GtfsRealtimeFeedCache _feedCache;
+
   private String _agencyId;
 
   private long _time;
@@ -66,13 +69,6 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
 
   private boolean _removeAgencyIds = true;
 
-  private static final SimpleDateFormat _sdf;
-
-  static {
-    _sdf = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT' ", Locale.US);
-    _sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-  }
-
   public GtfsRealtimeActionSupport() {
     super(V2);
   }
@@ -81,6 +77,10 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
     _service = service;
   }
 
+  public void setFeedCache(GtfsRealtimeFeedCache feedCache) {
+    _feedCache = feedCache;
+  }
+
   @RequiredFieldValidator
   public void setId(String id) {
     _agencyId = id;
@@ -110,22 +110,34 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
     if (hasErrors())
       return setValidationErrorsResponse();
 
+    /**
+     * Feeds for the current time are shared between requests. Last-Modified
+     * and ETag let the rest plugin answer conditional requests with a 304.
+     */
+    if (_feedCache != null && _time == 0) {
+      GtfsRealtimeFeedSnapshot snapshot = _feedCache.getFeed(getFeedKey(),
+          new FeedSource() {
+            @Override
+            public FeedMessage build(long time) {
+              return newFeedMessage(time).build();
+            }
+          });
+      HttpServletRequest request = ServletActionContext.getRequest();
+      if (request != null)
+        request.setAttribute(GtfsRealtimeFeedSnapshot.REQUEST_ATTRIBUTE,
+            snapshot);
+      return setOkResponse(snapshot.getFeedMessage()).lastModified(
+          new Date(snapshot.getLastModified())).withETag(snapshot.getETag());
+    }
+
     long time = SystemTime.currentTimeMillis();
     if (_time != 0)
       time = _time;
 
-    FeedMessage.Builder feed = FeedMessage.newBuilder();
-    FeedHeader.Builder header = feed.getHeaderBuilder();
-    header.setGtfsRealtimeVersion(GtfsRealtimeConstantsV2.VERSION);
-    header.setTimestamp(time / 1000);
-    if (getRouteFilterId() != null) {
-      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.ROUTE_ID, getRouteFilterId());
-    } else {
-      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.UNFILTERED, null);
-    }
+    FeedMessage.Builder feed = newFeedMessage(time);
 
     try {
-      return setOkResponse(feed.build());
+      return setOkResponse(feed.build()).lastModified(new Date(time));
     } catch (Throwable t) {
       _log.error("exception constructing GTFS-RT:", t, t);
       return setExceptionResponse();
@@ -135,14 +147,22 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
   protected abstract void fillFeedMessage(FeedMessage.Builder feed,
       String agencyId, long timestamp, FILTER_TYPE filterType, String filterValue);
 
-  protected void setLastModifiedHeader(long feedTimestamp){
-    if(feedTimestamp != 0){
-      long lastModifiedMills = feedTimestamp * 1000L;
-      String lastModifiedHeader = _sdf.format(new Date(lastModifiedMills));
-      HttpServletResponse response = ServletActionContext.getResponse();
-      response.setHeader("Last-Modified", lastModifiedHeader);
+  private FeedMessage.Builder newFeedMessage(long time) {
+    FeedMessage.Builder feed = FeedMessage.newBuilder();
+    FeedHeader.Builder header = feed.getHeaderBuilder();
+    header.setGtfsRealtimeVersion(GtfsRealtimeConstantsV2.VERSION);
+    header.setTimestamp(time / 1000);
+    if (_routeFilterId != null) {
+      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.ROUTE_ID, _routeFilterId);
+    } else {
+      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.UNFILTERED, null);
     }
+    return feed;
+  }
 
+  private String getFeedKey() {
+    return getClass().getName() + "|" + _agencyId + "|" + _routeFilterId + "|"
+        + _removeAgencyIds;
   }
 
   protected String normalizeId(String id) {
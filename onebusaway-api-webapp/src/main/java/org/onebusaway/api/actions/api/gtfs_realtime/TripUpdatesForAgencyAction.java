@@ -74,7 +74,6 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
         vehicleDesc.setId(normalizeId(vehicle.getVehicleId()));
       }
     }
-    setLastModifiedHeader(timestamp);
     addCancelledTrips(agencyId, feed, timestamp);
   }
 
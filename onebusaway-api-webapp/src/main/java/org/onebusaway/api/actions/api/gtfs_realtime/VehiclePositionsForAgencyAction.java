@@ -92,6 +92,5 @@ public class VehiclePositionsForAgencyAction extends GtfsRealtimeActionSupport {
         feed.addEntity(entity);
       }
     }
-    setLastModifiedHeader(timestamp);
   }
 }
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.actions.api.where;
+
+import org.apache.struts2.rest.DefaultHttpHeaders;
+import org.onebusaway.api.actions.api.ApiActionSupport;
+import org.onebusaway.api.impl.MaxCountSupport;
+import org.onebusaway.api.model.transit.BeanFactoryV2;
+import org.onebusaway.exceptions.NoSuchStopServiceException;
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.gtfs.model.calendar.AgencyServiceInterval;
+import org.onebusaway.presentation.impl.conversion.DateTimeConverter;
+import org.onebusaway.transit_data.model.ArrivalsAndDeparturesQueryBean;
+import org.onebusaway.transit_data.model.FilterChain;
+import org.onebusaway.transit_data.model.RouteSorting;
+import org.onebusaway.transit_data.model.StopsWithArrivalsAndDeparturesBean;
+import org.onebusaway.transit_data.services.IntervalFactory;
+import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.util.SystemTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk form of ArrivalsAndDeparturesForStop: returns arrivals and departures
+ * for an explicit list of stop ids in a single call. Block locations and trip
+ * status shared between the stops are only computed once.
+ *
+ */
+public class ArrivalsAndDeparturesForStopsAction extends ApiActionSupport {
+
+  private static Logger _log = LoggerFactory.getLogger(ArrivalsAndDeparturesForStopsAction.class);
+
+  private static final long serialVersionUID = 1L;
+
+  // this api doesn't support v1
+  private static final int V2 = 2;
+
+  private static final int MAX_STOP_IDS = 100;
+
+  @Autowired
+  private TransitDataService _service;
+
+  @Autowired
+  private RouteSorting customRouteSort;
+
+  @Autowired
+  private IntervalFactory _factory;
+
+  @Autowired(required = false)
+  public void setFilterChain(FilterChain filterChain) {
+    _query.setSystemFilterChain(filterChain);
+  }
+
+  private MaxCountSupport _maxCount = new MaxCountSupport(250, 1000);
+
+  private ArrivalsAndDeparturesQueryBean _query = new ArrivalsAndDeparturesQueryBean();
+
+  private List<String> _ids;
+
+  private long _time = 0;
+
+  private DateTimeConverter dateTimeConverter = new DateTimeConverter();
+
+  public ArrivalsAndDeparturesForStopsAction() {
+    super(V2);
+  }
+
+  public void setTransitDataService(TransitDataService service) {
+    _service = service;
+  }
+
+  public void setIntervalFactory(IntervalFactory factory) {
+    _factory = factory;
+  }
+
+  public void setCustomRouteSort(RouteSorting customRouteSort) {
+    this.customRouteSort = customRouteSort;
+  }
+
+  public void setId(List<String> ids) {
+    _ids = ids;
+  }
+
+  // The DateTimeConvertor runs between index and show so can't be used here!
+  public void setTime(String timeStr) {
+    _time = dateTimeConverter.parse(timeStr);
+  }
+
+  public void setMinutesBefore(int minutesBefore) {
+    _query.setMinutesBefore(minutesBefore);
+  }
+
+  public void setMinutesAfter(int minutesAfter) {
+    _query.setMinutesAfter(minutesAfter);
+  }
+
+  public void setFrequencyMinutesBefore(int frequncyMinutesBefore) {
+    _query.setFrequencyMinutesBefore(frequncyMinutesBefore);
+  }
+
+  public void setFrequencyMinutesAfter(int frequencyMinutesAfter) {
+    _query.setFrequencyMinutesAfter(frequencyMinutesAfter);
+  }
+
+  /**
+   * comma delimited list of GTFS route types
+   */
+  public void setRouteType(String routeType) {
+    _query.setRouteType(routeType);
+  }
+
+  public void setMaxCount(int maxCount) {
+    _maxCount.setMaxCount(maxCount);
+  }
+
+  public DefaultHttpHeaders index() throws ServiceException {
+
+    if (_ids == null || _ids.isEmpty())
+      addFieldError("id", Messages.MISSING_REQUIRED_FIELD);
+    else if (_ids.size() > MAX_STOP_IDS)
+      addFieldError("id", Messages.INVALID_FIELD_VALUE);
+
+    if (hasErrors())
+      return setValidationErrorsResponse();
+
+    if (_time == 0)
+      _time = SystemTime.currentTimeMillis();
+
+    // a stop id repeated in the request is only looked up once
+    Set<String> stopIds = new LinkedHashSet<String>(_ids);
+
+    ArrivalsAndDeparturesQueryBean adQuery = _query;
+    adQuery.setTime(_time);
+    adQuery.setMaxCount(_maxCount.getMaxCount());
+    adQuery.setAgenciesExcludingScheduled(this.getAgenciesExcludingScheduled());
+
+    StopsWithArrivalsAndDeparturesBean result = null;
+    try {
+      AgencyServiceInterval serviceInterval = _factory.constructForDate(new Date(_time));
+      adQuery.setServiceInterval(serviceInterval);
+      result = _service.getStopsWithArrivalsAndDepartures(stopIds, adQuery, serviceInterval);
+    } catch (NoSuchStopServiceException nsse) {
+      _log.error("no such stop Exception {}", nsse, nsse);
+      return setResourceNotFoundResponse();
+    }
+
+    if (result == null)
+      return setResourceNotFoundResponse();
+
+    BeanFactoryV2 factory = getBeanFactoryV2();
+    factory.setCustomRouteSort(customRouteSort);
+    try {
+      return setOkResponse(factory.getResponse(result));
+    } catch (Throwable t) {
+      _log.error("BeanFactory Exception {}", t, t);
+      return setExceptionResponse();
+    }
+  }
+}
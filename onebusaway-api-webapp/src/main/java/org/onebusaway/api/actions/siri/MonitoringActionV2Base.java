@@ -15,13 +15,17 @@
  */
 package org.onebusaway.api.actions.siri;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 
+import org.apache.struts2.rest.DefaultHttpHeaders;
 import org.onebusaway.api.actions.siri.impl.ServiceAlertsHelperV2;
 import org.onebusaway.api.actions.siri.service.RealtimeServiceV2;
+import org.onebusaway.api.model.StreamingText;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
 import org.onebusaway.gtfs.model.AgencyAndId;
@@ -67,11 +71,20 @@ public class MonitoringActionV2Base extends SiriAction {
         // callback happens at a lower level
       }
     } catch (Exception e) {
-      _log.error("Siri v2 serialization failed: ", e,e);
-      return e.toString();
+      _log.error("Siri v2 serialization failed: ", e);
+      // fail the request rather than answer OK with the error as the body
+      throw new IllegalStateException("Siri v2 serialization failed", e);
     }
   }
 
+  /**
+   * Responds with the SIRI response, which the content handler writes straight
+   * to the servlet response instead of holding it as a String first.
+   */
+  protected DefaultHttpHeaders setOkSiriResponse() {
+    return setOkResponseText(new SiriResponseText());
+  }
+
   protected boolean isValidRoute(AgencyAndId routeId) {
     if (routeId != null
         && routeId.hasValues()
@@ -251,4 +264,31 @@ public class MonitoringActionV2Base extends SiriAction {
     }
     return bounds;
   }
+
+  private class SiriResponseText implements StreamingText {
+
+    @Override
+    public void writeTo(Writer out) throws IOException {
+      try {
+        if (getType().equals("xml")) {
+          _realtimeService.getSiriXmlSerializer().writeXml(_siriResponse, out);
+        } else {
+          // callback happens at a lower level
+          _realtimeService.getSiriJsonSerializer().writeJson(_siriResponse,
+              out, null);
+        }
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        // part of the document may already be written, so fail the response
+        // rather than appending the error to it
+        throw new IOException("Siri v2 serialization failed", e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return getSiri();
+    }
+  }
 }
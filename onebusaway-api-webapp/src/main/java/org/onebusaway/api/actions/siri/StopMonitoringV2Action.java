@@ -142,7 +142,7 @@ public class StopMonitoringV2Action extends MonitoringActionV2Base
         responseTimestamp);
 
     // use ApiActionSupport to set proper headers instead of writing directly to response
-    return setOkResponseText(getSiri());
+    return setOkSiriResponse();
   }
 
   private Siri generateSiriResponse(List<MonitoredStopVisitStructure> visits,
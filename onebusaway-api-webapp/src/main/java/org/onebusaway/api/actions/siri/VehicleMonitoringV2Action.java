@@ -48,8 +48,6 @@ public class VehicleMonitoringV2Action extends MonitoringActionV2Base {
 
   private static final String VEHICLE_REF = "VehicleRef";
 
-  private String _cachedResponse = null;
-
   public DefaultHttpHeaders index() throws IOException {
     
     long currentTimestamp = getTime();
@@ -199,7 +197,7 @@ public class VehicleMonitoringV2Action extends MonitoringActionV2Base {
         throw new RuntimeException(e);
       }
     }
-    return setOkResponseText(getSiri());
+    return setOkSiriResponse();
   }
 
   /**
@@ -246,12 +244,4 @@ public class VehicleMonitoringV2Action extends MonitoringActionV2Base {
 
     return siri;
   }
-
-  public String getSiri() {
-    if (_cachedResponse != null) {
-      // check the cache first
-      return _cachedResponse;
-    }
-    return super.getSiri();
-  }
 }
@@ -16,18 +16,26 @@
 package org.onebusaway.api.impl;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.*;
+import com.opensymphony.xwork2.ActionContext;
 import com.opensymphony.xwork2.ActionInvocation;
 import com.opensymphony.xwork2.inject.Inject;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.AbstractContentTypeHandler;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.model.StreamingText;
 import org.onebusaway.api.serializers.json.CustomSerializerProvider;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 
 public class CustomJsonLibHandler extends AbstractContentTypeHandler {
@@ -35,6 +43,18 @@ public class CustomJsonLibHandler extends AbstractContentTypeHandler {
         private String defaultEncoding = "ISO-8859-1";
         private ObjectMapper mapper = new ObjectMapper();
 
+        /**
+         * Configured once and immutable, so it is safe to share between
+         * requests; the shared mapper used to be reconfigured on every response
+         */
+        private final ObjectWriter writer = createWriter();
+
+        /**
+         * When set, responses are serialized straight to the servlet output
+         * stream rather than being built up as a String first
+         */
+        private boolean streaming = true;
+
         public void toObject(ActionInvocation invocation, Reader in, Object target) throws IOException {
                 this.mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
                 ObjectReader or = this.mapper.readerForUpdating(target);
@@ -53,18 +73,33 @@ public class CustomJsonLibHandler extends AbstractContentTypeHandler {
                         // check if serialization already occurred as with SIRI calls
                         ResponseBean bean = (ResponseBean) obj;
                         isText = bean.isString();
+                        if (isText && bean.getData() instanceof StreamingText) {
+                                // serialized in its own format (SIRI), written as it is produced
+                                StreamingText text = (StreamingText) bean.getData();
+                                HttpServletResponse response = streaming ? getResponse() : null;
+                                if (response != null) {
+                                        response.setContentType(getContentType());
+                                        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+                                        writeText(out, text, callback);
+                                        out.flush();
+                                } else {
+                                        writeText(stream, text, callback);
+                                }
+                                return null;
+                        }
                         if (bean.getData() != null) {
                                 value = bean.getData().toString();
                         }
                 }
                 if (obj != null && !isText) {
-                        mapper.setSerializerProvider(new CustomSerializerProvider());
-                        mapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
-                        mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
-                        mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
-                        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-
-                        value = mapper.writeValueAsString(obj);
+                        HttpServletResponse response = streaming ? getResponse() : null;
+                        if (response != null) {
+                                // nothing is written to stream, so struts leaves the response to us
+                                response.setContentType(getContentType());
+                                writeJson(response.getOutputStream(), obj, callback);
+                                return null;
+                        }
+                        value = writer.writeValueAsString(obj);
                 }
                 if (value != null && callback != null) {
                         stream.write(callback + "(" + value + ")");
@@ -76,6 +111,47 @@ public class CustomJsonLibHandler extends AbstractContentTypeHandler {
                 return null;
         }
 
+        /**
+         * Serializes obj as UTF-8 JSON, the encoding struts uses for buffered
+         * responses, wrapping it in callback(...) for JSONP when callback is set.
+         */
+        public void writeJson(OutputStream out, Object obj, String callback) throws IOException {
+                JsonGenerator generator = writer.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                try {
+                        if (callback != null)
+                                generator.writeRaw(callback + "(");
+                        writer.writeValue(generator, obj);
+                        if (callback != null)
+                                generator.writeRaw(")");
+                } finally {
+                        generator.close();
+                }
+        }
+
+        private void writeText(Writer out, StreamingText text, String callback) throws IOException {
+                if (callback != null)
+                        out.write(callback + "(");
+                text.writeTo(out);
+                if (callback != null)
+                        out.write(")");
+        }
+
+        private static ObjectWriter createWriter() {
+                ObjectMapper mapper = new ObjectMapper();
+                mapper.setSerializerProvider(new CustomSerializerProvider());
+                mapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+                mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+                mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
+                mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+                return mapper.writer();
+        }
+
+        private HttpServletResponse getResponse() {
+                if (ActionContext.getContext() == null)
+                        return null;
+                return ServletActionContext.getResponse();
+        }
+
         public String getCallback(){
                 String callback = null;
                 HttpServletRequest req = ServletActionContext.getRequest();
@@ -104,4 +180,9 @@ public class CustomJsonLibHandler extends AbstractContentTypeHandler {
         public void setDefaultEncoding(String val) {
                 this.defaultEncoding = val;
         }
+
+        @Inject(value = "onebusaway.api.json.streaming", required = false)
+        public void setStreaming(String val) {
+                this.streaming = Boolean.parseBoolean(val);
+        }
 }
@@ -16,15 +16,18 @@
 package org.onebusaway.api.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.opensymphony.xwork2.ActionInvocation;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.ContentTypeHandler;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
 
 import com.google.protobuf.Message;
 
@@ -53,7 +56,7 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
        */
       HttpServletResponse res = ServletActionContext.getResponse();
       if (res != null && res.getOutputStream() != null) {
-        message.writeTo(res.getOutputStream());
+        writeMessage(message, res.getOutputStream());
       }
     } else {
       stream.write(response.getText());
@@ -77,13 +80,31 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
        * with encoding the serialized protobuf to a String.
        */
       HttpServletResponse res = ServletActionContext.getResponse();
-      message.writeTo(res.getOutputStream());
+      writeMessage(message, res.getOutputStream());
     } else {
       stream.write(response.getText());
     }
     return null;
   }
 
+  /**
+   * Writes the serialized bytes of a shared GTFS-realtime feed snapshot when
+   * the message comes from one, instead of serializing it again.
+   */
+  private void writeMessage(Message message, OutputStream out)
+      throws IOException {
+    HttpServletRequest req = ServletActionContext.getRequest();
+    if (req != null) {
+      Object snapshot = req.getAttribute(GtfsRealtimeFeedSnapshot.REQUEST_ATTRIBUTE);
+      if (snapshot instanceof GtfsRealtimeFeedSnapshot
+          && ((GtfsRealtimeFeedSnapshot) snapshot).getFeedMessage() == message) {
+        out.write(((GtfsRealtimeFeedSnapshot) snapshot).getBytes());
+        return;
+      }
+    }
+    message.writeTo(out);
+  }
+
   @Override
   public String getContentType() {
     return "application/x-google-protobuf";
@@ -16,15 +16,19 @@
  */
 package org.onebusaway.api.impl;
 
+import com.opensymphony.xwork2.ActionContext;
 import com.opensymphony.xwork2.ActionInvocation;
+import com.opensymphony.xwork2.inject.Inject;
 import com.thoughtworks.xstream.converters.collections.CollectionConverter;
 import com.thoughtworks.xstream.mapper.ClassAliasingMapper;
+import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.XStreamHandler;
 
 import org.onebusaway.api.actions.api.ValidationErrorBean;
 import org.onebusaway.api.model.ResponseBean;
 import org.onebusaway.api.model.StopGroupV2Bean;
 import org.onebusaway.api.model.StopGroupingV2Bean;
+import org.onebusaway.api.model.StreamingText;
 import org.onebusaway.api.model.TimeBean;
 import org.onebusaway.api.model.transit.*;
 import org.onebusaway.api.model.transit.blocks.BlockConfigurationV2Bean;
@@ -52,18 +56,36 @@ import org.onebusaway.transit_data.model.*;
 import com.thoughtworks.xstream.XStream;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
 
 public class CustomXStreamHandler extends XStreamHandler {
 
+  /**
+   * When set, pre-serialized text responses such as SIRI are written straight
+   * to the servlet response rather than being buffered by struts first
+   */
+  private boolean streaming = true;
+
+  @Inject(value = "onebusaway.api.xml.streaming", required = false)
+  public void setStreaming(String val) {
+    this.streaming = Boolean.parseBoolean(val);
+  }
+
   @Override
   public String fromObject(ActionInvocation invocation, Object obj, String resultCode, Writer out) throws IOException {
     if (obj != null) {
       if (obj instanceof ResponseBean) {
         ResponseBean bean = (ResponseBean) obj;
         if (bean.isString() && bean.getData() != null) {
-          out.write(bean.getData().toString());
+          if (bean.getData() instanceof StreamingText)
+            writeText((StreamingText) bean.getData(), out);
+          else
+            out.write(bean.getData().toString());
           return null;
         }
         XStream xstream = this.createXStream(invocation);
@@ -75,6 +97,24 @@ public class CustomXStreamHandler extends XStreamHandler {
     return null;
   }
 
+  /**
+   * Nothing written to out means struts leaves the response to us
+   */
+  private void writeText(StreamingText text, Writer out) throws IOException {
+    HttpServletResponse response = null;
+    if (streaming && ActionContext.getContext() != null)
+      response = ServletActionContext.getResponse();
+    if (response == null) {
+      text.writeTo(out);
+      return;
+    }
+    response.setContentType(getContentType() + ";charset=UTF-8");
+    Writer responseOut = new OutputStreamWriter(response.getOutputStream(),
+        StandardCharsets.UTF_8);
+    text.writeTo(responseOut);
+    responseOut.flush();
+  }
+
   @Override
   public void toObject(ActionInvocation invocation, Reader in, Object target) {
     XStream xstream = this.createXStream(invocation);
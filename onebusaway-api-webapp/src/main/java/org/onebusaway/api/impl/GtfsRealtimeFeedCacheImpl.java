@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.onebusaway.api.services.GtfsRealtimeFeedCache;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
+import org.onebusaway.util.SystemTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Keeps a snapshot of each GTFS-realtime feed that clients are polling and
+ * rebuilds it every refresh interval on a background thread, so that requests
+ * only ever copy out prebuilt bytes. Feeds nobody has asked for within the
+ * idle timeout are dropped. A rebuilt feed whose entities are unchanged keeps
+ * its previous snapshot, along with its Last-Modified time and ETag.
+ */
+@Component
+public class GtfsRealtimeFeedCacheImpl implements GtfsRealtimeFeedCache {
+
+  private static Logger _log = LoggerFactory.getLogger(GtfsRealtimeFeedCacheImpl.class);
+
+  private ConcurrentMap<String, FeedEntry> _entries = new ConcurrentHashMap<String, FeedEntry>();
+
+  private ScheduledExecutorService _executor;
+
+  /**
+   * Time, in seconds, between rebuilds of each feed
+   */
+  private int _refreshInterval = 10;
+
+  /**
+   * Time, in seconds, after which a feed that nobody has requested is dropped
+   */
+  private int _idleTimeout = 300;
+
+  public void setRefreshInterval(int refreshInterval) {
+    _refreshInterval = refreshInterval;
+  }
+
+  public void setIdleTimeout(int idleTimeout) {
+    _idleTimeout = idleTimeout;
+  }
+
+  @PostConstruct
+  public void start() {
+    _executor = Executors.newSingleThreadScheduledExecutor();
+    _executor.scheduleWithFixedDelay(new FeedRefresher(), _refreshInterval,
+        _refreshInterval, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (_executor != null) {
+      _executor.shutdownNow();
+      _executor = null;
+    }
+  }
+
+  public int getFeedCount() {
+    return _entries.size();
+  }
+
+  @Override
+  public GtfsRealtimeFeedSnapshot getFeed(String key, FeedSource source) {
+
+    FeedEntry entry = _entries.get(key);
+    if (entry == null) {
+      FeedEntry newEntry = new FeedEntry(source);
+      entry = _entries.putIfAbsent(key, newEntry);
+      if (entry == null)
+        entry = newEntry;
+    }
+
+    entry.lastAccess = SystemTime.currentTimeMillis();
+
+    GtfsRealtimeFeedSnapshot snapshot = entry.snapshot;
+    if (snapshot != null)
+      return snapshot;
+
+    // Concurrent first requests for a feed wait on a single build of it
+    synchronized (entry) {
+      if (entry.snapshot == null)
+        entry.update(SystemTime.currentTimeMillis());
+      return entry.snapshot;
+    }
+  }
+
+  /****
+   * Package Private Methods
+   ****/
+
+  void refresh() {
+
+    long now = SystemTime.currentTimeMillis();
+    long idleSince = now - _idleTimeout * 1000L;
+
+    for (Iterator<Map.Entry<String, FeedEntry>> it = _entries.entrySet().iterator(); it.hasNext();) {
+      Map.Entry<String, FeedEntry> mapEntry = it.next();
+      FeedEntry entry = mapEntry.getValue();
+      if (entry.lastAccess < idleSince) {
+        it.remove();
+        continue;
+      }
+      try {
+        synchronized (entry) {
+          entry.update(now);
+        }
+      } catch (Throwable ex) {
+        _log.warn("error refreshing GTFS-realtime feed " + mapEntry.getKey(),
+            ex);
+      }
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private static class FeedEntry {
+
+    private final FeedSource source;
+
+    private volatile GtfsRealtimeFeedSnapshot snapshot;
+
+    private volatile long lastAccess;
+
+    public FeedEntry(FeedSource source) {
+      this.source = source;
+    }
+
+    public void update(long time) {
+      FeedMessage feed = source.build(time);
+      GtfsRealtimeFeedSnapshot previous = snapshot;
+      if (previous != null
+          && previous.getFeedMessage().getEntityList().equals(
+              feed.getEntityList()))
+        return;
+      snapshot = new GtfsRealtimeFeedSnapshot(feed, time);
+    }
+  }
+
+  private class FeedRefresher implements Runnable {
+
+    @Override
+    public void run() {
+      refresh();
+    }
+  }
+}
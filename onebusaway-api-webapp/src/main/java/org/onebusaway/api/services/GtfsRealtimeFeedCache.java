@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.services;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Shares prebuilt GTFS-realtime feeds between requests. The first request for
+ * a feed builds it, after which it is rebuilt in the background for as long as
+ * clients keep asking for it.
+ */
+public interface GtfsRealtimeFeedCache {
+
+  /**
+   * @param key identifies the feed, including any filters applied to it
+   * @param source builds the feed when it is missing or due for a refresh
+   * @return the latest snapshot of the feed
+   */
+  public GtfsRealtimeFeedSnapshot getFeed(String key, FeedSource source);
+
+  public interface FeedSource {
+    public FeedMessage build(long time);
+  }
+}
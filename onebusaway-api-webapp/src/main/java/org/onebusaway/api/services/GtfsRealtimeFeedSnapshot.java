@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.services;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * A built GTFS-realtime feed along with its serialized form, so that the bytes
+ * can be written to any number of responses without serializing again.
+ */
+public final class GtfsRealtimeFeedSnapshot {
+
+  /**
+   * Request attribute under which the snapshot being served is stored, so the
+   * protocol buffer content handler can write its cached bytes
+   */
+  public static final String REQUEST_ATTRIBUTE = GtfsRealtimeFeedSnapshot.class.getName();
+
+  private final FeedMessage _feedMessage;
+
+  private final byte[] _bytes;
+
+  private final long _lastModified;
+
+  private final String _etag;
+
+  public GtfsRealtimeFeedSnapshot(FeedMessage feedMessage, long lastModified) {
+    _feedMessage = feedMessage;
+    _bytes = feedMessage.toByteArray();
+    _lastModified = lastModified;
+    _etag = computeETag(_bytes);
+  }
+
+  public FeedMessage getFeedMessage() {
+    return _feedMessage;
+  }
+
+  /**
+   * @return the serialized feed message, which must not be modified
+   */
+  public byte[] getBytes() {
+    return _bytes;
+  }
+
+  public long getLastModified() {
+    return _lastModified;
+  }
+
+  public String getETag() {
+    return _etag;
+  }
+
+  private static String computeETag(byte[] bytes) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      StringBuilder b = new StringBuilder("\"");
+      for (byte value : digest.digest(bytes))
+        b.append(String.format("%02x", value));
+      return b.append('"').toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package org.onebusaway.api.actions.api.gtfs_realtime;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.*;
 
@@ -27,7 +28,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.onebusaway.api.impl.GtfsRealtimeFeedCacheImpl;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
 import org.onebusaway.geospatial.model.CoordinatePoint;
 import org.onebusaway.transit_data.model.ListBean;
 import org.onebusaway.transit_data.model.RouteBean;
@@ -152,4 +155,38 @@ public class VehiclePositionsForAgencyActionTest {
       assertEquals(-122.1, vehiclePosition.getPosition().getLongitude(), 0.01);
     }
   }
+
+  @Test
+  public void testFeedCache() {
+    GtfsRealtimeFeedCacheImpl cache = new GtfsRealtimeFeedCacheImpl();
+
+    VehicleStatusBean vehicle = new VehicleStatusBean();
+    vehicle.setLastUpdateTime(System.currentTimeMillis());
+    vehicle.setVehicleId("1_v1");
+    vehicle.setLocation(new CoordinatePoint(47.0, -122.0));
+    ListBean<VehicleStatusBean> bean = new ListBean<VehicleStatusBean>();
+    bean.setList(new ArrayList<VehicleStatusBean>(Arrays.asList(vehicle)));
+    Mockito.when(_service.getAllVehiclesForAgency(Mockito.eq("1"),
+        Mockito.anyLong())).thenReturn(bean);
+
+    _action.setFeedCache(cache);
+    _action.setId("1");
+    _action.show();
+    FeedMessage feed = (FeedMessage) _action.getModel().getData();
+    assertEquals(1, feed.getEntityCount());
+
+    // a second request is served from the same snapshot
+    VehiclePositionsForAgencyAction action = new VehiclePositionsForAgencyAction();
+    action.setTransitDataService(_service);
+    action.setFeedCache(cache);
+    action.setId("1");
+    action.show();
+    assertSame(feed, action.getModel().getData());
+
+    Mockito.verify(_service, Mockito.times(1)).getAllVehiclesForAgency(
+        Mockito.eq("1"), Mockito.anyLong());
+    Mockito.verify(request, Mockito.times(2)).setAttribute(
+        Mockito.eq(GtfsRealtimeFeedSnapshot.REQUEST_ATTRIBUTE),
+        Mockito.any(GtfsRealtimeFeedSnapshot.class));
+  }
 }
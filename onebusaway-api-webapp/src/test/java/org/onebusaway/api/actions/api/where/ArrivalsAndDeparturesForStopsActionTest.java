@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.actions.api.where;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.struts2.rest.DefaultHttpHeaders;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.onebusaway.api.ResponseCodes;
+import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.model.transit.EntryWithReferencesBean;
+import org.onebusaway.api.model.transit.StopsWithArrivalsAndDeparturesV2Bean;
+import org.onebusaway.gtfs.model.calendar.AgencyServiceInterval;
+import org.onebusaway.transit_data.model.ArrivalAndDepartureBean;
+import org.onebusaway.transit_data.model.ArrivalsAndDeparturesQueryBean;
+import org.onebusaway.transit_data.model.FilterChain;
+import org.onebusaway.transit_data.model.RouteSorting;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.transit_data.model.StopsWithArrivalsAndDeparturesBean;
+import org.onebusaway.transit_data.services.IntervalFactory;
+import org.onebusaway.transit_data.services.TransitDataService;
+
+public class ArrivalsAndDeparturesForStopsActionTest {
+
+  private ArrivalsAndDeparturesForStopsAction _action;
+
+  private TransitDataService _service;
+
+  @Before
+  public void before() {
+    _action = new ArrivalsAndDeparturesForStopsAction() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public HashSet<String> getAgenciesExcludingScheduled() {
+        return new HashSet<String>();
+      }
+    };
+
+    _service = Mockito.mock(TransitDataService.class);
+    _action.setTransitDataService(_service);
+
+    IntervalFactory factory = Mockito.mock(IntervalFactory.class);
+    Mockito.when(factory.constructForDate(Mockito.any())).thenReturn(
+        new AgencyServiceInterval(System.currentTimeMillis()));
+    _action.setIntervalFactory(factory);
+
+    _action.setCustomRouteSort(Mockito.mock(RouteSorting.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testMultipleStops() throws Exception {
+
+    StopsWithArrivalsAndDeparturesBean result = new StopsWithArrivalsAndDeparturesBean();
+    result.setStops(Arrays.asList(stop("1_a"), stop("1_b")));
+    result.setArrivalsAndDepartures(new ArrayList<ArrivalAndDepartureBean>());
+    result.setNearbyStops(new ArrayList<StopBean>());
+    Mockito.when(
+        _service.getStopsWithArrivalsAndDepartures(Mockito.anyCollection(),
+            Mockito.any(ArrivalsAndDeparturesQueryBean.class),
+            Mockito.any(AgencyServiceInterval.class))).thenReturn(result);
+
+    _action.setId(Arrays.asList("1_a", "1_b", "1_a"));
+    DefaultHttpHeaders headers = _action.index();
+    assertEquals(200, headers.getStatus());
+
+    // one call for all the stops, with the repeated id dropped
+    ArgumentCaptor<Collection<String>> stopIds = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(_service, Mockito.times(1)).getStopsWithArrivalsAndDepartures(
+        stopIds.capture(), Mockito.any(ArrivalsAndDeparturesQueryBean.class),
+        Mockito.any(AgencyServiceInterval.class));
+    assertEquals(Arrays.asList("1_a", "1_b"),
+        new ArrayList<String>(stopIds.getValue()));
+
+    ResponseBean response = _action.getModel();
+    assertEquals(ResponseCodes.RESPONSE_OK, response.getCode());
+    EntryWithReferencesBean<StopsWithArrivalsAndDeparturesV2Bean> entry = (EntryWithReferencesBean<StopsWithArrivalsAndDeparturesV2Bean>) response.getData();
+    assertEquals(Arrays.asList("1_a", "1_b"), entry.getEntry().getStopIds());
+  }
+
+  @Test
+  public void testTooManyStops() throws Exception {
+
+    List<String> ids = new ArrayList<String>();
+    for (int i = 0; i < 101; i++)
+      ids.add("1_" + i);
+    _action.setId(ids);
+
+    _action.index();
+
+    ResponseBean response = _action.getModel();
+    assertEquals(ResponseCodes.RESPONSE_INVALID_ARGUMENT, response.getCode());
+    assertEquals(Collections.singletonList(Messages.INVALID_FIELD_VALUE),
+        _action.getFieldErrors().get("id"));
+    Mockito.verifyNoInteractions(_service);
+  }
+
+  @Test
+  public void testMissingStops() throws Exception {
+    _action.index();
+    assertEquals(ResponseCodes.RESPONSE_INVALID_ARGUMENT,
+        _action.getModel().getCode());
+    assertTrue(_action.getFieldErrors().get("id").contains(
+        Messages.MISSING_REQUIRED_FIELD));
+  }
+
+  @Test
+  public void testFilterChain() throws Exception {
+
+    FilterChain filterChain = new FilterChain();
+    _action.setFilterChain(filterChain);
+
+    StopsWithArrivalsAndDeparturesBean result = new StopsWithArrivalsAndDeparturesBean();
+    result.setStops(Arrays.asList(stop("1_a")));
+    result.setArrivalsAndDepartures(new ArrayList<ArrivalAndDepartureBean>());
+    result.setNearbyStops(new ArrayList<StopBean>());
+    Mockito.when(
+        _service.getStopsWithArrivalsAndDepartures(Mockito.anyCollection(),
+            Mockito.any(ArrivalsAndDeparturesQueryBean.class),
+            Mockito.any(AgencyServiceInterval.class))).thenReturn(result);
+
+    _action.setId(Arrays.asList("1_a"));
+    _action.index();
+
+    ArgumentCaptor<ArrivalsAndDeparturesQueryBean> query = ArgumentCaptor.forClass(ArrivalsAndDeparturesQueryBean.class);
+    Mockito.verify(_service).getStopsWithArrivalsAndDepartures(
+        Mockito.anyCollection(), query.capture(),
+        Mockito.any(AgencyServiceInterval.class));
+    assertSame(filterChain, query.getValue().getSystemFilterChain());
+  }
+
+  private static StopBean stop(String id) {
+    StopBean stop = new StopBean();
+    stop.setId(id);
+    return stop;
+  }
+}
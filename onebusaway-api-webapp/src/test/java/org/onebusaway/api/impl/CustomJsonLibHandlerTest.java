@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.model.transit.BeanFactoryV2;
+import org.onebusaway.api.serializers.json.CustomSerializerProvider;
+import org.onebusaway.transit_data.model.AgencyBean;
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.transit_data.model.StopsBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class CustomJsonLibHandlerTest {
+
+  private static Logger _log = LoggerFactory.getLogger(CustomJsonLibHandlerTest.class);
+
+  private CustomJsonLibHandler _handler;
+
+  private ResponseBean _response;
+
+  @Before
+  public void setup() {
+    _handler = new CustomJsonLibHandler();
+    _response = createStopsResponse(2000);
+  }
+
+  @Test
+  public void testMatchesPerRequestMapper() throws Exception {
+
+    // how every response used to be configured
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializerProvider(new CustomSerializerProvider());
+    mapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+    mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
+    mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+    String expected = mapper.writeValueAsString(_response);
+
+    StringWriter writer = new StringWriter();
+    _handler.fromObject(null, _response, "200", writer, null);
+    assertEquals(expected, writer.toString());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    _handler.writeJson(out, _response, null);
+    assertEquals(expected, out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testJsonp() throws Exception {
+
+    StringWriter writer = new StringWriter();
+    _handler.fromObject(null, _response, "200", writer, "cb");
+    String buffered = writer.toString();
+    assertTrue(buffered.startsWith("cb({"));
+    assertTrue(buffered.endsWith("})"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    _handler.writeJson(out, _response, "cb");
+    assertEquals(buffered, out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testPreSerializedText() throws Exception {
+    ResponseBean text = new ResponseBean(2, 200, "OK", "{\"siri\":1}", true);
+    StringWriter writer = new StringWriter();
+    _handler.fromObject(null, text, "200", writer, null);
+    assertEquals("{\"siri\":1}", writer.toString());
+  }
+
+  /**
+   * Rough comparison of building each response as a String against streaming
+   * it, on a stops-for-location sized BeanFactoryV2 response
+   */
+  @Test
+  @Ignore("benchmark, run manually")
+  public void testStreamingBenchmark() throws Exception {
+
+    int iterations = 200;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // warm up serializer caches
+    for (int i = 0; i < 20; i++) {
+      _handler.fromObject(null, _response, "200", new StringWriter(), null);
+      out.reset();
+      _handler.writeJson(out, _response, null);
+    }
+
+    long t0 = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      StringWriter writer = new StringWriter();
+      _handler.fromObject(null, _response, "200", writer, null);
+      // what struts does with a buffered response
+      writer.toString().getBytes("UTF-8");
+    }
+    long t1 = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      out.reset();
+      _handler.writeJson(out, _response, null);
+    }
+    long t2 = System.nanoTime();
+
+    _log.info("serialized " + out.size() + " bytes: buffered="
+        + ((t1 - t0) / iterations / 1000) + "us streaming="
+        + ((t2 - t1) / iterations / 1000) + "us");
+  }
+
+  private ResponseBean createStopsResponse(int stopCount) {
+
+    AgencyBean agency = new AgencyBean();
+    agency.setId("1");
+    agency.setName("Agency");
+    agency.setTimezone("America/New_York");
+    agency.setUrl("http://agency.example.com");
+
+    List<RouteBean> routes = new ArrayList<RouteBean>();
+    for (int i = 0; i < 20; i++) {
+      RouteBean.Builder route = RouteBean.builder();
+      route.setAgency(agency);
+      route.setId("1_route" + i);
+      route.setShortName(Integer.toString(i));
+      route.setLongName("Route " + i);
+      route.setType(3);
+      routes.add(route.create());
+    }
+
+    List<StopBean> stops = new ArrayList<StopBean>();
+    for (int i = 0; i < stopCount; i++) {
+      StopBean stop = new StopBean();
+      stop.setId("1_stop" + i);
+      stop.setCode(Integer.toString(i));
+      stop.setName("Main St & " + i + "th Ave");
+      stop.setDirection("N");
+      stop.setLat(40.7 + i * 0.0001);
+      stop.setLon(-74.0 - i * 0.0001);
+      stop.setRoutes(Arrays.asList(routes.get(i % routes.size()),
+          routes.get((i + 7) % routes.size())));
+      stops.add(stop);
+    }
+
+    StopsBean result = new StopsBean();
+    result.setStops(stops);
+
+    BeanFactoryV2 factory = new BeanFactoryV2(true);
+    return new ResponseBean(2, 200, "OK", factory.getResponse(result));
+  }
+}
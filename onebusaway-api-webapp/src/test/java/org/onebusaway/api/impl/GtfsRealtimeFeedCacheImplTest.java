@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onebusaway.api.services.GtfsRealtimeFeedCache.FeedSource;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
+import org.onebusaway.util.SystemTime;
+
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+public class GtfsRealtimeFeedCacheImplTest {
+
+  private GtfsRealtimeFeedCacheImpl _cache;
+
+  @Before
+  public void setup() {
+    _cache = new GtfsRealtimeFeedCacheImpl();
+  }
+
+  @After
+  public void tearDown() {
+    SystemTime.setAdjustment(0);
+  }
+
+  @Test
+  public void testBuildsOnce() {
+    CountingFeedSource source = new CountingFeedSource();
+
+    GtfsRealtimeFeedSnapshot a = _cache.getFeed("trips|1", source);
+    GtfsRealtimeFeedSnapshot b = _cache.getFeed("trips|1", source);
+    assertSame(a, b);
+    assertEquals(1, source.builds);
+    assertArrayEquals(a.getFeedMessage().toByteArray(), a.getBytes());
+
+    _cache.getFeed("trips|2", source);
+    assertEquals(2, source.builds);
+    assertEquals(2, _cache.getFeedCount());
+  }
+
+  @Test
+  public void testRefresh() {
+    CountingFeedSource source = new CountingFeedSource();
+    GtfsRealtimeFeedSnapshot a = _cache.getFeed("alerts|1", source);
+
+    // same entities, so the feed is unchanged
+    _cache.refresh();
+    assertEquals(2, source.builds);
+    assertSame(a, _cache.getFeed("alerts|1", source));
+
+    source.entities = 2;
+    _cache.refresh();
+    GtfsRealtimeFeedSnapshot b = _cache.getFeed("alerts|1", source);
+    assertNotSame(a, b);
+    assertEquals(2, b.getFeedMessage().getEntityCount());
+    assertFalse(a.getETag().equals(b.getETag()));
+    assertEquals(3, source.builds);
+  }
+
+  @Test
+  public void testRefreshFailureKeepsSnapshot() {
+    CountingFeedSource source = new CountingFeedSource();
+    GtfsRealtimeFeedSnapshot a = _cache.getFeed("vehicles|1", source);
+
+    source.fail = true;
+    source.entities = 3;
+    _cache.refresh();
+    assertSame(a, _cache.getFeed("vehicles|1", source));
+  }
+
+  @Test
+  public void testIdleFeedsAreDropped() {
+    _cache.setIdleTimeout(60);
+    CountingFeedSource source = new CountingFeedSource();
+    _cache.getFeed("vehicles|1", source);
+
+    SystemTime.setAdjustment(30 * 1000);
+    _cache.refresh();
+    assertEquals(1, _cache.getFeedCount());
+
+    SystemTime.setAdjustment(120 * 1000);
+    _cache.refresh();
+    assertEquals(0, _cache.getFeedCount());
+    assertEquals(2, source.builds);
+  }
+
+  private static class CountingFeedSource implements FeedSource {
+
+    private int builds = 0;
+
+    private int entities = 1;
+
+    private boolean fail = false;
+
+    @Override
+    public FeedMessage build(long time) {
+      builds++;
+      if (fail)
+        throw new IllegalStateException("no feed");
+      FeedMessage.Builder feed = FeedMessage.newBuilder();
+      FeedHeader.Builder header = feed.getHeaderBuilder();
+      header.setGtfsRealtimeVersion("2.0");
+      header.setTimestamp(time / 1000);
+      for (int i = 0; i < entities; i++)
+        feed.addEntityBuilder().setId(Integer.toString(i)).setIsDeleted(true);
+      return feed.build();
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.beans;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A property path expression, such as "block.id", compiled against a starting
+ * type into a chain of getter accessors. Like
+ * {@link org.onebusaway.collections.beans.PropertyPathExpression}, evaluation
+ * stops and returns null as soon as a property along the path is null, but the
+ * getters are resolved once and called through {@link LambdaMetafactory}
+ * generated functions rather than {@link Method#invoke(Object, Object...)}.
+ * Getters that can't be linked that way (a non-public declaring class, or one
+ * not visible from this class loader) fall back to a {@link MethodHandle}.
+ *
+ * Compiled expressions are immutable, thread-safe and cached per type, so
+ * compiling the same path twice is cheap.
+ */
+public final class CompiledPropertyPathExpression implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final ClassValue<ConcurrentMap<String, CompiledPropertyPathExpression>> _cache = new ClassValue<ConcurrentMap<String, CompiledPropertyPathExpression>>() {
+    @Override
+    protected ConcurrentMap<String, CompiledPropertyPathExpression> computeValue(
+        Class<?> type) {
+      return new ConcurrentHashMap<String, CompiledPropertyPathExpression>();
+    }
+  };
+
+  private final Class<?> _type;
+
+  private final String _path;
+
+  private final transient Function<Object, Object>[] _getters;
+
+  private final transient Class<?> _resultType;
+
+  /**
+   * @param type the type the expression will be evaluated against
+   * @param path a dot-separated property path, such as "trip.shapeId"
+   * @throws IllegalArgumentException if a property along the path has no
+   *           public getter
+   */
+  public static CompiledPropertyPathExpression compile(Class<?> type,
+      String path) {
+    ConcurrentMap<String, CompiledPropertyPathExpression> expressions = _cache.get(type);
+    CompiledPropertyPathExpression expression = expressions.get(path);
+    if (expression == null) {
+      expression = new CompiledPropertyPathExpression(type, path);
+      CompiledPropertyPathExpression existing = expressions.putIfAbsent(path,
+          expression);
+      if (existing != null)
+        expression = existing;
+    }
+    return expression;
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompiledPropertyPathExpression(Class<?> type, String path) {
+    _type = type;
+    _path = path;
+    String[] properties = path.split("\\.");
+    _getters = new Function[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      Method method = getGetter(type, properties[i]);
+      _getters[i] = compileGetter(method);
+      type = method.getReturnType();
+    }
+    _resultType = type;
+  }
+
+  public String getPath() {
+    return _path;
+  }
+
+  public Class<?> getType() {
+    return _type;
+  }
+
+  /**
+   * @return the declared type of the value at the end of the path
+   */
+  public Class<?> getResultType() {
+    return _resultType;
+  }
+
+  /**
+   * @return the value at the end of the path, or null if the target or any
+   *         property along the way is null
+   */
+  public Object invoke(Object target) {
+    Function<Object, Object>[] getters = _getters;
+    for (int i = 0; i < getters.length; i++) {
+      if (target == null)
+        return null;
+      target = getters[i].apply(target);
+    }
+    return target;
+  }
+
+  @Override
+  public String toString() {
+    return _type.getName() + ":" + _path;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private Object readResolve() throws ObjectStreamException {
+    return compile(_type, _path);
+  }
+
+  private static Method getGetter(Class<?> type, String property) {
+    if (property.length() == 0)
+      throw new IllegalArgumentException("empty property in path for "
+          + type.getName());
+    String name = Character.toUpperCase(property.charAt(0))
+        + property.substring(1);
+    Method method = findMethod(type, "get" + name);
+    if (method == null)
+      method = findMethod(type, "is" + name);
+    if (method == null || method.getReturnType() == Void.TYPE)
+      throw new IllegalArgumentException("no getter for property \""
+          + property + "\" on " + type.getName());
+    return method;
+  }
+
+  private static Method findMethod(Class<?> type, String name) {
+    try {
+      return type.getMethod(name);
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private static Function<Object, Object> compileGetter(Method method) {
+    if (isLinkable(method)) {
+      try {
+        return createFunction(method);
+      } catch (Throwable ex) {
+        // fall through to a plain method handle
+      }
+    }
+    return createMethodHandleGetter(method);
+  }
+
+  /**
+   * A generated function calls the getter directly, so the declaring class
+   * has to be public and resolve to the same class from here
+   */
+  private static boolean isLinkable(Method method) {
+    Class<?> declaringClass = method.getDeclaringClass();
+    if (!Modifier.isPublic(declaringClass.getModifiers()))
+      return false;
+    try {
+      return Class.forName(declaringClass.getName(), false,
+          CompiledPropertyPathExpression.class.getClassLoader()) == declaringClass;
+    } catch (ClassNotFoundException ex) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> createFunction(Method method)
+      throws Throwable {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle getter = lookup.unreflect(method);
+    MethodType instantiatedType = MethodType.methodType(
+        MethodType.methodType(method.getReturnType()).wrap().returnType(),
+        method.getDeclaringClass());
+    CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+        MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class), getter,
+        instantiatedType);
+    return (Function<Object, Object>) site.getTarget().invokeExact();
+  }
+
+  private static Function<Object, Object> createMethodHandleGetter(
+      final Method method) {
+    MethodHandle handle;
+    try {
+      method.setAccessible(true);
+      handle = MethodHandles.lookup().unreflect(method);
+    } catch (RuntimeException | IllegalAccessException ex) {
+      return new ReflectiveGetter(method);
+    }
+    final MethodHandle getter = handle.asType(MethodType.methodType(
+        Object.class, Object.class));
+    return new Function<Object, Object>() {
+      @Override
+      public Object apply(Object target) {
+        try {
+          return getter.invokeExact(target);
+        } catch (RuntimeException | Error ex) {
+          throw ex;
+        } catch (Throwable ex) {
+          throw new IllegalStateException("error invoking " + method, ex);
+        }
+      }
+    };
+  }
+
+  private static class ReflectiveGetter implements Function<Object, Object> {
+
+    private final Method _method;
+
+    public ReflectiveGetter(Method method) {
+      _method = method;
+    }
+
+    @Override
+    public Object apply(Object target) {
+      try {
+        return _method.invoke(target);
+      } catch (InvocationTargetException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IllegalStateException("error invoking " + _method, cause);
+      } catch (IllegalAccessException ex) {
+        throw new IllegalStateException("error invoking " + _method, ex);
+      }
+    }
+  }
+}
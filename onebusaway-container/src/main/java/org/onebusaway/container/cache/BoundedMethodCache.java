@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory {@link MethodCache} holding at most a fixed number of values,
+ * evicting the least recently used value first. Values may optionally expire
+ * a fixed time after they are cached. Values are held by reference, so
+ * {@link Cacheable#isValueSerializable()} has no effect.
+ */
+public class BoundedMethodCache implements MethodCache {
+
+  private final String _name;
+
+  private final long _timeToLive;
+
+  private final Map<Serializable, CachedValue> _values;
+
+  /**
+   * @param name
+   * @param maxSize the maximum number of values held
+   * @param timeToLive time in ms a value remains valid, or zero for no
+   *          expiration
+   */
+  public BoundedMethodCache(String name, final int maxSize, long timeToLive) {
+    _name = name;
+    _timeToLive = timeToLive;
+    _values = new LinkedHashMap<Serializable, CachedValue>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<Serializable, CachedValue> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Override
+  public String getName() {
+    return _name;
+  }
+
+  @Override
+  public synchronized Object get(Serializable key) {
+    CachedValue value = _values.get(key);
+    if (value == null)
+      return MISS;
+    if (value.expiration != 0 && value.expiration < System.currentTimeMillis()) {
+      _values.remove(key);
+      return MISS;
+    }
+    return value.value;
+  }
+
+  @Override
+  public synchronized void put(Serializable key, Object value) {
+    long expiration = _timeToLive > 0 ? System.currentTimeMillis()
+        + _timeToLive : 0;
+    _values.put(key, new CachedValue(value, expiration));
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return _values.size();
+  }
+
+  private static class CachedValue {
+
+    private final Object value;
+
+    private final long expiration;
+
+    public CachedValue(Object value, long expiration) {
+      this.value = value;
+      this.expiration = expiration;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+/**
+ * {@link MethodCacheFactory} for {@link BoundedMethodCache}, an in-memory
+ * alternative to EhCache for method results that never need to overflow to
+ * disk or be shared across cache managers.
+ */
+public class BoundedMethodCacheFactory implements MethodCacheFactory {
+
+  private int _maxSize = 1000;
+
+  private int _timeToLiveSeconds = 0;
+
+  /**
+   * @param maxSize the maximum number of results kept per cached method
+   */
+  public void setMaxSize(int maxSize) {
+    _maxSize = maxSize;
+  }
+
+  /**
+   * @param timeToLiveSeconds how long a result remains valid after it is
+   *          cached, or zero for no expiration
+   */
+  public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+    _timeToLiveSeconds = timeToLiveSeconds;
+  }
+
+  @Override
+  public MethodCache createMethodCache(String name, boolean valueSerializable) {
+    return new BoundedMethodCache(name, _maxSize, _timeToLiveSeconds * 1000L);
+  }
+}
@@ -26,7 +26,7 @@ import net.sf.ehcache.Cache;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.springframework.stereotype.Component;
 
 /**
@@ -206,9 +206,9 @@ public class CacheableMethodKeyFactoryManager {
     cacheRefreshIndicator |= cacheableArgumentAnnotation.cacheRefreshIndicator();
 
     if (!(keyProperty == null || keyProperty.equals(""))) {
-      PropertyPathExpression expression = new PropertyPathExpression(
-          keyProperty);
-      type = expression.initialize(type);
+      CompiledPropertyPathExpression expression = CompiledPropertyPathExpression.compile(
+          type, keyProperty);
+      type = expression.getResultType();
       CacheableObjectKeyFactory factory = getKeyFactoryForParameterType(type,
           cacheRefreshIndicator);
       return new PropertyPathExpressionCacheableObjectKeyFactory(expression,
@@ -17,23 +17,36 @@ package org.onebusaway.container.cache;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Element;
 import net.sf.ehcache.ObjectExistsException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 /**
  * Support class providing functionality for caching the output of arbitrary
  * method calls, using the arguments to the method to generate the cache key.
  * 
- * EhCache is used as the backing cache store.
+ * EhCache is used as the backing cache store, unless a
+ * {@link MethodCacheFactory} is specified. Concurrent misses for the same key
+ * are coalesced into a single call to the underlying method, and hit, miss and
+ * load time statistics are kept for each cached method.
  * 
  * @author bdferris
  * @see Cacheable
@@ -41,6 +54,7 @@ import org.slf4j.LoggerFactory;
  * @see CacheableMethodKeyFactory
  * @see CacheableMethodKeyFactoryManager
  */
+@ManagedResource("org.onebusaway.container.cache:name=CacheableMethodManager")
 public class CacheableMethodManager {
 
   private static Logger _log = LoggerFactory.getLogger(CacheableMethodManager.class);
@@ -49,6 +63,8 @@ public class CacheableMethodManager {
 
   private CacheManager _cacheManager;
 
+  private MethodCacheFactory _methodCacheFactory;
+
   protected CacheableMethodKeyFactoryManager _cacheableMethodKeyFactoryManager;
 
   private String _cacheNamePrefix;
@@ -57,6 +73,16 @@ public class CacheableMethodManager {
     _cacheManager = cacheManager;
   }
 
+  /**
+   * Store method results in caches created by the specified factory instead of
+   * EhCache.
+   * 
+   * @param methodCacheFactory
+   */
+  public void setMethodCacheFactory(MethodCacheFactory methodCacheFactory) {
+    _methodCacheFactory = methodCacheFactory;
+  }
+
   public void setCacheableMethodKeyFactoryManager(
       CacheableMethodKeyFactoryManager cacheableMethodKeyFactoryManager) {
     _cacheableMethodKeyFactoryManager = cacheableMethodKeyFactoryManager;
@@ -70,22 +96,56 @@ public class CacheableMethodManager {
 
     CacheEntry entry = getCache(pjp);
     CacheableMethodKeyFactory keyFactory = entry.getKeyFactory();
-    Cache cache = entry.getCache();
+    MethodCache cache = entry.getCache();
     CacheKeyInfo keyInfo = keyFactory.createKey(pjp);
     Serializable key = keyInfo.getKey();
 
-    Element element = cache.get(key);
+    if (!keyInfo.isCacheRefreshIndicated()) {
+      Object value = cache.get(key);
+      if (value != MethodCache.MISS) {
+        entry.getStatistics().addHit();
+        return value;
+      }
+    }
 
-    if (element == null || keyInfo.isCacheRefreshIndicated()) {
-      Object retVal = pjp.proceed();
-      element = new Element(key, retVal);
-      cache.put(element);
+    entry.getStatistics().addMiss();
+    return load(entry, key, pjp);
+  }
+
+  /**
+   * @param cacheName
+   * @return statistics for the named cache, or null if no such method has been
+   *         cached yet
+   */
+  public CacheableMethodStatistics getStatistics(String cacheName) {
+    CacheEntry entry = _entries.get(cacheName);
+    if (entry == null)
+      return null;
+    return entry.getStatistics();
+  }
+
+  @ManagedAttribute
+  public List<String> getCacheNames() {
+    List<String> names = new ArrayList<String>(_entries.keySet());
+    Collections.sort(names);
+    return names;
+  }
+
+  @ManagedAttribute
+  public List<String> getCacheStatistics() {
+    List<String> lines = new ArrayList<String>();
+    for (String name : getCacheNames()) {
+      CacheEntry entry = _entries.get(name);
+      lines.add(name + " size=" + entry.getCache().getSize() + " "
+          + entry.getStatistics());
     }
+    return lines;
+  }
 
-    if (entry.isValueSerializable())
-      return element.getValue();
-    else
-      return element.getObjectValue();
+  @ManagedOperation
+  public void resetCacheStatistics() {
+    for (CacheEntry entry : _entries.values())
+      entry.getStatistics().reset();
   }
 
   /***************************************************************************
@@ -117,6 +177,37 @@ public class CacheableMethodManager {
    * Private Methods
    ****/
 
+  /**
+   * Only one thread calls the underlying method for a given key at a time,
+   * with any other threads missing on the same key waiting for and sharing
+   * its result.
+   */
+  private Object load(CacheEntry entry, Serializable key,
+      ProceedingJoinPoint pjp) throws Throwable {
+
+    ConcurrentMap<Serializable, FutureTask<Object>> loads = entry.getLoads();
+    FutureTask<Object> task = new FutureTask<Object>(new LoadTask(entry, key,
+        pjp));
+    FutureTask<Object> existing = loads.putIfAbsent(key, task);
+
+    if (existing != null) {
+      entry.getStatistics().addCoalescedLoad();
+      task = existing;
+    } else {
+      try {
+        task.run();
+      } finally {
+        loads.remove(key, task);
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (ExecutionException ex) {
+      throw ex.getCause();
+    }
+  }
+
   private CacheEntry getCache(ProceedingJoinPoint pjp) {
 
     String name = getCacheName(pjp);
@@ -127,27 +218,15 @@ public class CacheableMethodManager {
       Method method = _cacheableMethodKeyFactoryManager.getMatchingMethodForJoinPoint(pjp);
       CacheableMethodKeyFactory keyFactory = getKeyFactory(pjp, method);
       boolean valueSerializable = isValueSerializable(pjp, method);
-      Cache cache = _cacheManager.getCache(name);
-      if (cache == null) {
-        cache = createCache(pjp, name);
-        if (cache == null) {
-          if(!_cacheManager.cacheExists(name))
-            try {
-              _cacheManager.addCache(name);
-            } catch (ObjectExistsException oee) {
-              _log.error("Cache already exists: " + name);
-            }
-          cache = _cacheManager.getCache(name);
-        } else {
-          try {
-            _cacheManager.addCache(cache);
-          } catch (ObjectExistsException oee) {
-            _log.error("Cache already exists: " + name);
-          }
-        }
-      }
+      MethodCache methodCache = null;
+      if (_methodCacheFactory != null)
+        methodCache = _methodCacheFactory.createMethodCache(name,
+            valueSerializable);
+      else
+        methodCache = new EhCacheMethodCache(getEhCache(pjp, name),
+            valueSerializable);
       synchronized (_entries) {
-    	  entry = new CacheEntry(keyFactory, valueSerializable, cache);
+    	  entry = new CacheEntry(keyFactory, methodCache);
     	  if (_entries.containsKey(name)) {
     		  // another thread beat us here, discard
     		  _log.warn("concurrent attempt to create cache = " + name);
@@ -159,6 +238,29 @@ public class CacheableMethodManager {
     return _entries.get(name);
   }
 
+  private Cache getEhCache(ProceedingJoinPoint pjp, String name) {
+    Cache cache = _cacheManager.getCache(name);
+    if (cache == null) {
+      cache = createCache(pjp, name);
+      if (cache == null) {
+        if(!_cacheManager.cacheExists(name))
+          try {
+            _cacheManager.addCache(name);
+          } catch (ObjectExistsException oee) {
+            _log.error("Cache already exists: " + name);
+          }
+        cache = _cacheManager.getCache(name);
+      } else {
+        try {
+          _cacheManager.addCache(cache);
+        } catch (ObjectExistsException oee) {
+          _log.error("Cache already exists: " + name);
+        }
+      }
+    }
+    return cache;
+  }
+
   private boolean isValueSerializable(ProceedingJoinPoint pjp, Method method) {
     Cacheable c = method.getAnnotation(Cacheable.class);
     if (c == null)
@@ -170,14 +272,14 @@ public class CacheableMethodManager {
 
     private CacheableMethodKeyFactory _keyFactory;
 
-    private boolean _valueSerializable;
+    private MethodCache _cache;
 
-    private Cache _cache;
+    private CacheableMethodStatistics _statistics = new CacheableMethodStatistics();
 
-    public CacheEntry(CacheableMethodKeyFactory keyFactory,
-        boolean valueSerializable, Cache cache) {
+    private ConcurrentMap<Serializable, FutureTask<Object>> _loads = new ConcurrentHashMap<Serializable, FutureTask<Object>>();
+
+    public CacheEntry(CacheableMethodKeyFactory keyFactory, MethodCache cache) {
       _keyFactory = keyFactory;
-      _valueSerializable = valueSerializable;
       _cache = cache;
     }
 
@@ -185,12 +287,51 @@ public class CacheableMethodManager {
       return _keyFactory;
     }
 
-    public boolean isValueSerializable() {
-      return _valueSerializable;
+    public MethodCache getCache() {
+      return _cache;
     }
 
-    public Cache getCache() {
-      return _cache;
+    public CacheableMethodStatistics getStatistics() {
+      return _statistics;
+    }
+
+    public ConcurrentMap<Serializable, FutureTask<Object>> getLoads() {
+      return _loads;
+    }
+  }
+
+  private static class LoadTask implements Callable<Object> {
+
+    private final CacheEntry _entry;
+
+    private final Serializable _key;
+
+    private final ProceedingJoinPoint _pjp;
+
+    public LoadTask(CacheEntry entry, Serializable key, ProceedingJoinPoint pjp) {
+      _entry = entry;
+      _key = key;
+      _pjp = pjp;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      long t = System.currentTimeMillis();
+      boolean failed = true;
+      try {
+        Object retVal = _pjp.proceed();
+        _entry.getCache().put(_key, retVal);
+        failed = false;
+        return retVal;
+      } catch (Exception ex) {
+        throw ex;
+      } catch (Error err) {
+        throw err;
+      } catch (Throwable ex) {
+        throw new UndeclaredThrowableException(ex);
+      } finally {
+        _entry.getStatistics().addLoad(System.currentTimeMillis() - t, failed);
+      }
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit, miss and load time counters for a single cached method, as collected
+ * by {@link CacheableMethodManager}. A miss that waits on a load already in
+ * progress for the same key is counted as coalesced rather than as a load.
+ */
+public class CacheableMethodStatistics {
+
+  private final AtomicLong _hits = new AtomicLong();
+
+  private final AtomicLong _misses = new AtomicLong();
+
+  private final AtomicLong _loads = new AtomicLong();
+
+  private final AtomicLong _coalescedLoads = new AtomicLong();
+
+  private final AtomicLong _loadFailures = new AtomicLong();
+
+  private final AtomicLong _totalLoadTime = new AtomicLong();
+
+  public long getHits() {
+    return _hits.get();
+  }
+
+  public long getMisses() {
+    return _misses.get();
+  }
+
+  public long getLoads() {
+    return _loads.get();
+  }
+
+  public long getCoalescedLoads() {
+    return _coalescedLoads.get();
+  }
+
+  public long getLoadFailures() {
+    return _loadFailures.get();
+  }
+
+  /**
+   * @return total time spent loading values, in ms
+   */
+  public long getTotalLoadTime() {
+    return _totalLoadTime.get();
+  }
+
+  public void reset() {
+    _hits.set(0);
+    _misses.set(0);
+    _loads.set(0);
+    _coalescedLoads.set(0);
+    _loadFailures.set(0);
+    _totalLoadTime.set(0);
+  }
+
+  @Override
+  public String toString() {
+    long loads = getLoads();
+    long averageLoadTime = loads > 0 ? getTotalLoadTime() / loads : 0;
+    return "hits=" + getHits() + " misses=" + getMisses() + " loads=" + loads
+        + " coalesced=" + getCoalescedLoads() + " failures="
+        + getLoadFailures() + " averageLoadTime=" + averageLoadTime + "ms";
+  }
+
+  void addHit() {
+    _hits.incrementAndGet();
+  }
+
+  void addMiss() {
+    _misses.incrementAndGet();
+  }
+
+  void addCoalescedLoad() {
+    _coalescedLoads.incrementAndGet();
+  }
+
+  void addLoad(long loadTime, boolean failed) {
+    _loads.incrementAndGet();
+    _totalLoadTime.addAndGet(loadTime);
+    if (failed)
+      _loadFailures.incrementAndGet();
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
+
+/**
+ * {@link MethodCache} backed by an EhCache {@link Cache}, the default cache
+ * store for {@link CacheableMethodManager}.
+ */
+public class EhCacheMethodCache implements MethodCache {
+
+  private final Cache _cache;
+
+  private final boolean _valueSerializable;
+
+  public EhCacheMethodCache(Cache cache, boolean valueSerializable) {
+    _cache = cache;
+    _valueSerializable = valueSerializable;
+  }
+
+  public Cache getCache() {
+    return _cache;
+  }
+
+  @Override
+  public String getName() {
+    return _cache.getName();
+  }
+
+  @Override
+  public Object get(Serializable key) {
+    Element element = _cache.get(key);
+    if (element == null)
+      return MISS;
+    if (_valueSerializable)
+      return element.getValue();
+    else
+      return element.getObjectValue();
+  }
+
+  @Override
+  public void put(Serializable key, Object value) {
+    _cache.put(new Element(key, value));
+  }
+
+  @Override
+  public int getSize() {
+    return _cache.getSize();
+  }
+}
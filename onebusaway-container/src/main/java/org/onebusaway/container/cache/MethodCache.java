@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+
+/**
+ * The backing store for the results of a single cached method, as managed by
+ * {@link CacheableMethodManager}.
+ * 
+ * @see MethodCacheFactory
+ */
+public interface MethodCache {
+
+  /**
+   * Returned by {@link #get(Serializable)} when no value is cached for a key,
+   * since null is itself a legitimate cached method result.
+   */
+  public static final Object MISS = new Object();
+
+  public String getName();
+
+  /**
+   * @param key
+   * @return the cached value, or {@link #MISS} if no value is cached
+   */
+  public Object get(Serializable key);
+
+  public void put(Serializable key, Object value);
+
+  /**
+   * @return the number of values currently cached
+   */
+  public int getSize();
+}
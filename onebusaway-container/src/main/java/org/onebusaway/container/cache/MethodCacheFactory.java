@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+/**
+ * Creates the {@link MethodCache} backing store for a cached method. When no
+ * factory is set on {@link CacheableMethodManager}, method results are stored
+ * in EhCache.
+ * 
+ * @see BoundedMethodCacheFactory
+ */
+public interface MethodCacheFactory {
+
+  /**
+   * @param name the cache name, as determined by {@link CacheableMethodManager}
+   * @param valueSerializable see {@link Cacheable#isValueSerializable()}
+   * @return the cache
+   */
+  public MethodCache createMethodCache(String name, boolean valueSerializable);
+}
@@ -17,30 +17,30 @@ package org.onebusaway.container.cache;
 
 import java.io.Serializable;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 
 /**
  * Factory for producing a {@link Serializable} cache key from an arbitrary
- * object by first applying a link {@link PropertyPathExpression} to the object
- * and then applying a secondary {@link CacheableObjectKeyFactory} to the
+ * object by first applying a link {@link CompiledPropertyPathExpression} to the
+ * object and then applying a secondary {@link CacheableObjectKeyFactory} to the
  * result.
  * 
  * @author bdferris
  * @see CacheableObjectKeyFactory
  * @see DefaultCacheableKeyFactory
- * @see PropertyPathExpression
+ * @see CompiledPropertyPathExpression
  */
 public class PropertyPathExpressionCacheableObjectKeyFactory implements
     CacheableObjectKeyFactory, Serializable {
 
   private static final long serialVersionUID = 1L;
 
-  private final PropertyPathExpression _expression;
+  private final CompiledPropertyPathExpression _expression;
 
   private final CacheableObjectKeyFactory _objectKeyFactory;
 
   public PropertyPathExpressionCacheableObjectKeyFactory(
-      PropertyPathExpression expression,
+      CompiledPropertyPathExpression expression,
       CacheableObjectKeyFactory objectKeyFactory) {
     _expression = expression;
     _objectKeyFactory = objectKeyFactory;
@@ -16,5 +16,18 @@
 package org.onebusaway.container.refresh;
 
 public interface RefreshService {
+
   public void refresh(String name);
+
+  /**
+   * Refresh a group of resources that do not depend on one another. The
+   * {@link Refreshable} methods of each resource are still invoked one after
+   * another, in registration order, but the resources themselves are refreshed
+   * concurrently on a bounded thread pool. A method registered against more
+   * than one of the resources is only invoked once. Returns once every resource
+   * has been refreshed.
+   * 
+   * @param names the resources to refresh
+   */
+  public void refreshConcurrently(String... names);
 }
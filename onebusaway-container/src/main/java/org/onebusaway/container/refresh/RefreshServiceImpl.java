@@ -20,6 +20,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,17 +37,71 @@ class RefreshServiceImpl implements RefreshService, BeanPostProcessor {
 
   private Map<String, List<ObjectMethodPair>> _refreshMethodsByName = new HashMap<String, List<ObjectMethodPair>>();
 
+  private int _threadPoolSize = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * The maximum number of resources refreshed at once by
+   * {@link #refreshConcurrently(String...)}. Defaults to the number of
+   * available processors.
+   * 
+   * @param threadPoolSize
+   */
+  public void setThreadPoolSize(int threadPoolSize) {
+    _threadPoolSize = threadPoolSize;
+  }
+
   /****
    * {@link RefreshService} Interface
    ****/
 
   @Override
   public void refresh(String name) {
+    long start = System.currentTimeMillis();
     List<ObjectMethodPair> pairs = _refreshMethodsByName.get(name);
     if (pairs != null) {
       for (ObjectMethodPair pair : pairs)
-        invokePair(pair);
+        invokePair(name, pair);
+    }
+    _log.info("refresh of {} complete in {}ms", name,
+        System.currentTimeMillis() - start);
+  }
+
+  @Override
+  public void refreshConcurrently(String... names) {
+
+    long start = System.currentTimeMillis();
+
+    /**
+     * Build one task per resource, dropping methods that an earlier resource in
+     * the group has already claimed so that shared methods only run once
+     */
+    List<ObjectMethodPair> claimed = new ArrayList<ObjectMethodPair>();
+    List<RefreshTask> tasks = new ArrayList<RefreshTask>();
+
+    for (String name : names) {
+      List<ObjectMethodPair> pairs = _refreshMethodsByName.get(name);
+      if (pairs == null)
+        continue;
+      List<ObjectMethodPair> toInvoke = new ArrayList<ObjectMethodPair>();
+      for (ObjectMethodPair pair : pairs) {
+        if (!contains(claimed, pair.getObject(), pair.getMethod())) {
+          claimed.add(pair);
+          toInvoke.add(pair);
+        }
+      }
+      if (!toInvoke.isEmpty())
+        tasks.add(new RefreshTask(name, toInvoke));
+    }
+
+    if (tasks.size() <= 1 || _threadPoolSize <= 1) {
+      for (RefreshTask task : tasks)
+        task.run();
+    } else {
+      runTasks(tasks);
     }
+
+    _log.info("concurrent refresh of {} resources complete in {}ms",
+        tasks.size(), System.currentTimeMillis() - start);
   }
 
   /****
@@ -124,9 +182,48 @@ class RefreshServiceImpl implements RefreshService, BeanPostProcessor {
     return false;
   }
 
-  private void invokePair(ObjectMethodPair pair) {
+  private void runTasks(List<RefreshTask> tasks) {
+
+    int poolSize = Math.min(_threadPoolSize, tasks.size());
+    ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (RefreshTask task : tasks)
+        futures.add(executor.submit(task));
+
+      /**
+       * Wait for every resource, even when one fails, so that no refresh is
+       * left running against a bundle the caller considers failed
+       */
+      RuntimeException failure = null;
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          if (failure == null) {
+            Throwable cause = ex.getCause();
+            failure = cause instanceof RuntimeException
+                ? (RuntimeException) cause : new IllegalStateException(cause);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("interrupted during refresh", ex);
+        }
+      }
+
+      if (failure != null)
+        throw failure;
+
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void invokePair(String name, ObjectMethodPair pair) {
     Object object = pair.getObject();
     Method method = pair.getMethod();
+    long start = System.currentTimeMillis();
     try {
       ReflectionUtils.makeAccessible(method);
       method.invoke(object);
@@ -134,6 +231,27 @@ class RefreshServiceImpl implements RefreshService, BeanPostProcessor {
       throw new IllegalStateException("error invoking refresh method=" + method
           + " on target object=" + object, ex);
     }
+    _log.info("refresh of {} by {}.{} took {}ms", name,
+        method.getDeclaringClass().getSimpleName(), method.getName(),
+        System.currentTimeMillis() - start);
+  }
+
+  private class RefreshTask implements Runnable {
+
+    private final String _name;
+
+    private final List<ObjectMethodPair> _pairs;
+
+    public RefreshTask(String name, List<ObjectMethodPair> pairs) {
+      _name = name;
+      _pairs = pairs;
+    }
+
+    @Override
+    public void run() {
+      for (ObjectMethodPair pair : _pairs)
+        invokePair(_name, pair);
+    }
   }
 
   private static class ObjectMethodPair {
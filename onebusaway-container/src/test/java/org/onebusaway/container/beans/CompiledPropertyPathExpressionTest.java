@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.beans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.cache.CacheableObjectKeyFactory;
+import org.onebusaway.container.cache.DefaultCacheableObjectKeyFactory;
+import org.onebusaway.container.cache.PropertyPathExpressionCacheableObjectKeyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CompiledPropertyPathExpressionTest {
+
+  private static Logger _log = LoggerFactory.getLogger(CompiledPropertyPathExpressionTest.class);
+
+  @Test
+  public void testInvoke() {
+
+    CompiledPropertyPathExpression expression = CompiledPropertyPathExpression.compile(
+        Trip.class, "route.id");
+    assertEquals("route.id", expression.getPath());
+    assertEquals(String.class, expression.getResultType());
+
+    Trip trip = new Trip();
+    assertNull(expression.invoke(null));
+    assertNull(expression.invoke(trip));
+
+    trip.setRoute(new Route("1_100"));
+    assertEquals("1_100", expression.invoke(trip));
+
+    assertEquals(Boolean.TRUE,
+        CompiledPropertyPathExpression.compile(Trip.class, "active").invoke(trip));
+    assertEquals(Integer.valueOf(3), CompiledPropertyPathExpression.compile(
+        Trip.class, "stopCount").invoke(trip));
+  }
+
+  @Test
+  public void testNonPublicType() {
+    CompiledPropertyPathExpression expression = CompiledPropertyPathExpression.compile(
+        HiddenRoute.class, "id");
+    assertEquals("hidden", expression.invoke(new HiddenRoute()));
+  }
+
+  @Test
+  public void testCompiledOnce() throws Exception {
+
+    CompiledPropertyPathExpression expression = CompiledPropertyPathExpression.compile(
+        Trip.class, "route.id");
+    assertSame(expression,
+        CompiledPropertyPathExpression.compile(Trip.class, "route.id"));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(expression);
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+        bytes.toByteArray()));
+    assertSame(expression, in.readObject());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSuchProperty() {
+    CompiledPropertyPathExpression.compile(Trip.class, "route.name");
+  }
+
+  /**
+   * Rough comparison of the reflective PropertyPathExpression against the
+   * compiled expression, both on its own and when creating a cache key
+   */
+  @Test
+  @Ignore("benchmark, run manually")
+  public void testBenchmark() {
+
+    int iterations = 1000000;
+
+    Trip trip = new Trip();
+    trip.setRoute(new Route("1_100"));
+
+    PropertyPathExpression reflective = new PropertyPathExpression("route.id");
+    reflective.initialize(Trip.class);
+    CompiledPropertyPathExpression compiled = CompiledPropertyPathExpression.compile(
+        Trip.class, "route.id");
+    CacheableObjectKeyFactory keyFactory = new PropertyPathExpressionCacheableObjectKeyFactory(
+        compiled, new DefaultCacheableObjectKeyFactory());
+
+    for (int i = 0; i < 100000; i++) {
+      reflective.invoke(trip);
+      compiled.invoke(trip);
+      keyFactory.createKey(trip);
+    }
+
+    Object value = null;
+    long t0 = System.nanoTime();
+    for (int i = 0; i < iterations; i++)
+      value = reflective.invoke(trip);
+    long t1 = System.nanoTime();
+    for (int i = 0; i < iterations; i++)
+      value = compiled.invoke(trip);
+    long t2 = System.nanoTime();
+    for (int i = 0; i < iterations; i++)
+      value = keyFactory.createKey(trip).getKey();
+    long t3 = System.nanoTime();
+
+    assertEquals("1_100", value);
+
+    _log.info("route.id: reflective=" + ((t1 - t0) / iterations) + "ns compiled="
+        + ((t2 - t1) / iterations) + "ns key=" + ((t3 - t2) / iterations)
+        + "ns");
+  }
+
+  public static class Trip {
+
+    private Route route;
+
+    public Route getRoute() {
+      return route;
+    }
+
+    public void setRoute(Route route) {
+      this.route = route;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+
+    public int getStopCount() {
+      return 3;
+    }
+  }
+
+  public static class Route {
+
+    private final String id;
+
+    public Route(String id) {
+      this.id = id;
+    }
+
+    public String getId() {
+      return id;
+    }
+  }
+
+  static class HiddenRoute {
+    public String getId() {
+      return "hidden";
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package org.onebusaway.container.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.lang.reflect.Method;
 
@@ -64,5 +65,66 @@ public class CacheableMethodManagerTest {
 
     assertEquals("test", value);
     assertEquals(2, impl.getEvalauteBeanWithParameterAnnotationCount());
+
+    CacheableMethodStatistics stats = manager.getStatistics(manager.getCacheNames().get(0));
+    assertEquals(1, stats.getHits());
+    assertEquals(2, stats.getMisses());
+    assertEquals(2, stats.getLoads());
+    assertEquals(0, stats.getLoadFailures());
+  }
+
+  @Test
+  public void testMethodCacheFactory() throws Throwable {
+
+    CacheableMethodKeyFactoryManager factoryManager = new CacheableMethodKeyFactoryManager();
+    BoundedMethodCacheFactory cacheFactory = new BoundedMethodCacheFactory();
+    cacheFactory.setMaxSize(1);
+
+    CacheableMethodManager manager = new CacheableMethodManager();
+    manager.setCacheableMethodKeyFactoryManager(factoryManager);
+    manager.setMethodCacheFactory(cacheFactory);
+
+    MockServiceImpl impl = new MockServiceImpl();
+    Method method = MockServiceImpl.class.getMethod(
+        "evalauteBeanWithParameterAnnotation", MockBean.class, Boolean.TYPE);
+
+    MockBean beanA = new MockBean();
+    beanA.setId("a");
+    MockBean beanB = new MockBean();
+    beanB.setId("b");
+
+    ProceedingJoinPoint pjpA = ProceedingJoinPointFactory.create(impl, impl,
+        MockService.class, method, beanA, false);
+    ProceedingJoinPoint pjpB = ProceedingJoinPointFactory.create(impl, impl,
+        MockService.class, method, beanB, false);
+
+    assertEquals("test", manager.evaluate(pjpA));
+    assertEquals("test", manager.evaluate(pjpA));
+    assertEquals(1, impl.getEvalauteBeanWithParameterAnnotationCount());
+
+    /**
+     * The cache only holds a single value, so "b" evicts "a"
+     */
+    assertEquals("test", manager.evaluate(pjpB));
+    assertEquals("test", manager.evaluate(pjpA));
+    assertEquals(3, impl.getEvalauteBeanWithParameterAnnotationCount());
+  }
+
+  @Test
+  public void testBoundedMethodCache() {
+    BoundedMethodCache cache = new BoundedMethodCache("test", 2, 0);
+    assertSame(MethodCache.MISS, cache.get("a"));
+
+    cache.put("a", null);
+    cache.put("b", "b");
+    assertEquals(null, cache.get("a"));
+
+    /**
+     * "b" is now the least recently used
+     */
+    cache.put("c", "c");
+    assertEquals(2, cache.getSize());
+    assertSame(MethodCache.MISS, cache.get("b"));
+    assertEquals("c", cache.get("c"));
   }
 }
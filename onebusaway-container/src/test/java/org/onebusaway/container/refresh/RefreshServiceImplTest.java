@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.refresh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RefreshServiceImplTest {
+
+  @Test
+  public void testRefreshConcurrently() {
+
+    RefreshServiceImpl service = new RefreshServiceImpl();
+    service.setThreadPoolSize(2);
+
+    /**
+     * Each bean waits for the other to start, so the refresh only completes if
+     * both resources are refreshed at the same time
+     */
+    CountDownLatch latch = new CountDownLatch(2);
+    LatchBean beanA = new LatchBean(latch);
+    LatchBean beanB = new LatchBean(latch);
+    SharedBean shared = new SharedBean();
+
+    service.postProcessAfterInitialization(beanA, "beanA");
+    service.postProcessAfterInitialization(shared, "shared");
+    service.postProcessAfterInitialization(new OtherLatchBean(beanB), "beanB");
+
+    service.refreshConcurrently("a", "b");
+
+    assertTrue(beanA.isRefreshed());
+    assertTrue(beanB.isRefreshed());
+    assertEquals(1, shared.getCount());
+
+    service.refresh("a");
+    assertEquals(2, shared.getCount());
+  }
+
+  @Test
+  public void testRefreshConcurrentlyFailure() {
+
+    RefreshServiceImpl service = new RefreshServiceImpl();
+    SharedBean shared = new SharedBean();
+    service.postProcessAfterInitialization(shared, "shared");
+    service.postProcessAfterInitialization(new FailingBean(), "failing");
+
+    try {
+      service.refreshConcurrently("a", "c");
+      fail();
+    } catch (IllegalStateException ex) {
+      // expected
+    }
+
+    assertEquals(1, shared.getCount());
+  }
+
+  public static class LatchBean {
+
+    private final CountDownLatch _latch;
+
+    private volatile boolean _refreshed = false;
+
+    public LatchBean(CountDownLatch latch) {
+      _latch = latch;
+    }
+
+    @Refreshable(dependsOn = "a")
+    public void refresh() throws InterruptedException {
+      _latch.countDown();
+      if (!_latch.await(10, TimeUnit.SECONDS))
+        throw new IllegalStateException("resources not refreshed concurrently");
+      _refreshed = true;
+    }
+
+    public boolean isRefreshed() {
+      return _refreshed;
+    }
+  }
+
+  public static class OtherLatchBean {
+
+    private final LatchBean _delegate;
+
+    public OtherLatchBean(LatchBean delegate) {
+      _delegate = delegate;
+    }
+
+    @Refreshable(dependsOn = "b")
+    public void refresh() throws InterruptedException {
+      _delegate.refresh();
+    }
+  }
+
+  public static class SharedBean {
+
+    private final AtomicInteger _count = new AtomicInteger();
+
+    @Refreshable(dependsOn = {"a", "b"})
+    public void refresh() {
+      _count.incrementAndGet();
+    }
+
+    public int getCount() {
+      return _count.get();
+    }
+  }
+
+  public static class FailingBean {
+
+    @Refreshable(dependsOn = "c")
+    public void refresh() {
+      throw new IllegalArgumentException("failed");
+    }
+  }
+}
@@ -19,9 +19,7 @@ import java.util.List;
 
 import org.apache.struts2.convention.annotation.ParentPackage;
 import org.apache.struts2.convention.annotation.Result;
-import org.onebusaway.geocoder.enterprise.services.EnterpriseGeocoderResult;
-import org.onebusaway.geocoder.enterprise.services.EnterpriseGeocoderService;
-import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.presentation.services.search.SearchService;
 import org.onebusaway.enterprise.webapp.actions.OneBusAwayEnterpriseActionSupport;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,11 +30,10 @@ public class AutocompleteAction extends OneBusAwayEnterpriseActionSupport {
 
   private static final long serialVersionUID = 1L;
 
+  private static final int MAX_SUGGESTIONS = 10;
+
   @Autowired
-  private TransitDataService _transitDataService;
-  
-  @Autowired
-  private EnterpriseGeocoderService _geocoderService;
+  private SearchService _searchService;
 
   private List<String> suggestions = null;
   
@@ -53,20 +50,10 @@ public class AutocompleteAction extends OneBusAwayEnterpriseActionSupport {
     if(_term == null || _term.isEmpty())
       return SUCCESS;
     
-    suggestions = _transitDataService.getSearchSuggestions(null, _term.toLowerCase());
-    
-    if (suggestions != null && suggestions.size() == 0 && _term.length() > 2) {
-    	List<EnterpriseGeocoderResult> geocoderResults = _geocoderService.enterpriseGeocode(_term);
-    	// guard against misconfiguration
-    	if (geocoderResults == null) return SUCCESS;
-    	if (geocoderResults.size() > 0) {
-        	for (int i = 0; i < 10; i++) {
-        		suggestions.add(geocoderResults.get(i).getFormattedAddress());
-        		if (i+1 == geocoderResults.size())
-        			break;
-        	}
-    	}
-    }
+    // served from the search service's index rather than a transit data
+    // service call per keystroke; the remote geocoder is left to the search
+    // itself, as every keystroke with no match would otherwise reach it
+    suggestions = _searchService.getSuggestions(_term, MAX_SUGGESTIONS);
     return SUCCESS;
   }   
   
@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.annotations;
+
+import org.onebusaway.federations.FederatedService;
+
+/**
+ * Controls what a {@link FederatedByAggregateMethod} method returns when some
+ * {@link FederatedService} instances fail or miss the method deadline.
+ * 
+ * @see FederatedByAggregateMethod#partialResults()
+ */
+public enum EPartialResultPolicy {
+
+  /**
+   * Any failure or missed deadline fails the whole method call
+   */
+  FAIL,
+
+  /**
+   * Services that fail or miss the deadline are logged and left out of the
+   * aggregated result
+   */
+  OMIT
+}
@@ -18,7 +18,7 @@ package org.onebusaway.federations.annotations;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
@@ -34,14 +34,14 @@ class FederatedByAgencyIdMethodInvocationHandlerImpl implements
 
   private int _argumentIndex;
   
-  private PropertyPathExpression _expression = null;
+  private CompiledPropertyPathExpression _expression = null;
 
   public FederatedByAgencyIdMethodInvocationHandlerImpl(Method method, int argumentIndex, String expression) {
     _argumentIndex = argumentIndex;
     if (expression != null && expression.length() > 0) {
-      _expression = new PropertyPathExpression(expression);
       Class<?>[] parameterTypes = method.getParameterTypes();
-      _expression.initialize(parameterTypes[argumentIndex]);
+      _expression = CompiledPropertyPathExpression.compile(
+          parameterTypes[argumentIndex], expression);
     }
   }
 
@@ -26,8 +26,10 @@ import org.onebusaway.federations.FederatedService;
  * Directs the creation of a {@link FederatedServiceMethodInvocationHandler},
  * where a method returns either a {@link List} or a {@link Map} and the
  * federated method return value is generated by calling each
- * {@link FederatedService} in turn an aggregating the results with the
- * appropriate collection.
+ * {@link FederatedService} and aggregating the results with the appropriate
+ * collection. By default the services are called concurrently and their
+ * results merged as they arrive, with no deadline, and a failure from any
+ * service fails the call.
  * 
  * <pre class="code">
  * @FederatedByAggregateMethod
@@ -35,6 +37,9 @@ import org.onebusaway.federations.FederatedService;
   
  * @FederatedByAggregateMethod
  * public Map<String,String> getValuesAsMap();
+ *
+ * @FederatedByAggregateMethod(timeout = 2000, partialResults = EPartialResultPolicy.OMIT)
+ * public List<String> getValuesFromResponsiveServices();
  * </pre>
  * 
  * @author bdferris
@@ -45,4 +50,20 @@ import org.onebusaway.federations.FederatedService;
 @Target(value = ElementType.METHOD)
 public @interface FederatedByAggregateMethod {
 
+  /**
+   * @return true to call the services concurrently, false to call them one
+   *         at a time on the calling thread
+   */
+  boolean concurrent() default true;
+
+  /**
+   * @return the time, in milliseconds, to wait for all services to respond
+   *         when they are called concurrently, or zero to wait indefinitely
+   */
+  long timeout() default 0;
+
+  /**
+   * @return what to do when a service fails or misses the deadline
+   */
+  EPartialResultPolicy partialResults() default EPartialResultPolicy.FAIL;
 }
@@ -16,8 +16,11 @@
 package org.onebusaway.federations.annotations;
 
 import org.onebusaway.exceptions.ServiceAreaServiceException;
+import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -25,62 +28,210 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides a {@link FederatedServiceMethodInvocationHandler} implementation for
  * the {@link FederatedByAggregateMethod} annotation.
  * 
+ * Concurrent calls run on a shared pool of daemon threads, and each result is
+ * merged into the aggregate as soon as it arrives. Once the call returns, any
+ * service calls still running are cancelled.
+ * 
  * @author bdferris
  */
 class FederatedByAggregateMethodInvocationHandlerImpl implements FederatedServiceMethodInvocationHandler {
 
+  private static Logger _log = LoggerFactory.getLogger(FederatedByAggregateMethodInvocationHandlerImpl.class);
+
+  private static final ExecutorService _executor = Executors.newCachedThreadPool(new AggregateThreadFactory());
+
   private EMethodAggregationType _aggregationType;
 
+  private boolean _concurrent;
+
+  private long _timeout;
+
+  private EPartialResultPolicy _partialResultPolicy;
+
   public FederatedByAggregateMethodInvocationHandlerImpl(EMethodAggregationType aggregationType) {
+    this(aggregationType, true, 0, EPartialResultPolicy.FAIL);
+  }
+
+  public FederatedByAggregateMethodInvocationHandlerImpl(EMethodAggregationType aggregationType,
+      boolean concurrent, long timeout, EPartialResultPolicy partialResultPolicy) {
     _aggregationType = aggregationType;
+    _concurrent = concurrent;
+    _timeout = timeout;
+    _partialResultPolicy = partialResultPolicy;
   }
   
   public EMethodAggregationType getAggregationType() {
     return _aggregationType;
   }
 
+  public boolean isConcurrent() {
+    return _concurrent;
+  }
+
+  public long getTimeout() {
+    return _timeout;
+  }
+
+  public EPartialResultPolicy getPartialResultPolicy() {
+    return _partialResultPolicy;
+  }
+
   public Object invoke(FederatedServiceCollection collection, Method method, Object[] args)
       throws ServiceAreaServiceException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
 
-    List<Object> results = new ArrayList<Object>();
+    Set<FederatedService> services = collection.getAllServices();
+    Object aggregate = createAggregate();
+
+    if (!_concurrent || services.size() < 2) {
+      for (FederatedService service : services) {
+        try {
+          mergeResult(aggregate, method.invoke(service, args));
+        } catch (InvocationTargetException ex) {
+          handleFailure(method, ex);
+        }
+      }
+      return aggregate;
+    }
+
+    CompletionService<Object> completionService = new ExecutorCompletionService<Object>(_executor);
+    List<Future<Object>> futures = new ArrayList<Future<Object>>(services.size());
+    for (FederatedService service : services)
+      futures.add(completionService.submit(new ServiceCall(service, method, args)));
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_timeout);
 
-    for (FederatedService service : collection.getAllServices())
-      results.add(method.invoke(service, args));
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        Future<Object> future = null;
+        if (_timeout > 0) {
+          future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (future == null) {
+            String message = (futures.size() - i) + " of " + futures.size()
+                + " federated services did not respond to " + method.getName()
+                + " within " + _timeout + "ms";
+            if (_partialResultPolicy == EPartialResultPolicy.FAIL)
+              throw new ServiceException(message);
+            _log.warn(message);
+            break;
+          }
+        } else {
+          future = completionService.take();
+        }
 
-    return aggregateResults(results);
+        try {
+          mergeResult(aggregate, future.get());
+        } catch (ExecutionException ex) {
+          handleFailure(method, ex.getCause());
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException(ex);
+    } finally {
+      for (Future<Object> future : futures)
+        future.cancel(true);
+    }
+
+    return aggregate;
   }
 
-  private Object aggregateResults(List<Object> results) {
+  private Object createAggregate() {
     switch (_aggregationType) {
       case LIST:
-        return aggregateResultsAsList(results);
+        return new ArrayList<Object>();
       case MAP:
-        return aggregateResultsAsMap(results);
+        return new HashMap<Object, Object>();
       default:
         throw new IllegalStateException("unknown aggregation type: " + _aggregationType);
     }
   }
 
-  private Object aggregateResultsAsList(List<Object> results) {
-    List<Object> asList = new ArrayList<Object>();
-    for (Object result : results) {
-      List<?> values = (List<?>) result;
-      asList.addAll(values);
+  @SuppressWarnings("unchecked")
+  private void mergeResult(Object aggregate, Object result) {
+    switch (_aggregationType) {
+      case LIST:
+        ((List<Object>) aggregate).addAll((List<?>) result);
+        break;
+      case MAP:
+        ((Map<Object, Object>) aggregate).putAll((Map<?, ?>) result);
+        break;
+      default:
+        throw new IllegalStateException("unknown aggregation type: " + _aggregationType);
+    }
+  }
+
+  /**
+   * Rethrows the failure of a single service call, unless partial results are
+   * allowed
+   */
+  private void handleFailure(Method method, Throwable ex)
+      throws IllegalAccessException, InvocationTargetException {
+
+    if (_partialResultPolicy == EPartialResultPolicy.OMIT) {
+      Throwable cause = ex;
+      if (cause instanceof InvocationTargetException)
+        cause = ((InvocationTargetException) cause).getTargetException();
+      _log.warn("federated service call to " + method.getName()
+          + " failed, leaving it out of the results", cause);
+      return;
+    }
+
+    if (ex instanceof InvocationTargetException)
+      throw (InvocationTargetException) ex;
+    if (ex instanceof IllegalAccessException)
+      throw (IllegalAccessException) ex;
+    if (ex instanceof RuntimeException)
+      throw (RuntimeException) ex;
+    if (ex instanceof Error)
+      throw (Error) ex;
+    throw new ServiceException(ex);
+  }
+
+  private static class ServiceCall implements Callable<Object> {
+
+    private final FederatedService _service;
+
+    private final Method _method;
+
+    private final Object[] _args;
+
+    public ServiceCall(FederatedService service, Method method, Object[] args) {
+      _service = service;
+      _method = method;
+      _args = args;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      return _method.invoke(_service, _args);
     }
-    return asList;
   }
 
-  private Object aggregateResultsAsMap(List<Object> results) {
-    Map<Object, Object> asMap = new HashMap<Object, Object>();
-    for (Object result : results) {
-      Map<?, ?> values = (Map<?, ?>) result;
-      asMap.putAll(values);
+  private static class AggregateThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger _count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "federated-aggregate-" + _count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
     }
-    return asMap;
   }
 }
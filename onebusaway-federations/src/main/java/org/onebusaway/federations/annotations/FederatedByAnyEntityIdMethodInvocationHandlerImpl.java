@@ -16,7 +16,7 @@
  */
 package org.onebusaway.federations.annotations;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
@@ -39,9 +39,9 @@ class FederatedByAnyEntityIdMethodInvocationHandlerImpl implements
 
   private final int _argumentIndex;
 
-  private final List<PropertyPathExpression> _expressions;
+  private final List<CompiledPropertyPathExpression> _expressions;
 
-  private final List<PropertyPathExpression> _agencyIdExpressions;
+  private final List<CompiledPropertyPathExpression> _agencyIdExpressions;
 
   public FederatedByAnyEntityIdMethodInvocationHandlerImpl(Method method,
       int argumentIndex, String[] properties, String[] agencyIdProperties) {
@@ -69,12 +69,12 @@ class FederatedByAnyEntityIdMethodInvocationHandlerImpl implements
     Object target = args[_argumentIndex];
 
     Set<String> agencyIds = new HashSet<String>();
-    for (PropertyPathExpression expression : _expressions) {
+    for (CompiledPropertyPathExpression expression : _expressions) {
       String entityId = (String) expression.invoke(target);
       if (entityId != null)
         agencyIds.add(AgencyIdSupport.getAgencyIdFromEntityId(entityId));
     }
-    for (PropertyPathExpression expression : _agencyIdExpressions) {
+    for (CompiledPropertyPathExpression expression : _agencyIdExpressions) {
       String agencyId = (String) expression.invoke(target);
       if (agencyId != null) {
         agencyIds.add(agencyId);
@@ -85,14 +85,14 @@ class FederatedByAnyEntityIdMethodInvocationHandlerImpl implements
     return method.invoke(service, args);
   }
 
-  private List<PropertyPathExpression> compileExpressions(Method method,
+  private List<CompiledPropertyPathExpression> compileExpressions(Method method,
       int argumentIndex, String[] properties) {
-    List<PropertyPathExpression> expressions = new ArrayList<PropertyPathExpression>(
+    List<CompiledPropertyPathExpression> expressions = new ArrayList<CompiledPropertyPathExpression>(
         properties.length);
     for (String property : properties) {
-      PropertyPathExpression expression = new PropertyPathExpression(property);
       Class<?>[] parameterTypes = method.getParameterTypes();
-      expression.initialize(parameterTypes[argumentIndex]);
+      CompiledPropertyPathExpression expression = CompiledPropertyPathExpression.compile(
+          parameterTypes[argumentIndex], property);
       expressions.add(expression);
     }
     return expressions;
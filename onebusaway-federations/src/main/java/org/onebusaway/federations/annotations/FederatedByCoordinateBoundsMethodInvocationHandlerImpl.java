@@ -18,7 +18,7 @@ package org.onebusaway.federations.annotations;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.onebusaway.exceptions.ServiceAreaServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
@@ -35,13 +35,13 @@ class FederatedByCoordinateBoundsMethodInvocationHandlerImpl implements
 
   private int _argumentIndex;
   
-  private PropertyPathExpression _expression;
+  private CompiledPropertyPathExpression _expression;
 
   public int getArgumentIndex() {
     return _argumentIndex;
   }
   
-  public PropertyPathExpression getExpression() {
+  public CompiledPropertyPathExpression getExpression() {
     return _expression;
   }
 
@@ -49,9 +49,9 @@ class FederatedByCoordinateBoundsMethodInvocationHandlerImpl implements
       int argumentIndex, String expression) {
     _argumentIndex = argumentIndex;
     if (expression != null && expression.length() > 0) {
-      _expression = new PropertyPathExpression(expression);
       Class<?>[] parameterTypes = method.getParameterTypes();
-      _expression.initialize(parameterTypes[argumentIndex]);
+      _expression = CompiledPropertyPathExpression.compile(
+          parameterTypes[argumentIndex], expression);
     }
   }
 
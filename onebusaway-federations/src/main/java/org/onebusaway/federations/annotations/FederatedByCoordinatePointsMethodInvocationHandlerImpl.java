@@ -20,7 +20,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.onebusaway.exceptions.ServiceAreaServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
@@ -37,13 +37,13 @@ class FederatedByCoordinatePointsMethodInvocationHandlerImpl implements
 
   private int[] _argumentIndices;
 
-  private PropertyPathExpression[] _expressions;
+  private CompiledPropertyPathExpression[] _expressions;
 
   public int[] getArgumentIndices() {
     return _argumentIndices;
   }
 
-  public PropertyPathExpression[] getExpressions() {
+  public CompiledPropertyPathExpression[] getExpressions() {
     return _expressions;
   }
 
@@ -55,14 +55,14 @@ class FederatedByCoordinatePointsMethodInvocationHandlerImpl implements
           "the number of argument indices and expressions must be the same");
 
     _argumentIndices = argumentIndices;
-    _expressions = new PropertyPathExpression[expressions.length];
+    _expressions = new CompiledPropertyPathExpression[expressions.length];
 
     for (int i = 0; i < expressions.length; i++) {
       String expression = expressions[i];
       if (expression != null && expression.length() > 0) {
-        _expressions[i] = new PropertyPathExpression(expression);
         Class<?>[] parameterTypes = method.getParameterTypes();
-        _expressions[i].initialize(parameterTypes[argumentIndices[i]]);
+        _expressions[i] = CompiledPropertyPathExpression.compile(
+            parameterTypes[argumentIndices[i]], expression);
       }
     }
   }
@@ -76,7 +76,7 @@ class FederatedByCoordinatePointsMethodInvocationHandlerImpl implements
 
     for (int i = 0; i < _argumentIndices.length; i++) {
       Object value = args[_argumentIndices[i]];
-      PropertyPathExpression expression = _expressions[i];
+      CompiledPropertyPathExpression expression = _expressions[i];
       if (expression != null)
         value = expression.invoke(value);
       CoordinatePoint point = (CoordinatePoint) value;
@@ -15,7 +15,7 @@
  */
 package org.onebusaway.federations.annotations;
 
-import org.onebusaway.collections.beans.PropertyPathExpression;
+import org.onebusaway.container.beans.CompiledPropertyPathExpression;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
@@ -34,15 +34,15 @@ class FederatedByEntityIdMethodInvocationHandlerImpl implements
 
   private int _argumentIndex;
 
-  private PropertyPathExpression _expression = null;
+  private CompiledPropertyPathExpression _expression = null;
 
   public FederatedByEntityIdMethodInvocationHandlerImpl(Method method,
       int argumentIndex, String expression) {
     _argumentIndex = argumentIndex;
     if (expression != null && expression.length() > 0) {
-      _expression = new PropertyPathExpression(expression);
       Class<?>[] parameterTypes = method.getParameterTypes();
-      _expression.initialize(parameterTypes[argumentIndex]);
+      _expression = CompiledPropertyPathExpression.compile(
+          parameterTypes[argumentIndex], expression);
     }
   }
 
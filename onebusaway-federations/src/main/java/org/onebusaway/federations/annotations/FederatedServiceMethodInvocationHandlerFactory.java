@@ -78,7 +78,8 @@ public class FederatedServiceMethodInvocationHandlerFactory {
     if (ann4 != null) {
       EMethodAggregationType aggregationType = getAggregationTypeForMethod(method);
       return new FederatedByAggregateMethodInvocationHandlerImpl(
-          aggregationType);
+          aggregationType, ann4.concurrent(), ann4.timeout(),
+          ann4.partialResults());
     }
 
     FederatedByCoordinateBoundsMethod ann5 = method.getAnnotation(FederatedByCoordinateBoundsMethod.class);
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.remoting.caucho.HessianServiceExporter;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.util.NestedServletException;
+
+/**
+ * A {@link HessianServiceExporter} that gzips responses for clients that ask
+ * for it with an "Accept-Encoding: gzip" request header, such as proxies
+ * created by {@link PooledHessianProxyFactoryBean}. Large bean graphs, like
+ * lists of arrivals and departures or trip details, compress to a fraction of
+ * their Hessian size. Plain Hessian clients don't ask for gzip and are served
+ * exactly as before, so this exporter can replace an existing one in place.
+ *
+ * Responses are buffered so that they can be sent with a Content-Length, and
+ * responses smaller than the compression threshold are sent as is.
+ */
+public class CompressingHessianServiceExporter extends HessianServiceExporter {
+
+  public static final String GZIP = "gzip";
+
+  private int _compressionThreshold = 1024;
+
+  /**
+   * @param compressionThreshold responses smaller than this, in bytes, are
+   *          sent uncompressed
+   */
+  public void setCompressionThreshold(int compressionThreshold) {
+    _compressionThreshold = compressionThreshold;
+  }
+
+  @Override
+  public void handleRequest(HttpServletRequest request,
+      HttpServletResponse response) throws ServletException, IOException {
+
+    if (!acceptsGzip(request)) {
+      super.handleRequest(request, response);
+      return;
+    }
+
+    if (!"POST".equals(request.getMethod())) {
+      throw new HttpRequestMethodNotSupportedException(request.getMethod(),
+          new String[] {"POST"},
+          "HessianServiceExporter only supports POST requests");
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+    try {
+      invoke(request.getInputStream(), buffer);
+    } catch (Throwable ex) {
+      throw new NestedServletException("Hessian skeleton invocation failed",
+          ex);
+    }
+
+    response.setContentType(CONTENT_TYPE_HESSIAN);
+
+    if (buffer.size() >= _compressionThreshold) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+          buffer.size() / 4 + 64);
+      GZIPOutputStream out = new GZIPOutputStream(compressed);
+      buffer.writeTo(out);
+      out.close();
+      buffer = compressed;
+      response.setHeader("Content-Encoding", GZIP);
+    }
+
+    response.setContentLength(buffer.size());
+    buffer.writeTo(response.getOutputStream());
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    return acceptEncoding != null && acceptEncoding.contains(GZIP);
+  }
+}
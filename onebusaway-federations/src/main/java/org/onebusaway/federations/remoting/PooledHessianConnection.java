@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import com.caucho.hessian.client.HessianConnection;
+import com.caucho.hessian.client.HessianConnectionException;
+
+/**
+ * A single Hessian call made through a pooled {@link CloseableHttpClient}.
+ * Closing the connection reads off whatever is left of the response, so that
+ * the underlying HTTP connection goes back to the pool for reuse.
+ */
+class PooledHessianConnection implements HessianConnection {
+
+  private final CloseableHttpClient _client;
+
+  private final HttpPost _post;
+
+  private final boolean _compressionEnabled;
+
+  private final ByteArrayOutputStream _body = new ByteArrayOutputStream(256);
+
+  private CloseableHttpResponse _response;
+
+  private String _contentEncoding;
+
+  public PooledHessianConnection(CloseableHttpClient client, HttpPost post,
+      boolean compressionEnabled) {
+    _client = client;
+    _post = post;
+    _compressionEnabled = compressionEnabled;
+    if (_compressionEnabled)
+      _post.setHeader("Accept-Encoding",
+          CompressingHessianServiceExporter.GZIP);
+  }
+
+  @Override
+  public void addHeader(String key, String value) {
+    // We decide on the response encoding ourselves
+    if (_compressionEnabled && "Accept-Encoding".equalsIgnoreCase(key))
+      return;
+    _post.addHeader(key, value);
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    return _body;
+  }
+
+  @Override
+  public void sendRequest() throws IOException {
+
+    _post.setEntity(new ByteArrayEntity(_body.toByteArray()));
+
+    try {
+      _response = _client.execute(_post);
+    } catch (IOException ex) {
+      throw new HessianConnectionException(_post.getURI() + ": "
+          + ex.getMessage(), ex);
+    }
+
+    Header header = _response.getFirstHeader("Content-Encoding");
+    _contentEncoding = header != null ? header.getValue() : null;
+
+    int statusCode = getStatusCode();
+    if (statusCode != 200) {
+      String message = _post.getURI() + ": " + statusCode + " "
+          + getStatusMessage();
+      try {
+        if (_response.getEntity() != null)
+          message += "\n" + EntityUtils.toString(_response.getEntity());
+      } finally {
+        destroy();
+      }
+      throw new HessianConnectionException(message);
+    }
+  }
+
+  @Override
+  public int getStatusCode() {
+    return _response.getStatusLine().getStatusCode();
+  }
+
+  @Override
+  public String getStatusMessage() {
+    return _response.getStatusLine().getReasonPhrase();
+  }
+
+  /**
+   * Gzipped responses are decoded by {@link #getInputStream()}, so only other
+   * encodings are left for the Hessian proxy to handle.
+   */
+  @Override
+  public String getContentEncoding() {
+    if (CompressingHessianServiceExporter.GZIP.equals(_contentEncoding))
+      return null;
+    return _contentEncoding;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    InputStream in = _response.getEntity().getContent();
+    if (CompressingHessianServiceExporter.GZIP.equals(_contentEncoding))
+      in = new GZIPInputStream(in);
+    return in;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (_response != null) {
+      try {
+        EntityUtils.consume(_response.getEntity());
+      } finally {
+        _response.close();
+        _response = null;
+      }
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    _post.abort();
+    if (_response != null) {
+      _response.close();
+      _response = null;
+    }
+  }
+}
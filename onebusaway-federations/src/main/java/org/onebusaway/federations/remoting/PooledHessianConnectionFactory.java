@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.remoting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.caucho.hessian.client.HessianConnection;
+import com.caucho.hessian.client.HessianConnectionFactory;
+import com.caucho.hessian.client.HessianProxyFactory;
+
+/**
+ * A {@link HessianConnectionFactory} that sends Hessian calls through a pool
+ * of persistent HTTP connections, rather than through
+ * {@link java.net.HttpURLConnection}, whose keep-alive cache holds on to only
+ * a handful of idle connections per host. With compression turned on, calls
+ * ask for gzipped responses, which {@link CompressingHessianServiceExporter}
+ * provides.
+ */
+public class PooledHessianConnectionFactory implements
+    HessianConnectionFactory, Closeable {
+
+  private HessianProxyFactory _proxyFactory;
+
+  private int _maxConnections = 100;
+
+  private int _maxConnectionsPerRoute = 50;
+
+  private int _connectTimeout = -1;
+
+  private int _readTimeout = -1;
+
+  private boolean _compressionEnabled = true;
+
+  private CloseableHttpClient _client;
+
+  private PoolingHttpClientConnectionManager _connectionManager;
+
+  public void setMaxConnections(int maxConnections) {
+    _maxConnections = maxConnections;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    _maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  /**
+   * @param connectTimeout in milliseconds; by default, the connect timeout of
+   *          the Hessian proxy factory is used
+   */
+  public void setConnectTimeout(int connectTimeout) {
+    _connectTimeout = connectTimeout;
+  }
+
+  /**
+   * @param readTimeout in milliseconds; by default, the read timeout of the
+   *          Hessian proxy factory is used
+   */
+  public void setReadTimeout(int readTimeout) {
+    _readTimeout = readTimeout;
+  }
+
+  public void setCompressionEnabled(boolean compressionEnabled) {
+    _compressionEnabled = compressionEnabled;
+  }
+
+  public boolean isCompressionEnabled() {
+    return _compressionEnabled;
+  }
+
+  @Override
+  public void setHessianProxyFactory(HessianProxyFactory factory) {
+    _proxyFactory = factory;
+  }
+
+  @Override
+  public HessianConnection open(URL url) throws IOException {
+    try {
+      HttpPost post = new HttpPost(url.toURI());
+      return new PooledHessianConnection(getClient(), post,
+          _compressionEnabled);
+    } catch (URISyntaxException ex) {
+      throw new IOException("invalid service url: " + url, ex);
+    }
+  }
+
+  /**
+   * @return the number of pooled connections that are currently idle
+   */
+  public int getAvailableConnectionCount() {
+    PoolingHttpClientConnectionManager connectionManager = _connectionManager;
+    if (connectionManager == null)
+      return 0;
+    return connectionManager.getTotalStats().getAvailable();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (_client != null) {
+      _client.close();
+      _client = null;
+      _connectionManager = null;
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private synchronized CloseableHttpClient getClient() {
+
+    if (_client == null) {
+
+      _connectionManager = new PoolingHttpClientConnectionManager();
+      _connectionManager.setMaxTotal(_maxConnections);
+      _connectionManager.setDefaultMaxPerRoute(_maxConnectionsPerRoute);
+
+      RequestConfig config = RequestConfig.custom().setConnectTimeout(
+          getTimeout(_connectTimeout, true)).setSocketTimeout(
+          getTimeout(_readTimeout, false)).build();
+
+      // We handle gzip ourselves, as Hessian only knows about deflate
+      _client = HttpClients.custom().setConnectionManager(_connectionManager).setDefaultRequestConfig(
+          config).disableContentCompression().build();
+    }
+
+    return _client;
+  }
+
+  private int getTimeout(int timeout, boolean connect) {
+    if (timeout < 0 && _proxyFactory != null) {
+      long fromProxyFactory = connect ? _proxyFactory.getConnectTimeout()
+          : _proxyFactory.getReadTimeout();
+      if (fromProxyFactory > 0)
+        return (int) fromProxyFactory;
+    }
+    return timeout;
+  }
+}
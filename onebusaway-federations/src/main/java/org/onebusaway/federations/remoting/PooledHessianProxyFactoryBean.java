@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.remoting;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.remoting.caucho.HessianProxyFactoryBean;
+
+import com.caucho.hessian.client.HessianProxyFactory;
+
+/**
+ * A drop-in replacement for {@link HessianProxyFactoryBean} whose proxy makes
+ * its calls through a {@link PooledHessianConnectionFactory}, reusing
+ * persistent HTTP connections and asking for gzipped responses. Pair it with
+ * a {@link CompressingHessianServiceExporter} on the server side; against a
+ * plain Hessian exporter, responses simply come back uncompressed.
+ *
+ * <pre class="code">
+ * &lt;bean id="transitDataService" class="org.onebusaway.federations.remoting.PooledHessianProxyFactoryBean"&gt;
+ *   &lt;property name="serviceUrl" value="http://localhost:8080/onebusaway-transit-data-federation-webapp/remoting/transit-data-service" /&gt;
+ *   &lt;property name="serviceInterface" value="org.onebusaway.transit_data.services.TransitDataService" /&gt;
+ *   &lt;property name="maxConnections" value="100" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ */
+public class PooledHessianProxyFactoryBean extends HessianProxyFactoryBean
+    implements DisposableBean {
+
+  private PooledHessianConnectionFactory _connectionFactory = new PooledHessianConnectionFactory();
+
+  private HessianProxyFactory _proxyFactory = new HessianProxyFactory();
+
+  public PooledHessianProxyFactoryBean() {
+    _proxyFactory.setConnectionFactory(_connectionFactory);
+    _connectionFactory.setHessianProxyFactory(_proxyFactory);
+    setProxyFactory(_proxyFactory);
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    _connectionFactory.setMaxConnections(maxConnections);
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    _connectionFactory.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+  }
+
+  public void setCompressionEnabled(boolean compressionEnabled) {
+    _connectionFactory.setCompressionEnabled(compressionEnabled);
+  }
+
+  public PooledHessianConnectionFactory getPooledConnectionFactory() {
+    return _connectionFactory;
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    _connectionFactory.close();
+  }
+}
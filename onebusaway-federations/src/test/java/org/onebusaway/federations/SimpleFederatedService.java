@@ -22,6 +22,7 @@ import org.onebusaway.federations.annotations.FederatedByAggregateMethod;
 import org.onebusaway.federations.annotations.FederatedByBoundsMethod;
 import org.onebusaway.federations.annotations.FederatedByCoordinateBoundsMethod;
 import org.onebusaway.federations.annotations.FederatedByLocationMethod;
+import org.onebusaway.federations.annotations.EPartialResultPolicy;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 
 import java.util.List;
@@ -35,6 +36,12 @@ public interface SimpleFederatedService extends FederatedService {
   
   @FederatedByAggregateMethod
   public Map<String,String> getValuesAsMap();
+
+  @FederatedByAggregateMethod(concurrent = false)
+  public List<String> getValuesAsListInTurn();
+
+  @FederatedByAggregateMethod(timeout = 1000, partialResults = EPartialResultPolicy.OMIT)
+  public List<String> getValuesFromResponsiveServices();
   
   @FederatedByEntityIdMethod
   public String getValueForId(String entityId);
@@ -16,7 +16,11 @@
 package org.onebusaway.federations.annotations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import org.onebusaway.exceptions.NoSuchAgencyServiceException;
+import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
 import org.onebusaway.federations.SimpleFederatedService;
@@ -24,7 +28,10 @@ import org.onebusaway.federations.impl.FederatedServiceCollectionImpl;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
@@ -109,4 +116,109 @@ public class FederatedByAggregateMethodInvocationHandlerImplTest {
     assertEquals("c3",results.get("c"));
     assertEquals("d4",results.get("d"));
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testConcurrent() throws Exception {
+
+    FederatedServiceCollection collection = collection(
+        slowService(300, "a"), slowService(300, "b"), slowService(300, "c"));
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+
+    FederatedServiceMethodInvocationHandler handler = new FederatedByAggregateMethodInvocationHandlerImpl(EMethodAggregationType.LIST);
+    long t = System.currentTimeMillis();
+    List<String> results = (List<String>) handler.invoke(collection, method, new Object[] {});
+    long elapsed = System.currentTimeMillis() - t;
+
+    Collections.sort(results);
+    assertEquals(Arrays.asList("a", "b", "c"), results);
+    assertTrue("took " + elapsed + "ms", elapsed < 800);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testTimeoutOmitsSlowServices() throws Exception {
+
+    FederatedServiceCollection collection = collection(slowService(0, "a"),
+        slowService(5000, "b"));
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+
+    FederatedServiceMethodInvocationHandler handler = new FederatedByAggregateMethodInvocationHandlerImpl(
+        EMethodAggregationType.LIST, true, 200, EPartialResultPolicy.OMIT);
+    long t = System.currentTimeMillis();
+    List<String> results = (List<String>) handler.invoke(collection, method, new Object[] {});
+    long elapsed = System.currentTimeMillis() - t;
+
+    assertEquals(Arrays.asList("a"), results);
+    assertTrue("took " + elapsed + "ms", elapsed < 2000);
+  }
+
+  @Test
+  public void testTimeoutFails() throws Exception {
+
+    FederatedServiceCollection collection = collection(slowService(0, "a"),
+        slowService(5000, "b"));
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+
+    FederatedServiceMethodInvocationHandler handler = new FederatedByAggregateMethodInvocationHandlerImpl(
+        EMethodAggregationType.LIST, true, 200, EPartialResultPolicy.FAIL);
+    try {
+      handler.invoke(collection, method, new Object[] {});
+      fail();
+    } catch (ServiceException ex) {
+
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFailures() throws Exception {
+
+    SimpleFederatedService failing = Mockito.mock(SimpleFederatedService.class);
+    Mockito.when(failing.getValuesAsList()).thenThrow(
+        new NoSuchAgencyServiceException("b"));
+    FederatedServiceCollection collection = collection(slowService(0, "a"),
+        failing);
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+
+    for (boolean concurrent : new boolean[] {true, false}) {
+
+      FederatedServiceMethodInvocationHandler handler = new FederatedByAggregateMethodInvocationHandlerImpl(
+          EMethodAggregationType.LIST, concurrent, 0, EPartialResultPolicy.OMIT);
+      List<String> results = (List<String>) handler.invoke(collection, method, new Object[] {});
+      assertEquals(Arrays.asList("a"), results);
+
+      handler = new FederatedByAggregateMethodInvocationHandlerImpl(
+          EMethodAggregationType.LIST, concurrent, 0, EPartialResultPolicy.FAIL);
+      try {
+        handler.invoke(collection, method, new Object[] {});
+        fail();
+      } catch (InvocationTargetException ex) {
+        assertTrue(ex.getTargetException() instanceof NoSuchAgencyServiceException);
+      }
+    }
+  }
+
+  private static SimpleFederatedService slowService(final long delay,
+      final String value) {
+    SimpleFederatedService service = Mockito.mock(SimpleFederatedService.class);
+    Mockito.when(service.getValuesAsList()).thenAnswer(
+        new Answer<List<String>>() {
+          @Override
+          public List<String> answer(InvocationOnMock invocation)
+              throws Throwable {
+            Thread.sleep(delay);
+            return Arrays.asList(value);
+          }
+        });
+    return service;
+  }
+
+  private static FederatedServiceCollection collection(
+      FederatedService... services) {
+    FederatedServiceCollection collection = Mockito.mock(FederatedServiceCollectionImpl.class);
+    Mockito.when(collection.getAllServices()).thenReturn(
+        new HashSet<FederatedService>(Arrays.asList(services)));
+    return collection;
+  }
 }
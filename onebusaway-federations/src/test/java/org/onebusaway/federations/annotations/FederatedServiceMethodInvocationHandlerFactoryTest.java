@@ -16,6 +16,8 @@
 package org.onebusaway.federations.annotations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.onebusaway.federations.CoordinateBoundsTestBean;
 import org.onebusaway.federations.SimpleFederatedService;
@@ -48,6 +50,26 @@ public class FederatedServiceMethodInvocationHandlerFactoryTest {
     assertEquals(EMethodAggregationType.MAP, impl.getAggregationType());
   }
 
+  @Test
+  public void testGetValuesWithOptions() throws SecurityException,
+      NoSuchMethodException {
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+    FederatedByAggregateMethodInvocationHandlerImpl impl = (FederatedByAggregateMethodInvocationHandlerImpl) _factory.getHandlerForMethod(method);
+    assertTrue(impl.isConcurrent());
+    assertEquals(0, impl.getTimeout());
+    assertEquals(EPartialResultPolicy.FAIL, impl.getPartialResultPolicy());
+
+    method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsListInTurn");
+    impl = (FederatedByAggregateMethodInvocationHandlerImpl) _factory.getHandlerForMethod(method);
+    assertFalse(impl.isConcurrent());
+
+    method = SimpleFederatedService.class.getDeclaredMethod("getValuesFromResponsiveServices");
+    impl = (FederatedByAggregateMethodInvocationHandlerImpl) _factory.getHandlerForMethod(method);
+    assertTrue(impl.isConcurrent());
+    assertEquals(1000, impl.getTimeout());
+    assertEquals(EPartialResultPolicy.OMIT, impl.getPartialResultPolicy());
+  }
+
   @Test
   public void testGetValueForId() throws SecurityException,
       NoSuchMethodException {
@@ -97,6 +97,16 @@ public class SimpleFederatedServiceImpl implements SimpleFederatedService {
     return Arrays.asList(_value);
   }
 
+  @Override
+  public List<String> getValuesAsListInTurn() {
+    return Arrays.asList(_value);
+  }
+
+  @Override
+  public List<String> getValuesFromResponsiveServices() {
+    return Arrays.asList(_value);
+  }
+
   @Override
   public Map<String, String> getValuesAsMap() {
     HashMap<String, String> m = new HashMap<String, String>();
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.remoting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.servlet.Context;
+import org.mortbay.jetty.servlet.ServletHolder;
+import org.onebusaway.federations.SimpleFederatedService;
+import org.onebusaway.federations.impl.SimpleFederatedServiceImpl;
+import org.onebusaway.geospatial.model.CoordinateBounds;
+
+import com.caucho.hessian.client.HessianProxyFactory;
+
+public class CompressingHessianServiceExporterTest {
+
+  private static final int PORT = 9992;
+
+  private static final String URL = "http://localhost:" + PORT
+      + "/service/remoting";
+
+  private Server _server;
+
+  private String _value;
+
+  private volatile String _contentEncoding;
+
+  private PooledHessianProxyFactoryBean _proxyFactoryBean;
+
+  @Before
+  public void start() throws Exception {
+
+    StringBuilder b = new StringBuilder();
+    while (b.length() < 10000)
+      b.append("a long and very repetitive value ");
+    _value = b.toString();
+
+    SimpleFederatedServiceImpl service = new SimpleFederatedServiceImpl(
+        new HashMap<String, List<CoordinateBounds>>(), _value);
+
+    final CompressingHessianServiceExporter exporter = new CompressingHessianServiceExporter();
+    exporter.setService(service);
+    exporter.setServiceInterface(SimpleFederatedService.class);
+    exporter.afterPropertiesSet();
+
+    HttpServlet servlet = new HttpServlet() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void service(HttpServletRequest req, HttpServletResponse resp)
+          throws ServletException, IOException {
+        _contentEncoding = null;
+        exporter.handleRequest(req, new HttpServletResponseWrapper(resp) {
+          @Override
+          public void setHeader(String name, String value) {
+            if (name.equals("Content-Encoding"))
+              _contentEncoding = value;
+            super.setHeader(name, value);
+          }
+        });
+      }
+    };
+
+    _server = new Server(PORT);
+    Context context = new Context(_server, "/service", Context.SESSIONS);
+    context.addServlet(new ServletHolder(servlet), "/*");
+    _server.start();
+
+    _proxyFactoryBean = new PooledHessianProxyFactoryBean();
+    _proxyFactoryBean.setServiceUrl(URL);
+    _proxyFactoryBean.setServiceInterface(SimpleFederatedService.class);
+    _proxyFactoryBean.afterPropertiesSet();
+  }
+
+  @After
+  public void stop() throws Exception {
+    _proxyFactoryBean.destroy();
+    _server.stop();
+  }
+
+  @Test
+  public void testPooledProxy() throws Exception {
+
+    SimpleFederatedService proxy = (SimpleFederatedService) _proxyFactoryBean.getObject();
+
+    assertEquals(Arrays.asList(_value), proxy.getValuesAsList());
+    assertEquals("gzip", _contentEncoding);
+
+    // Small responses go out as they are
+    assertTrue(proxy.getAgencyIdsWithCoverageArea().isEmpty());
+    assertNull(_contentEncoding);
+
+    // Both calls went over the same connection, which is back in the pool
+    assertEquals(1,
+        _proxyFactoryBean.getPooledConnectionFactory().getAvailableConnectionCount());
+  }
+
+  @Test
+  public void testPlainProxy() throws Exception {
+
+    HessianProxyFactory factory = new HessianProxyFactory();
+    SimpleFederatedService proxy = (SimpleFederatedService) factory.create(
+        SimpleFederatedService.class, URL);
+
+    assertEquals(Arrays.asList(_value), proxy.getValuesAsList());
+    assertNull(_contentEncoding);
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.geocoder.enterprise.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.onebusaway.geocoder.enterprise.services.EnterpriseGeocoderResult;
+import org.onebusaway.geocoder.enterprise.services.EnterpriseGeocoderService;
+import org.onebusaway.geocoder.impl.GeocoderResultCache;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Keeps recent results of another {@link EnterpriseGeocoderService}, such as
+ * the Google or Bing geocoders, in memory, so that free-text searches that
+ * fall through to geocoding don't pay for a remote call for every repeat of
+ * the same address. Concurrent requests for the same location share a single
+ * remote call.
+ * 
+ * @see GeocoderResultCache
+ */
+@ManagedResource("org.onebusaway.geocoder.enterprise.impl:name=CachingEnterpriseGeocoderImpl")
+public class CachingEnterpriseGeocoderImpl implements EnterpriseGeocoderService {
+
+  private EnterpriseGeocoderService _geocoderService;
+
+  private final GeocoderResultCache<List<EnterpriseGeocoderResult>> _cache = new GeocoderResultCache<List<EnterpriseGeocoderResult>>(
+      new GeocoderResultCache.Source<List<EnterpriseGeocoderResult>>() {
+        @Override
+        public List<EnterpriseGeocoderResult> lookup(String location) {
+          List<EnterpriseGeocoderResult> results = _geocoderService.enterpriseGeocode(location);
+          // the cached list is shared by every caller
+          return results != null ? Collections.unmodifiableList(results) : null;
+        }
+
+        @Override
+        public boolean isEmpty(List<EnterpriseGeocoderResult> results) {
+          return results.isEmpty();
+        }
+      });
+
+  public void setGeocoderService(EnterpriseGeocoderService geocoderService) {
+    _geocoderService = geocoderService;
+  }
+
+  public void setMaxSize(int maxSize) {
+    _cache.setMaxSize(maxSize);
+  }
+
+  /**
+   * @param timeToLive in seconds
+   */
+  public void setTimeToLive(long timeToLive) {
+    _cache.setTimeToLive(timeToLive);
+  }
+
+  /**
+   * @param negativeTimeToLive in seconds
+   */
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    _cache.setNegativeTimeToLive(negativeTimeToLive);
+  }
+
+  @Override
+  public List<EnterpriseGeocoderResult> enterpriseGeocode(String location) {
+    return _cache.get(location);
+  }
+
+  public GeocoderResultCache<List<EnterpriseGeocoderResult>> getCache() {
+    return _cache;
+  }
+
+  @ManagedAttribute
+  public double getHitRate() {
+    return _cache.getHitRate();
+  }
+
+  @ManagedAttribute
+  public String getCacheStatistics() {
+    return _cache.toString();
+  }
+
+  @ManagedOperation
+  public void clearCache() {
+    _cache.clear();
+    _cache.resetStatistics();
+  }
+}
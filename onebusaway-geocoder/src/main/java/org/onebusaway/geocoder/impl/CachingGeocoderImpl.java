@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.geocoder.impl;
+
+import org.onebusaway.geocoder.model.GeocoderResults;
+import org.onebusaway.geocoder.services.GeocoderService;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Keeps recent results of another {@link GeocoderService} in memory. Placed in
+ * front of {@link DatabaseCachingGeocoderImpl}, repeated locations are answered
+ * without a database round trip, and concurrent requests for the same location
+ * share a single lookup.
+ * 
+ * @see GeocoderResultCache
+ */
+@ManagedResource("org.onebusaway.geocoder.impl:name=CachingGeocoderImpl")
+public class CachingGeocoderImpl implements GeocoderService {
+
+  private GeocoderService _geocoderService;
+
+  private final GeocoderResultCache<GeocoderResults> _cache = new GeocoderResultCache<GeocoderResults>(
+      new GeocoderResultCache.Source<GeocoderResults>() {
+        @Override
+        public GeocoderResults lookup(String location) {
+          return _geocoderService.geocode(location);
+        }
+
+        @Override
+        public boolean isEmpty(GeocoderResults results) {
+          return results.getResults() == null
+              || results.getResults().isEmpty();
+        }
+      });
+
+  public void setGeocoderService(GeocoderService geocoderService) {
+    _geocoderService = geocoderService;
+  }
+
+  public void setMaxSize(int maxSize) {
+    _cache.setMaxSize(maxSize);
+  }
+
+  /**
+   * @param timeToLive in seconds
+   */
+  public void setTimeToLive(long timeToLive) {
+    _cache.setTimeToLive(timeToLive);
+  }
+
+  /**
+   * @param negativeTimeToLive in seconds
+   */
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    _cache.setNegativeTimeToLive(negativeTimeToLive);
+  }
+
+  public GeocoderResults geocode(String location) {
+    return _cache.get(location);
+  }
+
+  public GeocoderResultCache<GeocoderResults> getCache() {
+    return _cache;
+  }
+
+  @ManagedAttribute
+  public double getHitRate() {
+    return _cache.getHitRate();
+  }
+
+  @ManagedAttribute
+  public String getCacheStatistics() {
+    return _cache.toString();
+  }
+
+  @ManagedOperation
+  public void clearCache() {
+    _cache.clear();
+    _cache.resetStatistics();
+  }
+}
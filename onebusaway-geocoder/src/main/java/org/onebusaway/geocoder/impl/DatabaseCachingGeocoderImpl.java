@@ -40,22 +40,54 @@ public class DatabaseCachingGeocoderImpl implements GeocoderService {
       _sessionFactory = sessionFactory;
   }
 
+  /**
+   * Results are stored under the normalized location, so differences in case
+   * or spacing share a row. Empty and failed lookups aren't stored, as they'd
+   * never expire here; {@link CachingGeocoderImpl} in front of this class
+   * caches empty results for a limited time. Rows stored under the raw
+   * location before keys were normalized are still found, and copied to the
+   * normalized key on first use.
+   */
   @Transactional
   public GeocoderResults geocode(String location) {
+    String key = GeocoderResultCache.normalizeLocation(location);
+    if (key.isEmpty())
+      return _geocoderService.geocode(location);
+
     Session session = _sessionFactory.getCurrentSession();
     GeocoderResultsEntity entity = (GeocoderResultsEntity) session.get(
-            GeocoderResultsEntity.class, location);
+            GeocoderResultsEntity.class, key);
 
     if (entity != null)
       return entity.getResults();
 
+    if (!key.equals(location)) {
+      GeocoderResultsEntity legacy = (GeocoderResultsEntity) session.get(
+          GeocoderResultsEntity.class, location);
+      if (legacy != null) {
+        save(session, key, legacy.getResults());
+        return legacy.getResults();
+      }
+    }
+
     GeocoderResults results = _geocoderService.geocode(location);
 
-    entity = new GeocoderResultsEntity();
-    entity.setLocation(location);
-    entity.setResults(results);
-    session.saveOrUpdate(entity);
+    if (results == null || results.getResults() == null
+        || results.getResults().isEmpty())
+      return results;
 
+    save(session, key, results);
     return results;
   }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void save(Session session, String key, GeocoderResults results) {
+    GeocoderResultsEntity entity = new GeocoderResultsEntity();
+    entity.setLocation(key);
+    entity.setResults(results);
+    session.saveOrUpdate(entity);
+  }
 }
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.geocoder.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory LRU cache of geocoder results, shared by the caching geocoder
+ * implementations. Locations are keyed after trimming, lower casing and
+ * collapsing whitespace, so "1 Main St" and " 1 main  st" are the same lookup.
+ * Locations with no results are cached too, but for a shorter time, so a new
+ * address isn't missing for long once the geocoder knows about it. Null
+ * results are taken to be a failure and never cached.
+ * 
+ * Only one lookup per location is in flight at a time: other threads missing
+ * on the same location wait for and share its result.
+ */
+public class GeocoderResultCache<T> {
+
+  private final Source<T> _source;
+
+  private int _maxSize = 10000;
+
+  private long _timeToLive = 24 * 60 * 60 * 1000;
+
+  private long _negativeTimeToLive = 10 * 60 * 1000;
+
+  private final Map<String, Entry<T>> _entries = new LinkedHashMap<String, Entry<T>>(
+      16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+      return size() > _maxSize;
+    }
+  };
+
+  private final ConcurrentMap<String, FutureTask<T>> _loads = new ConcurrentHashMap<String, FutureTask<T>>();
+
+  private final AtomicLong _hits = new AtomicLong();
+
+  private final AtomicLong _negativeHits = new AtomicLong();
+
+  private final AtomicLong _misses = new AtomicLong();
+
+  private final AtomicLong _coalescedLoads = new AtomicLong();
+
+  private final AtomicLong _loadFailures = new AtomicLong();
+
+  public GeocoderResultCache(Source<T> source) {
+    _source = source;
+  }
+
+  public void setMaxSize(int maxSize) {
+    _maxSize = maxSize;
+  }
+
+  /**
+   * @param timeToLive how long results are kept, in seconds
+   */
+  public void setTimeToLive(long timeToLive) {
+    _timeToLive = timeToLive * 1000;
+  }
+
+  /**
+   * @param negativeTimeToLive how long an empty result is kept, in seconds
+   */
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    _negativeTimeToLive = negativeTimeToLive * 1000;
+  }
+
+  public T get(String location) {
+
+    String key = normalizeLocation(location);
+    if (key.isEmpty())
+      return _source.lookup(location);
+
+    Entry<T> entry = getEntry(key);
+    if (entry != null) {
+      if (entry.isEmpty())
+        _negativeHits.incrementAndGet();
+      else
+        _hits.incrementAndGet();
+      return entry.getResults();
+    }
+
+    _misses.incrementAndGet();
+    return load(key, location);
+  }
+
+  public int getSize() {
+    synchronized (_entries) {
+      return _entries.size();
+    }
+  }
+
+  public long getHits() {
+    return _hits.get();
+  }
+
+  /**
+   * @return hits on a cached empty result
+   */
+  public long getNegativeHits() {
+    return _negativeHits.get();
+  }
+
+  public long getMisses() {
+    return _misses.get();
+  }
+
+  /**
+   * @return misses that waited on a lookup already in flight for the same
+   *         location, rather than making their own
+   */
+  public long getCoalescedLoads() {
+    return _coalescedLoads.get();
+  }
+
+  public long getLoadFailures() {
+    return _loadFailures.get();
+  }
+
+  /**
+   * @return the fraction of requests answered from the cache, including
+   *         cached empty results
+   */
+  public double getHitRate() {
+    long hits = getHits() + getNegativeHits();
+    long total = hits + getMisses();
+    return total > 0 ? (double) hits / total : 0.0;
+  }
+
+  public void clear() {
+    synchronized (_entries) {
+      _entries.clear();
+    }
+  }
+
+  public void resetStatistics() {
+    _hits.set(0);
+    _negativeHits.set(0);
+    _misses.set(0);
+    _coalescedLoads.set(0);
+    _loadFailures.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + getSize() + " hits=" + getHits() + " negativeHits="
+        + getNegativeHits() + " misses=" + getMisses() + " coalesced="
+        + getCoalescedLoads() + " failures=" + getLoadFailures();
+  }
+
+  public static String normalizeLocation(String location) {
+    if (location == null)
+      return "";
+    return location.trim().replaceAll("\\s+", " ").replaceAll(" ?, ?", ", ").toLowerCase(
+        Locale.ROOT);
+  }
+
+  /**
+   * Where the cache gets results it doesn't have, usually another geocoder
+   */
+  public interface Source<T> {
+
+    public T lookup(String location);
+
+    public boolean isEmpty(T results);
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private Entry<T> getEntry(String key) {
+    synchronized (_entries) {
+      Entry<T> entry = _entries.get(key);
+      if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+        _entries.remove(key);
+        return null;
+      }
+      return entry;
+    }
+  }
+
+  private void putEntry(String key, T results) {
+    boolean empty = _source.isEmpty(results);
+    long timeToLive = empty ? _negativeTimeToLive : _timeToLive;
+    if (timeToLive <= 0)
+      return;
+    Entry<T> entry = new Entry<T>(results, empty,
+        System.currentTimeMillis() + timeToLive);
+    synchronized (_entries) {
+      _entries.put(key, entry);
+    }
+  }
+
+  private T load(final String key, final String location) {
+
+    FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+      @Override
+      public T call() {
+        // another thread may have just finished loading this location
+        Entry<T> entry = getEntry(key);
+        if (entry != null)
+          return entry.getResults();
+        T results = _source.lookup(location);
+        if (results != null)
+          putEntry(key, results);
+        return results;
+      }
+    });
+
+    FutureTask<T> existing = _loads.putIfAbsent(key, task);
+
+    if (existing != null) {
+      _coalescedLoads.incrementAndGet();
+      task = existing;
+    } else {
+      try {
+        task.run();
+      } finally {
+        _loads.remove(key, task);
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted waiting to geocode "
+          + location, ex);
+    } catch (ExecutionException ex) {
+      if (existing == null)
+        _loadFailures.incrementAndGet();
+      Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IllegalStateException("error geocoding " + location, cause);
+    }
+  }
+
+  private static class Entry<T> {
+
+    private final T _results;
+
+    private final boolean _empty;
+
+    private final long _expiresAt;
+
+    public Entry(T results, boolean empty, long expiresAt) {
+      _results = results;
+      _empty = empty;
+      _expiresAt = expiresAt;
+    }
+
+    public T getResults() {
+      return _results;
+    }
+
+    public boolean isEmpty() {
+      return _empty;
+    }
+
+    public boolean isExpired(long now) {
+      return now >= _expiresAt;
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.onebusaway.geocoder.model.GeocoderResult;
 import org.onebusaway.geocoder.model.GeocoderResults;
+import org.onebusaway.geocoder.model.GeocoderResultsEntity;
 import org.onebusaway.geocoder.services.GeocoderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -90,4 +91,34 @@ public class DatabaseCachingGeocoderImplTest {
     // Verify this happened only once, as the db should cache
     Mockito.verify(mock).geocode("test");
   }
+
+  @Test
+  @Transactional
+  public void testRowStoredUnderRawLocation() {
+
+    GeocoderResults results = new GeocoderResults();
+    GeocoderResult result = new GeocoderResult();
+    result.setAddress("101 test blvd");
+    results.addResult(result);
+
+    // as stored before locations were normalized
+    GeocoderResultsEntity entity = new GeocoderResultsEntity();
+    entity.setLocation("101 Test Blvd");
+    entity.setResults(results);
+    _sessionFactory.getCurrentSession().saveOrUpdate(entity);
+
+    GeocoderService mock = Mockito.mock(GeocoderService.class);
+
+    DatabaseCachingGeocoderImpl geocoder = new DatabaseCachingGeocoderImpl();
+    geocoder.setSessionFactory(_sessionFactory);
+    geocoder.setGeocoderService(mock);
+
+    assertEquals("101 test blvd",
+        geocoder.geocode("101 Test Blvd").getResults().get(0).getAddress());
+    // copied to the normalized key
+    assertEquals("101 test blvd",
+        geocoder.geocode("101  TEST blvd").getResults().get(0).getAddress());
+
+    Mockito.verifyNoInteractions(mock);
+  }
 }
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.geocoder.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.onebusaway.geocoder.model.GeocoderResult;
+import org.onebusaway.geocoder.model.GeocoderResults;
+
+public class GeocoderResultCacheTest {
+
+  @Test
+  public void testNormalizeLocation() {
+    assertEquals("1 main st, seattle, wa",
+        GeocoderResultCache.normalizeLocation("  1 Main  St ,Seattle,   WA "));
+    assertEquals("", GeocoderResultCache.normalizeLocation(null));
+    assertEquals("", GeocoderResultCache.normalizeLocation("   "));
+  }
+
+  @Test
+  public void testHits() {
+    StubGeocoder stub = new StubGeocoder();
+    stub.putResult("1 main st", 47.0, -122.0);
+    GeocoderResultCache<GeocoderResults> cache = stub.createCache();
+
+    GeocoderResults results = cache.get("1 Main St");
+    assertEquals(1, results.getResults().size());
+    assertSame(results, cache.get(" 1 main  st"));
+    assertEquals(1, stub.getLookups("1 Main St"));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0.5, cache.getHitRate(), 0.0);
+
+    // a blank location isn't worth caching
+    cache.get(" ");
+    cache.get(" ");
+    assertEquals(2, stub.getLookups(" "));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void testNegativeCaching() {
+    StubGeocoder stub = new StubGeocoder();
+    GeocoderResultCache<GeocoderResults> cache = stub.createCache();
+
+    assertTrue(cache.get("nowhere").getResults().isEmpty());
+    assertTrue(cache.get("NOWHERE").getResults().isEmpty());
+    assertEquals(1, stub.getLookups("nowhere"));
+    assertEquals(1, cache.getNegativeHits());
+
+    // no negative caching at all
+    cache.setNegativeTimeToLive(0);
+    cache.clear();
+    cache.get("nowhere");
+    cache.get("nowhere");
+    assertEquals(3, stub.getLookups("nowhere"));
+
+    // null means the lookup failed, so it isn't cached
+    stub.setFailing(true);
+    assertNull(cache.get("somewhere"));
+    assertNull(cache.get("somewhere"));
+    assertEquals(2, stub.getLookups("somewhere"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testExceptionsAreNotCached() {
+    final AtomicInteger lookups = new AtomicInteger();
+    GeocoderResultCache<GeocoderResults> cache = new GeocoderResultCache<GeocoderResults>(
+        new GeocoderResultCache.Source<GeocoderResults>() {
+          @Override
+          public GeocoderResults lookup(String location) {
+            lookups.incrementAndGet();
+            throw new IllegalStateException("over quota");
+          }
+
+          @Override
+          public boolean isEmpty(GeocoderResults results) {
+            return results.getResults().isEmpty();
+          }
+        });
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get("1 main st");
+        fail();
+      } catch (IllegalStateException ex) {
+        assertEquals("over quota", ex.getMessage());
+      }
+    }
+    assertEquals(2, lookups.get());
+    assertEquals(2, cache.getLoadFailures());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    StubGeocoder stub = new StubGeocoder();
+    stub.putResult("a", 1.0, 1.0);
+    stub.putResult("b", 2.0, 2.0);
+    stub.putResult("c", 3.0, 3.0);
+    GeocoderResultCache<GeocoderResults> cache = stub.createCache();
+    cache.setMaxSize(2);
+
+    cache.get("a");
+    cache.get("b");
+    cache.get("a");
+    cache.get("c");
+    assertEquals(2, cache.getSize());
+
+    // "b" was used least recently, so it was evicted to make room for "c"
+    cache.get("a");
+    cache.get("b");
+    assertEquals(1, stub.getLookups("a"));
+    assertEquals(2, stub.getLookups("b"));
+  }
+
+  @Test
+  public void testConcurrentLookupsAreCoalesced() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger lookups = new AtomicInteger();
+    final GeocoderResults expected = new GeocoderResults();
+    expected.addResult(new GeocoderResult());
+
+    final GeocoderResultCache<GeocoderResults> cache = new GeocoderResultCache<GeocoderResults>(
+        new GeocoderResultCache.Source<GeocoderResults>() {
+          @Override
+          public GeocoderResults lookup(String location) {
+            lookups.incrementAndGet();
+            started.countDown();
+            try {
+              release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+              throw new IllegalStateException(ex);
+            }
+            return expected;
+          }
+
+          @Override
+          public boolean isEmpty(GeocoderResults results) {
+            return results.getResults().isEmpty();
+          }
+        });
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<GeocoderResults>> futures = new ArrayList<Future<GeocoderResults>>();
+      futures.add(executor.submit(new Lookup(cache, "1 Main St")));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      for (int i = 1; i < threads; i++)
+        futures.add(executor.submit(new Lookup(cache, "1 MAIN ST")));
+
+      // let the other threads reach the in-flight lookup before it finishes
+      long deadline = System.currentTimeMillis() + 5000;
+      while (cache.getCoalescedLoads() < threads - 1
+          && System.currentTimeMillis() < deadline)
+        Thread.sleep(5);
+      release.countDown();
+
+      for (Future<GeocoderResults> future : futures)
+        assertSame(expected, future.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(1, lookups.get());
+    assertEquals(threads - 1, cache.getCoalescedLoads());
+    assertEquals(threads, cache.getMisses());
+  }
+
+  private static class Lookup implements Callable<GeocoderResults> {
+
+    private final GeocoderResultCache<GeocoderResults> _cache;
+
+    private final String _location;
+
+    public Lookup(GeocoderResultCache<GeocoderResults> cache, String location) {
+      _cache = cache;
+      _location = location;
+    }
+
+    @Override
+    public GeocoderResults call() {
+      return _cache.get(_location);
+    }
+  }
+
+  /**
+   * Answers from a fixed set of locations, counting lookups by location
+   */
+  private static class StubGeocoder implements
+      GeocoderResultCache.Source<GeocoderResults> {
+
+    private final ConcurrentMap<String, GeocoderResults> _results = new ConcurrentHashMap<String, GeocoderResults>();
+
+    private final ConcurrentMap<String, AtomicInteger> _lookups = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private volatile boolean _failing = false;
+
+    public void putResult(String location, double lat, double lon) {
+      GeocoderResult result = new GeocoderResult();
+      result.setLatitude(lat);
+      result.setLongitude(lon);
+      GeocoderResults results = new GeocoderResults();
+      results.addResult(result);
+      _results.put(location, results);
+    }
+
+    public void setFailing(boolean failing) {
+      _failing = failing;
+    }
+
+    public int getLookups(String location) {
+      AtomicInteger lookups = _lookups.get(location);
+      return lookups != null ? lookups.get() : 0;
+    }
+
+    public GeocoderResultCache<GeocoderResults> createCache() {
+      return new GeocoderResultCache<GeocoderResults>(this);
+    }
+
+    @Override
+    public GeocoderResults lookup(String location) {
+      _lookups.putIfAbsent(location, new AtomicInteger());
+      _lookups.get(location).incrementAndGet();
+      if (_failing)
+        return null;
+      GeocoderResults results = _results.get(location.trim().toLowerCase());
+      if (results == null) {
+        results = new GeocoderResults();
+        results.setResults(Collections.<GeocoderResult> emptyList());
+      }
+      return results;
+    }
+
+    @Override
+    public boolean isEmpty(GeocoderResults results) {
+      return results.getResults().isEmpty();
+    }
+  }
+}
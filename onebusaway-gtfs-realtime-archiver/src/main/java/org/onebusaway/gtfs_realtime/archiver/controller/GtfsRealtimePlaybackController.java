@@ -23,6 +23,8 @@ import java.util.Date;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.onebusaway.api.model.transit.realtime.GtfsRealtimeConstantsV2;
+import org.onebusaway.gtfs_realtime.archiver.service.FeedSnapshotArchive;
 import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever;
 import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
 import org.onebusaway.gtfs_realtime.archiver.service.TimeService;
@@ -35,6 +37,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
 import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 
 @Controller
@@ -50,6 +53,13 @@ public class GtfsRealtimePlaybackController {
   
   @Autowired
   private ApiKeyPermissionService _keyService;
+
+  /**
+   * When feeds are archived as snapshots, playback reads them from here rather
+   * than rebuilding them from the database
+   */
+  @Autowired(required = false)
+  private FeedSnapshotArchive _snapshotArchive;
   
   private static SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
   
@@ -99,6 +109,11 @@ public class GtfsRealtimePlaybackController {
     Date endDate = _timeService.getCurrentTime(key);
     Date startDate = new Date((endDate.getTime() - (interval * 1000))); 
         
+    if (_snapshotArchive != null) {
+      renderSnapshot(request, response, type, startDate, endDate);
+      return;
+    }
+
     FeedMessage tripUpdates = _gtfsRealtimeRetriever.getFeedMessage(type, startDate, endDate);
     render(request, response, tripUpdates);
   }
@@ -136,6 +151,29 @@ public class GtfsRealtimePlaybackController {
   }
   
   
+  private void renderSnapshot(ServletRequest request,
+      HttpServletResponse response, EntityType type, Date startDate,
+      Date endDate) throws IOException {
+    if (request.getParameter("debug") != null) {
+      FeedMessage message = _snapshotArchive.getFeedMessage(type,
+          startDate.getTime(), endDate.getTime());
+      render(request, response, message != null ? message : getEmptyFeed());
+      return;
+    }
+    response.setContentType("application/x-google-protobuf");
+    // copied straight from the archive without being parsed
+    if (!_snapshotArchive.writeFeedMessage(type, startDate.getTime(),
+        endDate.getTime(), response.getOutputStream())) {
+      getEmptyFeed().writeTo(response.getOutputStream());
+    }
+  }
+
+  private FeedMessage getEmptyFeed() {
+    FeedHeader.Builder header = FeedHeader.newBuilder();
+    header.setGtfsRealtimeVersion(GtfsRealtimeConstantsV2.VERSION);
+    return FeedMessage.newBuilder().setHeader(header).build();
+  }
+
   private Status isAllowed(String key) {
     return _keyService.getPermission(key, "api");
   }
@@ -20,6 +20,7 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs_realtime.archiver.listener.GtfsRealtimeEntitySource;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
 import org.onebusaway.gtfs_realtime.interfaces.HasRouteId;
 import org.onebusaway.gtfs_realtime.interfaces.HasStopId;
 import org.onebusaway.gtfs_realtime.interfaces.HasTripId;
@@ -60,6 +61,8 @@ public class FeedServiceImpl implements FeedService {
   @Override
   public List<TripUpdateModel> readTripUpdates(FeedMessage tripUpdates,
       GtfsRealtimeEntitySource entitySource) {
+
+    _persistor.persist(EntityType.TRIP, getFeedId(entitySource), tripUpdates);
   
     List<TripUpdateModel> updates = GtfsRealtimeConversionLibrary.readTripUpdates(tripUpdates);
     
@@ -84,6 +87,7 @@ public class FeedServiceImpl implements FeedService {
   public List<VehiclePositionModel> readVehiclePositions(
       FeedMessage vehiclePositions, GtfsRealtimeEntitySource entitySource) {
     _log.debug("reading VehiclePosition");
+    _persistor.persist(EntityType.VEHICLE, getFeedId(entitySource), vehiclePositions);
     List<VehiclePositionModel> models = GtfsRealtimeConversionLibrary.readVehiclePositions(vehiclePositions);
    
     for (VehiclePositionModel vehiclePosition : models) {
@@ -126,6 +130,14 @@ public class FeedServiceImpl implements FeedService {
     return updates;
   }
 
+  /**
+   * Each archiver task has its own entity source, so its agency ids identify
+   * the feed
+   */
+  private String getFeedId(GtfsRealtimeEntitySource entitySource) {
+    return StringUtils.join(entitySource.getAgencyIds(), ",");
+  }
+
   private String getAgencyId(GtfsRealtimeEntitySource entitySource) {
     String agencyId = "";
     // If there is only one agency for this feed, just use that
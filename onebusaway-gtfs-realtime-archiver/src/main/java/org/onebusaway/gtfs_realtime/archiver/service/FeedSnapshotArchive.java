@@ -0,0 +1,602 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Archives complete GTFS-realtime feeds as they were fetched, as an
+ * alternative to storing every entity as a database row.
+ *
+ * Each feed source and entity type gets its own directory of append-only
+ * segment files, feedId/type/, one per segmentDuration, named for the start of
+ * the period they cover. A segment is a sequence of records:
+ *
+ * <pre>
+ * long timestamp (ms), int length, byte[length] deflated FeedMessage
+ * </pre>
+ *
+ * with timestamps strictly increasing. Every indexInterval-th record's
+ * timestamp and offset is also written to a sparse .idx file beside the
+ * segment. Finding the snapshot in effect at a given time is then a lookup in
+ * the sorted segment map, a binary search of that segment's index and a scan
+ * of at most indexInterval record headers.
+ *
+ * Playback returns the snapshot in effect for each feed source, oldest first.
+ * Serialized feed messages concatenate into a valid message, with the
+ * entities of all of them and the header of the newest, so the snapshots are
+ * streamed back to back without being parsed.
+ */
+public class FeedSnapshotArchive {
+
+  private static Logger _log = LoggerFactory.getLogger(FeedSnapshotArchive.class);
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final String INDEX_SUFFIX = ".idx";
+
+  // timestamp and length
+  private static final int RECORD_HEADER_SIZE = 12;
+
+  // timestamp and offset
+  private static final int INDEX_ENTRY_SIZE = 16;
+
+  private File _directory;
+
+  private long _segmentDuration = 60 * 60 * 1000;
+
+  private int _indexInterval = 16;
+
+  private long _retentionPeriod = 0;
+
+  /**
+   * Keyed by feed directory name and entity type, see {@link #getKey}
+   */
+  private ConcurrentMap<String, Partitions> _partitions = new ConcurrentHashMap<String, Partitions>();
+
+  public void setDirectory(File directory) {
+    _directory = directory;
+  }
+
+  /**
+   * @param segmentDuration ms covered by each segment file, one hour by default
+   */
+  public void setSegmentDuration(long segmentDuration) {
+    _segmentDuration = segmentDuration;
+  }
+
+  /**
+   * @param indexInterval number of records between sparse index entries
+   */
+  public void setIndexInterval(int indexInterval) {
+    _indexInterval = Math.max(1, indexInterval);
+  }
+
+  /**
+   * @param retentionPeriod ms after which segments are deleted; 0, the default,
+   *          keeps them forever
+   */
+  public void setRetentionPeriod(long retentionPeriod) {
+    _retentionPeriod = retentionPeriod;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!_directory.exists() && !_directory.mkdirs())
+      _log.error("unable to create archive directory " + _directory);
+    File[] feedDirs = _directory.listFiles();
+    if (feedDirs == null)
+      return;
+    for (File feedDir : feedDirs) {
+      if (!feedDir.isDirectory())
+        continue;
+      for (EntityType type : EntityType.values()) {
+        File dir = new File(feedDir, getDirectoryName(type));
+        if (dir.isDirectory())
+          _partitions.put(getKey(feedDir.getName(), type), loadPartitions(dir, type));
+      }
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    for (Partitions partitions : _partitions.values()) {
+      synchronized (partitions) {
+        closeWriter(partitions);
+      }
+    }
+  }
+
+  /**
+   * Appends a feed snapshot. Snapshots of a feed must arrive in time order;
+   * one that is not newer than the last archived snapshot of its feed and
+   * type, typically the same feed fetched twice, is skipped.
+   *
+   * @param feedId identifies the feed source, one directory per source
+   * @return true if the snapshot was archived
+   */
+  public boolean append(String feedId, EntityType type, long timestamp,
+      FeedMessage message) throws IOException {
+
+    Partitions partitions = getPartitions(feedId, type);
+    long start = timestamp - timestamp % _segmentDuration;
+    byte[] data = compress(message);
+
+    synchronized (partitions) {
+      if (timestamp <= partitions.lastTimestamp
+          || (!partitions.segments.isEmpty() && start < partitions.segments.lastKey()))
+        return false;
+
+      if (partitions.writer == null || partitions.writer.start != start) {
+        closeWriter(partitions);
+        partitions.writer = openWriter(partitions, start);
+        deleteExpiredSegments(partitions, timestamp);
+        if (timestamp <= partitions.lastTimestamp)
+          return false;
+      }
+
+      partitions.writer.append(timestamp, data);
+      partitions.lastTimestamp = timestamp;
+      return true;
+    }
+  }
+
+  /**
+   * @return the latest snapshot of each feed taken in [from, to], merged into
+   *         one message, or null if there is none
+   */
+  public FeedMessage getFeedMessage(EntityType type, long from, long to)
+      throws IOException {
+    List<Record> records = find(type, from, to);
+    if (records.isEmpty())
+      return null;
+    FeedMessage.Builder builder = FeedMessage.newBuilder();
+    for (Record record : records) {
+      InputStream in = new InflaterInputStream(new ByteArrayInputStream(
+          read(record)));
+      try {
+        builder.mergeFrom(in);
+      } finally {
+        in.close();
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes the latest snapshot of each feed taken in [from, to] to out as a
+   * single serialized FeedMessage, without parsing them.
+   *
+   * @return false, having written nothing, if there is no such snapshot
+   */
+  public boolean writeFeedMessage(EntityType type, long from, long to,
+      OutputStream out) throws IOException {
+    List<Record> records = find(type, from, to);
+    if (records.isEmpty())
+      return false;
+    byte[] buffer = new byte[8192];
+    for (Record record : records) {
+      InputStream in = new InflaterInputStream(new ByteArrayInputStream(
+          read(record)));
+      try {
+        int n;
+        while ((n = in.read(buffer)) != -1)
+          out.write(buffer, 0, n);
+      } finally {
+        in.close();
+      }
+    }
+    return true;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * @return the latest record in [from, to] of each feed, oldest first
+   */
+  private List<Record> find(EntityType type, long from, long to)
+      throws IOException {
+    List<Record> records = new ArrayList<Record>();
+    for (Partitions partitions : _partitions.values()) {
+      if (partitions.type != type)
+        continue;
+      Record record = find(partitions, from, to);
+      if (record != null)
+        records.add(record);
+    }
+    Collections.sort(records, new Comparator<Record>() {
+      @Override
+      public int compare(Record a, Record b) {
+        return Long.compare(a.timestamp, b.timestamp);
+      }
+    });
+    return records;
+  }
+
+  private Record find(Partitions partitions, long from, long to)
+      throws IOException {
+    Map.Entry<Long, File> entry = partitions.segments.floorEntry(to);
+    // the snapshot may be in an earlier segment if none was taken between the
+    // start of this one and the requested time
+    while (entry != null && entry.getKey() + _segmentDuration > from) {
+      Record record = findInSegment(entry.getValue(), to);
+      if (record != null)
+        return record.timestamp >= from ? record : null;
+      entry = partitions.segments.lowerEntry(entry.getKey());
+    }
+    return null;
+  }
+
+  private Record findInSegment(File segment, long timestamp) throws IOException {
+
+    long[] index = readIndex(getIndexFile(segment));
+
+    // last index entry at or before the timestamp
+    int low = 0;
+    int high = index.length / 2 - 1;
+    long offset = 0;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (index[mid * 2] <= timestamp) {
+        offset = index[mid * 2 + 1];
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    RandomAccessFile file;
+    try {
+      file = new RandomAccessFile(segment, "r");
+    } catch (IOException ex) {
+      // deleted as expired since we looked it up
+      return null;
+    }
+    try {
+      Record record = new Record(segment);
+      scan(file, offset, timestamp, record);
+      return record.offset < 0 ? null : record;
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Reads record headers from offset until the end of the file, an incomplete
+   * record or a record after maxTimestamp, keeping the last one read in
+   * record.
+   *
+   * @return the offset just past the last complete record read
+   */
+  private static long scan(RandomAccessFile file, long offset,
+      long maxTimestamp, Record record) throws IOException {
+    long length = file.length();
+    while (offset + RECORD_HEADER_SIZE <= length) {
+      file.seek(offset);
+      long timestamp = file.readLong();
+      int dataLength = file.readInt();
+      if (dataLength < 0 || offset + RECORD_HEADER_SIZE + dataLength > length)
+        break;
+      if (timestamp > maxTimestamp)
+        break;
+      record.timestamp = timestamp;
+      record.offset = offset;
+      record.length = dataLength;
+      record.count++;
+      offset += RECORD_HEADER_SIZE + dataLength;
+    }
+    return offset;
+  }
+
+  private static byte[] read(Record record) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(record.segment, "r");
+    try {
+      byte[] data = new byte[record.length];
+      file.seek(record.offset + RECORD_HEADER_SIZE);
+      file.readFully(data);
+      return data;
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * @return timestamp, offset pairs; an incomplete trailing entry is ignored
+   */
+  private static long[] readIndex(File indexFile) throws IOException {
+    if (!indexFile.exists())
+      return new long[0];
+    int entries = (int) (indexFile.length() / INDEX_ENTRY_SIZE);
+    long[] index = new long[entries * 2];
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(indexFile)));
+    try {
+      for (int i = 0; i < index.length; i++)
+        index[i] = in.readLong();
+    } finally {
+      in.close();
+    }
+    return index;
+  }
+
+  private static byte[] compress(FeedMessage message) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DeflaterOutputStream out = new DeflaterOutputStream(bytes);
+    message.writeTo(out);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Opens the segment for the period starting at start, first truncating any
+   * record or index entry left incomplete by an earlier process.
+   */
+  private SegmentWriter openWriter(Partitions partitions, long start)
+      throws IOException {
+
+    File segment = new File(partitions.directory, start + SEGMENT_SUFFIX);
+    File indexFile = getIndexFile(segment);
+
+    long length = 0;
+    int recordsSinceIndex = 0;
+    long indexLength = 0;
+
+    if (segment.exists()) {
+      long[] index = readIndex(indexFile);
+      RandomAccessFile file = new RandomAccessFile(segment, "rw");
+      try {
+        long offset = 0;
+        int entries = index.length / 2;
+        // drop index entries pointing past the end of the segment
+        while (entries > 0 && index[entries * 2 - 1] >= file.length())
+          entries--;
+        if (entries > 0)
+          offset = index[entries * 2 - 1];
+        Record record = new Record(segment);
+        length = scan(file, offset, Long.MAX_VALUE, record);
+        file.setLength(length);
+        recordsSinceIndex = record.count;
+        if (record.offset >= 0)
+          partitions.lastTimestamp = Math.max(partitions.lastTimestamp,
+              record.timestamp);
+        indexLength = (long) entries * INDEX_ENTRY_SIZE;
+      } finally {
+        file.close();
+      }
+      if (indexFile.exists())
+        truncate(indexFile, indexLength);
+    }
+
+    partitions.segments.put(start, segment);
+    return new SegmentWriter(start, segment, indexFile, length,
+        recordsSinceIndex);
+  }
+
+  private static void truncate(File file, long length) throws IOException {
+    RandomAccessFile access = new RandomAccessFile(file, "rw");
+    try {
+      access.setLength(length);
+    } finally {
+      access.close();
+    }
+  }
+
+  private void closeWriter(Partitions partitions) {
+    if (partitions.writer == null)
+      return;
+    try {
+      partitions.writer.close();
+    } catch (IOException ex) {
+      _log.error("error closing archive segment", ex);
+    }
+    partitions.writer = null;
+  }
+
+  private void deleteExpiredSegments(Partitions partitions, long now) {
+    if (_retentionPeriod <= 0)
+      return;
+    ConcurrentNavigableMap<Long, File> expired = partitions.segments.headMap(
+        now - _retentionPeriod - _segmentDuration);
+    Iterator<Map.Entry<Long, File>> it = expired.entrySet().iterator();
+    while (it.hasNext()) {
+      File segment = it.next().getValue();
+      it.remove();
+      if (!segment.delete())
+        _log.warn("unable to delete expired archive segment " + segment);
+      getIndexFile(segment).delete();
+    }
+  }
+
+  private Partitions getPartitions(String feedId, EntityType type) {
+    String feedDirectory = getFeedDirectoryName(feedId);
+    String key = getKey(feedDirectory, type);
+    Partitions partitions = _partitions.get(key);
+    if (partitions == null) {
+      File dir = new File(new File(_directory, feedDirectory),
+          getDirectoryName(type));
+      if (!dir.exists() && !dir.mkdirs())
+        _log.error("unable to create archive directory " + dir);
+      Partitions created = new Partitions(dir, type);
+      partitions = _partitions.putIfAbsent(key, created);
+      if (partitions == null)
+        partitions = created;
+    }
+    return partitions;
+  }
+
+  private Partitions loadPartitions(File dir, EntityType type) {
+    Partitions partitions = new Partitions(dir, type);
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (!name.endsWith(SEGMENT_SUFFIX))
+          continue;
+        try {
+          long start = Long.parseLong(name.substring(0,
+              name.length() - SEGMENT_SUFFIX.length()));
+          partitions.segments.put(start, file);
+        } catch (NumberFormatException ex) {
+          _log.warn("ignoring unexpected file in archive directory: " + file);
+        }
+      }
+    }
+    return partitions;
+  }
+
+  private static String getKey(String feedDirectory, EntityType type) {
+    return feedDirectory + "/" + type.name();
+  }
+
+  /**
+   * Feed ids are typically agency ids, which may hold characters that are not
+   * safe in a file name
+   */
+  private static String getFeedDirectoryName(String feedId) {
+    if (feedId == null || feedId.isEmpty())
+      return "_";
+    return feedId.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static String getDirectoryName(EntityType type) {
+    return type.name().toLowerCase();
+  }
+
+  private static File getIndexFile(File segment) {
+    String name = segment.getName();
+    return new File(segment.getParentFile(), name.substring(0,
+        name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+  }
+
+  private static class Partitions {
+
+    private final File directory;
+
+    private final EntityType type;
+
+    private final ConcurrentSkipListMap<Long, File> segments = new ConcurrentSkipListMap<Long, File>();
+
+    private SegmentWriter writer;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public Partitions(File directory, EntityType type) {
+      this.directory = directory;
+      this.type = type;
+    }
+  }
+
+  private class SegmentWriter {
+
+    private final long start;
+
+    private final DataOutputStream _out;
+
+    private final DataOutputStream _indexOut;
+
+    private long _offset;
+
+    private int _recordsSinceIndex;
+
+    public SegmentWriter(long start, File segment, File indexFile, long offset,
+        int recordsSinceIndex) throws IOException {
+      this.start = start;
+      _out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(segment, true)));
+      _indexOut = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(indexFile, true)));
+      _offset = offset;
+      _recordsSinceIndex = recordsSinceIndex;
+    }
+
+    public void append(long timestamp, byte[] data) throws IOException {
+      _out.writeLong(timestamp);
+      _out.writeInt(data.length);
+      _out.write(data);
+      // readers only see complete records, so flush before indexing
+      _out.flush();
+
+      if (_recordsSinceIndex == 0 || _recordsSinceIndex >= _indexInterval) {
+        _indexOut.writeLong(timestamp);
+        _indexOut.writeLong(_offset);
+        _indexOut.flush();
+        _recordsSinceIndex = 0;
+      }
+      _recordsSinceIndex++;
+      _offset += RECORD_HEADER_SIZE + data.length;
+    }
+
+    public void close() throws IOException {
+      try {
+        _out.close();
+      } finally {
+        _indexOut.close();
+      }
+    }
+  }
+
+  private static class Record {
+
+    private final File segment;
+
+    private long timestamp;
+
+    private long offset = -1;
+
+    private int length;
+
+    private int count;
+
+    public Record(File segment) {
+      this.segment = segment;
+    }
+  }
+}
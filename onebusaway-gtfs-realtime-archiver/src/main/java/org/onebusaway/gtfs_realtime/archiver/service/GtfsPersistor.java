@@ -16,10 +16,13 @@
 package org.onebusaway.gtfs_realtime.archiver.service;
 
 import org.onebusaway.gtfs_realtime.archiver.model.LinkAVLData;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
 import org.onebusaway.gtfs_realtime.model.AlertModel;
 import org.onebusaway.gtfs_realtime.model.TripUpdateModel;
 import org.onebusaway.gtfs_realtime.model.VehiclePositionModel;
 
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
 public interface GtfsPersistor {
 
   void persist(TripUpdateModel tripUpdate);
@@ -29,4 +32,13 @@ public interface GtfsPersistor {
   void persist(AlertModel alert);
 
   void persist(LinkAVLData linkAvlData);
+
+  /**
+   * Called with each complete feed as fetched, before its entities are
+   * persisted individually. Persistors that store entities may ignore it.
+   *
+   * @param feedId identifies the source of the feed, as several may be
+   *          archived side by side
+   */
+  void persist(EntityType type, String feedId, FeedMessage feed);
 }
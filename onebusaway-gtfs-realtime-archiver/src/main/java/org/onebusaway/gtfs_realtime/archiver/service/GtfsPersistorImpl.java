@@ -24,6 +24,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.onebusaway.gtfs_realtime.archiver.model.LinkAVLData;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
 import org.onebusaway.gtfs_realtime.model.AlertModel;
 import org.onebusaway.gtfs_realtime.model.TripUpdateModel;
 import org.onebusaway.gtfs_realtime.model.VehiclePositionModel;
@@ -36,6 +37,8 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
 @Component
 /**
  * Handles asynchronous persistence of the archiver models.
@@ -175,6 +178,11 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
     }
   }
 
+  @Override
+  public void persist(EntityType type, String feedId, FeedMessage feed) {
+    // the individual entities are stored instead
+  }
+
   private class TripUpdateThread implements Runnable {
 
     @Override
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import java.io.IOException;
+
+import org.onebusaway.gtfs_realtime.archiver.model.LinkAVLData;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.onebusaway.gtfs_realtime.model.AlertModel;
+import org.onebusaway.gtfs_realtime.model.TripUpdateModel;
+import org.onebusaway.gtfs_realtime.model.VehiclePositionModel;
+import org.onebusaway.util.SystemTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Archives trip update and vehicle position feeds whole in a
+ * {@link FeedSnapshotArchive} instead of as database rows, so the individual
+ * trip updates and vehicle positions parsed from those feeds are not persisted
+ * again. Alerts and link AVL data, which have no snapshots, are passed on to
+ * the delegate persistor if one is configured and dropped otherwise.
+ */
+public class SegmentFileGtfsPersistor implements GtfsPersistor {
+
+  private static Logger _log = LoggerFactory.getLogger(SegmentFileGtfsPersistor.class);
+
+  private FeedSnapshotArchive _archive;
+
+  private GtfsPersistor _delegate;
+
+  public void setArchive(FeedSnapshotArchive archive) {
+    _archive = archive;
+  }
+
+  public void setDelegate(GtfsPersistor delegate) {
+    _delegate = delegate;
+  }
+
+  @Override
+  public void persist(EntityType type, String feedId, FeedMessage feed) {
+    long timestamp = feed.getHeader().getTimestamp() * 1000;
+    if (timestamp <= 0)
+      timestamp = SystemTime.currentTimeMillis();
+    try {
+      _archive.append(feedId, type, timestamp, feed);
+    } catch (IOException ex) {
+      _log.error("error archiving " + type + " feed " + feedId, ex);
+    }
+  }
+
+  @Override
+  public void persist(TripUpdateModel tripUpdate) {
+    // archived with the whole feed
+  }
+
+  @Override
+  public void persist(VehiclePositionModel vehiclePosition) {
+    // archived with the whole feed
+  }
+
+  @Override
+  public void persist(AlertModel alert) {
+    if (_delegate != null)
+      _delegate.persist(alert);
+  }
+
+  @Override
+  public void persist(LinkAVLData linkAvlData) {
+    if (_delegate != null)
+      _delegate.persist(linkAvlData);
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+public class FeedSnapshotArchiveTest {
+
+  private static final String FEED = "1";
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+  private FeedSnapshotArchive _archive;
+
+  @Before
+  public void setup() {
+    _archive = createArchive();
+  }
+
+  @After
+  public void tearDown() {
+    _archive.stop();
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+
+    // 100 snapshots 250ms apart over 25 one second segments
+    for (int i = 0; i < 100; i++)
+      assertTrue(_archive.append(FEED, EntityType.TRIP, 10000 + i * 250, feed(i)));
+
+    assertNull(_archive.getFeedMessage(EntityType.TRIP, 0, 9999));
+    assertNull(_archive.getFeedMessage(EntityType.VEHICLE, 0, 20000));
+
+    for (int i = 0; i < 100; i++) {
+      long t = 10000 + i * 250;
+      assertEquals(i, id(_archive.getFeedMessage(EntityType.TRIP, t - 1000, t)));
+      assertEquals(i, id(_archive.getFeedMessage(EntityType.TRIP, t - 1000, t + 249)));
+    }
+
+    // the latest snapshot is too old for the window
+    assertNull(_archive.getFeedMessage(EntityType.TRIP, 10100, 10200));
+    assertEquals(99, id(_archive.getFeedMessage(EntityType.TRIP, 0, 99999)));
+  }
+
+  @Test
+  public void testSeekAcrossEmptySegments() throws IOException {
+    _archive.append(FEED, EntityType.VEHICLE, 1500, feed(1));
+    _archive.append(FEED, EntityType.VEHICLE, 9500, feed(2));
+
+    assertEquals(1, id(_archive.getFeedMessage(EntityType.VEHICLE, 0, 9000)));
+    assertNull(_archive.getFeedMessage(EntityType.VEHICLE, 2000, 9000));
+    assertEquals(2, id(_archive.getFeedMessage(EntityType.VEHICLE, 0, 9500)));
+  }
+
+  @Test
+  public void testSkipsOldSnapshots() throws IOException {
+    assertTrue(_archive.append(FEED, EntityType.TRIP, 5000, feed(1)));
+    assertFalse(_archive.append(FEED, EntityType.TRIP, 5000, feed(2)));
+    assertFalse(_archive.append(FEED, EntityType.TRIP, 4000, feed(3)));
+    assertEquals(1, id(_archive.getFeedMessage(EntityType.TRIP, 0, 6000)));
+  }
+
+  @Test
+  public void testWriteFeedMessage() throws IOException {
+    FeedMessage message = feed(7);
+    _archive.append(FEED, EntityType.TRIP, 1000, message);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertTrue(_archive.writeFeedMessage(EntityType.TRIP, 0, 2000, out));
+    assertArrayEquals(message.toByteArray(), out.toByteArray());
+
+    out.reset();
+    assertFalse(_archive.writeFeedMessage(EntityType.TRIP, 2000, 3000, out));
+    assertEquals(0, out.size());
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    for (int i = 0; i < 10; i++)
+      _archive.append(FEED, EntityType.TRIP, 10000 + i * 10, feed(i));
+    _archive.stop();
+
+    // a record cut short by a crash
+    File segment = new File(new File(new File(_folder.getRoot(), FEED), "trip"),
+        "10000.seg");
+    FileOutputStream out = new FileOutputStream(segment, true);
+    out.write(new byte[] {0, 0, 0, 0, 0, 0, 39, 16, 0, 0, 1});
+    out.close();
+
+    _archive = createArchive();
+    assertEquals(9, id(_archive.getFeedMessage(EntityType.TRIP, 0, 20000)));
+    assertFalse(_archive.append(FEED, EntityType.TRIP, 10090, feed(100)));
+
+    for (int i = 10; i < 20; i++)
+      assertTrue(_archive.append(FEED, EntityType.TRIP, 10000 + i * 10, feed(i)));
+    for (int i = 0; i < 20; i++)
+      assertEquals(i, id(_archive.getFeedMessage(EntityType.TRIP, 0, 10000 + i * 10 + 5)));
+  }
+
+  @Test
+  public void testRetention() throws IOException {
+    _archive.setRetentionPeriod(5000);
+    _archive.append(FEED, EntityType.TRIP, 1000, feed(1));
+    _archive.append(FEED, EntityType.TRIP, 4000, feed(2));
+    _archive.append(FEED, EntityType.TRIP, 9000, feed(3));
+
+    File dir = new File(new File(_folder.getRoot(), FEED), "trip");
+    assertFalse(new File(dir, "1000.seg").exists());
+    assertFalse(new File(dir, "1000.idx").exists());
+    assertTrue(new File(dir, "4000.seg").exists());
+    assertNull(_archive.getFeedMessage(EntityType.TRIP, 0, 3000));
+    assertEquals(2, id(_archive.getFeedMessage(EntityType.TRIP, 0, 5000)));
+  }
+
+  @Test
+  public void testFeedsAreSeparate() throws IOException {
+    assertTrue(_archive.append("1", EntityType.TRIP, 5000, feed(1, "a")));
+    assertTrue(_archive.append("MTA NYCT", EntityType.TRIP, 5000, feed(2, "b")));
+    assertTrue(_archive.append("MTA NYCT", EntityType.TRIP, 5500, feed(3, "c")));
+    assertTrue(_archive.append("1", EntityType.VEHICLE, 5000, feed(4, "d")));
+
+    // the latest snapshot of each feed, the newest header winning
+    FeedMessage message = _archive.getFeedMessage(EntityType.TRIP, 0, 6000);
+    assertEquals(3, id(message));
+    assertEquals(2, message.getEntityCount());
+    assertEquals("a", message.getEntity(0).getId());
+    assertEquals("c", message.getEntity(1).getId());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertTrue(_archive.writeFeedMessage(EntityType.TRIP, 0, 6000, out));
+    assertEquals(message, FeedMessage.parseFrom(out.toByteArray()));
+
+    // snapshots of both feeds at the same timestamp are kept
+    assertEquals(2, _archive.getFeedMessage(EntityType.TRIP, 0, 5200).getEntityCount());
+    assertNull(_archive.getFeedMessage(EntityType.TRIP, 5600, 6000));
+
+    _archive.stop();
+    _archive = createArchive();
+    assertEquals(message, _archive.getFeedMessage(EntityType.TRIP, 0, 6000));
+    assertTrue(new File(_folder.getRoot(), "MTA_NYCT").isDirectory());
+  }
+
+  private FeedSnapshotArchive createArchive() {
+    FeedSnapshotArchive archive = new FeedSnapshotArchive();
+    archive.setDirectory(_folder.getRoot());
+    archive.setSegmentDuration(1000);
+    archive.setIndexInterval(2);
+    archive.start();
+    return archive;
+  }
+
+  private static FeedMessage feed(long id) {
+    FeedHeader.Builder header = FeedHeader.newBuilder();
+    header.setGtfsRealtimeVersion("2.0");
+    header.setTimestamp(id);
+    return FeedMessage.newBuilder().setHeader(header).build();
+  }
+
+  private static FeedMessage feed(long id, String entityId) {
+    return feed(id).toBuilder().addEntity(
+        FeedEntity.newBuilder().setId(entityId)).build();
+  }
+
+  private static long id(FeedMessage message) {
+    return message == null ? -1 : message.getHeader().getTimestamp();
+  }
+}
@@ -24,6 +24,7 @@ import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.nextbus.actions.api.NextBusApiBase;
 import org.onebusaway.nextbus.impl.gtfsrt.GtfsrtCache;
 import org.onebusaway.nextbus.impl.gtfsrt.GtfsrtHelper;
+import org.onebusaway.nextbus.impl.gtfsrt.SerializedFeed;
 import org.onebusaway.nextbus.util.HttpUtil;
 import org.onebusaway.transit_data.model.ListBean;
 import org.onebusaway.transit_data.model.service_alerts.NaturalLanguageStringBean;
@@ -38,11 +39,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static org.onebusaway.nextbus.impl.gtfsrt.GtfsrtCache.ALL_AGENCIES;
 
 public class AlertsAction extends NextBusApiBase implements
-		ModelDriven<FeedMessage> {
+		ModelDriven<SerializedFeed> {
 
 	private static Logger _log = LoggerFactory.getLogger(AlertsAction.class);
 
@@ -82,60 +84,58 @@ public class AlertsAction extends NextBusApiBase implements
 	}
 
 	@Override
-	public FeedMessage getModel() {
-		FeedMessage cachedAlerts = _cache.getAlerts(getAgencyIdHashKey());
-		if(cachedAlerts != null){
-			return cachedAlerts;
+	public SerializedFeed getModel() {
+		return _cache.getAlerts(getAgencyIdHashKey(), new Callable<FeedMessage>() {
+			@Override
+			public FeedMessage call() {
+				return buildFeedMessage();
+			}
+		});
+	}
+
+	private FeedMessage buildFeedMessage() {
+		FeedMessage.Builder feedMessage = createFeedWithDefaultHeader(null);
+
+		List<String> agencyIds = new ArrayList<String>();
+
+		if (agencyId != null) {
+			agencyIds.add(agencyId);
+		} else {
+			Map<String, List<CoordinateBounds>> agencies = _transitDataService.getAgencyIdsWithCoverageArea();
+			agencyIds.addAll(agencies.keySet());
 		}
-		else {
 
-			FeedMessage.Builder feedMessage = createFeedWithDefaultHeader(null);
+		for (String agencyId : agencyIds) {
+			ListBean<ServiceAlertBean> serviceAlertBeans = _transitDataService.getAllServiceAlertsForAgencyId(agencyId);
 
-			List<String> agencyIds = new ArrayList<String>();
+			for (ServiceAlertBean serviceAlert : serviceAlertBeans.getList()) {
+				try {
 
-			if (agencyId != null) {
-				agencyIds.add(agencyId);
-			} else {
-				Map<String, List<CoordinateBounds>> agencies = _transitDataService.getAgencyIdsWithCoverageArea();
-				agencyIds.addAll(agencies.keySet());
-			}
+					if (matchesFilter(serviceAlert)) {
+						Alert.Builder alert = Alert.newBuilder();
 
-			for (String agencyId : agencyIds) {
-				ListBean<ServiceAlertBean> serviceAlertBeans = _transitDataService.getAllServiceAlertsForAgencyId(agencyId);
-
-				for (ServiceAlertBean serviceAlert : serviceAlertBeans.getList()) {
-					try {
-
-						if (matchesFilter(serviceAlert)) {
-							Alert.Builder alert = Alert.newBuilder();
-
-							fillAlertHeader(alert, serviceAlert.getSummaries());
-							// description is no longer populated
-							fillAlertDescriptions(alert, serviceAlert.getDescriptions());
-							if (!alert.hasDescriptionText()) {
-								_log.info("copying header text of " + alert.getHeaderText().getTranslation(0));
-								alert.setDescriptionText(alert.getHeaderText());
-							}
-							fillActiveWindows(alert, serviceAlert.getActiveWindows());
-							fillSituationAffects(alert, serviceAlert.getAllAffects());
-
-							FeedEntity.Builder feedEntity = FeedEntity.newBuilder();
-							feedEntity.setAlert(alert);
-							feedEntity.setId(id(agencyId, serviceAlert.getId()));
-							feedMessage.addEntity(feedEntity);
+						fillAlertHeader(alert, serviceAlert.getSummaries());
+						// description is no longer populated
+						fillAlertDescriptions(alert, serviceAlert.getDescriptions());
+						if (!alert.hasDescriptionText()) {
+							_log.info("copying header text of " + alert.getHeaderText().getTranslation(0));
+							alert.setDescriptionText(alert.getHeaderText());
 						}
-					} catch (Exception e) {
-						_log.error("Unable to process service alert", e);
+						fillActiveWindows(alert, serviceAlert.getActiveWindows());
+						fillSituationAffects(alert, serviceAlert.getAllAffects());
+
+						FeedEntity.Builder feedEntity = FeedEntity.newBuilder();
+						feedEntity.setAlert(alert);
+						feedEntity.setId(id(agencyId, serviceAlert.getId()));
+						feedMessage.addEntity(feedEntity);
 					}
+				} catch (Exception e) {
+					_log.error("Unable to process service alert", e);
 				}
 			}
-
-			FeedMessage builtFeedMessage = feedMessage.build();
-			_cache.putAlerts(getAgencyIdHashKey(), builtFeedMessage);
-
-			return builtFeedMessage;
 		}
 
+		return feedMessage.build();
 	}
 
 	// package private for unit tests
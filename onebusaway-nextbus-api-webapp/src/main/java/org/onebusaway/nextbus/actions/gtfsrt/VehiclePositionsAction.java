@@ -24,6 +24,7 @@ import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.nextbus.actions.api.NextBusApiBase;
 import org.onebusaway.nextbus.impl.gtfsrt.GtfsrtCache;
 import org.onebusaway.nextbus.impl.gtfsrt.GtfsrtHelper;
+import org.onebusaway.nextbus.impl.gtfsrt.SerializedFeed;
 import org.onebusaway.nextbus.util.HttpUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,11 +33,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static org.onebusaway.nextbus.impl.gtfsrt.GtfsrtCache.ALL_AGENCIES;
 
 public class VehiclePositionsAction extends NextBusApiBase  implements
-        ModelDriven<FeedMessage> {
+        ModelDriven<SerializedFeed> {
 
     private static Logger _log = LoggerFactory.getLogger(VehiclePositionsAction.class);
 
@@ -83,52 +85,53 @@ public class VehiclePositionsAction extends NextBusApiBase  implements
     }
 
     @Override
-    public FeedMessage getModel() {
-        FeedMessage cachedVehiclePositions = _cache.getVehiclePositions(getAgencyIdHashKey());
-        if(cachedVehiclePositions != null){
-            return cachedVehiclePositions;
-        }
-        else {
-            FeedMessage.Builder feedMessage = null; // delay creation until we have a timestamp
-            FeedMessage remoteFeedMessage = null;
+    public SerializedFeed getModel() {
+        return _cache.getVehiclePositions(getAgencyIdHashKey(), new Callable<FeedMessage>() {
+            @Override
+            public FeedMessage call() {
+                return buildFeedMessage();
+            }
+        });
+    }
 
-            List<String> agencyIds = new ArrayList<String>();
+    private FeedMessage buildFeedMessage() {
+        FeedMessage.Builder feedMessage = null; // delay creation until we have a timestamp
+        FeedMessage remoteFeedMessage = null;
 
-            if (agencyId != null) {
-                agencyIds.add(agencyId);
-            } else {
-                Map<String, List<CoordinateBounds>> agencies = _transitDataService.getAgencyIdsWithCoverageArea();
-                agencyIds.addAll(agencies.keySet());
-            }
+        List<String> agencyIds = new ArrayList<String>();
 
-            for (String agencyId : agencyIds) {
-                if (hasServiceUrl(agencyId)) {
-                    String gtfsrtUrl = getServiceUrl(agencyId) + agencyId + VEHICLE_UPDATES_COMMAND;
-                    try {
-                        remoteFeedMessage = _httpUtil.getFeedMessage(gtfsrtUrl, 30);
-                        if (feedMessage == null) {
-                            if (remoteFeedMessage.hasHeader()
-                                    && remoteFeedMessage.getHeader().hasTimestamp()
-                                    && isTimely(remoteFeedMessage.getHeader().getTimestamp())) {
-                                // we set the age of our feed to the age of the first feed that has a timestamp
-                                // unless its too old, then we serve the time the response was generated
-                                feedMessage = createFeedWithDefaultHeader(remoteFeedMessage.getHeader().getTimestamp());
-                            } else {
-                                feedMessage = createFeedWithDefaultHeader(null);
-                            }
-                        }
+        if (agencyId != null) {
+            agencyIds.add(agencyId);
+        } else {
+            Map<String, List<CoordinateBounds>> agencies = _transitDataService.getAgencyIdsWithCoverageArea();
+            agencyIds.addAll(agencies.keySet());
+        }
 
-                        feedMessage.addAllEntity(filter(remoteFeedMessage.getEntityList()));
-                    } catch (Exception e) {
-                        _log.error(e.getMessage());
-                        feedMessage = createFeedWithDefaultHeader(null);
+        for (String agencyId : agencyIds) {
+            if (hasServiceUrl(agencyId)) {
+                String gtfsrtUrl = getServiceUrl(agencyId) + agencyId + VEHICLE_UPDATES_COMMAND;
+                try {
+                    remoteFeedMessage = _httpUtil.getFeedMessage(gtfsrtUrl, 30);
+                    if (feedMessage == null) {
+                        if (remoteFeedMessage.hasHeader()
+                                && remoteFeedMessage.getHeader().hasTimestamp()
+                                && isTimely(remoteFeedMessage.getHeader().getTimestamp())) {
+                            // we set the age of our feed to the age of the first feed that has a timestamp
+                            // unless its too old, then we serve the time the response was generated
+                            feedMessage = createFeedWithDefaultHeader(remoteFeedMessage.getHeader().getTimestamp());
+                        } else {
+                            feedMessage = createFeedWithDefaultHeader(null);
+                        }
                     }
+
+                    feedMessage.addAllEntity(filter(remoteFeedMessage.getEntityList()));
+                } catch (Exception e) {
+                    _log.error(e.getMessage());
+                    feedMessage = createFeedWithDefaultHeader(null);
                 }
             }
-            FeedMessage builtFeedMessage = feedMessage.build();
-            _cache.putVehiclePositions(getAgencyIdHashKey(), builtFeedMessage);
-            return builtFeedMessage;
         }
+        return feedMessage.build();
     }
 
     public FeedMessage.Builder createFeedWithDefaultHeader(Long timestampInSeconds) {
@@ -15,21 +15,62 @@
  */
 package org.onebusaway.nextbus.impl.gtfsrt;
 
-import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Caches the serialized GTFS-realtime feeds served by the gtfsrt actions, with
+ * a separate cache and time to live for each feed type. Concurrent requests
+ * for a missing or expired feed wait on a single load of it. Once a feed is
+ * older than the refresh ratio of its time to live, the next request for it
+ * starts a reload in the background and is served the current bytes
+ * meanwhile, so a feed that is polled steadily never expires. The loader is
+ * kept in the cache key, so background reloads use the loader of the request
+ * that created the entry and nothing is retained once the entry is evicted.
+ */
 @Component
+@ManagedResource("org.onebusaway.nextbus.impl.gtfsrt:name=GtfsrtCache")
 public class GtfsrtCache {
 
+    private static Logger _log = LoggerFactory.getLogger(GtfsrtCache.class);
+
     public static final String ALL_AGENCIES = "_ALL_";
-    Cache<String, FeedMessage> _cache;
+
+    private Map<CacheKey, LoadingCache<FeedKey, SerializedFeed>> _caches = new EnumMap<CacheKey, LoadingCache<FeedKey, SerializedFeed>>(CacheKey.class);
+
+    private ExecutorService _executor;
+
+    private int _tripUpdatesTimeToLive = 10;
+
+    private int _vehiclePositionsTimeToLive = 10;
+
+    private int _alertsTimeToLive = 10;
+
+    private double _refreshRatio = 0.5;
+
+    private int _refreshThreadCount = 2;
+
     private String alertFilter;
     public String getAlertFilter() { return alertFilter; }
     public void setAlertFilter(String filter) { this.alertFilter = filter; }
@@ -40,39 +81,186 @@ public class GtfsrtCache {
         ALERTS
     }
 
+    /**
+     * @param seconds how long trip updates are served before they are reloaded
+     */
+    public void setTripUpdatesTimeToLive(int seconds) {
+        _tripUpdatesTimeToLive = seconds;
+    }
+
+    public void setVehiclePositionsTimeToLive(int seconds) {
+        _vehiclePositionsTimeToLive = seconds;
+    }
+
+    public void setAlertsTimeToLive(int seconds) {
+        _alertsTimeToLive = seconds;
+    }
+
+    /**
+     * @param refreshRatio fraction of the time to live after which a requested
+     *          feed is reloaded in the background; 1 or more turns off
+     *          background reloads
+     */
+    public void setRefreshRatio(double refreshRatio) {
+        _refreshRatio = refreshRatio;
+    }
+
+    public void setRefreshThreadCount(int refreshThreadCount) {
+        _refreshThreadCount = refreshThreadCount;
+    }
+
     @PostConstruct
     public void setup(){
-        _cache = CacheBuilder.newBuilder().expireAfterWrite(10,
-                TimeUnit.SECONDS).build();
+        _executor = Executors.newFixedThreadPool(_refreshThreadCount);
+        _caches.put(CacheKey.TRIP_UPDATES, createCache(_tripUpdatesTimeToLive));
+        _caches.put(CacheKey.VEHICLE_POSITIONS, createCache(_vehiclePositionsTimeToLive));
+        _caches.put(CacheKey.ALERTS, createCache(_alertsTimeToLive));
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        if (_executor != null)
+            _executor.shutdownNow();
     }
 
-    public void putTripUpdates(String hashKey, FeedMessage feedMessage){
-        _cache.put(hash(hashKey, CacheKey.TRIP_UPDATES), feedMessage);
+    public SerializedFeed getTripUpdates(String hashKey, Callable<FeedMessage> loader){
+        return get(CacheKey.TRIP_UPDATES, hashKey, loader);
     }
 
-    public void putVehiclePositions(String hashKey, FeedMessage feedMessage){
-        _cache.put(hash(hashKey, CacheKey.VEHICLE_POSITIONS), feedMessage);
+    public SerializedFeed getVehiclePositions(String hashKey, Callable<FeedMessage> loader){
+        return get(CacheKey.VEHICLE_POSITIONS, hashKey, loader);
     }
 
-    public void putAlerts(String hashKey, FeedMessage feedMessage){
-        _cache.put(hash(hashKey, CacheKey.ALERTS), feedMessage);
+    public SerializedFeed getAlerts(String hashKey, Callable<FeedMessage> loader){
+        return get(CacheKey.ALERTS, hashKey, loader);
     }
 
-    public FeedMessage getTripUpdates(String hashKey){
-        return _cache.getIfPresent(hash(hashKey, CacheKey.TRIP_UPDATES));
+    public CacheStats getStats(CacheKey elementKey) {
+        return _caches.get(elementKey).stats();
     }
 
-    public FeedMessage getVehiclePositions(String hashKey){
-        return _cache.getIfPresent(hash(hashKey, CacheKey.VEHICLE_POSITIONS));
+    @ManagedAttribute
+    public long getHitCount() {
+        return getStats().hitCount();
     }
 
-    public FeedMessage getAlerts(String hashKey){
-        return _cache.getIfPresent(hash(hashKey, CacheKey.ALERTS));
+    @ManagedAttribute
+    public long getMissCount() {
+        return getStats().missCount();
     }
 
-    private String hash(String hashKey, CacheKey elementKey) {
-        return hashKey + ":" + elementKey.toString();
+    @ManagedAttribute
+    public long getLoadCount() {
+        return getStats().loadCount();
     }
 
+    @ManagedAttribute
+    public long getLoadExceptionCount() {
+        return getStats().loadExceptionCount();
+    }
+
+    /**
+     * @return average time spent loading a feed, in milliseconds
+     */
+    @ManagedAttribute
+    public double getAverageLoadTime() {
+        return getStats().averageLoadPenalty() / 1e6;
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        long size = 0;
+        for (LoadingCache<FeedKey, SerializedFeed> cache : _caches.values())
+            size += cache.size();
+        return size;
+    }
+
+    private SerializedFeed get(CacheKey elementKey, String hashKey, Callable<FeedMessage> loader) {
+        try {
+            return _caches.get(elementKey).get(new FeedKey(hashKey, loader));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private CacheStats getStats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (LoadingCache<FeedKey, SerializedFeed> cache : _caches.values())
+            stats = stats.plus(cache.stats());
+        return stats;
+    }
+
+    private LoadingCache<FeedKey, SerializedFeed> createCache(int timeToLive) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().expireAfterWrite(
+                timeToLive, TimeUnit.SECONDS).recordStats();
+        long refreshAfter = (long) (timeToLive * 1000 * _refreshRatio);
+        if (refreshAfter > 0 && refreshAfter < timeToLive * 1000L)
+            builder.refreshAfterWrite(refreshAfter, TimeUnit.MILLISECONDS);
+        return builder.build(new FeedLoader());
+    }
+
+    /**
+     * Identifies a feed by its hash key only; the loader just rides along
+     */
+    private static class FeedKey {
+
+        private final String hashKey;
+
+        private final Callable<FeedMessage> loader;
+
+        public FeedKey(String hashKey, Callable<FeedMessage> loader) {
+            this.hashKey = hashKey;
+            this.loader = loader;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashKey == null ? 0 : hashKey.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof FeedKey))
+                return false;
+            FeedKey other = (FeedKey) obj;
+            return hashKey == null ? other.hashKey == null : hashKey.equals(other.hashKey);
+        }
+
+        @Override
+        public String toString() {
+            return hashKey;
+        }
+    }
+
+    private class FeedLoader extends CacheLoader<FeedKey, SerializedFeed> {
+
+        @Override
+        public SerializedFeed load(FeedKey key) throws Exception {
+            return new SerializedFeed(key.loader.call(), System.currentTimeMillis());
+        }
+
+        @Override
+        public ListenableFuture<SerializedFeed> reload(final FeedKey key,
+                SerializedFeed oldValue) {
+            ListenableFutureTask<SerializedFeed> task = ListenableFutureTask.create(new Callable<SerializedFeed>() {
+                @Override
+                public SerializedFeed call() throws Exception {
+                    try {
+                        return load(key);
+                    } catch (Exception e) {
+                        _log.warn("error reloading " + key + ": " + e.getMessage());
+                        throw e;
+                    }
+                }
+            });
+            _executor.execute(task);
+            return task;
+        }
+    }
 }
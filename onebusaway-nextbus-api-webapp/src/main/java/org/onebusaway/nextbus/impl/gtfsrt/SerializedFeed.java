@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.nextbus.impl.gtfsrt;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * A GTFS-realtime feed as cached by {@link GtfsrtCache}, held in serialized
+ * form so that it can be written to any number of responses as is.
+ */
+public final class SerializedFeed {
+
+  private final byte[] _bytes;
+
+  private final long _createdAt;
+
+  public SerializedFeed(FeedMessage feedMessage, long createdAt) {
+    _bytes = feedMessage.toByteArray();
+    _createdAt = createdAt;
+  }
+
+  /**
+   * @return the serialized feed message, which must not be modified
+   */
+  public byte[] getBytes() {
+    return _bytes;
+  }
+
+  public long getCreatedAt() {
+    return _createdAt;
+  }
+
+  /**
+   * Parses the feed back into a message, for the rare response formats that
+   * need one.
+   */
+  public FeedMessage toFeedMessage() {
+    try {
+      return FeedMessage.parseFrom(_bytes);
+    } catch (InvalidProtocolBufferException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -16,9 +16,11 @@
 
 package org.onebusaway.nextbus.impl.rest.handler;
 
+import com.opensymphony.xwork2.ActionContext;
 import com.opensymphony.xwork2.ActionInvocation;
 import com.opensymphony.xwork2.inject.Inject;
 
+import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.StrutsConstants;
 import org.apache.struts2.rest.handler.ContentTypeHandler;
 import org.onebusaway.nextbus.model.nextbus.Body;
@@ -27,11 +29,14 @@ import com.fasterxml.jackson.annotation.JsonRootName;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.cfg.MapperConfig;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
 
+import javax.servlet.http.HttpServletResponse;
+
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
@@ -48,6 +53,17 @@ public class CustomJacksonLibHandler implements ContentTypeHandler {
   private String defaultEncoding = "ISO-8859-1";
   private ObjectMapper mapper = new ObjectMapper();
 
+  /**
+   * Configured once and immutable, so it is safe to share between requests
+   */
+  private final ObjectWriter writer = createWriter();
+
+  /**
+   * When set, responses are serialized straight to the servlet output stream
+   * rather than being built up as a String first
+   */
+  private boolean streaming = true;
+
   public void toObject(Reader in, Object target) throws IOException {
 
     mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
@@ -64,20 +80,20 @@ public class CustomJacksonLibHandler implements ContentTypeHandler {
   }
 
   public String fromObject(Object obj, String resultCode, Writer stream) throws IOException {
-        mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
-        mapper.configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
-        mapper.configure(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED, true);
-        mapper.writeValue(stream, obj);
-       
-        return null;
-    }
+    return fromObject(null, obj, resultCode, stream);
+  }
 
   @Override
   public String fromObject(ActionInvocation actionInvocation, Object o, String s, Writer writer) throws IOException {
-    mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
-    mapper.configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
-    mapper.configure(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED, true);
-    mapper.writeValue(writer, o);
+    HttpServletResponse response = streaming ? getResponse() : null;
+    if (response != null) {
+      // nothing is written to writer, so struts leaves the response to us;
+      // struts encodes buffered responses as UTF-8, which is also what we write
+      response.setContentType(getContentType());
+      this.writer.writeValue(response.getOutputStream(), o);
+    } else {
+      this.writer.writeValue(writer, o);
+    }
 
     return null;
   }
@@ -95,6 +111,25 @@ public class CustomJacksonLibHandler implements ContentTypeHandler {
     this.defaultEncoding = val;
   }
 
+  @Inject(value = "onebusaway.nextbus.json.streaming", required = false)
+  public void setStreaming(String val) {
+    this.streaming = Boolean.parseBoolean(val);
+  }
+
+  private static ObjectWriter createWriter() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.configure(SerializationFeature.WRITE_NULL_MAP_VALUES, false);
+    mapper.configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
+    mapper.configure(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED, true);
+    return mapper.writer();
+  }
+
+  private HttpServletResponse getResponse() {
+    if (ActionContext.getContext() == null)
+      return null;
+    return ServletActionContext.getResponse();
+  }
+
   private class ReplaceNamingStrategy extends PropertyNamingStrategy {
 
     private static final long serialVersionUID = 1L;
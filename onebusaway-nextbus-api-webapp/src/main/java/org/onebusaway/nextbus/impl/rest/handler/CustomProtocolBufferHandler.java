@@ -21,6 +21,7 @@ import com.opensymphony.xwork2.ActionInvocation;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.ContentTypeHandler;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.nextbus.impl.gtfsrt.SerializedFeed;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -51,6 +52,9 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
        */
       HttpServletResponse res = ServletActionContext.getResponse();
       message.writeTo(res.getOutputStream());
+    } else if (obj instanceof SerializedFeed) {
+      HttpServletResponse res = ServletActionContext.getResponse();
+      res.getOutputStream().write(((SerializedFeed) obj).getBytes());
     }
     return null;
   }
@@ -66,6 +70,9 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
        */
       HttpServletResponse res = ServletActionContext.getResponse();
       message.writeTo(res.getOutputStream());
+    } else if (obj instanceof SerializedFeed) {
+      HttpServletResponse res = ServletActionContext.getResponse();
+      res.getOutputStream().write(((SerializedFeed) obj).getBytes());
     }
     return null;
   }
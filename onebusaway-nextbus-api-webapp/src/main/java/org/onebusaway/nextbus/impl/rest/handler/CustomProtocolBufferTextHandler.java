@@ -21,6 +21,7 @@ import com.opensymphony.xwork2.ActionInvocation;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.ContentTypeHandler;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.nextbus.impl.gtfsrt.SerializedFeed;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -45,6 +46,8 @@ public class CustomProtocolBufferTextHandler implements ContentTypeHandler {
     if (obj != null && obj instanceof FeedMessage) {
       FeedMessage message = (FeedMessage) obj;
       stream.write(message.toString());
+    } else if (obj instanceof SerializedFeed) {
+      stream.write(((SerializedFeed) obj).toFeedMessage().toString());
     }
     return null;
   }
@@ -54,6 +57,8 @@ public class CustomProtocolBufferTextHandler implements ContentTypeHandler {
     if (obj != null && obj instanceof FeedMessage) {
       FeedMessage message = (FeedMessage) obj;
       stream.write(message.toString());
+    } else if (obj instanceof SerializedFeed) {
+      stream.write(((SerializedFeed) obj).toFeedMessage().toString());
     }
     return null;
   }
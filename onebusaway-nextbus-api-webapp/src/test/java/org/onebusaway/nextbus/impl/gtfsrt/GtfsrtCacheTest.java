@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.nextbus.impl.gtfsrt;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class GtfsrtCacheTest {
+
+    private GtfsrtCache _cache = new GtfsrtCache();
+
+    @After
+    public void tearDown() {
+        _cache.shutdown();
+    }
+
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception {
+        _cache.setup();
+        final CountingLoader loader = new CountingLoader(200);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<SerializedFeed>> results = new ArrayList<Future<SerializedFeed>>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(new Callable<SerializedFeed>() {
+                @Override
+                public SerializedFeed call() throws Exception {
+                    start.await();
+                    return _cache.getTripUpdates("1", loader);
+                }
+            }));
+        }
+        start.countDown();
+
+        SerializedFeed feed = results.get(0).get();
+        for (Future<SerializedFeed> result : results)
+            assertSame(feed, result.get());
+        executor.shutdown();
+
+        assertEquals(1, loader.loads.get());
+        assertEquals(1, _cache.getLoadCount());
+        assertEquals(1, feed.toFeedMessage().getHeader().getTimestamp());
+    }
+
+    @Test
+    public void testFeedTypesAndAgenciesAreSeparate() throws Exception {
+        _cache.setup();
+        CountingLoader loader = new CountingLoader(0);
+
+        _cache.getTripUpdates("1", loader);
+        _cache.getVehiclePositions("1", loader);
+        _cache.getAlerts("1", loader);
+        _cache.getAlerts("2", loader);
+        _cache.getAlerts("2", loader);
+
+        assertEquals(4, loader.loads.get());
+        assertEquals(4, _cache.getSize());
+        assertEquals(1, _cache.getHitCount());
+        assertEquals(4, _cache.getMissCount());
+        assertEquals(2, _cache.getStats(GtfsrtCache.CacheKey.ALERTS).missCount());
+    }
+
+    @Test
+    public void testTimeToLive() throws Exception {
+        _cache.setAlertsTimeToLive(1);
+        _cache.setRefreshRatio(1);
+        _cache.setup();
+        CountingLoader loader = new CountingLoader(0);
+
+        _cache.getAlerts("1", loader);
+        _cache.getTripUpdates("1", loader);
+        Thread.sleep(1100);
+
+        // only the alerts expired
+        assertEquals(3, _cache.getAlerts("1", loader).toFeedMessage().getHeader().getTimestamp());
+        assertEquals(2, _cache.getTripUpdates("1", loader).toFeedMessage().getHeader().getTimestamp());
+    }
+
+    @Test
+    public void testRefreshInBackground() throws Exception {
+        _cache.setVehiclePositionsTimeToLive(10);
+        _cache.setRefreshRatio(0.05);
+        _cache.setup();
+        CountingLoader loader = new CountingLoader(200);
+
+        SerializedFeed feed = _cache.getVehiclePositions("1", loader);
+        Thread.sleep(600);
+
+        // the stale feed is served while it is reloaded
+        assertSame(feed, _cache.getVehiclePositions("1", loader));
+
+        for (int i = 0; i < 50 && _cache.getLoadCount() < 2; i++)
+            Thread.sleep(20);
+        assertEquals(2, _cache.getVehiclePositions("1", loader).toFeedMessage().getHeader().getTimestamp());
+    }
+
+    private static class CountingLoader implements Callable<FeedMessage> {
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private final long delay;
+
+        public CountingLoader(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public FeedMessage call() throws Exception {
+            int load = loads.incrementAndGet();
+            Thread.sleep(delay);
+            FeedMessage.Builder feed = new GtfsrtHelper().createFeedWithDefaultHeader(Long.valueOf(load));
+            return feed.build();
+        }
+    }
+}
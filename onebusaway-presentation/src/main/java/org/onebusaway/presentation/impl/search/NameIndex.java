@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable typeahead index over route and stop names. Every word of a
+ * name starts a key that runs to the end of the name, so "Main St & 5th Ave"
+ * is found by typing "main", "5th a" and so on. The lower case keys are kept
+ * in a single sorted array that serves as a compact trie: the keys under a
+ * prefix are a contiguous range found by binary search, and during fuzzy
+ * matching neighbouring keys share the edit distance rows of their common
+ * prefix.
+ */
+final class NameIndex {
+
+	static final NameIndex EMPTY = new Builder().build();
+
+	// longer keys cost memory without helping typeahead
+	static final int MAX_KEY_LENGTH = 48;
+
+	private final String[] _keys;
+
+	// the values for _keys[i] are _values[_valueOffsets[i]] up to
+	// _values[_valueOffsets[i + 1]]
+	private final int[] _valueOffsets;
+
+	private final String[] _values;
+
+	private NameIndex(String[] keys, int[] valueOffsets, String[] values) {
+		_keys = keys;
+		_valueOffsets = valueOffsets;
+		_values = values;
+	}
+
+	public int size() {
+		return _keys.length;
+	}
+
+	/**
+	 * Adds the values of the keys starting with the prefix, in key order, until
+	 * there are maxCount results.
+	 */
+	public void getPrefixMatches(String prefix, int maxCount, Set<String> results) {
+		String key = normalize(prefix);
+		if (key.isEmpty())
+			return;
+		int index = Arrays.binarySearch(_keys, key);
+		if (index < 0)
+			index = -(index + 1);
+		for (; index < _keys.length && _keys[index].startsWith(key); index++) {
+			if (!addValues(index, maxCount, results))
+				return;
+		}
+	}
+
+	/**
+	 * Adds the values of the keys that start with a string within maxDistance
+	 * insertions, deletions or substitutions of the query, in key order, until
+	 * there are maxCount results.
+	 */
+	public void getFuzzyMatches(String query, int maxDistance, int maxCount,
+			Set<String> results) {
+		String q = normalize(query);
+		int n = q.length();
+		if (n <= maxDistance || results.size() >= maxCount)
+			return;
+
+		// rows[d][j] is the edit distance between the first d characters of the
+		// current key and the first j characters of the query
+		int[][] rows = new int[MAX_KEY_LENGTH + 1][n + 1];
+		for (int j = 0; j <= n; j++)
+			rows[0][j] = j;
+
+		String previous = "";
+		int depth = 0; // rows[0..depth] are valid for the previous key
+
+		int index = 0;
+		while (index < _keys.length) {
+			String key = _keys[index];
+			int d = Math.min(depth, commonPrefixLength(previous, key));
+			boolean matched = false;
+			boolean pruned = false;
+			while (d < key.length()) {
+				char c = key.charAt(d);
+				int[] above = rows[d];
+				int[] row = rows[++d];
+				row[0] = d;
+				int min = d;
+				for (int j = 1; j <= n; j++) {
+					int cost = q.charAt(j - 1) == c ? 0 : 1;
+					int distance = Math.min(Math.min(above[j] + 1, row[j - 1] + 1),
+							above[j - 1] + cost);
+					row[j] = distance;
+					if (distance < min)
+						min = distance;
+				}
+				if (row[n] <= maxDistance) {
+					matched = true;
+					break;
+				}
+				if (min > maxDistance) {
+					pruned = true;
+					break;
+				}
+			}
+			previous = key;
+			depth = d;
+
+			if (!matched && !pruned) {
+				index++;
+				continue;
+			}
+
+			// every key under the same first d characters shares the outcome
+			int end = index + 1;
+			while (end < _keys.length && _keys[end].regionMatches(0, key, 0, d))
+				end++;
+			if (matched) {
+				for (int i = index; i < end; i++) {
+					if (!addValues(i, maxCount, results))
+						return;
+				}
+			}
+			index = end;
+		}
+	}
+
+	/**
+	 * Lower cases the string and collapses its whitespace, the same way keys
+	 * are normalized
+	 */
+	static String normalize(String value) {
+		return truncate(collapse(value));
+	}
+
+	/****
+	 * Private Methods
+	 ****/
+
+	private boolean addValues(int index, int maxCount, Set<String> results) {
+		for (int i = _valueOffsets[index]; i < _valueOffsets[index + 1]; i++) {
+			if (results.size() >= maxCount)
+				return false;
+			results.add(_values[i]);
+		}
+		return results.size() < maxCount;
+	}
+
+	private static String collapse(String value) {
+		if (value == null)
+			return "";
+		return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	private static String truncate(String value) {
+		if (value.length() > MAX_KEY_LENGTH)
+			return value.substring(0, MAX_KEY_LENGTH);
+		return value;
+	}
+
+	private static int commonPrefixLength(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			if (a.charAt(i) != b.charAt(i))
+				return i;
+		}
+		return length;
+	}
+
+	static class Builder {
+
+		private final Map<String, Set<String>> _valuesByKey = new TreeMap<String, Set<String>>();
+
+		private int _valueCount = 0;
+
+		/**
+		 * Indexes the value under each word of the name, in the order values are
+		 * added
+		 */
+		public void add(String name, String value) {
+			String normalized = collapse(name);
+			for (int start = 0; start < normalized.length(); start++) {
+				if (!isWordStart(normalized, start))
+					continue;
+				String key = truncate(normalized.substring(start));
+				Set<String> values = _valuesByKey.get(key);
+				if (values == null) {
+					values = new LinkedHashSet<String>();
+					_valuesByKey.put(key, values);
+				}
+				if (values.add(value))
+					_valueCount++;
+			}
+		}
+
+		public NameIndex build() {
+			String[] keys = new String[_valuesByKey.size()];
+			int[] valueOffsets = new int[keys.length + 1];
+			String[] values = new String[_valueCount];
+			int index = 0;
+			int offset = 0;
+			for (Map.Entry<String, Set<String>> entry : _valuesByKey.entrySet()) {
+				keys[index] = entry.getKey();
+				valueOffsets[index++] = offset;
+				for (String value : entry.getValue())
+					values[offset++] = value;
+			}
+			valueOffsets[index] = offset;
+			return new NameIndex(keys, valueOffsets, values);
+		}
+
+		private static boolean isWordStart(String value, int index) {
+			return Character.isLetterOrDigit(value.charAt(index))
+					&& (index == 0 || !Character.isLetterOrDigit(value.charAt(index - 1)));
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.onebusaway.transit_data.model.AgencyWithCoverageBean;
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.util.AgencyAndIdLibrary;
+
+/**
+ * The route and stop lookups {@link SearchServiceImpl} searches against, built
+ * for a single bundle. An index is never modified once built: when the active
+ * bundle changes a new one is built and swapped in whole, so a search always
+ * sees the routes and stops of exactly one bundle.
+ */
+final class SearchIndex {
+
+	static final SearchIndex EMPTY = new Builder(null).build();
+
+	// queries shorter than this are only matched by prefix
+	private static final int MIN_FUZZY_QUERY_LENGTH = 4;
+
+	// queries at least this long may be two edits away from a name
+	private static final int MIN_TWO_EDIT_QUERY_LENGTH = 8;
+
+	private final String _bundleId;
+
+	private final Map<String, List<RouteBean>> _routeShortNameToRouteBeanMap;
+
+	private final Map<String, RouteBean> _routeIdToRouteBeanMap;
+
+	private final Map<String, List<RouteBean>> _routeLongNameToRouteBeanMap;
+
+	private final Map<String, String> _stopCodeToStopIdMap;
+
+	private final Map<String, Set<String>> _unqualifiedStopIdToStopIdMap;
+
+	private final Map<String, Set<String>> _stopNameToStopIdMap;
+
+	private final NameIndex _names;
+
+	public static SearchIndex build(TransitDataService transitDataService,
+			String bundleId) {
+		Builder builder = new Builder(bundleId);
+		for (AgencyWithCoverageBean agency : transitDataService
+				.getAgenciesWithCoverage()) {
+			String agencyId = agency.getAgency().getId();
+			for (RouteBean routeBean : transitDataService
+					.getRoutesForAgencyId(agencyId).getList()) {
+				builder.addRoute(routeBean);
+			}
+			for (StopBean stop : transitDataService.getAllRevenueStops(agency)) {
+				builder.addStop(agencyId, stop);
+			}
+		}
+		return builder.build();
+	}
+
+	private SearchIndex(Builder builder) {
+		_bundleId = builder._bundleId;
+		_routeShortNameToRouteBeanMap = unmodifiableListMap(builder._routeShortNameToRouteBeanMap);
+		_routeIdToRouteBeanMap = Collections.unmodifiableMap(builder._routeIdToRouteBeanMap);
+		_routeLongNameToRouteBeanMap = unmodifiableListMap(builder._routeLongNameToRouteBeanMap);
+		_stopCodeToStopIdMap = Collections.unmodifiableMap(builder._stopCodeToStopIdMap);
+		_unqualifiedStopIdToStopIdMap = unmodifiableSetMap(builder._unqualifiedStopIdToStopIdMap);
+		_stopNameToStopIdMap = unmodifiableSetMap(builder._stopNameToStopIdMap);
+		_names = builder._names.build();
+	}
+
+	/**
+	 * @return the bundle the index was built from, or null for the empty index
+	 */
+	public String getBundleId() {
+		return _bundleId;
+	}
+
+	/**
+	 * Keyed by upper case short name
+	 */
+	public Map<String, List<RouteBean>> getRouteShortNameToRouteBeanMap() {
+		return _routeShortNameToRouteBeanMap;
+	}
+
+	public Map<String, RouteBean> getRouteIdToRouteBeanMap() {
+		return _routeIdToRouteBeanMap;
+	}
+
+	public Map<String, List<RouteBean>> getRouteLongNameToRouteBeanMap() {
+		return _routeLongNameToRouteBeanMap;
+	}
+
+	/**
+	 * Keyed by agency id + "_" + upper case stop code
+	 */
+	public Map<String, String> getStopCodeToStopIdMap() {
+		return _stopCodeToStopIdMap;
+	}
+
+	public Map<String, Set<String>> getUnqualifiedStopIdToStopIdMap() {
+		return _unqualifiedStopIdToStopIdMap;
+	}
+
+	public Map<String, Set<String>> getStopNameToStopIdMap() {
+		return _stopNameToStopIdMap;
+	}
+
+	/**
+	 * Typeahead suggestions in the "name [hint]" form the search understands.
+	 * Route short names, route long names, stop names and stop codes are matched
+	 * by prefix; if that comes up short, names within one or two typos of the
+	 * input are added. Input without letters, such as a stop number, is only
+	 * matched by prefix so that it isn't "corrected" to a neighbouring stop.
+	 */
+	public List<String> getSuggestions(String input, int maxCount) {
+		Set<String> results = new LinkedHashSet<String>();
+		_names.getPrefixMatches(input, maxCount, results);
+		if (results.size() < maxCount) {
+			int maxDistance = getMaxEditDistance(NameIndex.normalize(input));
+			if (maxDistance > 0)
+				_names.getFuzzyMatches(input, maxDistance, maxCount, results);
+		}
+		return new ArrayList<String>(results);
+	}
+
+	/****
+	 * Private Methods
+	 ****/
+
+	private static int getMaxEditDistance(String query) {
+		if (query.length() < MIN_FUZZY_QUERY_LENGTH || !hasLetter(query))
+			return 0;
+		if (query.length() < MIN_TWO_EDIT_QUERY_LENGTH)
+			return 1;
+		return 2;
+	}
+
+	private static boolean hasLetter(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (Character.isLetter(value.charAt(i)))
+				return true;
+		}
+		return false;
+	}
+
+	private static <K, V> Map<K, List<V>> unmodifiableListMap(
+			Map<K, List<V>> map) {
+		for (Map.Entry<K, List<V>> entry : map.entrySet())
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		return Collections.unmodifiableMap(map);
+	}
+
+	private static <K, V> Map<K, Set<V>> unmodifiableSetMap(Map<K, Set<V>> map) {
+		for (Map.Entry<K, Set<V>> entry : map.entrySet())
+			entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+		return Collections.unmodifiableMap(map);
+	}
+
+	static class Builder {
+
+		private final String _bundleId;
+
+		private final Map<String, List<RouteBean>> _routeShortNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
+
+		// these are uniquely prefixed, they don't need to be a list
+		private final Map<String, RouteBean> _routeIdToRouteBeanMap = new HashMap<String, RouteBean>();
+
+		private final Map<String, List<RouteBean>> _routeLongNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
+
+		private final Map<String, String> _stopCodeToStopIdMap = new HashMap<String, String>();
+
+		private final Map<String, Set<String>> _unqualifiedStopIdToStopIdMap = new HashMap<String, Set<String>>();
+
+		private final Map<String, Set<String>> _stopNameToStopIdMap = new HashMap<String, Set<String>>();
+
+		private final NameIndex.Builder _names = new NameIndex.Builder();
+
+		public Builder(String bundleId) {
+			_bundleId = bundleId;
+		}
+
+		public void addRoute(RouteBean routeBean) {
+			String shortName = routeBean.getShortName();
+			String longName = routeBean.getLongName();
+			if (shortName != null)
+				addToList(_routeShortNameToRouteBeanMap, shortName.toUpperCase(),
+						routeBean);
+			if (longName != null)
+				addToList(_routeLongNameToRouteBeanMap, longName, routeBean);
+			_routeIdToRouteBeanMap.put(routeBean.getId(), routeBean);
+
+			String name = shortName != null ? shortName : longName;
+			if (name == null)
+				return;
+			String hint = longName != null ? longName : routeBean.getId();
+			String suggestion = name + " [" + hint + "]";
+			_names.add(shortName, suggestion);
+			_names.add(longName, suggestion);
+		}
+
+		public void addStop(String agencyId, StopBean stop) {
+			String unqualifiedId = AgencyAndIdLibrary.convertFromString(
+					stop.getId()).getId();
+			addToSet(_unqualifiedStopIdToStopIdMap, unqualifiedId, stop.getId());
+			if (stop.getCode() != null)
+				_stopCodeToStopIdMap.put(agencyId + "_"
+						+ stop.getCode().toUpperCase(), stop.getId());
+			addToSet(_stopNameToStopIdMap, stop.getName(), stop.getId());
+
+			String hint = stop.getName() != null ? stop.getName() : stop.getId();
+			String suggestion = unqualifiedId + " [" + hint + "]";
+			_names.add(unqualifiedId, suggestion);
+			_names.add(stop.getCode(), suggestion);
+			_names.add(stop.getName(), suggestion);
+		}
+
+		public SearchIndex build() {
+			return new SearchIndex(this);
+		}
+
+		private static <K, V> void addToList(Map<K, List<V>> map, K key, V value) {
+			List<V> values = map.get(key);
+			if (values == null) {
+				values = new ArrayList<V>();
+				map.put(key, values);
+			}
+			values.add(value);
+		}
+
+		private static <K, V> void addToSet(Map<K, Set<V>> map, K key, V value) {
+			Set<V> values = map.get(key);
+			if (values == null) {
+				values = new HashSet<V>();
+				map.put(key, values);
+			}
+			values.add(value);
+		}
+	}
+}
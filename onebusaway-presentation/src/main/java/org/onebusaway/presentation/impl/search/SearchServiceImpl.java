@@ -39,17 +39,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import java.net.URLDecoder;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.onebusaway.util.AgencyAndIdLibrary;
@@ -96,21 +100,7 @@ public class SearchServiceImpl implements SearchService {
 	@Autowired
 	private TransitDataService _transitDataService;
 
-	private Map<String, List<RouteBean>> _routeShortNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
-	
-	private Map<String, RouteBean> _routeIdToRouteBeanMap = new HashMap<String, RouteBean>(); // these are uniquely prefixed, they don't need to be a list
-
-	private Map<String, List<RouteBean>> _routeLongNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
-
-	private Map<String, String> _stopCodeToStopIdMap = new HashMap<String, String>();
-
-	private Map<String, Set<String>> _unqualifiedStopIdToStopIdMap = new HashMap<String, Set<String>>();
-
-	private Map<String, Set<String>> _stopNameToStopIdMap = new HashMap<>();
-
-	private String _bundleIdForCaches = null;
-
-	// we keep an internal cache of route short/long names because if we moved
+	// we keep an internal index of route short/long names because if we moved
 	// this into the
 	// transit data federation, we'd also have to move the model factory and
 	// some other agency-specific
@@ -119,66 +109,58 @@ public class SearchServiceImpl implements SearchService {
 	// long-term FIXME: figure out how to split apart the model creation a bit
 	// more from the actual
 	// search process.
+	private volatile SearchIndex _index = SearchIndex.EMPTY;
+
+	private final ScheduledExecutorService _indexExecutor = Executors.newSingleThreadScheduledExecutor();
+
+	// how often to look for a bundle change, in seconds
+	private int _bundleCheckInterval = 60;
+
+	public void setBundleCheckInterval(int bundleCheckInterval) {
+		_bundleCheckInterval = bundleCheckInterval;
+	}
+
+	@PostConstruct
+	public void start() {
+		_indexExecutor.scheduleWithFixedDelay(new BundleCheckTask(), 0,
+				_bundleCheckInterval, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		_indexExecutor.shutdownNow();
+	}
+
+	/**
+	 * Makes sure the search index matches the active bundle. This asks the
+	 * transit data service for the active bundle id, so it runs on a timer
+	 * rather than per request; searches keep using the previous index until
+	 * the new one is built, and it is then replaced in one step.
+	 */
 	public void refreshCachesIfNecessary() {
 		String currentBundleId = _transitDataService.getActiveBundleId();
 
-		if ((_bundleIdForCaches != null && _bundleIdForCaches
-				.equals(currentBundleId)) || currentBundleId == null) {
+		if (currentBundleId == null || currentBundleId.equals(_index.getBundleId())) {
 			return;
 		}
-		_bundleIdForCaches = _transitDataService.getActiveBundleId();
-		refreshCaches();
+		refreshCaches(currentBundleId);
 	}
-	private synchronized void refreshCaches() {
-
-		_routeShortNameToRouteBeanMap.clear();
-		_routeIdToRouteBeanMap.clear();
-		_routeLongNameToRouteBeanMap.clear();
-		_stopCodeToStopIdMap.clear();
-		_unqualifiedStopIdToStopIdMap.clear();
-		_stopNameToStopIdMap.clear();
 
-		for (AgencyWithCoverageBean agency : _transitDataService
-				.getAgenciesWithCoverage()) {
-			for (RouteBean routeBean : _transitDataService
-					.getRoutesForAgencyId(agency.getAgency().getId()).getList()) {
-				if (routeBean.getShortName() != null)
-				    if (_routeShortNameToRouteBeanMap.containsKey(routeBean.getShortName().toUpperCase())) {
-				      _routeShortNameToRouteBeanMap.get(routeBean.getShortName().toUpperCase()).add(routeBean);
-				    } else {
-					_routeShortNameToRouteBeanMap.put(routeBean.getShortName()
-							.toUpperCase(), new ArrayList<RouteBean>(Arrays.asList(routeBean)));
-				    }
-				if (routeBean.getLongName() != null)
-				  if (_routeLongNameToRouteBeanMap.containsKey(routeBean.getLongName())) {
-				    _routeLongNameToRouteBeanMap.get(routeBean.getLongName()).add(routeBean);
-				  } else {
-				    _routeLongNameToRouteBeanMap.put(routeBean.getLongName(),
-							new ArrayList<RouteBean>(Arrays.asList(routeBean)));
-				  }
-				
-				_routeIdToRouteBeanMap.put(routeBean.getId(), routeBean);
-			}
-
-			List<StopBean> stopsList = _transitDataService.getAllRevenueStops(agency);
-			for (StopBean stop : stopsList) {
-				String unqualifiedId = AgencyAndIdLibrary.convertFromString(stop.getId()).getId();
-				if (!_unqualifiedStopIdToStopIdMap.containsKey(unqualifiedId)) {
-					_unqualifiedStopIdToStopIdMap.put(unqualifiedId, new HashSet<>());
-				}
-				_unqualifiedStopIdToStopIdMap.get(unqualifiedId).add(stop.getId());
-				_stopCodeToStopIdMap.put(agency.getAgency().getId() + "_"
-					+ stop.getCode().toUpperCase(), stop.getId());
-				if (!_stopNameToStopIdMap.containsKey(stop.getName())) {
-					_stopNameToStopIdMap.put(stop.getName(), new HashSet<>());
-				}
-				_stopNameToStopIdMap.get(stop.getName()).add(stop.getId());
-			}
+	private synchronized void refreshCaches(String bundleId) {
+		if (bundleId.equals(_index.getBundleId())) {
+			return;
 		}
-
-
+		long t0 = System.currentTimeMillis();
+		SearchIndex index = SearchIndex.build(_transitDataService, bundleId);
+		_index = index;
+		_log.info("built search index for bundle " + bundleId + " in "
+				+ (System.currentTimeMillis() - t0) + " ms");
 	}
 
+	@Override
+	public List<String> getSuggestions(String input, int maxCount) {
+		return _index.getSuggestions(input, maxCount);
+	}
 
 	@Override
 	public SearchResultCollection findStopsNearPoint(Double latitude,
@@ -392,7 +374,13 @@ public class SearchServiceImpl implements SearchService {
 	public SearchResultCollection getSearchResultsForServiceDate(String query,
 			SearchResultFactory resultFactory,
 			AgencyServiceInterval serviceInterval) {
-		refreshCachesIfNecessary();
+		// one index for the whole search, even if a new bundle is swapped in
+		SearchIndex index = _index;
+		if (index == SearchIndex.EMPTY) {
+			// nothing to search until the first index exists
+			refreshCachesIfNecessary();
+			index = _index;
+		}
 		/*
 		*  This method now makes a series of assumptions!
 		*  - using a ',' means our query is a lat/lon or a mailing address
@@ -425,40 +413,40 @@ public class SearchServiceImpl implements SearchService {
 
 		tryAsLatLon(results, query, resultFactory);
 
-		String normalizedQuery = normalizeQuery(results, query, serviceInterval);
+		String normalizedQuery = normalizeQuery(index, results, query, serviceInterval);
 
 		if (results.isEmpty() && hasHint) {
-			tryAsExactRoute(results, normalizedQuery, hint, resultFactory, serviceInterval);
+			tryAsExactRoute(index, results, normalizedQuery, hint, resultFactory, serviceInterval);
 		}
 
 		if (results.isEmpty() && hasHint) {
-			tryAsExactStopName(results, hint, resultFactory);
+			tryAsExactStopName(index, results, hint, resultFactory);
 		}
 
 		if (results.isEmpty() && !hasComma) {
 			// before we consider tokens, try route exactly as queried
-			tryAsExactRoute(results, null, query.toUpperCase().trim(), resultFactory, serviceInterval);
+			tryAsExactRoute(index, results, null, query.toUpperCase().trim(), resultFactory, serviceInterval);
 		}
 
 		// if we have a comma, we are not a single route
 		if (results.isEmpty() && !hasComma) {
-			tryAsRoute(results, normalizedQuery, resultFactory, serviceInterval);
+			tryAsRoute(index, results, normalizedQuery, resultFactory, serviceInterval);
 		}
 
         if (results.isEmpty() && hasSemiColon) {
-            tryAsRoutes(results, normalizedQuery, resultFactory);
+            tryAsRoutes(index, results, normalizedQuery, resultFactory);
         }
 
 		// only guess it as a stop if its numeric or has possible agency prefix
 		// results does not support mixed types -- it can only be a route or a stop
 		if (results.isEmpty() && !hasComma && (StringUtils.isNumeric(normalizedQuery) || normalizedQuery.contains("_")) ) {
-			tryAsStop(results, normalizedQuery, resultFactory, serviceInterval);
+			tryAsStop(index, results, normalizedQuery, resultFactory, serviceInterval);
 		}
 
 		// OBAHART-165 nomralizedQuery can behave strangely if the routeId exists within the query term
 		// try again with the query itself
 		if (results.isEmpty() && !hasComma && (StringUtils.isNumeric(query))) {
-			tryAsStop(results, query, resultFactory, serviceInterval);
+			tryAsStop(index, results, query, resultFactory, serviceInterval);
 		}
 
 		if (!"true".equalsIgnoreCase(_configurationService
@@ -470,7 +458,7 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		if (results.isEmpty() && !hasComma) {
-			tryAsUnqualifiedStopId(results, query, resultFactory);
+			tryAsUnqualifiedStopId(index, results, query, resultFactory);
 		}
 
 		if (results.isEmpty()) {
@@ -480,7 +468,7 @@ public class SearchServiceImpl implements SearchService {
 		return results;
 	}
 
-	private void tryAsExactStopName(SearchResultCollection results, String stopQuery, SearchResultFactory resultFactory) {
+	private void tryAsExactStopName(SearchIndex index, SearchResultCollection results, String stopQuery, SearchResultFactory resultFactory) {
 		StopBean testStopBean = null;
 		try {
 			// try as a stop_id
@@ -495,8 +483,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 		// try stop name match
 		// stopNames are not guaranteed unique, and therefore this may return the wrong stop
-		if (_stopNameToStopIdMap.containsKey(stopQuery)) {
-			Set<String> stopIdSet = _stopNameToStopIdMap.get(stopQuery);
+		Set<String> stopIdSet = index.getStopNameToStopIdMap().get(stopQuery);
+		if (stopIdSet != null) {
 			// if it's not an exact match let later search heuristics catch it
 			if (stopIdSet.size() == 1) {
 				StopBean stopBean = _transitDataService.getStop(stopIdSet.iterator().next());
@@ -529,8 +517,8 @@ public class SearchServiceImpl implements SearchService {
 		return;
 		}
 
-	private void tryAsUnqualifiedStopId(SearchResultCollection results, String q, SearchResultFactory resultFactory){
-		Set<String> potentialStops = _unqualifiedStopIdToStopIdMap.get(q);
+	private void tryAsUnqualifiedStopId(SearchIndex index, SearchResultCollection results, String q, SearchResultFactory resultFactory){
+		Set<String> potentialStops = index.getUnqualifiedStopIdToStopIdMap().get(q);
 		if (potentialStops != null && potentialStops.size() == 1) {
 			// need exactly one match for this to work
 			StopBean stopBean = _transitDataService.getStop(potentialStops.iterator().next());
@@ -539,11 +527,13 @@ public class SearchServiceImpl implements SearchService {
 		}
 		// we could alternatively add a suggestions
 	}
-	private String normalizeQuery(SearchResultCollection results, String q, AgencyServiceInterval serviceInterval) {
+	private String normalizeQuery(SearchIndex index, SearchResultCollection results, String q, AgencyServiceInterval serviceInterval) {
 		if (q == null) {
 			return null;
 		}
 
+		Map<String, List<RouteBean>> routeShortNameToRouteBeanMap = index.getRouteShortNameToRouteBeanMap();
+
 		q = URLDecoder.decode(q);
 		
 		q = q.trim();
@@ -600,16 +590,16 @@ public class SearchServiceImpl implements SearchService {
 			}
 
 			// keep track of route tokens we found when parsing
-			if (_routeShortNameToRouteBeanMap.containsKey(token.toUpperCase())) {
+			if (routeShortNameToRouteBeanMap.containsKey(token.toUpperCase())) {
 				// if a route is included as part of another type of query, then
 				// it's a filter--
 				// so remove it from the normalized query sent to the geocoder
 				// or stop service
-				if ((lastItem != null && !_routeShortNameToRouteBeanMap
+				if ((lastItem != null && !routeShortNameToRouteBeanMap
 						.containsKey(lastItem.toUpperCase()))
-						|| (nextItem != null && !_routeShortNameToRouteBeanMap
+						|| (nextItem != null && !routeShortNameToRouteBeanMap
 								.containsKey(nextItem.toUpperCase()))) {
-					results.addRouteFilter(_routeShortNameToRouteBeanMap
+					results.addRouteFilter(routeShortNameToRouteBeanMap
 							.get(token.toUpperCase()).get(0)); //TODO Filtering on multiple route matches
 					continue;
 				}
@@ -617,10 +607,10 @@ public class SearchServiceImpl implements SearchService {
 				// if the token is not a route and the next or last token is a
 				// valid stop id (but not also a route ID),
 				// consider the token a bad filter and remove it from the query.
-				if ((lastItem != null && stopsForId(lastItem, serviceInterval).size() > 0
-						&& !_routeShortNameToRouteBeanMap.containsKey(lastItem.toUpperCase()))
-						|| (nextItem != null && stopsForId(nextItem, serviceInterval).size() > 0
-								&& !_routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase()))) { // TOOD Filtering on multiple route matches
+				if ((lastItem != null && stopsForId(index, lastItem, serviceInterval).size() > 0
+						&& !routeShortNameToRouteBeanMap.containsKey(lastItem.toUpperCase()))
+						|| (nextItem != null && stopsForId(index, nextItem, serviceInterval).size() > 0
+								&& !routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase()))) { // TOOD Filtering on multiple route matches
 					if (!token.contains("_")) {
 						// if we have an agency Id, its probably a stop, don't
 						// discard
@@ -634,7 +624,7 @@ public class SearchServiceImpl implements SearchService {
 				// if a user is prepending a route filter with a plus sign, chop
 				// it off
 				// e.g. main and craig + B63
-				if (_routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase())) {
+				if (routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase())) {
 					continue;
 				}
 
@@ -732,7 +722,7 @@ public class SearchServiceImpl implements SearchService {
 	}
   }
 
-	private void tryAsExactRoute(SearchResultCollection results, String additionalTerm, String expectedTerm,
+	private void tryAsExactRoute(SearchIndex index, SearchResultCollection results, String additionalTerm, String expectedTerm,
 								 SearchResultFactory resultFactory, AgencyServiceInterval serviceInterval) {
 
 	  	// try as route_id
@@ -749,8 +739,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// short name matching -- if single exact result
-		if (_routeShortNameToRouteBeanMap.get(expectedTerm) != null) {
-			List<RouteBean> routeBeans = _routeShortNameToRouteBeanMap.get(expectedTerm);
+		List<RouteBean> routeBeans = index.getRouteShortNameToRouteBeanMap().get(expectedTerm);
+		if (routeBeans != null) {
 			if (routeBeans.size() == 1) {
 				results.addMatch(resultFactory.getRouteResult(routeBeans.get(0)));
 				results.setHint("tryAsRoute");
@@ -758,7 +748,7 @@ public class SearchServiceImpl implements SearchService {
 			}
 			// if we have more data see if it matches
 			if (additionalTerm != null) {
-				for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(expectedTerm)) {
+				for (RouteBean routeBean : routeBeans) {
 					AgencyAndId routeId = AgencyAndIdLibrary.convertFromString(routeBean.getId());
 					if (routeId.getId().equalsIgnoreCase(additionalTerm)) {
 						results.addMatch(resultFactory.getRouteResult(routeBean));
@@ -770,8 +760,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// long name matching -- if single exact result
-		if (_routeLongNameToRouteBeanMap.get(expectedTerm) != null) {
-			List<RouteBean> routeBeans = _routeLongNameToRouteBeanMap.get(expectedTerm);
+		routeBeans = index.getRouteLongNameToRouteBeanMap().get(expectedTerm);
+		if (routeBeans != null) {
 			if (routeBeans.size() == 1) {
 				results.addMatch(resultFactory.getRouteResult(routeBeans.get(0)));
 				results.setHint("tryAsRoute");
@@ -779,7 +769,7 @@ public class SearchServiceImpl implements SearchService {
 			}
 			// if we have more data see if it matches
 			if (additionalTerm != null) {
-				for (RouteBean routeBean : _routeLongNameToRouteBeanMap.get(expectedTerm)) {
+				for (RouteBean routeBean : routeBeans) {
 					AgencyAndId routeId = AgencyAndIdLibrary.convertFromString(routeBean.getId());
 					if (routeId.getId().equalsIgnoreCase(additionalTerm)) {
 						results.addMatch(resultFactory.getRouteResult(routeBean));
@@ -792,7 +782,7 @@ public class SearchServiceImpl implements SearchService {
 
 	}
 
-	private void tryAsRoute(SearchResultCollection results, String routeQueryMixedCase,
+	private void tryAsRoute(SearchIndex index, SearchResultCollection results, String routeQueryMixedCase,
 			SearchResultFactory resultFactory, AgencyServiceInterval serviceInterval) {
 
 	  String routeQuery = new String(routeQueryMixedCase);
@@ -807,8 +797,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// agency + route id matching (from direct links) as exact case
-    if (_routeIdToRouteBeanMap.get(routeQueryMixedCase) != null) {
-      RouteBean routeBean = _routeIdToRouteBeanMap.get(routeQueryMixedCase);
+    if (index.getRouteIdToRouteBeanMap().get(routeQueryMixedCase) != null) {
+      RouteBean routeBean = index.getRouteIdToRouteBeanMap().get(routeQueryMixedCase);
       results.addMatch(resultFactory.getRouteResult(routeBean));
       results.setHint("tryAsRoute");
       // if we've matched, assume no others
@@ -816,8 +806,8 @@ public class SearchServiceImpl implements SearchService {
     }
 
     // agency + route id matching (from direct links) as upper case
-    if (_routeIdToRouteBeanMap.get(routeQuery) != null) {
-      RouteBean routeBean = _routeIdToRouteBeanMap.get(routeQuery);
+    if (index.getRouteIdToRouteBeanMap().get(routeQuery) != null) {
+      RouteBean routeBean = index.getRouteIdToRouteBeanMap().get(routeQuery);
       results.addMatch(resultFactory.getRouteResult(routeBean));
 		results.setHint("tryAsRoute");
       // if we've matched, assume no others
@@ -825,15 +815,15 @@ public class SearchServiceImpl implements SearchService {
     }
 		
 		// short name matching
-		if (_routeShortNameToRouteBeanMap.get(routeQuery) != null) {
-		  for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(routeQuery)) {
+		if (index.getRouteShortNameToRouteBeanMap().get(routeQuery) != null) {
+		  for (RouteBean routeBean : index.getRouteShortNameToRouteBeanMap().get(routeQuery)) {
 				results.addMatch(resultFactory.getRouteResult(routeBean));
 			  	results.setHint("tryAsRoute");
 		  }
 		}
 
 		// TOOD make this configurable as it may be expensive on large datasets
-		for (String routeShortName : _routeShortNameToRouteBeanMap.keySet()) {
+		for (String routeShortName : index.getRouteShortNameToRouteBeanMap().keySet()) {
 			// if the route short name ends or starts with our query, and
 			// whatever's left over
 			// matches the regex
@@ -845,7 +835,7 @@ public class SearchServiceImpl implements SearchService {
 					&& ((routeShortName.startsWith(routeQuery) && leftOversAreDiscardable) || (routeShortName
 							.endsWith(routeQuery) && leftOversAreDiscardable))) {
 			  try {
-			    for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(routeShortName)) {
+			    for (RouteBean routeBean : index.getRouteShortNameToRouteBeanMap().get(routeShortName)) {
 			      results.addSuggestion(resultFactory.getRouteResult(routeBean));
 				  results.setHint("tryAsRoute");
 			    }
@@ -857,11 +847,11 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// long name matching
-		for (String routeLongName : _routeLongNameToRouteBeanMap.keySet()) {
+		for (String routeLongName : index.getRouteLongNameToRouteBeanMap().keySet()) {
 			if (routeLongName.contains(routeQuery + " ")
 					|| routeLongName.contains(" " + routeQuery)) {
 			  try {
-			    for (RouteBean routeBean : _routeLongNameToRouteBeanMap.get(routeLongName)) {
+			    for (RouteBean routeBean : index.getRouteLongNameToRouteBeanMap().get(routeLongName)) {
 			      results.addSuggestion(resultFactory.getRouteResult(routeBean));
 			      results.setHint("tryAsRoute");
 			    }
@@ -872,7 +862,7 @@ public class SearchServiceImpl implements SearchService {
 
 	}
 
-    private void tryAsRoutes(SearchResultCollection results, String routeQueryMixedCase,
+    private void tryAsRoutes(SearchIndex index, SearchResultCollection results, String routeQueryMixedCase,
                             SearchResultFactory resultFactory) {
 
         String routeQuery = new String(routeQueryMixedCase);
@@ -899,14 +889,14 @@ public class SearchServiceImpl implements SearchService {
         //for each route, match to either an agency prefixed route (ex: 1_92)
         //or a short name of route (ex: 92)
         for (String route : routeTokens)  {
-            if (_routeIdToRouteBeanMap.get(route) != null) {
-                RouteBean routeBean = _routeIdToRouteBeanMap.get(route);
+            if (index.getRouteIdToRouteBeanMap().get(route) != null) {
+                RouteBean routeBean = index.getRouteIdToRouteBeanMap().get(route);
                 results.addMatch(resultFactory.getRouteResult(routeBean));
 				results.setHint("tryAsRoute");
             }
 
-            if (_routeShortNameToRouteBeanMap.get(route) != null) {
-                for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(route)) {
+            if (index.getRouteShortNameToRouteBeanMap().get(route) != null) {
+                for (RouteBean routeBean : index.getRouteShortNameToRouteBeanMap().get(route)) {
                     results.addMatch(resultFactory.getRouteResult(routeBean));
 					results.setHint("tryAsRoute");
                 }
@@ -915,7 +905,7 @@ public class SearchServiceImpl implements SearchService {
         return;
     }
 
-	private void tryAsStop(SearchResultCollection results, String stopQuery,
+	private void tryAsStop(SearchIndex index, SearchResultCollection results, String stopQuery,
 			SearchResultFactory resultFactory, AgencyServiceInterval serviceInterval) {
 		if (stopQuery == null || StringUtils.isEmpty(stopQuery)) {
 			return;
@@ -924,7 +914,7 @@ public class SearchServiceImpl implements SearchService {
 		stopQuery = stopQuery.trim();
 
 		// try to find a stop ID for all known agencies
-		List<StopBean> matches = stopsForId(stopQuery, serviceInterval);
+		List<StopBean> matches = stopsForId(index, stopQuery, serviceInterval);
 
 		if (matches.size() > 0)  // support multiple agency stop matches
 		  for (StopBean stopBean : matches) {
@@ -971,7 +961,7 @@ public class SearchServiceImpl implements SearchService {
 	}
 
 	// Utility method for getting all known stops for an id with no agency
-	private List<StopBean> stopsForId(String id, AgencyServiceInterval serviceInterval) {
+	private List<StopBean> stopsForId(SearchIndex index, String id, AgencyServiceInterval serviceInterval) {
 		List<StopBean> matches = new ArrayList<StopBean>();
 		
 		// accept agency denoted stops first!
@@ -1020,11 +1010,11 @@ public class SearchServiceImpl implements SearchService {
 					  StopBean potentialStop;
 					  if (serviceInterval == null) {
 						  potentialStop = _transitDataService
-								  .getStop(getStopIdFromStopCode(potentialStopId.toString()));
+								  .getStop(getStopIdFromStopCode(index, potentialStopId.toString()));
 					  }
 					  else {
 						  potentialStop = _transitDataService
-								  .getStopForServiceDate(getStopIdFromStopCode(potentialStopId.toString()), serviceInterval);
+								  .getStopForServiceDate(getStopIdFromStopCode(index, potentialStopId.toString()), serviceInterval);
 					  }
   					if (potentialStop != null) {
   						matches.add(potentialStop);
@@ -1038,10 +1028,10 @@ public class SearchServiceImpl implements SearchService {
 		return matches;
 	}
 
-	private String getStopIdFromStopCode(String code) {
+	private String getStopIdFromStopCode(SearchIndex index, String code) {
 		if (code != null
-				&& _stopCodeToStopIdMap.containsKey(code.toUpperCase()))
-			return _stopCodeToStopIdMap.get(code.toUpperCase());
+				&& index.getStopCodeToStopIdMap().containsKey(code.toUpperCase()))
+			return index.getStopCodeToStopIdMap().get(code.toUpperCase());
 		return code;
 	}
 
@@ -1120,6 +1110,19 @@ public class SearchServiceImpl implements SearchService {
 		}
 	}
 
+	private class BundleCheckTask implements Runnable {
+
+		@Override
+		public void run() {
+			try {
+				refreshCachesIfNecessary();
+			} catch (Throwable ex) {
+				// keep the task scheduled; the next check retries
+				_log.error("error refreshing search index", ex);
+			}
+		}
+	}
+
 	public static class SimpleEnterpriseGeocoderResult implements EnterpriseGeocoderResult {
 
   		private Double lat = null;
@@ -20,6 +20,7 @@ import org.onebusaway.presentation.model.SearchResultCollection;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.transit_data.model.RouteBean;
 
+import java.util.List;
 import java.util.Set;
 
 public interface SearchService {
@@ -34,4 +35,12 @@ public interface SearchService {
 
   public SearchResultCollection findStopsNearPoint(Double latitude, Double longitude, SearchResultFactory resultFactory, Set<RouteBean> routeFilter);
 
+  /**
+   * Typeahead suggestions for the active bundle's routes and stops, of the
+   * form "name [hint]" that {@link #getSearchResults} accepts as a query.
+   * Answered from an in-memory index, without calling the transit data
+   * service.
+   */
+  public List<String> getSuggestions(String input, int maxCount);
+
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class NameIndexTest {
+
+  private static Logger _log = LoggerFactory.getLogger(NameIndexTest.class);
+
+  @Test
+  public void testPrefixMatches() {
+    NameIndex.Builder builder = new NameIndex.Builder();
+    builder.add("Main St & 5th Ave", "A");
+    builder.add("Mainland Terminal", "B");
+    builder.add("5th Ave (North)", "C");
+    NameIndex index = builder.build();
+
+    assertEquals(Arrays.asList("A", "B"), prefix(index, "main", 10));
+    assertEquals(Arrays.asList("A", "C"), prefix(index, " 5TH   av", 10));
+    assertEquals(Arrays.asList("C"), prefix(index, "north", 10));
+    assertEquals(Arrays.asList("A"), prefix(index, "main st", 10));
+    assertEquals(Arrays.asList("A"), prefix(index, "main", 1));
+    assertTrue(prefix(index, "", 10).isEmpty());
+    assertTrue(prefix(index, "zzz", 10).isEmpty());
+    assertTrue(prefix(NameIndex.EMPTY, "main", 10).isEmpty());
+  }
+
+  @Test
+  public void testFuzzyMatches() {
+    NameIndex.Builder builder = new NameIndex.Builder();
+    builder.add("Broadway", "A");
+    builder.add("Brookside Dr", "B");
+    builder.add("Lakeview Terrace", "C");
+    NameIndex index = builder.build();
+
+    assertEquals(Arrays.asList("A"), fuzzy(index, "braodway", 2, 10));
+    assertEquals(Arrays.asList("A"), fuzzy(index, "brodway", 1, 10));
+    assertTrue(fuzzy(index, "braodway", 1, 10).isEmpty());
+
+    // the query only has to be close to the start of a name
+    assertEquals(Arrays.asList("C"), fuzzy(index, "lakevew", 1, 10));
+    assertEquals(Arrays.asList("C"), fuzzy(index, "terace", 1, 10));
+
+    // "brok" is one edit from "broa" and "broo"
+    assertEquals(Arrays.asList("A", "B"), fuzzy(index, "brok", 1, 10));
+    assertEquals(Arrays.asList("A"), fuzzy(index, "brok", 1, 1));
+
+    // too short to say anything
+    assertTrue(fuzzy(index, "b", 1, 10).isEmpty());
+  }
+
+  @Test
+  public void testLongNames() {
+    NameIndex.Builder builder = new NameIndex.Builder();
+    String name = "Transit Center Bay 4 Northbound Platform Opposite The Public Library Entrance";
+    builder.add(name, "A");
+    NameIndex index = builder.build();
+
+    assertEquals(Arrays.asList("A"), prefix(index, name, 10));
+    assertEquals(Arrays.asList("A"), prefix(index, "library", 10));
+    assertEquals(Arrays.asList("A"), fuzzy(index, name.replace('T', 'X'), 2, 10));
+  }
+
+  @Test
+  @Ignore("benchmark, run manually")
+  public void testTiming() {
+    Random random = new Random(42);
+    String[] streets = {"Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Lake",
+        "Hill", "Park", "Broadway", "Washington", "Lincoln", "Jefferson",
+        "Madison", "Franklin", "Highland", "Sunset", "River", "Church", "Mill"};
+    String[] types = {"St", "Ave", "Blvd", "Rd", "Dr", "Way"};
+
+    NameIndex.Builder builder = new NameIndex.Builder();
+    List<String> names = new ArrayList<String>();
+    for (int i = 0; i < 20000; i++) {
+      String name = streets[random.nextInt(streets.length)] + " "
+          + types[random.nextInt(types.length)] + " & " + (i % 200 + 1) + "th "
+          + types[random.nextInt(types.length)];
+      names.add(name);
+      builder.add(name, Integer.toString(i) + " [" + name + "]");
+      builder.add(Integer.toString(i), Integer.toString(i) + " [" + name + "]");
+    }
+
+    long t0 = System.nanoTime();
+    NameIndex index = builder.build();
+    long buildTime = System.nanoTime() - t0;
+
+    String[] queries = {"main", "washingtn", "lincoln av", "madisn st & 1",
+        "sunset blvd", "1234", "jeferson", "cedra"};
+
+    int n = 2000;
+    int count = 0;
+    t0 = System.nanoTime();
+    for (int i = 0; i < n; i++) {
+      Set<String> results = new LinkedHashSet<String>();
+      String query = queries[i % queries.length];
+      index.getPrefixMatches(query, 10, results);
+      if (results.size() < 10)
+        index.getFuzzyMatches(query, query.length() < 8 ? 1 : 2, 10, results);
+      count += results.size();
+    }
+    long queryTime = System.nanoTime() - t0;
+
+    _log.info("keys=" + index.size() + " build=" + (buildTime / 1000000)
+        + "ms query=" + (queryTime / n / 1000) + "us/op");
+    assertTrue(count > 0);
+  }
+
+  private static List<String> prefix(NameIndex index, String prefix,
+      int maxCount) {
+    Set<String> results = new LinkedHashSet<String>();
+    index.getPrefixMatches(prefix, maxCount, results);
+    return new ArrayList<String>(results);
+  }
+
+  private static List<String> fuzzy(NameIndex index, String query,
+      int maxDistance, int maxCount) {
+    Set<String> results = new LinkedHashSet<String>();
+    index.getFuzzyMatches(query, maxDistance, maxCount, results);
+    return new ArrayList<String>(results);
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+
+public class SearchIndexTest {
+
+  @Test
+  public void testLookups() {
+    SearchIndex.Builder builder = new SearchIndex.Builder("bundle");
+    RouteBean b63 = route("1_B63", "b63", "Cobble Hill - Bay Ridge");
+    RouteBean b63x = route("2_B63", "B63", null);
+    builder.addRoute(b63);
+    builder.addRoute(b63x);
+    builder.addStop("1", stop("1_100", "A100", "Atlantic Av & 5th Av"));
+    builder.addStop("2", stop("2_100", "B100", "Atlantic Av & 5th Av"));
+    SearchIndex index = builder.build();
+
+    assertEquals("bundle", index.getBundleId());
+    assertEquals(Arrays.asList(b63, b63x),
+        index.getRouteShortNameToRouteBeanMap().get("B63"));
+    assertEquals(Collections.singletonList(b63),
+        index.getRouteLongNameToRouteBeanMap().get("Cobble Hill - Bay Ridge"));
+    assertEquals(b63x, index.getRouteIdToRouteBeanMap().get("2_B63"));
+    assertEquals("2_100", index.getStopCodeToStopIdMap().get("2_B100"));
+    assertEquals(2, index.getUnqualifiedStopIdToStopIdMap().get("100").size());
+    assertEquals(2,
+        index.getStopNameToStopIdMap().get("Atlantic Av & 5th Av").size());
+
+    try {
+      index.getRouteShortNameToRouteBeanMap().get("B63").clear();
+      fail();
+    } catch (UnsupportedOperationException ex) {
+      // an index can't be changed once built
+    }
+
+    assertNull(SearchIndex.EMPTY.getBundleId());
+    assertTrue(SearchIndex.EMPTY.getRouteIdToRouteBeanMap().isEmpty());
+  }
+
+  @Test
+  public void testSuggestions() {
+    SearchIndex.Builder builder = new SearchIndex.Builder("bundle");
+    builder.addRoute(route("1_B63", "B63", "Cobble Hill - Bay Ridge"));
+    builder.addRoute(route("1_X1", "X1", null));
+    builder.addStop("1", stop("1_308209", "308209", "Atlantic Av & 5th Av"));
+    builder.addStop("1", stop("1_308210", "308210", "Bay Ridge Av & 4th Av"));
+    SearchIndex index = builder.build();
+
+    assertEquals(Arrays.asList("B63 [Cobble Hill - Bay Ridge]"),
+        index.getSuggestions("b6", 10));
+    assertEquals(Arrays.asList("X1 [1_X1]"), index.getSuggestions("x", 10));
+    assertEquals(Arrays.asList("308209 [Atlantic Av & 5th Av]"),
+        index.getSuggestions("atlantic", 10));
+    assertEquals(Arrays.asList("308209 [Atlantic Av & 5th Av]",
+        "308210 [Bay Ridge Av & 4th Av]"), index.getSuggestions("3082", 10));
+    assertEquals(Arrays.asList("B63 [Cobble Hill - Bay Ridge]",
+        "308210 [Bay Ridge Av & 4th Av]"), index.getSuggestions("bay ridge", 10));
+
+    // misspelled names are still found, but numbers aren't guessed at
+    assertEquals(Arrays.asList("308209 [Atlantic Av & 5th Av]"),
+        index.getSuggestions("atlantc", 10));
+    assertEquals(Arrays.asList("B63 [Cobble Hill - Bay Ridge]"),
+        index.getSuggestions("coble hill", 10));
+    assertTrue(index.getSuggestions("308219", 10).isEmpty());
+
+    List<String> limited = index.getSuggestions("bay", 1);
+    assertEquals(1, limited.size());
+  }
+
+  private static RouteBean route(String id, String shortName, String longName) {
+    RouteBean.Builder builder = RouteBean.builder();
+    builder.setId(id);
+    builder.setShortName(shortName);
+    builder.setLongName(longName);
+    return builder.create();
+  }
+
+  private static StopBean stop(String id, String code, String name) {
+    StopBean stop = new StopBean();
+    stop.setId(id);
+    stop.setCode(code);
+    stop.setName(name);
+    return stop;
+  }
+}
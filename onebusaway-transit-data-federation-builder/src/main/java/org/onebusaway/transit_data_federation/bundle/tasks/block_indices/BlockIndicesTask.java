@@ -16,6 +16,10 @@
 package org.onebusaway.transit_data_federation.bundle.tasks.block_indices;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.onebusaway.container.refresh.RefreshService;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
@@ -28,10 +32,14 @@ import org.onebusaway.transit_data_federation.services.blocks.FrequencyBlockTrip
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 import org.onebusaway.utility.ObjectSerializationLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class BlockIndicesTask implements Runnable {
 
+  private static Logger _log = LoggerFactory.getLogger(BlockIndicesTask.class);
+
   private FederatedTransitDataBundle _bundle;
   private TransitGraphDao _transitGraphDao;
   private BlockIndexFactoryService _blockIndexFactoryService;
@@ -63,11 +71,43 @@ public class BlockIndicesTask implements Runnable {
 
     try {
 
-      Iterable<BlockEntry> blocks = _transitGraphDao.getAllBlocks();
-
-      List<BlockTripIndexData> tripData = _blockIndexFactoryService.createTripData(blocks);
-      List<BlockLayoverIndexData> layoverData = _blockIndexFactoryService.createLayoverData(blocks);
-      List<FrequencyBlockTripIndexData> frequencyTripData = _blockIndexFactoryService.createFrequencyTripData(blocks);
+      final Iterable<BlockEntry> blocks = _transitGraphDao.getAllBlocks();
+
+      /**
+       * The three kinds of index are built independently from the same
+       * read-only blocks, so build them side by side
+       */
+      long t0 = System.currentTimeMillis();
+      List<BlockTripIndexData> tripData;
+      List<BlockLayoverIndexData> layoverData;
+      List<FrequencyBlockTripIndexData> frequencyTripData;
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      try {
+        Future<List<BlockTripIndexData>> tripFuture = executor.submit(new Callable<List<BlockTripIndexData>>() {
+          @Override
+          public List<BlockTripIndexData> call() {
+            return _blockIndexFactoryService.createTripData(blocks);
+          }
+        });
+        Future<List<BlockLayoverIndexData>> layoverFuture = executor.submit(new Callable<List<BlockLayoverIndexData>>() {
+          @Override
+          public List<BlockLayoverIndexData> call() {
+            return _blockIndexFactoryService.createLayoverData(blocks);
+          }
+        });
+        Future<List<FrequencyBlockTripIndexData>> frequencyTripFuture = executor.submit(new Callable<List<FrequencyBlockTripIndexData>>() {
+          @Override
+          public List<FrequencyBlockTripIndexData> call() {
+            return _blockIndexFactoryService.createFrequencyTripData(blocks);
+          }
+        });
+        tripData = tripFuture.get();
+        layoverData = layoverFuture.get();
+        frequencyTripData = frequencyTripFuture.get();
+      } finally {
+        executor.shutdownNow();
+      }
+      long t1 = System.currentTimeMillis();
 
       ObjectSerializationLibrary.writeObject(_bundle.getBlockTripIndicesPath(),
           tripData);
@@ -76,8 +116,15 @@ public class BlockIndicesTask implements Runnable {
       ObjectSerializationLibrary.writeObject(
           _bundle.getFrequencyBlockTripIndicesPath(), frequencyTripData);
 
+      long t2 = System.currentTimeMillis();
+
       BlockStopTimeIndicesFactory stopFactory = new BlockStopTimeIndicesFactory();
       stopFactory.createIndices(blocks);
+      long t3 = System.currentTimeMillis();
+
+      _log.info("block index phases (ms): tripLayoverAndFrequencyIndices="
+          + (t1 - t0) + " write=" + (t2 - t1) + " stopTimeIndices="
+          + (t3 - t2));
 
       _refreshService.refresh(RefreshableResources.BLOCK_INDEX_DATA);
 
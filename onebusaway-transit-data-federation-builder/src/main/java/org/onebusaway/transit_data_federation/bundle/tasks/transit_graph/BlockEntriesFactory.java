@@ -20,8 +20,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.onebusaway.collections.FactoryMap;
+import org.onebusaway.container.ConfigurationParameter;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs.model.Route;
 import org.onebusaway.gtfs.model.Trip;
@@ -44,6 +51,8 @@ public class BlockEntriesFactory {
 
   private BlockConfigurationEntriesFactory _blockConfigurationEntriesFactory;
 
+  private int _threadCount = Runtime.getRuntime().availableProcessors();
+
   @Autowired
   public void setGtfsDao(GtfsRelationalDao gtfsDao) {
     _gtfsDao = gtfsDao;
@@ -55,6 +64,17 @@ public class BlockEntriesFactory {
     _blockConfigurationEntriesFactory = blockConfigurationEntriesFactory;
   }
 
+  /**
+   * The number of threads used to compute block configurations concurrently.
+   * Defaults to the number of available processors.
+   * 
+   * @param threadCount
+   */
+  @ConfigurationParameter
+  public void setThreadCount(int threadCount) {
+    _threadCount = threadCount;
+  }
+
   public void processBlocks(TransitGraphImpl graph) {
     Map<AgencyAndId, List<TripEntryImpl>> tripsByBlockId = getTripsByBlockId(graph);
     processBlockTrips(graph, tripsByBlockId);
@@ -110,38 +130,70 @@ public class BlockEntriesFactory {
    * property for trips in the block, and setting the 'nextStop' property for
    * stops in the block.
    * 
-   * @return
+   * Block configurations are computed concurrently, but blocks are added to the
+   * graph and wired to their trips in the original order afterwards.
    */
   private void processBlockTrips(TransitGraphImpl graph,
       Map<AgencyAndId, List<TripEntryImpl>> tripsByBlockId) {
 
-    int blockIndex = 0; 
-	int logInterval = LoggingIntervalUtil.getAppropriateLoggingInterval(tripsByBlockId.keySet().size());
+    List<BlockEntryImpl> blocks = new ArrayList<BlockEntryImpl>();
+    List<List<TripEntryImpl>> tripsForBlocks = new ArrayList<List<TripEntryImpl>>();
+    List<Callable<Void>> jobs = new ArrayList<Callable<Void>>();
 
-    for (Map.Entry<AgencyAndId, List<TripEntryImpl>> entry : tripsByBlockId.entrySet()) {
+    final AtomicInteger blockIndex = new AtomicInteger();
+    final int blockCount = tripsByBlockId.size();
+    final int logInterval = LoggingIntervalUtil.getAppropriateLoggingInterval(blockCount);
 
-      if (blockIndex % logInterval == 0)
-        _log.info("block: " + blockIndex + "/" + tripsByBlockId.size());
-      blockIndex++;
+    for (Map.Entry<AgencyAndId, List<TripEntryImpl>> entry : tripsByBlockId.entrySet()) {
 
       AgencyAndId blockId = entry.getKey();
-      List<TripEntryImpl> tripsInBlock = entry.getValue();
+      final List<TripEntryImpl> tripsInBlock = entry.getValue();
 
       if (tripsInBlock.isEmpty()) {
         _log.warn("no trips for block=" + blockId);
         continue;
       }
 
-      BlockEntryImpl blockEntry = new BlockEntryImpl();
+      final BlockEntryImpl blockEntry = new BlockEntryImpl();
       blockEntry.setId(blockId);
 
-      _blockConfigurationEntriesFactory.processBlockConfigurations(blockEntry,
-          tripsInBlock);
+      blocks.add(blockEntry);
+      tripsForBlocks.add(tripsInBlock);
+      jobs.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          int index = blockIndex.getAndIncrement();
+          if (index % logInterval == 0)
+            _log.info("block: " + index + "/" + blockCount);
+          _blockConfigurationEntriesFactory.processBlockConfigurations(
+              blockEntry, tripsInBlock);
+          return null;
+        }
+      });
+    }
+
+    int threadCount = Math.max(1, Math.min(_threadCount, jobs.size()));
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      for (Future<Void> future : executor.invokeAll(jobs))
+        future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted processing blocks", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException)
+        throw (RuntimeException) ex.getCause();
+      throw new IllegalStateException("error processing blocks", ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
 
+    for (int i = 0; i < blocks.size(); i++) {
+      BlockEntryImpl blockEntry = blocks.get(i);
       graph.putBlockEntry(blockEntry);
 
       // Wire up the trip to block link
-      for (TripEntryImpl trip : tripsInBlock)
+      for (TripEntryImpl trip : tripsForBlocks.get(i))
         trip.setBlock(blockEntry);
     }
   }
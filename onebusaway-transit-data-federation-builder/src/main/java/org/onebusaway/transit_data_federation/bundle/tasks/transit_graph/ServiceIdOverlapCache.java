@@ -45,7 +45,12 @@ public class ServiceIdOverlapCache {
     _calendarService = calendarService;
   }
 
-  public List<ServiceIdActivation> getOverlappingServiceIdCombinations(
+  /**
+   * Synchronized so that blocks processed concurrently share the same
+   * combinations for the same service ids, just as they do when processed one
+   * at a time.
+   */
+  public synchronized List<ServiceIdActivation> getOverlappingServiceIdCombinations(
       Set<LocalizedServiceId> serviceIds) {
 
     List<ServiceIdActivation> combinations = _cache.get(serviceIds);
@@ -18,14 +18,20 @@ package org.onebusaway.transit_data_federation.bundle.tasks.transit_graph;
 
 import org.onebusaway.container.refresh.RefreshService;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.impl.transit_graph.StopTimeColumns;
 import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
 import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
 import org.onebusaway.utility.ObjectSerializationLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 public class TransitGraphTask implements Runnable {
 
+  private static Logger _log = LoggerFactory.getLogger(TransitGraphTask.class);
+
   private FederatedTransitDataBundle _bundle;
 
   private AgencyEntriesFactory _agencyEntriesFactory;
@@ -44,6 +50,8 @@ public class TransitGraphTask implements Runnable {
 
   private FrequencyEntriesFactory _frequencyEntriesFactory;
 
+  private boolean _writeStopTimeColumns = false;
+
   @Autowired
   public void setBundle(FederatedTransitDataBundle bundle) {
     _bundle = bundle;
@@ -91,18 +99,43 @@ public class TransitGraphTask implements Runnable {
     _refreshService = refreshService;
   }
 
+  /**
+   * When true, stop times are written to a separate columnar
+   * {@link FederatedTransitDataBundle#getTransitGraphStopTimesPath()} artifact
+   * that is memory-mapped at load time, instead of being Java-serialized as
+   * part of the transit graph.
+   * 
+   * @param writeStopTimeColumns
+   */
+  public void setWriteStopTimeColumns(boolean writeStopTimeColumns) {
+    _writeStopTimeColumns = writeStopTimeColumns;
+  }
+
   @Transactional
   public void run() {
 
     TransitGraphImpl graph = new TransitGraphImpl();
 
+    long t0 = System.currentTimeMillis();
     _agencyEntriesFactory.processAgencies(graph);
+    long t1 = System.currentTimeMillis();
     _stopEntriesFactory.processStops(graph);
+    long t2 = System.currentTimeMillis();
     _routeEntriesFactory.processRoutes(graph);
+    long t3 = System.currentTimeMillis();
     _routeCollectionEntriesFactory.processRouteCollections(graph);
+    long t4 = System.currentTimeMillis();
     _tripEntriesFactory.processTrips(graph);
+    long t5 = System.currentTimeMillis();
     _blockEntriesFactory.processBlocks(graph);
+    long t6 = System.currentTimeMillis();
     _frequencyEntriesFactory.processFrequencies(graph);
+    long t7 = System.currentTimeMillis();
+
+    _log.info("transit graph phases (ms): agencies=" + (t1 - t0) + " stops="
+        + (t2 - t1) + " routes=" + (t3 - t2) + " routeCollections="
+        + (t4 - t3) + " trips=" + (t5 - t4) + " blocks=" + (t6 - t5)
+        + " frequencies=" + (t7 - t6));
 
     /**
      * Make sure the graph is initialized as result of the graph building
@@ -112,8 +145,23 @@ public class TransitGraphTask implements Runnable {
 
     try {
 
+      if (_writeStopTimeColumns) {
+        StopTimeColumns.write(_bundle.getTransitGraphStopTimesPath(), graph);
+        /**
+         * The stop times now live in the columnar artifact, so leave them out
+         * of the serialized graph
+         */
+        for (TripEntryImpl trip : graph.getTrips())
+          trip.setStopTimes(null);
+      } else {
+        _bundle.getTransitGraphStopTimesPath().delete();
+      }
+
+      long t8 = System.currentTimeMillis();
       ObjectSerializationLibrary.writeObject(_bundle.getTransitGraphPath(),
           graph);
+      _log.info("transit graph written (ms): "
+          + (System.currentTimeMillis() - t8));
 
     } catch (Exception ex) {
       throw new IllegalStateException("error writing graph to file", ex);
@@ -20,9 +20,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import org.onebusaway.container.ConfigurationParameter;
 import org.onebusaway.gtfs.model.Agency;
@@ -56,7 +58,7 @@ public class TripEntriesFactory {
 
   private ShapePointHelper _shapePointsHelper;
 
-  private ExecutorService _executor = null;
+  private int _threadCount = Runtime.getRuntime().availableProcessors();
 
   private boolean _throwExceptionOnInvalidStopToShapeMappingException = false;
 
@@ -95,21 +97,50 @@ public class TripEntriesFactory {
     _throwExceptionOnInvalidStopToShapeMappingException = throwExceptionOnInvalidStopToShapeMappingException;
   }
 
+  /**
+   * The number of threads used to process routes concurrently. Defaults to the
+   * number of available processors.
+   * 
+   * @param threadCount
+   */
+  @ConfigurationParameter
+  public void setThreadCount(int threadCount) {
+    _threadCount = threadCount;
+  }
+
   public void processTrips(TransitGraphImpl graph) {
-    setupExecutor();
     Collection<Route> routes = _gtfsDao.getAllRoutes();
+    List<ProcessRouteJob> jobs = new ArrayList<ProcessRouteJob>();
     int routeIndex = 0;
-    List<JobResult> results = new ArrayList<>();
     for (Route route : routes) {
-      JobResult result = new JobResult();
       routeIndex++;
-      ProcessRouteJob jt = new ProcessRouteJob(graph, route, routeIndex, result);
+      jobs.add(new ProcessRouteJob(graph, route, routeIndex));
+    }
 
-      results.add(result);
-      _executor.submit(jt);
+    int threadCount = Math.max(1, Math.min(_threadCount, jobs.size()));
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    _log.info("processing " + jobs.size() + " routes with " + threadCount
+        + " threads");
+    try {
+      for (Future<?> future : executor.invokeAll(jobs))
+        future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted processing trips", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("error processing trips", ex.getCause());
+    } finally {
+      executor.shutdownNow();
     }
 
-    waitOnExector(results);
+    /**
+     * Trip entries are added to the graph in route order once all the jobs are
+     * done, so the graph is the same however the routes were scheduled
+     */
+    for (ProcessRouteJob job : jobs) {
+      for (TripEntryImpl tripEntry : job.getTripEntries())
+        graph.putTripEntry(tripEntry);
+    }
 
     if (_stopTimeEntriesFactory.getInvalidStopToShapeMappingExceptionCount() > 0
         && _throwExceptionOnInvalidStopToShapeMappingException) {
@@ -123,46 +154,12 @@ public class TripEntriesFactory {
     graph.refreshTripMapping();
   }
 
-  private void waitOnExector(List<JobResult> results) {
-    int i = 0;
-    try {
-      for (JobResult result : results) {
-        while (!result.isDone()) {
-          try {
-            _log.info("waiting on result {} of {}", i, results.size());
-            Thread.sleep(1 * 1000);
-          } catch (InterruptedException e) {
-            _log.error("interrupted and exiting");
-            return;
-          }
-        }
-        i++;
-      }
-      _log.info("verified {} complete of {}", i, results.size());
-    } finally {
-      if (_executor != null) {
-        try {
-          _executor.shutdown();
-          _executor.awaitTermination(1, TimeUnit.MINUTES);
-          _executor.shutdownNow();
-        } catch (Exception e) {
-          return;
-        }
-      }
-    }
-  }
-
-  private void setupExecutor() {
-    if (_executor == null) {
-      //int cpus = Runtime.getRuntime().availableProcessors();
-      int cpus = 1;
-      _executor = Executors.newFixedThreadPool(cpus);
-      _log.info("created threadpool of " + cpus);
+  private void processRoute(TransitGraphImpl graph, Route route,
+      int routeIndex, List<TripEntryImpl> processedTripEntries) {
+    List<Trip> tripsForRoute = null;
+    synchronized (_gtfsDao) {
+      tripsForRoute = _gtfsDao.getTripsForRoute(route);
     }
-  }
-
-  private void processRoute(TransitGraphImpl graph, Route route, int routeIndex) {
-    List<Trip> tripsForRoute = _gtfsDao.getTripsForRoute(route);
 
     int tripCount = tripsForRoute.size();
     int logInterval = LoggingIntervalUtil.getAppropriateLoggingInterval(tripCount * 10); // slow down logging
@@ -181,6 +178,7 @@ public class TripEntriesFactory {
       if (tripEntry != null) {
         tripEntry.setRoute(routeEntry);
         tripEntries.add(tripEntry);
+        processedTripEntries.add(tripEntry);
       }
     }
 
@@ -234,8 +232,6 @@ public class TripEntriesFactory {
 
     tripEntry.setStopTimes(stopTimesForTrip);
 
-    graph.putTripEntry(tripEntry);
-
     return tripEntry;
   }
 
@@ -272,36 +268,34 @@ public class TripEntriesFactory {
     return _uniqueService.unique(value);
   }
 
-  public class ProcessRouteJob implements Runnable {
-    private TransitGraphImpl graph;
-    private Route route;
-    private int routeIndex;
-    private JobResult result;
-    public ProcessRouteJob(TransitGraphImpl graph, Route route, int routeIndex, JobResult result) {
+  private class ProcessRouteJob implements Callable<Void> {
+    private final TransitGraphImpl graph;
+    private final Route route;
+    private final int routeIndex;
+    private final List<TripEntryImpl> tripEntries = new ArrayList<TripEntryImpl>();
+
+    public ProcessRouteJob(TransitGraphImpl graph, Route route, int routeIndex) {
       this.graph = graph;
       this.route = route;
       this.routeIndex = routeIndex;
-      this.result = result;
     }
-    public void run() {
+
+    /**
+     * @return the trips processed for the route, which is only a partial list
+     *         if processing failed part way through
+     */
+    public List<TripEntryImpl> getTripEntries() {
+      return tripEntries;
+    }
+
+    @Override
+    public Void call() {
       try {
-        processRoute(graph, route, routeIndex);
+        processRoute(graph, route, routeIndex, tripEntries);
       } catch (Throwable t) {
-        _log.error("pr blew {}", t, t);
-      } finally {
-        result.setDone();
+        _log.error("error processing route " + route.getId(), t);
       }
-    }
-
-  }
-
-  public class JobResult {
-    private boolean done = false;
-    public void setDone() {
-      done = true;
-    }
-    public boolean isDone() {
-      return done;
+      return null;
     }
   }
 }
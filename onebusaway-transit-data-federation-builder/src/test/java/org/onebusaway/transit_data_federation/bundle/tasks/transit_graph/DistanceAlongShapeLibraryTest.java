@@ -17,6 +17,7 @@ package org.onebusaway.transit_data_federation.bundle.tasks.transit_graph;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -26,9 +27,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.onebusaway.transit_data_federation.impl.transit_graph.DistanceAlongShapeLibrary;
 import org.onebusaway.transit_data_federation.impl.transit_graph.DistanceAlongShapeLibrary.DistanceAlongShapeException;
+import org.onebusaway.transit_data_federation.impl.transit_graph.DistanceAlongShapeLibrary.InvalidStopToShapeMappingException;
 import org.onebusaway.transit_data_federation.impl.shapes.PointAndIndex;
 import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.StopTimeEntryImpl;
@@ -38,9 +41,15 @@ import org.onebusaway.transit_data_federation.model.ShapePointsFactory;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
 import org.onebusaway.transit_data_federation.testing.UnitTestingSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DistanceAlongShapeLibraryTest {
 
+  private static Logger _log = LoggerFactory.getLogger(DistanceAlongShapeLibraryTest.class);
+
+  private static final String[] KEYS = {"01", "02", "03", "h6"};
+
   private final double STOP_TO_SHAPE_DISTANCE = 0.01;
   @Test
   public void test01() throws IOException, DistanceAlongShapeException {
@@ -164,6 +173,198 @@ public class DistanceAlongShapeLibraryTest {
 
   }
 
+  /**
+   * The dynamic programming assignment should agree with the recursive search
+   * it replaced wherever the latter completes.
+   */
+  @Test
+  public void testDynamicProgrammingMatchesRecursiveSearch() throws IOException,
+      DistanceAlongShapeException {
+    for (String key : KEYS) {
+      ShapePoints shapePoints = readShapePoints("shapes-" + key + ".txt");
+      List<StopTimeEntry> stopTimes = readStopTimes("stops-" + key + ".txt");
+
+      PointAndIndex[] expected = createLibrary(true).getDistancesAlongShape(
+          shapePoints, stopTimes);
+      PointAndIndex[] actual = createLibrary(false).getDistancesAlongShape(
+          shapePoints, stopTimes);
+
+      assertEquals(expected.length, actual.length);
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(key + " " + i, expected[i].index, actual[i].index);
+        assertEquals(key + " " + i, expected[i].distanceAlongShape,
+            actual[i].distanceAlongShape, 1e-6);
+        assertEquals(key + " " + i, expected[i].distanceFromTarget,
+            actual[i].distanceFromTarget, 1e-6);
+      }
+    }
+  }
+
+  /**
+   * A shape that spirals around the same block eight times, 10m further out
+   * each lap, with ten stops on each lap. Every stop is within the local
+   * minimum threshold of several laps, which is far more potential assignments
+   * than the recursive search will consider.
+   */
+  @Test
+  public void testManyPotentialAssignments() throws DistanceAlongShapeException {
+
+    int laps = 8;
+    int stopsPerLap = 10;
+    double lat = 47.6;
+    double lon = -122.3;
+    double metersPerLat = 111320;
+    double metersPerLon = metersPerLat * Math.cos(Math.toRadians(lat));
+
+    ShapePointsFactory factory = new ShapePointsFactory();
+    TripEntryImpl trip = UnitTestingSupport.trip("trip");
+    List<StopTimeEntry> stopTimes = new ArrayList<StopTimeEntry>();
+
+    for (int lap = 0; lap < laps; lap++) {
+      double size = 500 + lap * 10;
+      // corners counter-clockwise from the south west
+      double[][] corners = { {-size, -size}, {size, -size}, {size, size},
+          {-size, size}, {-size, -size}};
+      for (double[] corner : corners)
+        factory.addPoint(lat + corner[1] / metersPerLat, lon + corner[0]
+            / metersPerLon);
+
+      for (int i = 0; i < stopsPerLap; i++) {
+        // spread the stops around the lap, away from the corners
+        double along = (i + 0.5) / stopsPerLap * 8 * size;
+        int side = (int) (along / (2 * size));
+        double offset = along - side * 2 * size;
+        double[] from = corners[side];
+        double[] to = corners[side + 1];
+        double x = from[0] + (to[0] - from[0]) * offset / (2 * size);
+        double y = from[1] + (to[1] - from[1]) * offset / (2 * size);
+        int index = stopTimes.size();
+        StopEntryImpl stop = UnitTestingSupport.stop("stop" + index, lat + y
+            / metersPerLat, lon + x / metersPerLon);
+        stopTimes.add(UnitTestingSupport.stopTime(index, stop, trip, index,
+            index, Double.NaN));
+      }
+    }
+    ShapePoints shapePoints = factory.create();
+
+    try {
+      createLibrary(true).getDistancesAlongShape(shapePoints, stopTimes);
+      fail();
+    } catch (InvalidStopToShapeMappingException ex) {
+      // too many potential assignments
+    }
+
+    PointAndIndex[] points = createLibrary(false).getDistancesAlongShape(
+        shapePoints, stopTimes);
+    assertEquals(laps * stopsPerLap, points.length);
+    double last = 0;
+    for (PointAndIndex point : points) {
+      // on the stop's own lap, the others being at least 10m away
+      assertTrue(point.distanceFromTarget < 1);
+      assertTrue(point.distanceAlongShape > last);
+      last = point.distanceAlongShape;
+    }
+  }
+
+  /**
+   * An out-and-back shape with the return leg 10m north of the outbound one,
+   * and forty stops between the two. Each of those stops has two potential
+   * assignments, which is more than an int count of the combinations can hold.
+   */
+  @Test
+  public void testLongRegionOfMultipleAssignments()
+      throws DistanceAlongShapeException {
+
+    double lat = 47.6;
+    double lon = -122.3;
+    double metersPerLat = 111320;
+    double metersPerLon = metersPerLat * Math.cos(Math.toRadians(lat));
+
+    ShapePointsFactory factory = new ShapePointsFactory();
+    double[][] corners = { {-1000, 0}, {4000, 0}, {4000, 10}, {0, 10},
+        {0, 2000}};
+    for (double[] corner : corners)
+      factory.addPoint(lat + corner[1] / metersPerLat, lon + corner[0]
+          / metersPerLon);
+    ShapePoints shapePoints = factory.create();
+
+    List<double[]> locations = new ArrayList<double[]>();
+    locations.add(new double[] {-500, 0});
+    for (int i = 0; i < 40; i++)
+      locations.add(new double[] {100 + i * 95, 5});
+    // the last stop also gets a candidate at the end of the shape, so the
+    // region has to be closed by the single assignment before it
+    locations.add(new double[] {0, 1500});
+    locations.add(new double[] {0, 1800});
+
+    TripEntryImpl trip = UnitTestingSupport.trip("trip");
+    List<StopTimeEntry> stopTimes = new ArrayList<StopTimeEntry>();
+    for (double[] location : locations) {
+      int index = stopTimes.size();
+      StopEntryImpl stop = UnitTestingSupport.stop("stop" + index, lat
+          + location[1] / metersPerLat, lon + location[0] / metersPerLon);
+      stopTimes.add(UnitTestingSupport.stopTime(index, stop, trip, index,
+          index, Double.NaN));
+    }
+
+    DistanceAlongShapeLibrary library = createLibrary(false);
+    library.setLenientStopShapeAssignment(false);
+    PointAndIndex[] points = library.getDistancesAlongShape(shapePoints,
+        stopTimes);
+
+    assertEquals(locations.size(), points.length);
+    double last = -1;
+    for (PointAndIndex point : points) {
+      assertTrue(point.distanceFromTarget < 6);
+      assertTrue(point.distanceAlongShape > last);
+      last = point.distanceAlongShape;
+    }
+  }
+
+  /**
+   * Rough comparison of the two assignment strategies over the sample shapes
+   */
+  @Test
+  @Ignore("benchmark, run manually")
+  public void testAssignmentBenchmark() throws IOException,
+      DistanceAlongShapeException {
+
+    List<ShapePoints> shapes = new ArrayList<ShapePoints>();
+    List<List<StopTimeEntry>> stopTimes = new ArrayList<List<StopTimeEntry>>();
+    for (String key : KEYS) {
+      shapes.add(readShapePoints("shapes-" + key + ".txt"));
+      stopTimes.add(readStopTimes("stops-" + key + ".txt"));
+    }
+
+    DistanceAlongShapeLibrary recursive = createLibrary(true);
+    DistanceAlongShapeLibrary dynamic = createLibrary(false);
+    int iterations = 50;
+    long recursiveTime = 0;
+    long dynamicTime = 0;
+
+    for (int i = 0; i < iterations; i++) {
+      for (int j = 0; j < shapes.size(); j++) {
+        long t0 = System.nanoTime();
+        recursive.getDistancesAlongShape(shapes.get(j), stopTimes.get(j));
+        long t1 = System.nanoTime();
+        dynamic.getDistancesAlongShape(shapes.get(j), stopTimes.get(j));
+        long t2 = System.nanoTime();
+        recursiveTime += t1 - t0;
+        dynamicTime += t2 - t1;
+      }
+    }
+
+    _log.info("stop to shape assignment for " + shapes.size()
+        + " shapes: recursive=" + (recursiveTime / iterations / 1000)
+        + "us dynamic=" + (dynamicTime / iterations / 1000) + "us");
+  }
+
+  private DistanceAlongShapeLibrary createLibrary(boolean recursive) {
+    DistanceAlongShapeLibrary library = new DistanceAlongShapeLibrary();
+    library.setRecursiveStopShapeAssignment(recursive);
+    return library;
+  }
+
   private double matchStopToPoint(List<StopTimeEntry> stopTimes, PointAndIndex[] points, int i, String stopId, double distanceAlongBlock) {
     StopEntry expectedStop = null;
     for (StopTimeEntry stei : stopTimes) {
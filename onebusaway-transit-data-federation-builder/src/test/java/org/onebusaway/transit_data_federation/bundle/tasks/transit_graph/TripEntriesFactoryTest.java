@@ -16,6 +16,7 @@
  */
 package org.onebusaway.transit_data_federation.bundle.tasks.transit_graph;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.aid;
@@ -24,6 +25,10 @@ import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -142,4 +147,99 @@ public class TripEntriesFactoryTest {
       assertSame(entry, stopTime.getTrip());
     }
   }
+
+  /**
+   * Processing routes concurrently should build exactly the graph a single
+   * thread does
+   */
+  @Test
+  public void testConcurrentProcessingMatchesSerial() throws IOException {
+    byte[] serial = serialize(processTrips(1));
+    for (int i = 0; i < 5; i++)
+      assertArrayEquals(serial, serialize(processTrips(4)));
+  }
+
+  private TransitGraphImpl processTrips(int threadCount) {
+
+    GtfsRelationalDao gtfsDao = Mockito.mock(GtfsRelationalDao.class);
+
+    Agency agency = new Agency();
+    agency.setId("1");
+    agency.setTimezone("America/Los_Angeles");
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+    graph.putStopEntry(stop("stopA", 47.672207391799056, -122.387855896286));
+    graph.putStopEntry(stop("stopB", 47.66852277218285, -122.3853882639923));
+
+    Stop stopA = new Stop();
+    stopA.setId(aid("stopA"));
+    Stop stopB = new Stop();
+    stopB.setId(aid("stopB"));
+
+    List<Route> routes = new ArrayList<Route>();
+    int stopTimeId = 0;
+
+    for (int r = 0; r < 16; r++) {
+      Route route = new Route();
+      route.setId(new AgencyAndId("1", "route" + r));
+      route.setAgency(agency);
+      routes.add(route);
+      graph.putRouteEntry(route("route" + r));
+
+      List<Trip> trips = new ArrayList<Trip>();
+      for (int t = 0; t < 20; t++) {
+        Trip trip = new Trip();
+        trip.setId(new AgencyAndId("1", "trip" + r + "-" + t));
+        trip.setRoute(route);
+        trip.setServiceId(new AgencyAndId("1", "serviceId" + (t % 3)));
+        trips.add(trip);
+
+        StopTime stA = new StopTime();
+        stA.setId(stopTimeId++);
+        stA.setArrivalTime(time(9, t));
+        stA.setDepartureTime(time(9, t));
+        stA.setStopSequence(0);
+        stA.setStop(stopA);
+        stA.setTrip(trip);
+
+        StopTime stB = new StopTime();
+        stB.setId(stopTimeId++);
+        stB.setArrivalTime(time(10, t));
+        stB.setDepartureTime(time(10, t));
+        stB.setStopSequence(1);
+        stB.setStop(stopB);
+        stB.setTrip(trip);
+
+        Mockito.when(gtfsDao.getStopTimesForTrip(trip)).thenReturn(
+            Arrays.asList(stA, stB));
+      }
+      Mockito.when(gtfsDao.getTripsForRoute(route)).thenReturn(trips);
+    }
+    Mockito.when(gtfsDao.getAllRoutes()).thenReturn(routes);
+
+    graph.initialize();
+
+    TripEntriesFactory factory = new TripEntriesFactory();
+    factory.setGtfsDao(gtfsDao);
+    factory.setShapePointHelper(Mockito.mock(ShapePointHelper.class));
+    factory.setUniqueService(new UniqueServiceImpl());
+    factory.setThreadCount(threadCount);
+
+    StopTimeEntriesFactory stopTimeEntriesFactory = new StopTimeEntriesFactory();
+    stopTimeEntriesFactory.setDistanceAlongShapeLibrary(new DistanceAlongShapeLibrary());
+    factory.setStopTimeEntriesFactory(stopTimeEntriesFactory);
+
+    factory.processTrips(graph);
+
+    assertEquals(16 * 20, graph.getTrips().size());
+    return graph;
+  }
+
+  private byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(object);
+    out.close();
+    return bytes.toByteArray();
+  }
 }
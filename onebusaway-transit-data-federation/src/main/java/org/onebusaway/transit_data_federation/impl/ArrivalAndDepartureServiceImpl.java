@@ -106,6 +106,14 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
   @Override
   public List<ArrivalAndDepartureInstance> getArrivalsAndDeparturesForStopInTimeRange(
       StopEntry stop, TargetTime targetTime, long fromTime, long toTime) {
+    return getArrivalsAndDeparturesForStopInTimeRange(stop, targetTime,
+        fromTime, toTime, null);
+  }
+
+  @Override
+  public List<ArrivalAndDepartureInstance> getArrivalsAndDeparturesForStopInTimeRange(
+      StopEntry stop, TargetTime targetTime, long fromTime, long toTime,
+      Map<BlockInstance, List<BlockLocation>> blockLocationCache) {
 
     // We add a buffer before and after to catch late and early buses
     Date fromTimeBuffered = new Date(
@@ -128,8 +136,8 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
 
       BlockInstance blockInstance = entry.getKey();
 
-      List<BlockLocation> locations = _blockLocationService.getLocationsForBlockInstance(
-          blockInstance, targetTime);
+      List<BlockLocation> locations = getLocationsForBlockInstance(
+          blockInstance, targetTime, blockLocationCache);
 
       List<StopTimeInstance> stisForBlock = entry.getValue();
 
@@ -508,6 +516,23 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
     return Collections.max(instances, cmp);
   }
 
+  private List<BlockLocation> getLocationsForBlockInstance(
+      BlockInstance blockInstance, TargetTime targetTime,
+      Map<BlockInstance, List<BlockLocation>> blockLocationCache) {
+
+    if (blockLocationCache == null)
+      return _blockLocationService.getLocationsForBlockInstance(blockInstance,
+          targetTime);
+
+    List<BlockLocation> locations = blockLocationCache.get(blockInstance);
+    if (locations == null) {
+      locations = _blockLocationService.getLocationsForBlockInstance(
+          blockInstance, targetTime);
+      blockLocationCache.put(blockInstance, locations);
+    }
+    return locations;
+  }
+
   /*
    * here we map realtime on top of schedule and also filter
    * out canceled trips.
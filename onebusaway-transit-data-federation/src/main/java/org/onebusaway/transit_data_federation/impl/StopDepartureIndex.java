@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.onebusaway.transit_data_federation.model.StopTimeInstance;
+import org.onebusaway.transit_data_federation.services.blocks.BlockStopTimeIndex;
+import org.onebusaway.transit_data_federation.services.blocks.InstanceState;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
+
+/**
+ * The scheduled stop times of a set of {@link BlockStopTimeIndex} indices at a
+ * single stop that are all active on a single service date, merged into
+ * primitive arrays sorted by departure time. A time range query is then a
+ * single binary search over departures followed by a short scan, bounded by
+ * the longest dwell time at the stop, to check arrivals.
+ * 
+ * @see StopTimeServiceImpl
+ */
+class StopDepartureIndex {
+
+  private final long _serviceDate;
+
+  private final int[] _departureTimes;
+
+  private final int[] _arrivalTimes;
+
+  private final BlockStopTimeEntry[] _stopTimes;
+
+  private final int _maxDwellTime;
+
+  private final InstanceState _state;
+
+  public static StopDepartureIndex create(long serviceDate,
+      List<BlockStopTimeIndex> indices) {
+
+    List<IndexedStopTime> stopTimes = new ArrayList<IndexedStopTime>();
+    for (BlockStopTimeIndex index : indices) {
+      List<BlockStopTimeEntry> entries = index.getStopTimes();
+      for (int i = 0; i < entries.size(); i++) {
+        stopTimes.add(new IndexedStopTime(entries.get(i),
+            index.getArrivalTimeForIndex(i), index.getDepartureTimeForIndex(i)));
+      }
+    }
+
+    Collections.sort(stopTimes, new Comparator<IndexedStopTime>() {
+      @Override
+      public int compare(IndexedStopTime o1, IndexedStopTime o2) {
+        return Integer.compare(o1.departureTime, o2.departureTime);
+      }
+    });
+
+    int n = stopTimes.size();
+    int[] departureTimes = new int[n];
+    int[] arrivalTimes = new int[n];
+    BlockStopTimeEntry[] entries = new BlockStopTimeEntry[n];
+    int maxDwellTime = 0;
+
+    for (int i = 0; i < n; i++) {
+      IndexedStopTime stopTime = stopTimes.get(i);
+      departureTimes[i] = stopTime.departureTime;
+      arrivalTimes[i] = stopTime.arrivalTime;
+      entries[i] = stopTime.stopTime;
+      maxDwellTime = Math.max(maxDwellTime, stopTime.departureTime
+          - stopTime.arrivalTime);
+    }
+
+    return new StopDepartureIndex(serviceDate, departureTimes, arrivalTimes,
+        entries, maxDwellTime);
+  }
+
+  private StopDepartureIndex(long serviceDate, int[] departureTimes,
+      int[] arrivalTimes, BlockStopTimeEntry[] stopTimes, int maxDwellTime) {
+    _serviceDate = serviceDate;
+    _departureTimes = departureTimes;
+    _arrivalTimes = arrivalTimes;
+    _stopTimes = stopTimes;
+    _maxDwellTime = maxDwellTime;
+    _state = new InstanceState(serviceDate);
+  }
+
+  public int size() {
+    return _stopTimes.length;
+  }
+
+  /**
+   * Adds a {@link StopTimeInstance} for each stop time departing at or after
+   * the from time and arriving before the to time.
+   * 
+   * @param from
+   * @param to
+   * @param instances
+   */
+  public void getStopTimeInstancesInTimeRange(long from, long to,
+      List<StopTimeInstance> instances) {
+
+    int relativeFrom = (int) ((from - _serviceDate) / 1000);
+    int relativeTo = (int) ((to - _serviceDate) / 1000);
+
+    int n = _departureTimes.length;
+    for (int i = lowerBound(_departureTimes, relativeFrom); i < n
+        && _departureTimes[i] - _maxDwellTime < relativeTo; i++) {
+      if (_arrivalTimes[i] < relativeTo)
+        instances.add(new StopTimeInstance(_stopTimes[i], _state));
+    }
+  }
+
+  /**
+   * @return the first index whose value is greater than or equal to the target
+   */
+  private static int lowerBound(int[] values, int target) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < target)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private static class IndexedStopTime {
+
+    private final BlockStopTimeEntry stopTime;
+
+    private final int arrivalTime;
+
+    private final int departureTime;
+
+    public IndexedStopTime(BlockStopTimeEntry stopTime, int arrivalTime,
+        int departureTime) {
+      this.stopTime = stopTime;
+      this.arrivalTime = arrivalTime;
+      this.departureTime = departureTime;
+    }
+  }
+}
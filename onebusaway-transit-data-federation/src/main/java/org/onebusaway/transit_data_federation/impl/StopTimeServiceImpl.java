@@ -16,11 +16,20 @@
 package org.onebusaway.transit_data_federation.impl;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.onebusaway.collections.Range;
+import org.onebusaway.container.refresh.Refreshable;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs.model.calendar.ServiceDate;
 import org.onebusaway.gtfs.model.calendar.ServiceInterval;
@@ -36,6 +45,7 @@ import org.onebusaway.transit_data_federation.services.blocks.FrequencyBlockStop
 import org.onebusaway.transit_data_federation.services.blocks.FrequencyStopTripIndex;
 import org.onebusaway.transit_data_federation.services.blocks.HasIndexedBlockStopTimes;
 import org.onebusaway.transit_data_federation.services.blocks.InstanceState;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyBlockStopTimeEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
@@ -56,6 +66,21 @@ class StopTimeServiceImpl implements StopTimeService {
 
   private BlockIndexService _blockIndexService;
 
+  private boolean _useDepartureIndex = true;
+
+  private int _maxDepartureIndexServiceDates = 5;
+
+  /**
+   * Per-stop summary of the static block stop time indices merged into
+   * {@link StopDepartureIndex} instances, keyed by stop id
+   */
+  private ConcurrentMap<AgencyAndId, StopIndices> _stopIndicesByStopId = new ConcurrentHashMap<AgencyAndId, StopIndices>();
+
+  /**
+   * Lazily built departure indices, keyed by service date and then stop id
+   */
+  private ConcurrentMap<ServiceDate, ConcurrentMap<AgencyAndId, StopDepartureIndex>> _departureIndicesByServiceDate = new ConcurrentHashMap<ServiceDate, ConcurrentMap<AgencyAndId, StopDepartureIndex>>();
+
   @Autowired
   public void setTransitGraphDao(TransitGraphDao graph) {
     _graph = graph;
@@ -71,6 +96,35 @@ class StopTimeServiceImpl implements StopTimeService {
     _blockIndexService = blockIndexService;
   }
 
+  /**
+   * When enabled (the default), scheduled stop times from the static block
+   * index are answered from per-stop, per-service-date departure indices
+   * rather than searching each block stop time index per request.
+   * 
+   * @param useDepartureIndex
+   */
+  public void setUseDepartureIndex(boolean useDepartureIndex) {
+    _useDepartureIndex = useDepartureIndex;
+  }
+
+  /**
+   * @param maxDepartureIndexServiceDates the number of service dates for which
+   *          departure indices are kept. A single query typically spans four
+   *          or five service dates, which are never evicted while it runs;
+   *          beyond those, the earliest service date is evicted first
+   */
+  public void setMaxDepartureIndexServiceDates(int maxDepartureIndexServiceDates) {
+    _maxDepartureIndexServiceDates = maxDepartureIndexServiceDates;
+  }
+
+  @Refreshable(dependsOn = {
+      RefreshableResources.BLOCK_INDEX_SERVICE,
+      RefreshableResources.CALENDAR_DATA})
+  public void clearDepartureIndices() {
+    _stopIndicesByStopId.clear();
+    _departureIndicesByServiceDate.clear();
+  }
+
   @Override
   public List<StopTimeInstance> getStopTimeInstancesInTimeRange(
       AgencyAndId stopId, Date from, Date to) {
@@ -87,7 +141,20 @@ class StopTimeServiceImpl implements StopTimeService {
 
     List<StopTimeInstance> stopTimeInstances = new ArrayList<StopTimeInstance>();
 
-    for (BlockStopTimeIndex index : _blockIndexService.getStopTimeIndicesForStop(stopEntry)) {
+    List<BlockStopTimeIndex> stopTimeIndices = _blockIndexService.getStopTimeIndicesForStop(stopEntry);
+    StopIndices stopIndices = null;
+    if (_useDepartureIndex) {
+      stopIndices = getStopIndices(stopEntry, stopTimeIndices);
+      if (stopIndices != null)
+        getStopTimesFromDepartureIndices(stopEntry, stopIndices, from, to,
+            stopTimeInstances);
+    }
+
+    for (BlockStopTimeIndex index : stopTimeIndices) {
+
+      // already answered by the departure index
+      if (stopIndices != null && stopIndices.contains(index))
+        continue;
 
       Collection<Date> serviceDates = _calendarService.getServiceDatesWithinRange(
           index.getServiceIds(), index.getServiceInterval(), from, to);
@@ -204,6 +271,137 @@ class StopTimeServiceImpl implements StopTimeService {
    * @param includePrivateService TODO
    ****/
 
+  /**
+   * @return the static stop time indices at the stop, or null if the stop
+   *         can't be indexed because its indices span time zones
+   */
+  private StopIndices getStopIndices(StopEntry stopEntry,
+      List<BlockStopTimeIndex> stopTimeIndices) {
+
+    StopIndices stopIndices = _stopIndicesByStopId.get(stopEntry.getId());
+    if (stopIndices != null)
+      return stopIndices.isEmpty() ? null : stopIndices;
+
+    stopIndices = new StopIndices();
+    for (BlockStopTimeIndex index : stopTimeIndices) {
+      List<BlockConfigurationEntry> blockConfigs = index.getBlockConfigs();
+      // dynamic (added) trips come and go, so they are never indexed
+      if (blockConfigs.isEmpty()
+          || _blockIndexService.isDynamicBlock(blockConfigs.get(0).getBlock()))
+        continue;
+      ServiceIdActivation serviceIds = index.getServiceIds();
+      if (serviceIds.getActiveServiceIds().isEmpty()
+          || !stopIndices.add(index, serviceIds.getTimeZone())) {
+        stopIndices = new StopIndices();
+        break;
+      }
+    }
+
+    StopIndices existing = _stopIndicesByStopId.putIfAbsent(stopEntry.getId(),
+        stopIndices);
+    if (existing != null)
+      stopIndices = existing;
+    return stopIndices.isEmpty() ? null : stopIndices;
+  }
+
+  private void getStopTimesFromDepartureIndices(StopEntry stopEntry,
+      StopIndices stopIndices, Date from, Date to,
+      List<StopTimeInstance> instances) {
+
+    TimeZone timeZone = stopIndices.getTimeZone();
+
+    /**
+     * Consider every service date whose service interval could overlap the
+     * range, with a day of slack on either side for daylight saving time
+     * transitions. Exact times are checked by the departure index itself.
+     */
+    Calendar c = Calendar.getInstance(timeZone);
+    c.setTimeInMillis(to.getTime() - stopIndices.getMinArrival() * 1000L);
+    c.add(Calendar.DAY_OF_MONTH, 1);
+    ServiceDate lastServiceDate = new ServiceDate(c);
+
+    c.setTimeInMillis(from.getTime() - stopIndices.getMaxDeparture() * 1000L);
+    c.add(Calendar.DAY_OF_MONTH, -1);
+    ServiceDate firstServiceDate = new ServiceDate(c);
+    ServiceDate serviceDate = firstServiceDate;
+
+    while (serviceDate.compareTo(lastServiceDate) <= 0) {
+      StopDepartureIndex index = getDepartureIndex(stopEntry, stopIndices,
+          serviceDate, firstServiceDate, lastServiceDate);
+      if (index.size() > 0)
+        index.getStopTimeInstancesInTimeRange(from.getTime(), to.getTime(),
+            instances);
+      c.add(Calendar.DAY_OF_MONTH, 1);
+      serviceDate = new ServiceDate(c);
+    }
+  }
+
+  private StopDepartureIndex getDepartureIndex(StopEntry stopEntry,
+      StopIndices stopIndices, ServiceDate serviceDate,
+      ServiceDate firstServiceDate, ServiceDate lastServiceDate) {
+
+    ConcurrentMap<AgencyAndId, StopDepartureIndex> indicesByStopId = _departureIndicesByServiceDate.get(serviceDate);
+
+    if (indicesByStopId == null) {
+      indicesByStopId = new ConcurrentHashMap<AgencyAndId, StopDepartureIndex>();
+      ConcurrentMap<AgencyAndId, StopDepartureIndex> existing = _departureIndicesByServiceDate.putIfAbsent(
+          serviceDate, indicesByStopId);
+      if (existing != null)
+        indicesByStopId = existing;
+      else
+        evictDepartureIndices(firstServiceDate, lastServiceDate);
+    }
+
+    StopDepartureIndex index = indicesByStopId.get(stopEntry.getId());
+
+    if (index == null) {
+      Date date = serviceDate.getAsDate(stopIndices.getTimeZone());
+      List<BlockStopTimeIndex> activeIndices = new ArrayList<BlockStopTimeIndex>();
+      for (BlockStopTimeIndex stopTimeIndex : stopIndices.getIndices()) {
+        if (_calendarService.areServiceIdsActiveOnServiceDate(
+            stopTimeIndex.getServiceIds(), date))
+          activeIndices.add(stopTimeIndex);
+      }
+      index = StopDepartureIndex.create(date.getTime(), activeIndices);
+      StopDepartureIndex existing = indicesByStopId.putIfAbsent(
+          stopEntry.getId(), index);
+      if (existing != null)
+        index = existing;
+    }
+
+    return index;
+  }
+
+  /**
+   * Once the service of a day is over, queries move on to later service dates,
+   * so we drop the earliest service date first. Service dates spanned by the
+   * current query are never evicted, otherwise a query spanning more service
+   * dates than we keep would rebuild its own indices every time. Failing an
+   * earlier service date, we drop the latest one beyond the query.
+   */
+  private void evictDepartureIndices(ServiceDate firstServiceDate,
+      ServiceDate lastServiceDate) {
+    while (_departureIndicesByServiceDate.size() > _maxDepartureIndexServiceDates) {
+      ServiceDate earliest = null;
+      ServiceDate latest = null;
+      Iterator<ServiceDate> it = _departureIndicesByServiceDate.keySet().iterator();
+      while (it.hasNext()) {
+        ServiceDate serviceDate = it.next();
+        if (serviceDate.compareTo(firstServiceDate) < 0) {
+          if (earliest == null || serviceDate.compareTo(earliest) < 0)
+            earliest = serviceDate;
+        } else if (serviceDate.compareTo(lastServiceDate) > 0) {
+          if (latest == null || serviceDate.compareTo(latest) > 0)
+            latest = serviceDate;
+        }
+      }
+      ServiceDate evicted = earliest != null ? earliest : latest;
+      if (evicted == null)
+        break;
+      _departureIndicesByServiceDate.remove(evicted);
+    }
+  }
+
   private int computeFrequencyOffset(int relativeTime,
       BlockStopTimeEntry sourceBst, FrequencyEntry frequency,
       int stopTimeOffset, boolean findDepartures) {
@@ -330,4 +528,58 @@ class StopTimeServiceImpl implements StopTimeService {
   private static int effectiveTime(long serviceDate, long targetTime) {
     return (int) ((targetTime - serviceDate) / 1000);
   }
+
+  /**
+   * The static block stop time indices at a stop, all of which must share a
+   * time zone, along with the bounds of their service intervals.
+   */
+  private static class StopIndices {
+
+    private final Set<BlockStopTimeIndex> _indices = Collections.newSetFromMap(new IdentityHashMap<BlockStopTimeIndex, Boolean>());
+
+    private TimeZone _timeZone;
+
+    private int _minArrival = Integer.MAX_VALUE;
+
+    private int _maxDeparture = Integer.MIN_VALUE;
+
+    /**
+     * @return false if the index is in a different time zone
+     */
+    public boolean add(BlockStopTimeIndex index, TimeZone timeZone) {
+      if (_timeZone == null)
+        _timeZone = timeZone;
+      else if (!_timeZone.equals(timeZone))
+        return false;
+      ServiceInterval interval = index.getServiceInterval();
+      _minArrival = Math.min(_minArrival, interval.getMinArrival());
+      _maxDeparture = Math.max(_maxDeparture, interval.getMaxDeparture());
+      _indices.add(index);
+      return true;
+    }
+
+    public boolean isEmpty() {
+      return _indices.isEmpty();
+    }
+
+    public boolean contains(BlockStopTimeIndex index) {
+      return _indices.contains(index);
+    }
+
+    public Set<BlockStopTimeIndex> getIndices() {
+      return _indices;
+    }
+
+    public TimeZone getTimeZone() {
+      return _timeZone;
+    }
+
+    public int getMinArrival() {
+      return _minArrival;
+    }
+
+    public int getMaxDeparture() {
+      return _maxDeparture;
+    }
+  }
 }
@@ -16,18 +16,15 @@
  */
 package org.onebusaway.transit_data_federation.impl;
 
-import org.locationtech.jts.index.strtree.STRtree;
 import org.onebusaway.container.refresh.Refreshable;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.transit_graph.StopLocationIndex;
 import org.onebusaway.transit_data_federation.services.beans.GeospatialBeanService;
 import org.onebusaway.transit_data_federation.services.beans.RouteBeanService;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.ItemVisitor;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,7 +43,7 @@ class WhereGeospatialServiceImpl implements GeospatialBeanService {
 
   private TransitGraphDao _transitGraphDao;
 
-  private STRtree _tree;
+  private StopLocationIndex _stopLocationIndex;
 
   @Autowired
   public void setTransitGraphDao(TransitGraphDao transitGraphDao) {
@@ -61,20 +58,11 @@ class WhereGeospatialServiceImpl implements GeospatialBeanService {
     List<StopEntry> stops = _transitGraphDao.getAllStops();
     
     if (stops.size() == 0) {
-      _tree = null;
+      _stopLocationIndex = null;
       return;
     }
     
-    _tree = new STRtree(stops.size());
-
-    for (StopEntry stop : stops) {
-      float x = (float) stop.getStopLon();
-      float y = (float) stop.getStopLat();
-      Envelope env = new Envelope(x, x, y, y);
-      _tree.insert(env, stop.getId());
-    }
-
-    _tree.build();
+    _stopLocationIndex = new StopLocationIndex(stops);
   }
 
   /****
@@ -84,33 +72,38 @@ class WhereGeospatialServiceImpl implements GeospatialBeanService {
   @Override
   public List<AgencyAndId> getStopsByBounds(CoordinateBounds bounds) {
     
-    if( _tree == null) {
+    if( _stopLocationIndex == null) {
       _log.warn("Stop tree is empty!");
       return Collections.emptyList();
     }
     
-    double xMin = bounds.getMinLon();
-    double yMin = bounds.getMinLat();
-    double xMax = bounds.getMaxLon();
-    double yMax = bounds.getMaxLat();
-
-    TreeVisistor v = new TreeVisistor();
-    _tree.query(new Envelope(xMin, xMax, yMin, yMax), v);
-    return v.getIdsInRange();
+    List<StopEntry> stops = new ArrayList<StopEntry>();
+    _stopLocationIndex.getStopsInBounds(bounds, stops);
+    return getIds(stops);
   }
 
-  private class TreeVisistor implements ItemVisitor {
-
-    private List<AgencyAndId> _idsInRange = new ArrayList<AgencyAndId>();
+  @Override
+  public List<AgencyAndId> getStopsWithinRadius(double lat, double lon,
+      double radius) {
 
-    public List<AgencyAndId> getIdsInRange() {
-      return _idsInRange;
+    if (_stopLocationIndex == null) {
+      _log.warn("Stop tree is empty!");
+      return Collections.emptyList();
     }
 
-    @Override
-    public void visitItem(Object obj) {
-      _idsInRange.add((AgencyAndId) obj);
-    }
+    List<StopEntry> stops = new ArrayList<StopEntry>();
+    _stopLocationIndex.getStopsWithinRadius(lat, lon, radius, stops);
+    return getIds(stops);
   }
 
+  /****
+   * Private Methods
+   ****/
+
+  private List<AgencyAndId> getIds(List<StopEntry> stops) {
+    List<AgencyAndId> idsInRange = new ArrayList<AgencyAndId>(stops.size());
+    for (StopEntry stop : stops)
+      idsInRange.add(stop.getId());
+    return idsInRange;
+  }
 }
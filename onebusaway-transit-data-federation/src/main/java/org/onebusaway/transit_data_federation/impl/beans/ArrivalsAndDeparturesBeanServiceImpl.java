@@ -182,16 +182,66 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
       AgencyAndId stopId, ArrivalsAndDeparturesQueryBean query) {
 
     StopEntry stop = _transitGraphDao.getStopEntryForId(stopId, true);
-    
+
     long time = query.getTime();
+    TargetTime target = new TargetTime(time, time);
+
+    List<ArrivalAndDepartureInstance> instances = _arrivalAndDepartureService.getArrivalsAndDeparturesForStopInTimeRange(
+        stop, target, getFromTime(query), getToTime(query));
+
+    return getInstancesAsBeans(instances, query,
+        new HashMap<AgencyAndId, StopBean>(), null);
+  }
+
+  @Override
+  public Map<AgencyAndId, List<ArrivalAndDepartureBean>> getArrivalsAndDeparturesByStopIds(
+      Collection<AgencyAndId> stopIds, ArrivalsAndDeparturesQueryBean query) {
+
+    long time = query.getTime();
+    TargetTime target = new TargetTime(time, time);
+    long fromTime = getFromTime(query);
+    long toTime = getToTime(query);
+
+    /**
+     * Every stop is queried at the same target time, so a block serving several
+     * of the stops has the same locations and trip status for each of them
+     */
+    Map<BlockInstance, List<BlockLocation>> blockLocationCache = new HashMap<BlockInstance, List<BlockLocation>>();
+    Map<BlockLocation, TripStatusBean> tripStatusCache = new IdentityHashMap<BlockLocation, TripStatusBean>();
+    Map<AgencyAndId, StopBean> stopBeanCache = new HashMap<AgencyAndId, StopBean>();
+
+    Map<AgencyAndId, List<ArrivalAndDepartureBean>> beansByStopId = new LinkedHashMap<AgencyAndId, List<ArrivalAndDepartureBean>>();
+
+    for (AgencyAndId stopId : stopIds) {
+      StopEntry stop = _transitGraphDao.getStopEntryForId(stopId, true);
+      List<ArrivalAndDepartureInstance> instances = _arrivalAndDepartureService.getArrivalsAndDeparturesForStopInTimeRange(
+          stop, target, fromTime, toTime, blockLocationCache);
+      beansByStopId.put(stopId, getInstancesAsBeans(instances, query,
+          stopBeanCache, tripStatusCache));
+    }
+
+    return beansByStopId;
+  }
 
+  private long getFromTime(ArrivalsAndDeparturesQueryBean query) {
     int minutesBefore = Math.max(query.getMinutesBefore(),
         query.getFrequencyMinutesBefore());
+    return query.getTime() - minutesBefore * 60 * 1000;
+  }
+
+  private long getToTime(ArrivalsAndDeparturesQueryBean query) {
     int minutesAfter = Math.max(query.getMinutesAfter(),
         query.getFrequencyMinutesAfter());
+    return query.getTime() + minutesAfter * 60 * 1000;
+  }
 
-    long fromTime = time - minutesBefore * 60 * 1000;
-    long toTime = time + minutesAfter * 60 * 1000;
+  private List<ArrivalAndDepartureBean> getInstancesAsBeans(
+      List<ArrivalAndDepartureInstance> instances,
+      ArrivalsAndDeparturesQueryBean query,
+      Map<AgencyAndId, StopBean> stopBeanCache,
+      Map<BlockLocation, TripStatusBean> tripStatusCache) {
+
+    long time = query.getTime();
 
     long nonFrequencyFromTime = time - query.getMinutesBefore() * 60 * 1000;
     long nonFrequencyToTime = time + query.getMinutesAfter() * 60 * 1000;
@@ -200,15 +250,8 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
         * 1000;
     long frequencyToTime = time + query.getFrequencyMinutesAfter() * 60 * 1000;
 
-    TargetTime target = new TargetTime(time, time);
-
-    List<ArrivalAndDepartureInstance> instances = _arrivalAndDepartureService.getArrivalsAndDeparturesForStopInTimeRange(
-        stop, target, fromTime, toTime);
-
     List<ArrivalAndDepartureBean> beans = new ArrayList<ArrivalAndDepartureBean>();
 
-    Map<AgencyAndId, StopBean> stopBeanCache = new HashMap<AgencyAndId, StopBean>();
-
     for (ArrivalAndDepartureInstance instance : instances) {
       String agency = instance.getBlockInstance().getBlock().getBlock().getId().getAgencyId();
       HashSet<String> agenciesExcludingScheduled = query.getAgenciesExcludingScheduled();
@@ -228,7 +271,7 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
       
       ArrivalAndDepartureBean bean = getStopTimeInstanceAsBean(time, instance,
           stopBeanCache, query.getServiceInterval());
-      applyBlockLocationToBean(instance, bean, time);
+      applyBlockLocationToBean(instance, bean, time, tripStatusCache);
       
       Boolean isNegativeScheduledArrivalsEnabled = _gtfsRealtimeNegativeArrivals.getShowNegativeScheduledArrivalByAgencyId(
           instance.getBlockTrip().getTrip().getId().getAgencyId());
@@ -262,7 +305,7 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
 
     ArrivalAndDepartureBean bean = getStopTimeInstanceAsBean(time, instance,
         new HashMap<AgencyAndId, StopBean>(), serviceInterval);
-    applyBlockLocationToBean(instance, bean, time);
+    applyBlockLocationToBean(instance, bean, time, null);
     applySituationsToBean(time, instance, bean);
     boolean hideCanceled = _arrivalAndDepartureService.getHideCanceledTrips();
     if (hideCanceled && TransitDataConstants.STATUS_CANCELED.equals(bean.getStatus())) {
@@ -418,7 +461,8 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
   }
 
   private void applyBlockLocationToBean(ArrivalAndDepartureInstance instance,
-      ArrivalAndDepartureBean bean, long targetTime) {
+      ArrivalAndDepartureBean bean, long targetTime,
+      Map<BlockLocation, TripStatusBean> tripStatusCache) {
 
     boolean hasFrequency = instance.getFrequency() != null;
     boolean isCanceled = TransitDataConstants.STATUS_CANCELED.equals(instance.getStatus());
@@ -491,8 +535,8 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
 
     }
 
-    TripStatusBean tripStatusBean = _tripDetailsBeanService.getBlockLocationAsStatusBean(
-        blockLocation, targetTime);
+    TripStatusBean tripStatusBean = getBlockLocationAsStatusBean(blockLocation,
+        targetTime, tripStatusCache);
 
     if (TransitDataConstants.STATUS_CANCELED.equals(tripStatusBean.getStatus())) {
       if (!_arrivalAndDepartureService.getHideCanceledTrips()) {
@@ -504,6 +548,23 @@ public class ArrivalsAndDeparturesBeanServiceImpl implements
     }
   }
 
+  private TripStatusBean getBlockLocationAsStatusBean(
+      BlockLocation blockLocation, long targetTime,
+      Map<BlockLocation, TripStatusBean> tripStatusCache) {
+
+    if (tripStatusCache == null)
+      return _tripDetailsBeanService.getBlockLocationAsStatusBean(
+          blockLocation, targetTime);
+
+    TripStatusBean tripStatusBean = tripStatusCache.get(blockLocation);
+    if (tripStatusBean == null) {
+      tripStatusBean = _tripDetailsBeanService.getBlockLocationAsStatusBean(
+          blockLocation, targetTime);
+      tripStatusCache.put(blockLocation, tripStatusBean);
+    }
+    return tripStatusBean;
+  }
+
   private void applySituationsToBean(long time,
       ArrivalAndDepartureInstance instance, ArrivalAndDepartureBean bean) {
 
@@ -21,8 +21,6 @@ import java.util.List;
 
 import org.onebusaway.container.cache.Cacheable;
 import org.onebusaway.container.cache.CacheableArgument;
-import org.onebusaway.geospatial.model.CoordinateBounds;
-import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.model.FilterChain;
 import org.onebusaway.transit_data.model.StopBean;
@@ -57,9 +55,8 @@ class NearbyStopsBeanServiceImpl implements NearbyStopsBeanService {
   public List<AgencyAndId> getNearbyStops(
       @CacheableArgument(keyProperty = "id") StopBean stopBean, double radius, FilterChain filterChain) {
 
-    CoordinateBounds bounds = SphericalGeometryLibrary.bounds(
+    List<AgencyAndId> ids = _geospatialBeanService.getStopsWithinRadius(
         stopBean.getLat(), stopBean.getLon(), radius);
-    List<AgencyAndId> ids = _geospatialBeanService.getStopsByBounds(bounds);
 
     List<AgencyAndId> excludingSource = new ArrayList<AgencyAndId>();
 
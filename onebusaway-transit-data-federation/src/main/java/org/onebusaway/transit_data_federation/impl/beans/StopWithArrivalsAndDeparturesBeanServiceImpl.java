@@ -103,14 +103,16 @@ class StopWithArrivalsAndDeparturesBeanServiceImpl implements
     Counter<TimeZone> timeZones = new Counter<TimeZone>();
     boolean limitExceeded = false;
 
+    // block locations and trip status are shared between the stops
+    Map<AgencyAndId, List<ArrivalAndDepartureBean>> arrivalsAndDeparturesByStopId = _arrivalsAndDeparturesBeanService.getArrivalsAndDeparturesByStopIds(
+        ids, query);
+
     for (AgencyAndId id : ids) {
 
       StopBean stopBean = _stopBeanService.getStopForId(id, serviceInterval);
       stops.add(stopBean);
 
-      List<ArrivalAndDepartureBean> arrivalsAndDepartures = null;
-        arrivalsAndDepartures = _arrivalsAndDeparturesBeanService.getArrivalsAndDeparturesByStopId(
-                id, query);
+      List<ArrivalAndDepartureBean> arrivalsAndDepartures = arrivalsAndDeparturesByStopId.get(id);
       if (arrivalsAndDepartures != null && !arrivalsAndDepartures.isEmpty()) {
         // we only add stopBean if it actually has results
         stops.add(stopBean);
@@ -31,7 +31,6 @@ import javax.annotation.PostConstruct;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.index.strtree.STRtree;
 import org.onebusaway.collections.CollectionsLibrary;
-import org.onebusaway.collections.MappingLibrary;
 import org.onebusaway.collections.Min;
 import org.onebusaway.collections.tuple.T2;
 import org.onebusaway.container.refresh.Refreshable;
@@ -149,17 +148,11 @@ class BlockGeospatialServiceImpl implements BlockGeospatialService {
 
     for (StopEntry stop : stops) {
       List<BlockStopTimeIndex> stopTimeIndices = _blockIndexService.getStopTimeIndicesForStop(stop);
-      
-      Set<BlockConfigurationEntry> blockConfigs = new HashSet<BlockConfigurationEntry>();
-      
-      List<List<BlockConfigurationEntry>> blockConfigsList = MappingLibrary.map(stopTimeIndices, "blockConfigs");
-      
-      for (List<BlockConfigurationEntry> l: blockConfigsList) {
-        blockConfigs.addAll(l);
+
+      for (BlockStopTimeIndex stopTimeIndex : stopTimeIndices) {
+        for (BlockConfigurationEntry blockConfig : stopTimeIndex.getBlockConfigs())
+          blockIds.add(blockConfig.getBlock().getId());
       }
-     
-      List<AgencyAndId> stopBlockIds = MappingLibrary.map(blockConfigs, "block.id");
-      blockIds.addAll(stopBlockIds);      
     }
 
     Set<BlockTripIndex> blockIndices = new HashSet<BlockTripIndex>();
@@ -210,8 +203,11 @@ class BlockGeospatialServiceImpl implements BlockGeospatialService {
 
     ProjectedPoint targetPoint = ProjectedPointFactory.forward(location);
 
-    List<AgencyAndId> shapePointIds = MappingLibrary.map(block.getTrips(),
-        "trip.shapeId");
+    List<BlockTripEntry> blockTrips = block.getTrips();
+    List<AgencyAndId> shapePointIds = new ArrayList<AgencyAndId>(
+        blockTrips.size());
+    for (BlockTripEntry blockTrip : blockTrips)
+      shapePointIds.add(blockTrip.getTrip().getShapeId());
 
     T2<List<XYPoint>, double[]> tuple = _projectedShapePointService.getProjectedShapePoints(
         shapePointIds, targetPoint.getSrid());
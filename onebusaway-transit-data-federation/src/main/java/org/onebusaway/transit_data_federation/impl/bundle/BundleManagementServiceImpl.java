@@ -422,17 +422,21 @@ public class BundleManagementServiceImpl implements BundleManagementService {
       // give child classes a chance to do work here
       timingHook();
 
-      _refreshService.refresh(RefreshableResources.CALENDAR_DATA);
-      _refreshService.refresh(RefreshableResources.ROUTE_COLLECTIONS_DATA);
-      _refreshService
-          .refresh(RefreshableResources.ROUTE_COLLECTION_SEARCH_DATA);
-      _refreshService.refresh(RefreshableResources.STOP_SEARCH_DATA);
-      _refreshService.refresh(RefreshableResources.BLOCK_INDEX_DATA);
-      _refreshService.refresh(RefreshableResources.BLOCK_INDEX_SERVICE);
-      _refreshService.refresh(RefreshableResources.SHAPE_GEOSPATIAL_INDEX);
-      _refreshService.refresh(RefreshableResources.STOP_GEOSPATIAL_INDEX);
-      _refreshService.refresh(RefreshableResources.NARRATIVE_DATA);
-      _refreshService.refresh(RefreshableResources.STOP_CONSOLIDATION_FILE);
+      // these only depend on the transit graph, so load them side by side
+      _refreshService.refreshConcurrently(
+          RefreshableResources.CALENDAR_DATA,
+          RefreshableResources.ROUTE_COLLECTIONS_DATA,
+          RefreshableResources.ROUTE_COLLECTION_SEARCH_DATA,
+          RefreshableResources.STOP_SEARCH_DATA,
+          RefreshableResources.BLOCK_INDEX_DATA,
+          RefreshableResources.STOP_GEOSPATIAL_INDEX,
+          RefreshableResources.STOP_CONSOLIDATION_FILE);
+
+      // these read the block indices loaded above
+      _refreshService.refreshConcurrently(
+          RefreshableResources.BLOCK_INDEX_SERVICE,
+          RefreshableResources.SHAPE_GEOSPATIAL_INDEX,
+          RefreshableResources.NARRATIVE_DATA);
 
     } catch (Exception e) {
       _log.error("Bundle " + bundleName + "(" + bundleId + ")"
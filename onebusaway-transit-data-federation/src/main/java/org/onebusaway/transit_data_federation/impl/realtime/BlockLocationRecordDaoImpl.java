@@ -23,6 +23,8 @@ import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Property;
 import org.onebusaway.gtfs.model.AgencyAndId;
@@ -68,11 +70,28 @@ public class BlockLocationRecordDaoImpl implements BlockLocationRecordDao {
     _savedRecordCount.incrementAndGet();
   }
 
+  /**
+   * Records are inserted through a {@link StatelessSession} in their own
+   * transaction, so they are sent as JDBC batches (per the
+   * hibernate.jdbc.batch_size setting) without accumulating in the first-level
+   * cache of the current session.
+   */
   @Override
   public void saveBlockLocationRecords(List<BlockLocationRecord> records) {
-    Session session = getSession();
-    for (Iterator<BlockLocationRecord> it = records.iterator(); it.hasNext();) {
-      session.saveOrUpdate(it.next());
+    StatelessSession session = _sessionFactory.openStatelessSession();
+    Transaction tx = null;
+    try {
+      tx = session.beginTransaction();
+      for (Iterator<BlockLocationRecord> it = records.iterator(); it.hasNext();) {
+        session.insert(it.next());
+      }
+      tx.commit();
+    } catch (RuntimeException ex) {
+      if (tx != null)
+        tx.rollback();
+      throw ex;
+    } finally {
+      session.close();
     }
     _savedRecordCount.addAndGet(records.size());
   }
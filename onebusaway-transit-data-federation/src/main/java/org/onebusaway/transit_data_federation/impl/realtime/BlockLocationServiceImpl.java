@@ -42,10 +42,13 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation for {@link BlockLocationService}. Keeps a recent cache of
@@ -105,9 +108,21 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
 
   /**
    * We queue up block location records so they can be bulk persisted to the
-   * database
+   * database. The queue is bounded so that a slow database can't exhaust the
+   * heap: once full, new records are dropped and counted.
    */
-  private List<BlockLocationRecord> _recordPersistenceQueue = new ArrayList<BlockLocationRecord>();
+  private BlockingQueue<BlockLocationRecord> _recordPersistenceQueue = new ArrayBlockingQueue<BlockLocationRecord>(
+          100000);
+
+  /**
+   * Maximum number of records written to the dao in a single call
+   */
+  private int _persistenceBatchSize = 1000;
+
+  /**
+   * Delay, in ms, between flushes of the record persistence queue
+   */
+  private int _persistenceFlushInterval = 1000;
 
   /**
    * Used to schedule periodic flushes to the database of the block location
@@ -125,6 +140,17 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
    */
   private volatile long _lastInsertCount = 0;
 
+  /**
+   * Block location record persistence stats - totals across all flushes
+   */
+  private AtomicLong _insertedRecordCount = new AtomicLong();
+
+  private AtomicLong _totalInsertDuration = new AtomicLong();
+
+  private AtomicLong _droppedRecordCount = new AtomicLong();
+
+  private long _lastReportedDroppedRecordCount = 0;
+
   /**
    * Records the number of times block location record cache requests fall
    * through to the database
@@ -185,6 +211,34 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     _persistBlockLocationRecords = persistBlockLocationRecords;
   }
 
+  /**
+   * Maximum number of {@link BlockLocationRecord} records waiting to be
+   * persisted. Records arriving while the queue is full are dropped.
+   *
+   * @param capacity
+   */
+  @ConfigurationParameter
+  public void setPersistenceQueueCapacity(int capacity) {
+    _recordPersistenceQueue = new ArrayBlockingQueue<BlockLocationRecord>(
+            capacity);
+  }
+
+  /**
+   * @param batchSize maximum number of records written in a single batch
+   */
+  @ConfigurationParameter
+  public void setPersistenceBatchSize(int batchSize) {
+    _persistenceBatchSize = batchSize;
+  }
+
+  /**
+   * @param flushInterval delay in ms between flushes of queued records
+   */
+  @ConfigurationParameter
+  public void setPersistenceFlushInterval(int flushInterval) {
+    _persistenceFlushInterval = flushInterval;
+  }
+
   /****
    * JMX Attributes
    ****/
@@ -204,6 +258,37 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     return _blockLocationRecordPersistentStoreAccessCount.get();
   }
 
+  @ManagedAttribute
+  public int getPersistenceQueueSize() {
+    return _recordPersistenceQueue.size();
+  }
+
+  @ManagedAttribute
+  public int getPersistenceQueueRemainingCapacity() {
+    return _recordPersistenceQueue.remainingCapacity();
+  }
+
+  @ManagedAttribute
+  public long getInsertedRecordCount() {
+    return _insertedRecordCount.get();
+  }
+
+  @ManagedAttribute
+  public long getDroppedRecordCount() {
+    return _droppedRecordCount.get();
+  }
+
+  /**
+   * @return records inserted per second of time spent inserting
+   */
+  @ManagedAttribute
+  public long getInsertThroughput() {
+    long duration = _totalInsertDuration.get();
+    if (duration == 0)
+      return 0;
+    return _insertedRecordCount.get() * 1000 / duration;
+  }
+
   /****
    * Setup and Teardown
    ****/
@@ -211,8 +296,8 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
   @PostConstruct
   public void start() {
     if (_persistBlockLocationRecords)
-      _executor.scheduleAtFixedRate(new PredictionWriter(), 0, 1,
-              TimeUnit.SECONDS);
+      _executor.scheduleWithFixedDelay(new PredictionWriter(), 0,
+              _persistenceFlushInterval, TimeUnit.MILLISECONDS);
   }
 
   @PreDestroy
@@ -240,6 +325,10 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
         record.setScheduleDeviation(deviation);
       }
 
+      if (_realTimeHistoryService != null)
+        _realTimeHistoryService.addScheduleDeviationSample(record,
+                scheduledBlockLocation);
+
       ScheduleDeviationSamples samples = null;
       if (_sampleScheduleDeviationHistory == true) {
         samples = _realTimeHistoryService.sampleScheduleDeviationsForVehicle(
@@ -662,17 +751,10 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
   }
 
   private void addPredictionToPersistenceQueue(List<BlockLocationRecord> records) {
-    synchronized (_recordPersistenceQueue) {
-      _recordPersistenceQueue.addAll(records);
-    }
-  }
-
-  private List<BlockLocationRecord> getPredictionPersistenceQueue() {
-    synchronized (_recordPersistenceQueue) {
-      List<BlockLocationRecord> queue = new ArrayList<BlockLocationRecord>(
-              _recordPersistenceQueue);
-      _recordPersistenceQueue.clear();
-      return queue;
+    BlockingQueue<BlockLocationRecord> queue = _recordPersistenceQueue;
+    for (BlockLocationRecord record : records) {
+      if (!queue.offer(record))
+        _droppedRecordCount.incrementAndGet();
     }
   }
 
@@ -682,16 +764,42 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     public void run() {
 
       try {
-        List<BlockLocationRecord> queue = getPredictionPersistenceQueue();
+        long dropped = _droppedRecordCount.get();
+        if (dropped > _lastReportedDroppedRecordCount) {
+          _log.warn("block location record persistence queue full, dropped "
+                  + (dropped - _lastReportedDroppedRecordCount) + " records");
+          _lastReportedDroppedRecordCount = dropped;
+        }
 
-        if (queue.isEmpty())
+        /**
+         * We only drain what was queued when the flush started, so a steady
+         * stream of records can't keep the writer from reporting stats
+         */
+        int remaining = _recordPersistenceQueue.size();
+        if (remaining == 0)
           return;
 
+        List<BlockLocationRecord> batch = new ArrayList<BlockLocationRecord>(
+                Math.min(remaining, _persistenceBatchSize));
+        long count = 0;
         long t1 = SystemTime.currentTimeMillis();
-        _blockLocationRecordDao.saveBlockLocationRecords(queue);
+
+        while (remaining > 0) {
+          batch.clear();
+          _recordPersistenceQueue.drainTo(batch,
+                  Math.min(remaining, _persistenceBatchSize));
+          if (batch.isEmpty())
+            break;
+          _blockLocationRecordDao.saveBlockLocationRecords(batch);
+          remaining -= batch.size();
+          count += batch.size();
+        }
+
         long t2 = SystemTime.currentTimeMillis();
         _lastInsertDuration = t2 - t1;
-        _lastInsertCount = queue.size();
+        _lastInsertCount = count;
+        _insertedRecordCount.addAndGet(count);
+        _totalInsertDuration.addAndGet(t2 - t1);
       } catch (Throwable ex) {
         _log.error("error writing block location records to dao", ex);
       }
@@ -16,12 +16,10 @@
 package org.onebusaway.transit_data_federation.impl.realtime;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
@@ -32,7 +30,6 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
-import org.onebusaway.collections.ConcurrentCollectionsLibrary;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.realtime.api.VehicleLocationRecord;
 import org.onebusaway.transit_data.model.TransitDataConstants;
@@ -53,6 +50,12 @@ import org.springframework.stereotype.Component;
  * condition issues. If we DO get lots of back to back updates, we'll just have
  * to assume some amount of data loss.
  * 
+ * Reads by block instance are the hot path, so the block instance index holds
+ * the cache entries themselves in copy-on-write arrays. The arrays are only
+ * replaced when a vehicle joins or leaves a block, which is rare compared to
+ * regular location updates, and readers never take a lock or look up vehicle
+ * ids.
+ * 
  * @param record record to add
  */
 @Component
@@ -62,9 +65,9 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
 
   private ConcurrentMap<AgencyAndId, VehicleLocationCacheEntry> _entriesByVehicleId = new ConcurrentHashMap<AgencyAndId, VehicleLocationCacheEntry>();
 
-  private ConcurrentMap<BlockInstance, Set<AgencyAndId>> _vehicleIdsByBlockInstance = new ConcurrentHashMap<BlockInstance, Set<AgencyAndId>>();
+  private ConcurrentMap<BlockInstance, VehicleLocationCacheEntry[]> _entriesByBlockInstance = new ConcurrentHashMap<BlockInstance, VehicleLocationCacheEntry[]>();
 
-  private Map<AgencyAndId, VehicleLocationRecord> rawPositionMap = new HashMap<>();
+  private ConcurrentMap<AgencyAndId, VehicleLocationRecord> rawPositionMap = new ConcurrentHashMap<AgencyAndId, VehicleLocationRecord>();
 
   /**
    * By default, we keep around 20 minutes of cache entries
@@ -138,16 +141,16 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
   public List<VehicleLocationCacheElements> getRecordsForBlockInstance(
       BlockInstance blockInstance) {
 
-    Set<AgencyAndId> vehicleIds = _vehicleIdsByBlockInstance.get(blockInstance);
+    VehicleLocationCacheEntry[] entries = _entriesByBlockInstance.get(blockInstance);
 
-    List<VehicleLocationCacheElements> records = new ArrayList<VehicleLocationCacheElements>();
-    if (vehicleIds != null) {
-      for (AgencyAndId vehicleId : vehicleIds) {
-        VehicleLocationCacheEntry record = _entriesByVehicleId.get(vehicleId);
+    if (entries == null)
+      return new ArrayList<VehicleLocationCacheElements>(0);
 
-        if (record != null && record.getBlockInstance().equals(blockInstance))
-          records.add(record.getElements());
-      }
+    List<VehicleLocationCacheElements> records = new ArrayList<VehicleLocationCacheElements>(
+        entries.length);
+    for (VehicleLocationCacheEntry entry : entries) {
+      if (!entry.isClosed())
+        records.add(entry.getElements());
     }
 
     return records;
@@ -178,41 +181,31 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
 
         /**
          * Since we're adding a new entry, we indicate the connection between
-         * this block instance and vehicleId
+         * this block instance and the entry
          */
-        ConcurrentCollectionsLibrary.addToMapValueSet(
-            _vehicleIdsByBlockInstance, blockInstance, vehicleId);
+        addToBlockIndex(blockInstance, cacheEntry);
       }
 
       /**
        * If the block instance of a vehicle has changed mid-stream, we close off
-       * the cache entry and remove the block=>vid mapping
+       * the cache entry and remove the block=>entry mapping. This also catches
+       * an entry that was closed while we were indexing it above, so a closed
+       * entry is never left behind in the block index.
        */
       if (cacheEntry.isClosedBecauseBlockInstanceChanged(blockInstance)) {
-
-        _entriesByVehicleId.remove(vehicleId);
-
-        ConcurrentCollectionsLibrary.removeFromMapValueSet(
-            _vehicleIdsByBlockInstance, cacheEntry.getBlockInstance(),
-            vehicleId);
-
+        removeEntry(vehicleId, cacheEntry);
         continue;
       }
 
       /**
        * If the element failed to add because the entry is closed, we loop.
        * Someone closed the entry while we were in the process of requesting it
-       * from the map. On the next loop, it should no longer be in the map.
+       * from the map. We make sure it is gone before the next loop.
        */
-      if (!cacheEntry.addElement(record, scheduledBlockLocation, samples))
+      if (!cacheEntry.addElement(record, scheduledBlockLocation, samples)) {
+        removeEntry(vehicleId, cacheEntry);
         continue;
-
-      BlockInstance existingBlockInstance = cacheEntry.getBlockInstance();
-      if (!blockInstance.equals(existingBlockInstance))
-        ConcurrentCollectionsLibrary.removeFromMapValueSet(
-            _vehicleIdsByBlockInstance, existingBlockInstance, vehicleId);
-
-      // Ensure the block => vehicle mapping is set
+      }
 
       return cacheEntry.getElements();
 
@@ -225,8 +218,8 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
     VehicleLocationCacheEntry record = _entriesByVehicleId.remove(vehicleId);
 
     if (record != null) {
-      ConcurrentCollectionsLibrary.removeFromMapValueSet(
-          _vehicleIdsByBlockInstance, record.getBlockInstance(), vehicleId);
+      record.close();
+      removeFromBlockIndex(record.getBlockInstance(), record);
     }
   }
 
@@ -246,9 +239,7 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
           _log.debug("pruning block location record cache for vehicle="
               + vehicleId + " block=" + cacheEntry.getBlockInstance());
         it.remove();
-        ConcurrentCollectionsLibrary.removeFromMapValueSet(
-            _vehicleIdsByBlockInstance, cacheEntry.getBlockInstance(),
-            vehicleId);
+        removeFromBlockIndex(cacheEntry.getBlockInstance(), cacheEntry);
       }
     }
   }
@@ -257,16 +248,74 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
    * Private Methods
    ****/
 
+  private void removeEntry(AgencyAndId vehicleId,
+      VehicleLocationCacheEntry cacheEntry) {
+    _entriesByVehicleId.remove(vehicleId, cacheEntry);
+    removeFromBlockIndex(cacheEntry.getBlockInstance(), cacheEntry);
+  }
+
+  private void addToBlockIndex(BlockInstance blockInstance,
+      VehicleLocationCacheEntry entry) {
+    while (true) {
+      VehicleLocationCacheEntry[] entries = _entriesByBlockInstance.get(blockInstance);
+      if (entries == null) {
+        if (_entriesByBlockInstance.putIfAbsent(blockInstance,
+            new VehicleLocationCacheEntry[] {entry}) == null)
+          return;
+        continue;
+      }
+      if (indexOf(entries, entry) != -1)
+        return;
+      VehicleLocationCacheEntry[] updated = Arrays.copyOf(entries,
+          entries.length + 1);
+      updated[entries.length] = entry;
+      if (_entriesByBlockInstance.replace(blockInstance, entries, updated))
+        return;
+    }
+  }
+
+  private void removeFromBlockIndex(BlockInstance blockInstance,
+      VehicleLocationCacheEntry entry) {
+    while (true) {
+      VehicleLocationCacheEntry[] entries = _entriesByBlockInstance.get(blockInstance);
+      if (entries == null)
+        return;
+      int index = indexOf(entries, entry);
+      if (index == -1)
+        return;
+      if (entries.length == 1) {
+        if (_entriesByBlockInstance.remove(blockInstance, entries))
+          return;
+        continue;
+      }
+      VehicleLocationCacheEntry[] updated = new VehicleLocationCacheEntry[entries.length - 1];
+      System.arraycopy(entries, 0, updated, 0, index);
+      System.arraycopy(entries, index + 1, updated, index, updated.length
+          - index);
+      if (_entriesByBlockInstance.replace(blockInstance, entries, updated))
+        return;
+    }
+  }
+
+  private static int indexOf(VehicleLocationCacheEntry[] entries,
+      VehicleLocationCacheEntry entry) {
+    for (int i = 0; i < entries.length; i++) {
+      if (entries[i] == entry)
+        return i;
+    }
+    return -1;
+  }
+
   private class CacheEvictionHandler implements Runnable {
 
     @Override
     public void run() {
       int preSize = _entriesByVehicleId.size();
-      int vehiclePreSize = _vehicleIdsByBlockInstance.size();
+      int vehiclePreSize = _entriesByBlockInstance.size();
       clearStaleRecords(SystemTime.currentTimeMillis()
           - _blockLocationRecordCacheWindowSize * 1000);
       int postSize = _entriesByVehicleId.size();
-      int vehiclePostSize = _vehicleIdsByBlockInstance.size();
+      int vehiclePostSize = _entriesByBlockInstance.size();
       _log.debug("cleared {} entries and {} vehicles, now {} entries and {} vehicles",
               preSize - postSize, vehiclePreSize - vehiclePostSize, postSize, vehiclePostSize);
     }
@@ -70,6 +70,9 @@ public class DataSourceMonitorImpl implements DataSourceMonitor {
             + result.getDuplicatedTripIds().size()
             + result.getCancelledTripIds().size()
             + result.getUnmatchedTripIds().size());
+    for (Map.Entry<String, Long> entry : result.getStageLatencies().entrySet()) {
+      es.publishMetric(env, "Latency-" + entry.getKey(), "feed", feedId, entry.getValue().intValue());
+    }
   }
 
   private boolean hasUpdateExpired(long lastUpdate) {
@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -29,6 +30,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -163,6 +168,16 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
    */
   private Map<AgencyAndId, Date> _lastVehicleUpdate = new HashMap<AgencyAndId, Date>();
 
+  /**
+   * When running in incremental mode, we keep the records produced by the
+   * previous poll keyed by the fingerprint of the combined trip updates and
+   * vehicle position they were built from, so unchanged entities can skip
+   * record creation and dispatch entirely.  Along with each record we keep
+   * what matching it contributed to the monitoring result, so the metrics of
+   * an unchanged entity are the same as when it was matched.
+   */
+  private Map<List<Object>, MatchedRecord> _recordsByFingerprint = new HashMap<List<Object>, MatchedRecord>();
+
   /**
    * We keep track of alerts, only pushing them to the underlying
    * {@link ServiceAlertsService} when they've been updated, since we'll often
@@ -200,6 +215,12 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
   // a special case of some specific integration - drop unassigned trips
   private boolean _filterUnassigned = false;
 
+  private boolean _incrementalUpdates = false;
+
+  private int _matchingThreadCount = 0;
+
+  private ExecutorService _matchingExecutor;
+
   private List<AgencyAndId> _routeIdsToCancel = null;
 
   private GtfsRealtimeCancelService _cancelService;
@@ -438,6 +459,11 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     return _tripsLibrary;
   }
 
+  // package private for unit tests
+  void setGtfsRealtimeTripLibrary(GtfsRealtimeTripLibrary tripsLibrary) {
+    _tripsLibrary = tripsLibrary;
+  }
+
   public String getAlertSourcePrefix() {
     return _alertSourcePrefix;
   }
@@ -469,6 +495,31 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     _filterUnassigned = flag;
   }
 
+  /**
+   * only re-process trip updates and vehicle positions that changed since the
+   * previous poll, and explicitly reset vehicles that dropped out of the feed.
+   * @param incrementalUpdates
+   */
+  public void setIncrementalUpdates(boolean incrementalUpdates) {
+    _incrementalUpdates = incrementalUpdates;
+  }
+
+  /**
+   * number of threads used to match updates to blocks and compute schedule
+   * deviations.  Updates for the same vehicle are always matched by the same
+   * thread, and records are still published in feed order.  Values less than
+   * two (the default) match on the refresh thread.
+   * @param matchingThreadCount
+   */
+  public void setMatchingThreadCount(int matchingThreadCount) {
+    _matchingThreadCount = matchingThreadCount;
+  }
+
+  // package private for unit tests
+  void setMatchingExecutor(ExecutorService matchingExecutor) {
+    _matchingExecutor = matchingExecutor;
+  }
+
   @Autowired
   public void setGtfsRealtimeCancelService(GtfsRealtimeCancelService service) {
     _cancelService = service;
@@ -513,6 +564,10 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     _alertLibrary = new GtfsRealtimeAlertLibrary();
     _alertLibrary.setEntitySource(_entitySource);
 
+    if (_matchingThreadCount > 1) {
+      _matchingExecutor = Executors.newFixedThreadPool(_matchingThreadCount);
+    }
+
     if (_refreshInterval > 0) {
       _refreshTask = _scheduledExecutorService.scheduleAtFixedRate(
           new RefreshTask(), 0, _refreshInterval, TimeUnit.SECONDS);
@@ -529,6 +584,10 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
       _refreshTask.cancel(true);
       _refreshTask = null;
     }
+    if (_matchingExecutor != null) {
+      _matchingExecutor.shutdownNow();
+      _matchingExecutor = null;
+    }
   }
 
   public void refresh() throws IOException {
@@ -536,6 +595,7 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
       _log.warn("skipping update " + getAgencyIds() + ", bundle not ready");
       return;
     }
+    long parseStartTime = System.currentTimeMillis();
     FeedMessage tripUpdates = _sftpTripUpdatesUrl != null ?
         readOrReturnDefault(_sftpTripUpdatesUrl)
         : readOrReturnDefault(_tripUpdatesUrl);
@@ -551,6 +611,7 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     MonitoredResult result = new MonitoredResult();
     result.setAgencyIds(_agencyIds);
     result.setFeedId(getFeedId());
+    result.setStageLatency("parse", System.currentTimeMillis() - parseStartTime);
 
     if (_routeIdsToCancel != null) {
       long currentTime = _tripsLibrary.getCurrentTime();
@@ -589,8 +650,10 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
 	long time = tripUpdates.getHeader().getTimestamp() * 1000;
 	_tripsLibrary.setCurrentTime(_tripsLibrary.ensureMillis(time));
 
+    long groupStartTime = System.currentTimeMillis();
     List<CombinedTripUpdatesAndVehiclePosition> combinedUpdates = _tripsLibrary.groupTripUpdatesAndVehiclePositions(result,
             tripUpdates, vehiclePositions);
+    result.setStageLatency("group", System.currentTimeMillis() - groupStartTime);
     result.setRecordsTotal(combinedUpdates.size());
     handleCombinedUpdatesLogged(result, combinedUpdates);
     cacheVehicleLocations(vehiclePositions);
@@ -629,15 +692,15 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     if (_tripUpdatesUrl == null) return;
 
     Set<AgencyAndId> seenVehicles = new HashSet<AgencyAndId>();
+    Map<List<Object>, MatchedRecord> recordsByFingerprint = new HashMap<List<Object>, MatchedRecord>();
+    boolean completed = false;
+    int unchangedCount = 0;
 
     try {
+      List<CombinedTripUpdatesAndVehiclePosition> changed = new ArrayList<CombinedTripUpdatesAndVehiclePosition>();
+      List<List<Object>> changedFingerprints = new ArrayList<List<Object>>();
       for (CombinedTripUpdatesAndVehiclePosition update : updates) {
-        String metricTripId = null;
-        if (update.getTripUpdates() != null && update.getTripUpdatesSize() > 0) {
-          if (update.getTripUpdates().get(0).hasTrip()) {
-            metricTripId = update.getTripUpdates().get(0).getTrip().getTripId();
-          }
-        }
+        String metricTripId = getMetricTripId(update);
 
         if (update.block == null) {
           _log.error("null block {} for agencies {}, bailing...", metricTripId, _agencyIds);
@@ -650,10 +713,43 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
           result.addUnmatchedTripId(metricTripId);
           continue;
         }
-        boolean isDynamicTrip = TransitDataConstants.STATUS_ADDED.equals(scheduleRelationship.name())
-                || TransitDataConstants.STATUS_DUPLICATED.equals(scheduleRelationship.name());
+        boolean isDynamicTrip = isDynamicTrip(update);
+
+        List<Object> fingerprint = null;
+        // dynamic trips register with the dynamic block index every poll
+        if (_incrementalUpdates && !isDynamicTrip
+            && !_tripsLibrary.isNycDynamicTrip(update)) {
+          fingerprint = getFingerprint(update);
+          MatchedRecord previous = _recordsByFingerprint.get(fingerprint);
+          if (previous != null) {
+            // identical to the last poll, the listener has already seen this
+            // record, but whether we still accept it depends on the time
+            unchangedCount++;
+            if (isDiscarded(result, previous.record, update, metricTripId)) {
+              continue;
+            }
+            result.addAll(previous.result);
+            seenVehicles.add(previous.record.getVehicleId());
+            recordsByFingerprint.put(fingerprint, previous);
+            continue;
+          }
+        }
+        changed.add(update);
+        changedFingerprints.add(fingerprint);
+      }
 
-        VehicleLocationRecord record = _tripsLibrary.createVehicleLocationRecordForUpdate(result, update);
+      long matchStartTime = System.currentTimeMillis();
+      MonitoredResult[] matchResults = new MonitoredResult[changed.size()];
+      List<VehicleLocationRecord> records = createVehicleLocationRecords(result, changed, matchResults);
+      long publishStartTime = System.currentTimeMillis();
+      result.setStageLatency("match", publishStartTime - matchStartTime);
+
+      for (int i = 0; i < changed.size(); i++) {
+        CombinedTripUpdatesAndVehiclePosition update = changed.get(i);
+        List<Object> fingerprint = changedFingerprints.get(i);
+        VehicleLocationRecord record = records.get(i);
+        String metricTripId = getMetricTripId(update);
+        boolean isDynamicTrip = isDynamicTrip(update);
         if (record != null) {
           if (isDynamicTrip) {
             if (_monitoredResult.getLastUpdate() < record.getTimeOfRecord()) {
@@ -667,20 +763,13 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
           }
 
           AgencyAndId vehicleId = record.getVehicleId();
-          // here we try to get a more accurate count of updates
-          // some providers re-send old data or future data cluttering the feed
-          // the TDS will discard these
-          if (!isDynamicTrip && blockNotActive(record)) {
-            _log.debug("discarding v: " + vehicleId + " as block not active");
-            result.addUnmatchedTripId(metricTripId);
-            continue;
-          }
-          if (!isDynamicTrip && !isValidLocation(record, update)) {
-            _log.debug("discarding v: " + vehicleId + " as location is bad");
-            result.addUnmatchedTripId(metricTripId);
+          if (!isDynamicTrip && isDiscarded(result, record, update, metricTripId)) {
             continue;
           }
           seenVehicles.add(vehicleId);
+          if (fingerprint != null) {
+            recordsByFingerprint.put(fingerprint, new MatchedRecord(record, matchResults[i]));
+          }
           VehicleOccupancyRecord vor = _tripsLibrary.createVehicleOccupancyRecordForUpdate(result, update);
           Date timestamp = new Date(getGtfsRealtimeTripLibrary().ensureMillis(record.getTimeOfRecord()));
           Date prev = _lastVehicleUpdate.get(vehicleId);
@@ -697,10 +786,21 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
           }
         }
       }
+      result.setStageLatency("publish", System.currentTimeMillis() - publishStartTime);
+      completed = true;
 
     } catch (Throwable t) {
       _log.error("fatal exception {}", t, t);
     }
+    if (_incrementalUpdates) {
+      if (completed) {
+        resetVanishedVehicles(seenVehicles);
+        _recordsByFingerprint = recordsByFingerprint;
+      } else {
+        // we can't trust a partial pass, fully re-process the next poll
+        _recordsByFingerprint = new HashMap<List<Object>, MatchedRecord>();
+      }
+    }
     Calendar c = Calendar.getInstance();
     if (getGtfsRealtimeTripLibrary() != null)
       c.setTime(new Date(getGtfsRealtimeTripLibrary().getCurrentTime()));
@@ -732,8 +832,139 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
             + ", added=" + result.getAddedTripIds().size()
             + ", duplicated=" + result.getDuplicatedTripIds().size()
             + ", cancelled=" + result.getCancelledTripIds().size()
-            + " for updates=" + updates.size() + " with most recent timestamp " + new Date(newestUpdate)
-            + " in " + (methodEndTime-methodStarTime) + "ms");
+            + " for updates=" + updates.size() + " (unchanged=" + unchangedCount + ")"
+            + " with most recent timestamp " + new Date(newestUpdate)
+            + " in " + (methodEndTime-methodStarTime) + "ms, stages=" + result.getStageLatencies());
+  }
+
+  private String getMetricTripId(CombinedTripUpdatesAndVehiclePosition update) {
+    if (update.getTripUpdates() != null && update.getTripUpdatesSize() > 0) {
+      if (update.getTripUpdates().get(0).hasTrip()) {
+        return update.getTripUpdates().get(0).getTrip().getTripId();
+      }
+    }
+    return null;
+  }
+
+  private boolean isDynamicTrip(CombinedTripUpdatesAndVehiclePosition update) {
+    BlockDescriptor.ScheduleRelationship scheduleRelationship = update.block.getScheduleRelationship();
+    return TransitDataConstants.STATUS_ADDED.equals(scheduleRelationship.name())
+            || TransitDataConstants.STATUS_DUPLICATED.equals(scheduleRelationship.name());
+  }
+
+  /**
+   * Match each update to its block and compute the schedule deviation.  When
+   * a matching thread pool is configured, updates are partitioned by vehicle
+   * across the pool.  Each update collects into its own
+   * {@link MonitoredResult}, returned in matchResults, and these are merged
+   * into result once all partitions complete.
+   * Dynamic trips, including those only flagged as such by their trip updates,
+   * are always matched on the calling thread as they modify the dynamic block
+   * index.  The returned records are in the same order as the
+   * updates so they can be published in feed order.
+   */
+  private List<VehicleLocationRecord> createVehicleLocationRecords(MonitoredResult result,
+      List<CombinedTripUpdatesAndVehiclePosition> updates,
+      MonitoredResult[] matchResults) throws Exception {
+    VehicleLocationRecord[] records = new VehicleLocationRecord[updates.size()];
+    if (_matchingExecutor == null || updates.size() < 2) {
+      for (int i = 0; i < updates.size(); i++) {
+        records[i] = createVehicleLocationRecord(updates, i, matchResults);
+      }
+    } else {
+      List<List<Integer>> partitions = new ArrayList<List<Integer>>();
+      for (int i = 0; i < _matchingThreadCount; i++) {
+        partitions.add(new ArrayList<Integer>());
+      }
+      for (int i = 0; i < updates.size(); i++) {
+        CombinedTripUpdatesAndVehiclePosition update = updates.get(i);
+        if (isDynamicTrip(update) || _tripsLibrary.isNycDynamicTrip(update)) {
+          records[i] = createVehicleLocationRecord(updates, i, matchResults);
+          continue;
+        }
+        Object key = update.block.getVehicleId() != null ? update.block.getVehicleId()
+            : update.block.getBlockInstance();
+        int partition = (key.hashCode() & Integer.MAX_VALUE) % _matchingThreadCount;
+        partitions.get(partition).add(i);
+      }
+
+      List<MatchTask> tasks = new ArrayList<MatchTask>();
+      for (List<Integer> partition : partitions) {
+        if (!partition.isEmpty()) {
+          tasks.add(new MatchTask(updates, partition, records, matchResults));
+        }
+      }
+      for (Future<Void> future : _matchingExecutor.invokeAll(tasks)) {
+        future.get();
+      }
+    }
+    for (MonitoredResult matchResult : matchResults) {
+      result.addAll(matchResult);
+    }
+    return Arrays.asList(records);
+  }
+
+  private VehicleLocationRecord createVehicleLocationRecord(
+      List<CombinedTripUpdatesAndVehiclePosition> updates, int index,
+      MonitoredResult[] matchResults) {
+    MonitoredResult matchResult = new MonitoredResult();
+    matchResults[index] = matchResult;
+    return _tripsLibrary.createVehicleLocationRecordForUpdate(matchResult,
+        updates.get(index));
+  }
+
+  /**
+   * The fingerprint relies on the value semantics of the protocol buffer
+   * messages along with the matched block.
+   */
+  private List<Object> getFingerprint(CombinedTripUpdatesAndVehiclePosition update) {
+    List<Object> fingerprint = new ArrayList<Object>(update.getTripUpdatesSize() + 4);
+    fingerprint.add(update.block);
+    fingerprint.add(update.block.getScheduleRelationship());
+    fingerprint.add(update.block.getMutated());
+    fingerprint.add(update.vehiclePosition);
+    fingerprint.addAll(update.getTripUpdates());
+    return fingerprint;
+  }
+
+  /**
+   * Vehicles that were dispatched on the previous poll but are no longer
+   * present (or no longer valid) in the feed are cleared from the listener.
+   */
+  private void resetVanishedVehicles(Set<AgencyAndId> seenVehicles) {
+    Set<AgencyAndId> vanished = new HashSet<AgencyAndId>();
+    for (MatchedRecord matched : _recordsByFingerprint.values()) {
+      AgencyAndId vehicleId = matched.record.getVehicleId();
+      if (!seenVehicles.contains(vehicleId)) {
+        vanished.add(vehicleId);
+      }
+    }
+    for (AgencyAndId vehicleId : vanished) {
+      _log.debug("resetting vanished vehicleId=" + vehicleId);
+      _vehicleLocationListener.resetVehicleLocation(vehicleId);
+      _lastVehicleUpdate.remove(vehicleId);
+    }
+  }
+
+  /**
+   * here we try to get a more accurate count of updates: some providers
+   * re-send old data or future data cluttering the feed, the TDS will discard
+   * these.  Both checks depend on the current time, so they are repeated for
+   * records unchanged since the previous poll.
+   */
+  private boolean isDiscarded(MonitoredResult result, VehicleLocationRecord record,
+      CombinedTripUpdatesAndVehiclePosition update, String metricTripId) {
+    if (blockNotActive(record)) {
+      _log.debug("discarding v: " + record.getVehicleId() + " as block not active");
+      result.addUnmatchedTripId(metricTripId);
+      return true;
+    }
+    if (!isValidLocation(record, update)) {
+      _log.debug("discarding v: " + record.getVehicleId() + " as location is bad");
+      result.addUnmatchedTripId(metricTripId);
+      return true;
+    }
+    return false;
   }
 
   private boolean isValidLocation(VehicleLocationRecord record, CombinedTripUpdatesAndVehiclePosition update) {
@@ -1303,6 +1534,51 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
    *
    ****/
 
+  /**
+   * A record from a previous poll along with what matching it added to the
+   * monitoring result.
+   */
+  private static class MatchedRecord {
+
+    private final VehicleLocationRecord record;
+
+    private final MonitoredResult result;
+
+    public MatchedRecord(VehicleLocationRecord record, MonitoredResult result) {
+      this.record = record;
+      this.result = result;
+    }
+  }
+
+  private class MatchTask implements Callable<Void> {
+
+    private final List<CombinedTripUpdatesAndVehiclePosition> _updates;
+
+    private final List<Integer> _indices;
+
+    private final VehicleLocationRecord[] _records;
+
+    private final MonitoredResult[] _matchResults;
+
+    public MatchTask(List<CombinedTripUpdatesAndVehiclePosition> updates,
+        List<Integer> indices, VehicleLocationRecord[] records,
+        MonitoredResult[] matchResults) {
+      _updates = updates;
+      _indices = indices;
+      _records = records;
+      _matchResults = matchResults;
+    }
+
+    @Override
+    public Void call() {
+      for (int index : _indices) {
+        _records[index] = createVehicleLocationRecord(_updates, index,
+            _matchResults);
+      }
+      return null;
+    }
+  }
+
   private class RefreshTask implements Runnable {
 
     @Override
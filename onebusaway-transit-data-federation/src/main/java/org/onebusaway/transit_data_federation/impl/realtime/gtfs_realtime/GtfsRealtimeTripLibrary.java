@@ -555,36 +555,8 @@ public class GtfsRealtimeTripLibrary {
       record.setVehicleId(record.getBlockId());
     }
 
-    if (result != null) {
-      if (record.getTripId() != null) {
-        if (record.getStatus().equals(TransitDataConstants.STATUS_ADDED)) {
-          result.addAddedTripId(record.getTripId().toString());
-        } else if (record.getStatus().equals(TransitDataConstants.STATUS_DUPLICATED)) {
-          result.addDuplicatedTripId(record.getTripId().toString());
-        } else if (record.getStatus().equals(TransitDataConstants.STATUS_CANCELED)) {
-          result.addCancelledTripId(record.getTripId().toString());
-        } else {
-          if (isTripActive(update)) {
-            result.addMatchedTripId(record.getTripId().toString());
-          }
-        }
-      } else if (record.getBlockId() != null) {
-        if (record.getStatus().equals(TransitDataConstants.STATUS_CANCELED)) {
-          result.addCancelledTripId(record.getBlockId().toString());
-        } else {
-          if (isTripActive(update)) {
-            // here we take a matched block as if it were a trip
-            result.addMatchedTripId(record.getBlockId().toString());
-          }
-        }
-      } else {
-        if (isTripActive(update)) {
-          // we don't have a tripId, use the BlockId instead
-          result.addMatchedTripId(record.getBlockId().toString());
-        }
-      }
-    }
-    
+    addRecordToResult(result, update, record);
+
     if (blockDescriptor.getVehicleId() != null) {
       String agencyId = record.getBlockId().getAgencyId();
       try {
@@ -599,6 +571,44 @@ public class GtfsRealtimeTripLibrary {
     return record;
   }
 
+  /**
+   * Record the matched, added, duplicated or cancelled trip for the given
+   * record in the monitoring result.
+   */
+  private void addRecordToResult(MonitoredResult result,
+      CombinedTripUpdatesAndVehiclePosition update, VehicleLocationRecord record) {
+    if (result == null) {
+      return;
+    }
+    if (record.getTripId() != null) {
+      if (record.getStatus().equals(TransitDataConstants.STATUS_ADDED)) {
+        result.addAddedTripId(record.getTripId().toString());
+      } else if (record.getStatus().equals(TransitDataConstants.STATUS_DUPLICATED)) {
+        result.addDuplicatedTripId(record.getTripId().toString());
+      } else if (record.getStatus().equals(TransitDataConstants.STATUS_CANCELED)) {
+        result.addCancelledTripId(record.getTripId().toString());
+      } else {
+        if (isTripActive(update)) {
+          result.addMatchedTripId(record.getTripId().toString());
+        }
+      }
+    } else if (record.getBlockId() != null) {
+      if (record.getStatus().equals(TransitDataConstants.STATUS_CANCELED)) {
+        result.addCancelledTripId(record.getBlockId().toString());
+      } else {
+        if (isTripActive(update)) {
+          // here we take a matched block as if it were a trip
+          result.addMatchedTripId(record.getBlockId().toString());
+        }
+      }
+    } else {
+      if (isTripActive(update)) {
+        // we don't have a tripId, use the BlockId instead
+        result.addMatchedTripId(record.getBlockId().toString());
+      }
+    }
+  }
+
   private boolean isTripActive(CombinedTripUpdatesAndVehiclePosition update) {
     if (update.getTripUpdates().isEmpty())
       return false;
@@ -633,7 +643,7 @@ public class GtfsRealtimeTripLibrary {
     return active;
   }
 
-  private boolean isNycDynamicTrip(CombinedTripUpdatesAndVehiclePosition update) {
+  boolean isNycDynamicTrip(CombinedTripUpdatesAndVehiclePosition update) {
     // check the trip hasExtension nyct_trip_descriptor
     if (!update.getTripUpdates().isEmpty())
       if (update.getTripUpdates().get(0).hasTrip())
@@ -1115,10 +1125,15 @@ public class GtfsRealtimeTripLibrary {
     if (stopTimeUpdate.hasStopSequence()) {
       int stopSequence = stopTimeUpdate.getStopSequence();
 
-      Map<Integer, BlockStopTimeEntry> sequenceToStopTime = MappingLibrary.mapToValue(stopTimes, "stopTime.gtfsSequence");
+      // the last stop time with the sequence wins, as it did with the map
+      // this used to build for every update
+      BlockStopTimeEntry blockStopTime = null;
+      for (BlockStopTimeEntry candidate : stopTimes) {
+        if (candidate.getStopTime().getGtfsSequence() == stopSequence)
+          blockStopTime = candidate;
+      }
 
-      if (sequenceToStopTime.containsKey(stopSequence)) {
-        BlockStopTimeEntry blockStopTime = sequenceToStopTime.get(stopSequence);
+      if (blockStopTime != null) {
         if (!stopTimeUpdate.hasStopId()) {
           if (result != null) {
             result.addMatchedStopId(blockStopTime.getStopTime().getStop().getId().getId());
@@ -36,6 +36,7 @@ public class MonitoredResult {
   private String feedId = null;
   private int _recordsTotal = 0;
   private long _lastUpdate = 0; // we want the default to be very very old, to catch stale updates
+  private Map<String, Long> _stageLatencies = new LinkedHashMap<String, Long>();
   
   public void addUnmatchedTripId(String tripId) {
     if (tripId != null)
@@ -156,4 +157,34 @@ public class MonitoredResult {
       return getAgencyIds().toString();
     return feedId;
   }
+
+  /**
+   * record how long a stage of processing the update took
+   * @param stage the name of the stage, such as "parse" or "match"
+   * @param millis elapsed time in milliseconds
+   */
+  public void setStageLatency(String stage, long millis) {
+    _stageLatencies.put(stage, millis);
+  }
+
+  public Map<String, Long> getStageLatencies() {
+    return _stageLatencies;
+  }
+
+  /**
+   * merge the trip, stop, block and coordinate results of another (partial)
+   * result into this one.
+   * @param other
+   */
+  public void addAll(MonitoredResult other) {
+    _unmatchedTripIds.addAll(other._unmatchedTripIds);
+    _matchedTripIds.addAll(other._matchedTripIds);
+    _unmatchedStopIds.addAll(other._unmatchedStopIds);
+    _matchedStopIds.addAll(other._matchedStopIds);
+    _canelledTripIds.addAll(other._canelledTripIds);
+    _addedTripIds.addAll(other._addedTripIds);
+    _duplicatedTripIds.addAll(other._duplicatedTripIds);
+    _unmatchedBlockIds.addAll(other._unmatchedBlockIds);
+    _allCoordinates.addAll(other._allCoordinates);
+  }
 }
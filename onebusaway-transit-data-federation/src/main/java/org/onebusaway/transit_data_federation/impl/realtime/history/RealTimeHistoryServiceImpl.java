@@ -15,10 +15,31 @@
  */
 package org.onebusaway.transit_data_federation.impl.realtime.history;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.onebusaway.collections.Range;
+import org.onebusaway.container.ConfigurationParameter;
 import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.AgencyAndIdInstance;
 import org.onebusaway.realtime.api.VehicleLocationRecord;
 import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
 import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocation;
@@ -31,8 +52,13 @@ import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTi
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+import org.onebusaway.util.SystemTime;
 import org.onebusaway.utility.InterpolationLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
 import cern.colt.list.DoubleArrayList;
@@ -41,8 +67,17 @@ import cern.jet.random.engine.RandomEngine;
 import cern.jet.stat.Descriptive;
 
 @Component
+@ManagedResource("org.onebusaway.transit_data_federation.impl.realtime.history:name=RealTimeHistoryServiceImpl")
 public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
 
+  private static Logger _log = LoggerFactory.getLogger(RealTimeHistoryServiceImpl.class);
+
+  /**
+   * Cached in place of trips with no history, so they don't go back to the dao
+   */
+  private static final ScheduleDeviationHistory NO_HISTORY = new ScheduleDeviationHistory(
+      null, new double[0], new double[0][]);
+
   private ScheduleDeviationHistoryDao _scheduleDeviationHistoryDao;
 
   private int _predictionLookahead = 20 * 60;
@@ -50,6 +85,44 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
   private Normal _schedDevScaleParam = new Normal(0, 5 * 60,
       RandomEngine.makeDefault());
 
+  private int _historyCacheSize = 10000;
+
+  private Map<AgencyAndId, ScheduleDeviationHistory> _historyCache = createHistoryCache(_historyCacheSize);
+
+  private boolean _aggregateScheduleDeviationSamples = false;
+
+  /**
+   * Time, in seconds
+   */
+  private int _sampleStepSize = 5 * 60;
+
+  /**
+   * Time, in seconds, without a sample after which a trip instance's trace is
+   * considered complete and merged into the trip's history
+   */
+  private int _traceIdleTime = 30 * 60;
+
+  private int _minTraceSize = 2;
+
+  private int _maxNumberOfSamples = 50;
+
+  /**
+   * Time, in seconds
+   */
+  private int _flushInterval = 60;
+
+  private ConcurrentMap<AgencyAndIdInstance, Trace> _tracesByInstance = new ConcurrentHashMap<AgencyAndIdInstance, Trace>();
+
+  private ScheduledExecutorService _executor = Executors.newSingleThreadScheduledExecutor();
+
+  private AtomicLong _historyCacheHits = new AtomicLong();
+
+  private AtomicLong _historyCacheMisses = new AtomicLong();
+
+  private AtomicLong _savedHistoryCount = new AtomicLong();
+
+  private volatile long _lastFlushDuration = 0;
+
   @Autowired
   public void setScheduleDeviationHistoryDao(
           ScheduleDeviationHistoryDao scheduleDeviationHistoryDao) {
@@ -60,6 +133,128 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     _predictionLookahead = predictionLookahead;
   }
 
+  /**
+   * @param historyCacheSize the maximum number of trip histories, including
+   *          trips known to have none, kept in memory
+   */
+  @ConfigurationParameter
+  public void setHistoryCacheSize(int historyCacheSize) {
+    _historyCacheSize = historyCacheSize;
+    _historyCache = createHistoryCache(historyCacheSize);
+  }
+
+  /**
+   * When true, schedule deviations observed in real-time are aggregated in
+   * memory per trip instance and periodically merged into the stored trip
+   * histories.
+   * 
+   * @param aggregateScheduleDeviationSamples
+   */
+  @ConfigurationParameter
+  public void setAggregateScheduleDeviationSamples(
+      boolean aggregateScheduleDeviationSamples) {
+    _aggregateScheduleDeviationSamples = aggregateScheduleDeviationSamples;
+  }
+
+  /**
+   * @param sampleStepSize width, in seconds, of the schedule time buckets that
+   *          observed deviations are averaged into
+   */
+  @ConfigurationParameter
+  public void setSampleStepSize(int sampleStepSize) {
+    _sampleStepSize = sampleStepSize;
+  }
+
+  /**
+   * @param traceIdleTime time, in seconds, without a sample after which a trip
+   *          instance is merged into the trip's history
+   */
+  @ConfigurationParameter
+  public void setTraceIdleTime(int traceIdleTime) {
+    _traceIdleTime = traceIdleTime;
+  }
+
+  /**
+   * @param maxNumberOfSamples the maximum number of trip instances kept in a
+   *          trip's history, the oldest being dropped first
+   */
+  @ConfigurationParameter
+  public void setMaxNumberOfSamples(int maxNumberOfSamples) {
+    _maxNumberOfSamples = maxNumberOfSamples;
+  }
+
+  /**
+   * @param flushInterval time, in seconds, between merges of completed trip
+   *          instances into the stored histories
+   */
+  @ConfigurationParameter
+  public void setFlushInterval(int flushInterval) {
+    _flushInterval = flushInterval;
+  }
+
+  /****
+   * JMX Attributes
+   ****/
+
+  @ManagedAttribute
+  public long getHistoryCacheHits() {
+    return _historyCacheHits.get();
+  }
+
+  @ManagedAttribute
+  public long getHistoryCacheMisses() {
+    return _historyCacheMisses.get();
+  }
+
+  @ManagedAttribute
+  public int getHistoryCacheSize() {
+    synchronized (_historyCache) {
+      return _historyCache.size();
+    }
+  }
+
+  @ManagedAttribute
+  public int getActiveTraceCount() {
+    return _tracesByInstance.size();
+  }
+
+  @ManagedAttribute
+  public long getSavedHistoryCount() {
+    return _savedHistoryCount.get();
+  }
+
+  @ManagedAttribute
+  public long getLastFlushDuration() {
+    return _lastFlushDuration;
+  }
+
+  /****
+   * Setup and Teardown
+   ****/
+
+  @PostConstruct
+  public void start() {
+    if (_aggregateScheduleDeviationSamples)
+      _executor.scheduleWithFixedDelay(new HistoryWriter(), _flushInterval,
+          _flushInterval, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    _executor.shutdownNow();
+    if (_aggregateScheduleDeviationSamples) {
+      try {
+        flush(Long.MAX_VALUE);
+      } catch (Throwable ex) {
+        _log.error("error writing schedule deviation histories", ex);
+      }
+    }
+  }
+
+  /****
+   * {@link RealTimeHistoryService} Interface
+   ****/
+
   @Override
   public ScheduleDeviationHistogram getScheduleDeviationHistogramForArrivalAndDepartureInstance(
       ArrivalAndDepartureInstance instance, int stepSizeInSeconds) {
@@ -68,7 +263,7 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     TripEntry trip = blockTrip.getTrip();
     AgencyAndId tripId = trip.getId();
 
-    ScheduleDeviationHistory history = _scheduleDeviationHistoryDao.getScheduleDeviationHistoryForTripId(tripId);
+    ScheduleDeviationHistory history = getScheduleDeviationHistoryForTripId(tripId);
     
     if( history == null)
       return null;
@@ -81,6 +276,37 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     return createHistogramFromValues(values, stepSizeInSeconds);
   }
 
+  @Override
+  public void addScheduleDeviationSample(VehicleLocationRecord record,
+      ScheduledBlockLocation scheduledBlockLocation) {
+
+    if (!_aggregateScheduleDeviationSamples || scheduledBlockLocation == null
+        || !record.isScheduleDeviationSet())
+      return;
+
+    BlockTripEntry blockTrip = scheduledBlockLocation.getActiveTrip();
+    if (blockTrip == null)
+      return;
+
+    AgencyAndId tripId = blockTrip.getTrip().getId();
+    AgencyAndIdInstance instance = new AgencyAndIdInstance(tripId,
+        record.getServiceDate());
+
+    Trace trace = _tracesByInstance.get(instance);
+    if (trace == null) {
+      Trace existing = _tracesByInstance.putIfAbsent(instance,
+          trace = new Trace(tripId));
+      if (existing != null)
+        trace = existing;
+    }
+
+    int bucket = (int) Math.round((double) scheduledBlockLocation.getScheduledTime()
+        / _sampleStepSize)
+        * _sampleStepSize;
+    trace.add(bucket, record.getScheduleDeviation(),
+        SystemTime.currentTimeMillis());
+  }
+
   @Override
   public ScheduleDeviationSamples sampleScheduleDeviationsForVehicle(
       BlockInstance instance, VehicleLocationRecord record,
@@ -91,7 +317,7 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     BlockTripEntry blockTrip = scheduledBlockLocation.getActiveTrip();
     TripEntry trip = blockTrip.getTrip();
 
-    ScheduleDeviationHistory history = _scheduleDeviationHistoryDao.getScheduleDeviationHistoryForTripId(trip.getId());
+    ScheduleDeviationHistory history = getScheduleDeviationHistoryForTripId(trip.getId());
 
     if (history == null)
       return null;
@@ -130,10 +356,145 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
         mus.elements(), sigmas.elements());
   }
 
+  /**
+   * Merges trip instances that have had no samples since the given time into
+   * the stored histories.
+   * 
+   * @param idleSince time, in ms, after which a trace is still considered
+   *          active
+   */
+  void flush(long idleSince) {
+
+    long t1 = SystemTime.currentTimeMillis();
+
+    Map<AgencyAndId, List<Trace>> completedTracesByTripId = new HashMap<AgencyAndId, List<Trace>>();
+
+    for (Iterator<Map.Entry<AgencyAndIdInstance, Trace>> it = _tracesByInstance.entrySet().iterator(); it.hasNext();) {
+      Map.Entry<AgencyAndIdInstance, Trace> entry = it.next();
+      Trace trace = entry.getValue();
+      if (trace.getLastUpdate() >= idleSince)
+        continue;
+      it.remove();
+      if (trace.size() < _minTraceSize)
+        continue;
+      AgencyAndId tripId = trace.getTripId();
+      List<Trace> traces = completedTracesByTripId.get(tripId);
+      if (traces == null) {
+        traces = new ArrayList<Trace>();
+        completedTracesByTripId.put(tripId, traces);
+      }
+      traces.add(trace);
+    }
+
+    if (completedTracesByTripId.isEmpty())
+      return;
+
+    List<ScheduleDeviationHistory> histories = new ArrayList<ScheduleDeviationHistory>();
+
+    for (Map.Entry<AgencyAndId, List<Trace>> entry : completedTracesByTripId.entrySet()) {
+      AgencyAndId tripId = entry.getKey();
+      ScheduleDeviationHistory history = getScheduleDeviationHistoryForTripId(tripId);
+      histories.add(mergeTracesIntoHistory(tripId, history, entry.getValue()));
+    }
+
+    _scheduleDeviationHistoryDao.saveScheduleDeviationHistory(histories);
+
+    synchronized (_historyCache) {
+      for (ScheduleDeviationHistory history : histories)
+        _historyCache.put(history.getTripId(), history);
+    }
+
+    _savedHistoryCount.addAndGet(histories.size());
+    _lastFlushDuration = SystemTime.currentTimeMillis() - t1;
+  }
+
   /****
    * Private
    ****/
 
+  private ScheduleDeviationHistory getScheduleDeviationHistoryForTripId(
+      AgencyAndId tripId) {
+
+    ScheduleDeviationHistory history = null;
+    synchronized (_historyCache) {
+      history = _historyCache.get(tripId);
+    }
+
+    if (history != null) {
+      _historyCacheHits.incrementAndGet();
+      return history == NO_HISTORY ? null : history;
+    }
+
+    _historyCacheMisses.incrementAndGet();
+    history = _scheduleDeviationHistoryDao.getScheduleDeviationHistoryForTripId(tripId);
+
+    synchronized (_historyCache) {
+      _historyCache.put(tripId, history == null ? NO_HISTORY : history);
+    }
+
+    return history;
+  }
+
+  /**
+   * Adds each trace as a new sample of the history, evaluated at the history's
+   * schedule times so that existing samples are untouched. A trip without a
+   * history takes its schedule times from the buckets of its traces.
+   */
+  private ScheduleDeviationHistory mergeTracesIntoHistory(AgencyAndId tripId,
+      ScheduleDeviationHistory history, List<Trace> traces) {
+
+    double[] scheduleTimes = null;
+    List<double[]> samples = new ArrayList<double[]>();
+
+    if (history != null && history.getScheduleTimes().length > 0) {
+      scheduleTimes = history.getScheduleTimes();
+      samples.addAll(Arrays.asList(history.getScheduleDeviations()));
+    } else {
+      SortedSet<Integer> buckets = new TreeSet<Integer>();
+      for (Trace trace : traces)
+        buckets.addAll(trace.getScheduleDeviations().keySet());
+      scheduleTimes = new double[buckets.size()];
+      int index = 0;
+      for (Integer bucket : buckets)
+        scheduleTimes[index++] = bucket;
+    }
+
+    for (Trace trace : traces) {
+      SortedMap<Integer, Double> deviations = trace.getScheduleDeviations();
+      double[] values = new double[scheduleTimes.length];
+      for (int i = 0; i < scheduleTimes.length; i++) {
+        int t = (int) scheduleTimes[i];
+        if (t < deviations.firstKey() || t > deviations.lastKey())
+          values[i] = Double.NaN;
+        else
+          values[i] = InterpolationLibrary.interpolate(deviations, t);
+      }
+      samples.add(values);
+    }
+
+    if (samples.size() > _maxNumberOfSamples)
+      samples = samples.subList(samples.size() - _maxNumberOfSamples,
+          samples.size());
+
+    return new ScheduleDeviationHistory(tripId, scheduleTimes,
+        samples.toArray(new double[samples.size()][]));
+  }
+
+  private static Map<AgencyAndId, ScheduleDeviationHistory> createHistoryCache(
+      final int maxSize) {
+    return new LinkedHashMap<AgencyAndId, ScheduleDeviationHistory>(16, 0.75f,
+        true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<AgencyAndId, ScheduleDeviationHistory> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
   /**
    * @param history
    * @param distanceAlongBlock
@@ -209,7 +570,7 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     int halfStep = stepSizeInSeconds / 2;
 
     int from = (int) (Math.floor((r.getMin()-halfStep) / stepSizeInSeconds) * stepSizeInSeconds) + halfStep;
-    int to = (int) (Math.ceil((r.getMax()+halfStep) / stepSizeInSeconds) * stepSizeInSeconds) - halfStep;
+    int to = (int) ((Math.floor((r.getMax()+halfStep) / stepSizeInSeconds) + 1) * stepSizeInSeconds) - halfStep;
     int columns = (to - from) / stepSizeInSeconds;
 
     int[] scheduleDeviations = new int[columns];
@@ -256,4 +617,65 @@ public class RealTimeHistoryServiceImpl implements RealTimeHistoryService {
     return new ScheduleDeviationHistory(history.getTripId(), scheduleTimes,
         sampledScheduleDeviations);
   }
+
+  /**
+   * Mean schedule deviation per schedule time bucket for one trip instance
+   */
+  private static class Trace {
+
+    private final AgencyAndId _tripId;
+
+    private final SortedMap<Integer, double[]> _sumsAndCounts = new TreeMap<Integer, double[]>();
+
+    private volatile long _lastUpdate;
+
+    public Trace(AgencyAndId tripId) {
+      _tripId = tripId;
+    }
+
+    public AgencyAndId getTripId() {
+      return _tripId;
+    }
+
+    public synchronized void add(int scheduleTime, double scheduleDeviation,
+        long time) {
+      double[] sumAndCount = _sumsAndCounts.get(scheduleTime);
+      if (sumAndCount == null) {
+        sumAndCount = new double[2];
+        _sumsAndCounts.put(scheduleTime, sumAndCount);
+      }
+      sumAndCount[0] += scheduleDeviation;
+      sumAndCount[1]++;
+      _lastUpdate = time;
+    }
+
+    public long getLastUpdate() {
+      return _lastUpdate;
+    }
+
+    public synchronized int size() {
+      return _sumsAndCounts.size();
+    }
+
+    public synchronized SortedMap<Integer, Double> getScheduleDeviations() {
+      SortedMap<Integer, Double> deviations = new TreeMap<Integer, Double>();
+      for (Map.Entry<Integer, double[]> entry : _sumsAndCounts.entrySet()) {
+        double[] sumAndCount = entry.getValue();
+        deviations.put(entry.getKey(), sumAndCount[0] / sumAndCount[1]);
+      }
+      return deviations;
+    }
+  }
+
+  private class HistoryWriter implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        flush(SystemTime.currentTimeMillis() - _traceIdleTime * 1000L);
+      } catch (Throwable ex) {
+        _log.error("error writing schedule deviation histories", ex);
+      }
+    }
+  }
 }
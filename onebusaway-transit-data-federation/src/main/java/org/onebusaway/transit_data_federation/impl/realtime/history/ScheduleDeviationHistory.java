@@ -30,7 +30,7 @@ import org.onebusaway.gtfs.model.AgencyAndId;
 
 @Entity
 @Table(name = "oba_schedule_deviation_history")
-@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class ScheduleDeviationHistory implements Serializable {
 
   private static final long serialVersionUID = 1L;
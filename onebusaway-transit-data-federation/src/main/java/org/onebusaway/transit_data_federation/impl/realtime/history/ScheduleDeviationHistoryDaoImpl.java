@@ -15,7 +15,6 @@
  */
 package org.onebusaway.transit_data_federation.impl.realtime.history;
 
-import java.util.Iterator;
 import java.util.List;
 
 import org.hibernate.Session;
@@ -32,6 +31,8 @@ public class ScheduleDeviationHistoryDaoImpl implements
 
   private SessionFactory _sessionFactory;
 
+  private int _batchSize = 100;
+
   /**
    * Note we are requesting the "mutable" {@link SessionFactory}, aka the one we
    * can write to
@@ -43,6 +44,13 @@ public class ScheduleDeviationHistoryDaoImpl implements
     _sessionFactory = sessionFactory;
   }
 
+  /**
+   * @param batchSize number of records written per JDBC batch
+   */
+  public void setBatchSize(int batchSize) {
+    _batchSize = batchSize;
+  }
+
   @Override
   @Transactional
   public void saveScheduleDeviationHistory(ScheduleDeviationHistory record) {
@@ -54,9 +62,22 @@ public class ScheduleDeviationHistoryDaoImpl implements
   public void saveScheduleDeviationHistory(
       List<ScheduleDeviationHistory> records) {
     Session session = getSession();
-    for (Iterator<ScheduleDeviationHistory> it = records.iterator(); it.hasNext();) {
-      session.saveOrUpdate(it.next());
+    session.setJdbcBatchSize(_batchSize);
+    int count = 0;
+    for (ScheduleDeviationHistory record : records) {
+      session.saveOrUpdate(record);
+      /**
+       * Flush each full batch and let go of the records it held, so large
+       * saves neither build up in the session nor go out one statement at a
+       * time
+       */
+      if (++count % _batchSize == 0) {
+        session.flush();
+        session.clear();
+      }
     }
+    session.flush();
+    session.clear();
   }
 
   @Override
@@ -57,7 +57,9 @@ public class DistanceAlongShapeLibrary {
   
   private boolean _lenientStopShapeAssignment = true;
 
-  private Set<AgencyAndId> _shapeIdsWeHavePrinted = new HashSet<AgencyAndId>();
+  private boolean _recursiveStopShapeAssignment = false;
+
+  private Set<AgencyAndId> _shapeIdsWeHavePrinted = Collections.synchronizedSet(new HashSet<AgencyAndId>());
 
   /**
    * When computing stop-to-shape matches, we will consider multiple potential
@@ -97,7 +99,8 @@ public class DistanceAlongShapeLibrary {
    * 
    * This parameter controls the maximum number of potential assignments we are
    * willing to consider. If the number of potential assignments is higher than
-   * this number, we throw an exception.
+   * this number, we throw an exception. It only applies to the recursive
+   * search; see {@link #setRecursiveStopShapeAssignment(boolean)}.
    * 
    * @param maximumNumberOfPotentialAssignments
    */
@@ -116,6 +119,20 @@ public class DistanceAlongShapeLibrary {
   public void setLenientStopShapeAssignment(boolean lenient) {
     _lenientStopShapeAssignment = lenient;
   }
+
+  /**
+   * By default the best assignment is found by dynamic programming, which
+   * takes polynomial time however many potential assignments there are. Set
+   * this to go back to enumerating every potential assignment, subject to
+   * {@link #setMaximumNumberOfPotentialAssignment(int)}.
+   * 
+   * @param recursive
+   */
+  @ConfigurationParameter
+  public void setRecursiveStopShapeAssignment(boolean recursive) {
+    _recursiveStopShapeAssignment = recursive;
+  }
+
   public PointAndIndex[] getDistancesAlongShape(ShapePoints shapePoints,
       List<StopTimeEntry> stopTimes)
       throws DistanceAlongShapeException {
@@ -275,7 +292,9 @@ public class DistanceAlongShapeLibrary {
         projection, projectedShapePoints);
 
     int startIndex = 0;
-    int assingmentCount = 1;
+    boolean hasMultipleAssignments = false;
+    // only bounded for the recursive search; saturates rather than overflowing
+    long assingmentCount = 1;
 
     /**
      * We iterate over each stop, examining its possible assignments. If we find
@@ -293,23 +312,30 @@ public class DistanceAlongShapeLibrary {
 
       boolean hasRegion = index > startIndex;
       boolean hasSingleAssignmentFollowingMultipleAssignments = count == 1
-          && assingmentCount > 1;
+          && hasMultipleAssignments;
       boolean hasMultipleAssignmentsAndLastPoint = count > 1
           && index == possibleAssignments.size() - 1;
 
       if (hasRegion
           && (hasSingleAssignmentFollowingMultipleAssignments || hasMultipleAssignmentsAndLastPoint)) {
 
-        List<PointAndIndex> currentAssignment = new ArrayList<PointAndIndex>(
-            index - startIndex + 1);
-        Min<Assignment> bestAssignments = new Min<Assignment>();
-        recursivelyConstructAssignments(possibleAssignments, currentAssignment,
-            startIndex, startIndex, index + 1, bestAssignments, 0, stopTimes.get(0).toString());
-        if (bestAssignments.isEmpty()) {
+        List<PointAndIndex> bestAssignment = null;
+        if (_recursiveStopShapeAssignment) {
+          List<PointAndIndex> currentAssignment = new ArrayList<PointAndIndex>(
+              index - startIndex + 1);
+          Min<Assignment> bestAssignments = new Min<Assignment>();
+          recursivelyConstructAssignments(possibleAssignments, currentAssignment,
+              startIndex, startIndex, index + 1, bestAssignments, 0, stopTimes.get(0).toString());
+          if (!bestAssignments.isEmpty())
+            bestAssignment = bestAssignments.getMinElement().assigment;
+        } else {
+          bestAssignment = computeBestAssignmentForRegion(possibleAssignments,
+              startIndex, index + 1);
+        }
+        if (bestAssignment == null) {
           constructError(shapePoints, stopTimes, possibleAssignments,
               projection);
         } else {
-          List<PointAndIndex> bestAssignment = bestAssignments.getMinElement().assigment;
           for (int bestIndex = 0; bestIndex < bestAssignment.size(); bestIndex++) {
             possibleAssignments.set(startIndex + bestIndex,
                 Arrays.asList(bestAssignment.get(bestIndex)));
@@ -318,10 +344,16 @@ public class DistanceAlongShapeLibrary {
       }
       if (count == 1) {
         startIndex = index;
+        hasMultipleAssignments = false;
         assingmentCount = 1;
       } else {
-        assingmentCount *= count;
-        if (assingmentCount > _maximumNumberOfPotentialAssignments) {
+        hasMultipleAssignments = true;
+        if (assingmentCount > Long.MAX_VALUE / count)
+          assingmentCount = Long.MAX_VALUE;
+        else
+          assingmentCount *= count;
+        if (_recursiveStopShapeAssignment
+            && assingmentCount > _maximumNumberOfPotentialAssignments) {
           constructErrorForPotentialAssignmentCount(shapePoints, stopTimes,
               assingmentCount);
         }
@@ -431,6 +463,74 @@ public class DistanceAlongShapeLibrary {
         distanceAlongShape);
   }
 
+  /**
+   * Finds the lowest scoring assignment for the stops in [indexFrom, indexTo)
+   * whose distances along the shape never decrease, in the manner of the
+   * Viterbi algorithm: the best score for an assignment ending at a candidate
+   * is the candidate's distance from its stop plus the best score ending at
+   * any candidate for the previous stop that isn't further along the shape.
+   * That takes time proportional to the sum of the products of the candidate
+   * counts of consecutive stops, rather than to the product of all of them as
+   * in {@link #recursivelyConstructAssignments}. Scores are summed in the same
+   * order as there, so both find assignments with exactly the same score.
+   * 
+   * @return the best assignment, or null if there is no valid assignment
+   */
+  private static List<PointAndIndex> computeBestAssignmentForRegion(
+      List<List<PointAndIndex>> possibleAssignments, int indexFrom, int indexTo) {
+
+    int n = indexTo - indexFrom;
+    double[][] scores = new double[n][];
+    int[][] previous = new int[n][];
+
+    List<PointAndIndex> prevCandidates = null;
+
+    for (int k = 0; k < n; k++) {
+      List<PointAndIndex> candidates = possibleAssignments.get(indexFrom + k);
+      scores[k] = new double[candidates.size()];
+      previous[k] = new int[candidates.size()];
+
+      for (int j = 0; j < candidates.size(); j++) {
+        PointAndIndex candidate = candidates.get(j);
+        if (k == 0) {
+          scores[k][j] = candidate.distanceFromTarget;
+          previous[k][j] = -1;
+          continue;
+        }
+        double bestScore = Double.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        for (int i = 0; i < prevCandidates.size(); i++) {
+          if (prevCandidates.get(i).distanceAlongShape <= candidate.distanceAlongShape
+              && scores[k - 1][i] < bestScore) {
+            bestScore = scores[k - 1][i];
+            bestIndex = i;
+          }
+        }
+        scores[k][j] = bestScore + candidate.distanceFromTarget;
+        previous[k][j] = bestIndex;
+      }
+      prevCandidates = candidates;
+    }
+
+    double bestScore = Double.POSITIVE_INFINITY;
+    int bestIndex = -1;
+    for (int j = 0; j < scores[n - 1].length; j++) {
+      if (scores[n - 1][j] < bestScore) {
+        bestScore = scores[n - 1][j];
+        bestIndex = j;
+      }
+    }
+    if (bestIndex == -1)
+      return null;
+
+    PointAndIndex[] assignment = new PointAndIndex[n];
+    for (int k = n - 1; k >= 0; k--) {
+      assignment[k] = possibleAssignments.get(indexFrom + k).get(bestIndex);
+      bestIndex = previous[k][bestIndex];
+    }
+    return Arrays.asList(assignment);
+  }
+
   private void recursivelyConstructAssignments(
       List<List<PointAndIndex>> possibleAssignments,
       List<PointAndIndex> currentAssignment, int index, int indexFrom,
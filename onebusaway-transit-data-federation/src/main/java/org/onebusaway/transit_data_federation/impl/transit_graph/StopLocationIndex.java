@@ -0,0 +1,393 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import java.util.Collection;
+
+import org.onebusaway.geospatial.model.CoordinateBounds;
+import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+
+/**
+ * Read-only spatial index over stop locations. Stops are bucketed into a
+ * uniform lat/lon grid sized to hold a handful of stops per cell, and the
+ * buckets are packed (counting sort by cell) into parallel primitive arrays, so
+ * the index is a few flat arrays rather than a tree of node objects.
+ *
+ * Supports bounding box, radius and k-nearest-neighbor queries. Bounding box
+ * and radius queries add matches to a caller-supplied collection and allocate
+ * nothing else; nearest-neighbor queries only allocate buffers of size k.
+ * Instances are immutable and safe for concurrent queries.
+ *
+ * As with the JTS STRtree this replaces, longitudes are not wrapped around the
+ * antimeridian.
+ */
+public final class StopLocationIndex {
+
+  private static final int TARGET_STOPS_PER_CELL = 4;
+
+  private static final double RADIUS_OF_EARTH_IN_METERS = SphericalGeometryLibrary.RADIUS_OF_EARTH_IN_KM * 1000;
+
+  private static final double METERS_PER_DEGREE_LAT = Math.toRadians(1)
+      * RADIUS_OF_EARTH_IN_METERS;
+
+  private final StopEntry[] _stops;
+
+  private final double[] _lats;
+
+  private final double[] _lons;
+
+  /**
+   * The stops of cell i are at positions [_cellStart[i], _cellStart[i+1]) of
+   * the packed arrays. Cells are numbered row-major, rows by latitude.
+   */
+  private final int[] _cellStart;
+
+  private final int _rows;
+
+  private final int _cols;
+
+  private final double _minLat;
+
+  private final double _maxLat;
+
+  private final double _minLon;
+
+  private final double _maxLon;
+
+  private final double _cellLat;
+
+  private final double _cellLon;
+
+  /**
+   * Lower bound on the great-circle distance, in meters, covered by one degree
+   * of longitude anywhere in the grid. Used to prune nearest-neighbor search.
+   */
+  private final double _minMetersPerDegreeLon;
+
+  public StopLocationIndex(Collection<? extends StopEntry> stops) {
+
+    int n = stops.size();
+
+    double minLat = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    double minLon = Double.POSITIVE_INFINITY;
+    double maxLon = Double.NEGATIVE_INFINITY;
+
+    for (StopEntry stop : stops) {
+      minLat = Math.min(minLat, stop.getStopLat());
+      maxLat = Math.max(maxLat, stop.getStopLat());
+      minLon = Math.min(minLon, stop.getStopLon());
+      maxLon = Math.max(maxLon, stop.getStopLon());
+    }
+
+    if (n == 0) {
+      minLat = maxLat = minLon = maxLon = 0;
+    }
+
+    double latSpan = Math.max(maxLat - minLat, 1e-9);
+    double lonSpan = Math.max(maxLon - minLon, 1e-9);
+
+    int cells = Math.max(1, n / TARGET_STOPS_PER_CELL);
+    int cols = (int) Math.max(1,
+        Math.min(cells, Math.round(Math.sqrt(cells * lonSpan / latSpan))));
+    int rows = Math.max(1, cells / cols);
+
+    _rows = rows;
+    _cols = cols;
+    _minLat = minLat;
+    _maxLat = maxLat;
+    _minLon = minLon;
+    _maxLon = maxLon;
+    _cellLat = latSpan / rows;
+    _cellLon = lonSpan / cols;
+
+    double maxAbsLat = Math.min(89.0,
+        Math.max(Math.abs(minLat), Math.abs(maxLat)));
+    // great-circle distance between two points on a parallel is at least 2/pi
+    // of the distance along the parallel
+    _minMetersPerDegreeLon = METERS_PER_DEGREE_LAT
+        * Math.cos(Math.toRadians(maxAbsLat)) * 2 / Math.PI;
+
+    /**
+     * Counting sort of the stops by cell
+     */
+    int[] cellIndices = new int[n];
+    int[] cellStart = new int[rows * cols + 1];
+
+    int i = 0;
+    for (StopEntry stop : stops) {
+      int cell = getRow(stop.getStopLat()) * cols + getCol(stop.getStopLon());
+      cellIndices[i++] = cell;
+      cellStart[cell + 1]++;
+    }
+
+    for (int cell = 0; cell < rows * cols; cell++)
+      cellStart[cell + 1] += cellStart[cell];
+
+    int[] cursor = new int[rows * cols];
+    System.arraycopy(cellStart, 0, cursor, 0, rows * cols);
+
+    _stops = new StopEntry[n];
+    _lats = new double[n];
+    _lons = new double[n];
+
+    i = 0;
+    for (StopEntry stop : stops) {
+      int pos = cursor[cellIndices[i++]]++;
+      _stops[pos] = stop;
+      _lats[pos] = stop.getStopLat();
+      _lons[pos] = stop.getStopLon();
+    }
+
+    _cellStart = cellStart;
+  }
+
+  public int size() {
+    return _stops.length;
+  }
+
+  /**
+   * Adds every stop within the specified bounds, inclusive, to results.
+   */
+  public void getStopsInBounds(CoordinateBounds bounds,
+      Collection<? super StopEntry> results) {
+    getStopsInBounds(bounds.getMinLat(), bounds.getMinLon(),
+        bounds.getMaxLat(), bounds.getMaxLon(), results);
+  }
+
+  public void getStopsInBounds(double minLat, double minLon, double maxLat,
+      double maxLon, Collection<? super StopEntry> results) {
+
+    if (_stops.length == 0 || maxLat < _minLat || minLat > _maxLat
+        || maxLon < _minLon || minLon > _maxLon)
+      return;
+
+    int rowFrom = getRow(minLat);
+    int rowTo = getRow(maxLat);
+    int colFrom = getCol(minLon);
+    int colTo = getCol(maxLon);
+
+    for (int row = rowFrom; row <= rowTo; row++) {
+      for (int col = colFrom; col <= colTo; col++) {
+        int cell = row * _cols + col;
+        for (int i = _cellStart[cell]; i < _cellStart[cell + 1]; i++) {
+          double lat = _lats[i];
+          double lon = _lons[i];
+          if (minLat <= lat && lat <= maxLat && minLon <= lon && lon <= maxLon)
+            results.add(_stops[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds every stop within radius meters of the specified point to results.
+   */
+  public void getStopsWithinRadius(double lat, double lon, double radius,
+      Collection<? super StopEntry> results) {
+
+    if (_stops.length == 0 || radius < 0)
+      return;
+
+    double angularRadius = radius / RADIUS_OF_EARTH_IN_METERS;
+    double latOffset = Math.toDegrees(angularRadius);
+
+    /**
+     * Widest longitude offset of a spherical cap: asin(sin(r) / cos(lat)),
+     * everything when the cap reaches a pole
+     */
+    double lonOffset = 360;
+    double sinRatio = Math.sin(angularRadius)
+        / Math.cos(Math.toRadians(lat));
+    if (angularRadius < Math.PI / 2 && sinRatio < 1)
+      lonOffset = Math.toDegrees(Math.asin(sinRatio));
+
+    double minLat = lat - latOffset;
+    double maxLat = lat + latOffset;
+    double minLon = lon - lonOffset;
+    double maxLon = lon + lonOffset;
+
+    if (maxLat < _minLat || minLat > _maxLat || maxLon < _minLon
+        || minLon > _maxLon)
+      return;
+
+    int rowFrom = getRow(minLat);
+    int rowTo = getRow(maxLat);
+    int colFrom = getCol(minLon);
+    int colTo = getCol(maxLon);
+
+    for (int row = rowFrom; row <= rowTo; row++) {
+      for (int col = colFrom; col <= colTo; col++) {
+        int cell = row * _cols + col;
+        for (int i = _cellStart[cell]; i < _cellStart[cell + 1]; i++) {
+          if (SphericalGeometryLibrary.distance(lat, lon, _lats[i], _lons[i]) <= radius)
+            results.add(_stops[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds up to maxCount stops within maxRadius meters of the specified point to
+   * results, closest first. The grid is searched in rings of cells around the
+   * point, stopping once no unvisited cell can hold a closer stop.
+   */
+  public void getNearestStops(double lat, double lon, int maxCount,
+      double maxRadius, Collection<? super StopEntry> results) {
+
+    if (_stops.length == 0 || maxCount <= 0 || maxRadius < 0)
+      return;
+
+    // max-heap on distance of the best candidates so far
+    double[] heapDistances = new double[Math.min(maxCount, _stops.length)];
+    int[] heapIndices = new int[heapDistances.length];
+    int heapSize = 0;
+
+    int queryRow = getRow(lat);
+    int queryCol = getCol(lon);
+
+    for (int ring = 0;; ring++) {
+
+      int rowLow = queryRow - ring;
+      int rowHigh = queryRow + ring;
+      int colLow = queryCol - ring;
+      int colHigh = queryCol + ring;
+
+      for (int row = Math.max(rowLow, 0); row <= Math.min(rowHigh, _rows - 1); row++) {
+        if (row == rowLow || row == rowHigh) {
+          for (int col = Math.max(colLow, 0); col <= Math.min(colHigh,
+              _cols - 1); col++) {
+            heapSize = visitCell(row * _cols + col, lat, lon, maxRadius,
+                heapDistances, heapIndices, heapSize);
+          }
+        } else {
+          if (colLow >= 0)
+            heapSize = visitCell(row * _cols + colLow, lat, lon, maxRadius,
+                heapDistances, heapIndices, heapSize);
+          if (colHigh < _cols)
+            heapSize = visitCell(row * _cols + colHigh, lat, lon, maxRadius,
+                heapDistances, heapIndices, heapSize);
+        }
+      }
+
+      /**
+       * Lower bound on the distance from the query point to any cell outside
+       * the rings visited so far
+       */
+      double bound = Double.POSITIVE_INFINITY;
+      if (rowLow > 0)
+        bound = Math.min(bound, Math.max(0, lat - (_minLat + rowLow * _cellLat))
+            * METERS_PER_DEGREE_LAT);
+      if (rowHigh < _rows - 1)
+        bound = Math.min(bound,
+            Math.max(0, _minLat + (rowHigh + 1) * _cellLat - lat)
+                * METERS_PER_DEGREE_LAT);
+      if (colLow > 0)
+        bound = Math.min(bound, Math.max(0, lon - (_minLon + colLow * _cellLon))
+            * _minMetersPerDegreeLon);
+      if (colHigh < _cols - 1)
+        bound = Math.min(bound,
+            Math.max(0, _minLon + (colHigh + 1) * _cellLon - lon)
+                * _minMetersPerDegreeLon);
+
+      if (bound == Double.POSITIVE_INFINITY || bound > maxRadius)
+        break;
+      if (heapSize == heapDistances.length && bound >= heapDistances[0])
+        break;
+    }
+
+    // heap sort in place, leaving the closest stop first
+    for (int end = heapSize - 1; end > 0; end--) {
+      swap(heapDistances, heapIndices, 0, end);
+      siftDown(heapDistances, heapIndices, 0, end);
+    }
+
+    for (int i = 0; i < heapSize; i++)
+      results.add(_stops[heapIndices[i]]);
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private int getRow(double lat) {
+    int row = (int) ((lat - _minLat) / _cellLat);
+    return Math.max(0, Math.min(_rows - 1, row));
+  }
+
+  private int getCol(double lon) {
+    int col = (int) ((lon - _minLon) / _cellLon);
+    return Math.max(0, Math.min(_cols - 1, col));
+  }
+
+  private int visitCell(int cell, double lat, double lon, double maxRadius,
+      double[] heapDistances, int[] heapIndices, int heapSize) {
+
+    for (int i = _cellStart[cell]; i < _cellStart[cell + 1]; i++) {
+
+      double distance = SphericalGeometryLibrary.distance(lat, lon, _lats[i],
+          _lons[i]);
+
+      if (distance > maxRadius)
+        continue;
+
+      if (heapSize < heapDistances.length) {
+        // sift up
+        int child = heapSize++;
+        heapDistances[child] = distance;
+        heapIndices[child] = i;
+        while (child > 0) {
+          int parent = (child - 1) / 2;
+          if (heapDistances[parent] >= heapDistances[child])
+            break;
+          swap(heapDistances, heapIndices, parent, child);
+          child = parent;
+        }
+      } else if (distance < heapDistances[0]) {
+        heapDistances[0] = distance;
+        heapIndices[0] = i;
+        siftDown(heapDistances, heapIndices, 0, heapSize);
+      }
+    }
+
+    return heapSize;
+  }
+
+  private static void siftDown(double[] distances, int[] indices, int parent,
+      int size) {
+    while (true) {
+      int child = parent * 2 + 1;
+      if (child >= size)
+        return;
+      if (child + 1 < size && distances[child + 1] > distances[child])
+        child++;
+      if (distances[parent] >= distances[child])
+        return;
+      swap(distances, indices, parent, child);
+      parent = child;
+    }
+  }
+
+  private static void swap(double[] distances, int[] indices, int a, int b) {
+    double distance = distances[a];
+    distances[a] = distances[b];
+    distances[b] = distance;
+    int index = indices[a];
+    indices[a] = indices[b];
+    indices[b] = index;
+  }
+}
@@ -0,0 +1,453 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+
+import org.onebusaway.realtime.api.OccupancyStatus;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+/**
+ * Columnar, memory-mapped storage for the stop times of a
+ * {@link TransitGraphImpl}. Stop times make up the bulk of a transit graph, so
+ * rather than Java-serializing one {@link StopTimeEntryImpl} per row, the
+ * bundle builder writes each field as a flat primitive column. At load time the
+ * file is memory-mapped and each {@link TripEntryImpl} is handed a lightweight
+ * list of read-only {@link StopTimeEntry} flyweights that read straight from
+ * the mapped columns, keeping stop times off the heap.
+ *
+ * File layout (big-endian):
+ *
+ * <pre>
+ * int magic, int version, int tripCount, int rowCount
+ * int[tripCount + 1] trip row offsets
+ * int[rowCount] x INT_COLUMN_COUNT
+ * double[rowCount] shape dist traveled
+ * byte[rowCount] historical occupancy ordinal (-1 for none)
+ * </pre>
+ *
+ * Trips are stored in the order of {@link TransitGraphImpl#getTrips()} and
+ * stops are referenced by their index in {@link TransitGraphImpl#getStops()},
+ * so the columns are only valid against the graph they were written with.
+ */
+public class StopTimeColumns {
+
+  private static final int MAGIC = 0x4F425354;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+
+  private static final int COL_ID = 0;
+
+  private static final int COL_STOP_INDEX = 1;
+
+  private static final int COL_ARRIVAL_TIME = 2;
+
+  private static final int COL_DEPARTURE_TIME = 3;
+
+  private static final int COL_SEQUENCE = 4;
+
+  private static final int COL_GTFS_SEQUENCE = 5;
+
+  private static final int COL_PICKUP_TYPE = 6;
+
+  private static final int COL_DROP_OFF_TYPE = 7;
+
+  private static final int COL_SHAPE_POINT_INDEX = 8;
+
+  private static final int COL_ACCUMULATED_SLACK_TIME = 9;
+
+  private static final int COL_TOTAL_STOPS_IN_TRIP = 10;
+
+  private static final int INT_COLUMN_COUNT = 11;
+
+  private static final OccupancyStatus[] OCCUPANCY_VALUES = OccupancyStatus.values();
+
+  private final ByteBuffer _buffer;
+
+  private final int _tripCount;
+
+  private final int _rowCount;
+
+  private final int _tripOffsetsStart;
+
+  private final int _intColumnsStart;
+
+  private final int _shapeDistTraveledStart;
+
+  private final int _occupancyStart;
+
+  private List<StopEntryImpl> _stops;
+
+  private StopTimeColumns(ByteBuffer buffer) {
+    _buffer = buffer;
+
+    if (buffer.getInt(0) != MAGIC)
+      throw new IllegalStateException("not a stop time columns file");
+    int version = buffer.getInt(4);
+    if (version != VERSION)
+      throw new IllegalStateException(
+          "unsupported stop time columns version: " + version);
+
+    _tripCount = buffer.getInt(8);
+    _rowCount = buffer.getInt(12);
+    _tripOffsetsStart = HEADER_SIZE;
+    _intColumnsStart = _tripOffsetsStart + 4 * (_tripCount + 1);
+    _shapeDistTraveledStart = _intColumnsStart + 4 * INT_COLUMN_COUNT
+        * _rowCount;
+    _occupancyStart = _shapeDistTraveledStart + 8 * _rowCount;
+
+    if (buffer.capacity() != _occupancyStart + _rowCount)
+      throw new IllegalStateException("truncated stop time columns file");
+  }
+
+  /**
+   * Write the stop times of every trip in the specified graph to a columnar
+   * file. The graph must already be initialized, such that each stop has its
+   * final index.
+   *
+   * @param path the target output file
+   * @param graph the source transit graph
+   * @throws IOException
+   */
+  public static void write(File path, TransitGraphImpl graph)
+      throws IOException {
+
+    List<TripEntryImpl> trips = graph.getTrips();
+    int[] tripOffsets = new int[trips.size() + 1];
+
+    int rowCount = 0;
+    for (int i = 0; i < trips.size(); i++) {
+      tripOffsets[i] = rowCount;
+      List<StopTimeEntry> stopTimes = trips.get(i).getStopTimes();
+      if (stopTimes != null)
+        rowCount += stopTimes.size();
+    }
+    tripOffsets[trips.size()] = rowCount;
+
+    int[][] intColumns = new int[INT_COLUMN_COUNT][rowCount];
+    double[] shapeDistTraveled = new double[rowCount];
+    byte[] occupancy = new byte[rowCount];
+
+    int row = 0;
+    for (TripEntryImpl trip : trips) {
+      List<StopTimeEntry> stopTimes = trip.getStopTimes();
+      if (stopTimes == null)
+        continue;
+      for (StopTimeEntry stopTime : stopTimes) {
+        if (stopTime.getTrip() != trip)
+          throw new IllegalStateException("stop time does not belong to trip "
+              + trip.getId());
+        intColumns[COL_ID][row] = stopTime.getId();
+        intColumns[COL_STOP_INDEX][row] = stopTime.getStop().getIndex();
+        intColumns[COL_ARRIVAL_TIME][row] = stopTime.getArrivalTime();
+        intColumns[COL_DEPARTURE_TIME][row] = stopTime.getDepartureTime();
+        intColumns[COL_SEQUENCE][row] = stopTime.getSequence();
+        intColumns[COL_GTFS_SEQUENCE][row] = stopTime.getGtfsSequence();
+        intColumns[COL_PICKUP_TYPE][row] = stopTime.getPickupType();
+        intColumns[COL_DROP_OFF_TYPE][row] = stopTime.getDropOffType();
+        intColumns[COL_SHAPE_POINT_INDEX][row] = stopTime.getShapePointIndex();
+        intColumns[COL_ACCUMULATED_SLACK_TIME][row] = stopTime.getAccumulatedSlackTime();
+        intColumns[COL_TOTAL_STOPS_IN_TRIP][row] = stopTime.getTotalStopsInTrip();
+        shapeDistTraveled[row] = stopTime.getShapeDistTraveled();
+        OccupancyStatus status = stopTime.getHistoricalOccupancy();
+        occupancy[row] = (byte) (status == null ? -1 : status.ordinal());
+        row++;
+      }
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(path)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(trips.size());
+      out.writeInt(rowCount);
+      for (int offset : tripOffsets)
+        out.writeInt(offset);
+      for (int[] column : intColumns) {
+        for (int value : column)
+          out.writeInt(value);
+      }
+      for (double value : shapeDistTraveled)
+        out.writeDouble(value);
+      out.write(occupancy);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Memory-map a columnar stop time file written with
+   * {@link #write(File, TransitGraphImpl)}.
+   *
+   * @param path the stop time columns file
+   * @return the mapped columns, ready to be attached to a graph
+   * @throws IOException
+   */
+  public static StopTimeColumns map(File path) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(path, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+        throw new IllegalStateException("stop time columns file too large: "
+            + size);
+      // the mapping stays valid after the channel is closed
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new StopTimeColumns(buffer);
+    } finally {
+      file.close();
+    }
+  }
+
+  public int getTripCount() {
+    return _tripCount;
+  }
+
+  public int getRowCount() {
+    return _rowCount;
+  }
+
+  /**
+   * Replace the stop times of every trip in the graph with flyweight views over
+   * these columns.
+   *
+   * @param graph the graph the columns were written from
+   */
+  public void attach(TransitGraphImpl graph) {
+    List<TripEntryImpl> trips = graph.getTrips();
+    if (trips.size() != _tripCount)
+      throw new IllegalStateException("stop time columns have " + _tripCount
+          + " trips but graph has " + trips.size());
+
+    _stops = graph.getStops();
+
+    for (int i = 0; i < _tripCount; i++) {
+      int from = _buffer.getInt(_tripOffsetsStart + 4 * i);
+      int to = _buffer.getInt(_tripOffsetsStart + 4 * (i + 1));
+      TripEntryImpl trip = trips.get(i);
+      trip.setStopTimes(new StopTimeColumnList(trip, from, to));
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private int getInt(int column, int row) {
+    return _buffer.getInt(_intColumnsStart + 4 * (column * _rowCount + row));
+  }
+
+  private double getShapeDistTraveled(int row) {
+    return _buffer.getDouble(_shapeDistTraveledStart + 8 * row);
+  }
+
+  private OccupancyStatus getHistoricalOccupancy(int row) {
+    int ordinal = _buffer.get(_occupancyStart + row);
+    if (ordinal < 0)
+      return null;
+    return OCCUPANCY_VALUES[ordinal];
+  }
+
+  private class StopTimeColumnList extends AbstractList<StopTimeEntry> {
+
+    private final TripEntry _trip;
+
+    private final int _from;
+
+    private final int _to;
+
+    public StopTimeColumnList(TripEntry trip, int from, int to) {
+      _trip = trip;
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    public int size() {
+      return _to - _from;
+    }
+
+    @Override
+    public StopTimeEntry get(int index) {
+      if (index < 0 || index >= size())
+        throw new IndexOutOfBoundsException("index=" + index + " size="
+            + size());
+      return new StopTimeColumnEntry(_trip, _from + index);
+    }
+  }
+
+  private class StopTimeColumnEntry implements StopTimeEntry {
+
+    private final TripEntry _trip;
+
+    private final int _row;
+
+    public StopTimeColumnEntry(TripEntry trip, int row) {
+      _trip = trip;
+      _row = row;
+    }
+
+    @Override
+    public int getId() {
+      return getInt(COL_ID, _row);
+    }
+
+    @Override
+    public TripEntry getTrip() {
+      return _trip;
+    }
+
+    @Override
+    public int getSequence() {
+      return getInt(COL_SEQUENCE, _row);
+    }
+
+    @Override
+    public int getGtfsSequence() {
+      return getInt(COL_GTFS_SEQUENCE, _row);
+    }
+
+    @Override
+    public StopEntry getStop() {
+      return _stops.get(getInt(COL_STOP_INDEX, _row));
+    }
+
+    @Override
+    public int getArrivalTime() {
+      return getInt(COL_ARRIVAL_TIME, _row);
+    }
+
+    @Override
+    public int getDepartureTime() {
+      return getInt(COL_DEPARTURE_TIME, _row);
+    }
+
+    @Override
+    public OccupancyStatus getHistoricalOccupancy() {
+      return StopTimeColumns.this.getHistoricalOccupancy(_row);
+    }
+
+    @Override
+    public int getPickupType() {
+      return getInt(COL_PICKUP_TYPE, _row);
+    }
+
+    @Override
+    public int getDropOffType() {
+      return getInt(COL_DROP_OFF_TYPE, _row);
+    }
+
+    @Override
+    public int getShapePointIndex() {
+      return getInt(COL_SHAPE_POINT_INDEX, _row);
+    }
+
+    @Override
+    public double getShapeDistTraveled() {
+      return StopTimeColumns.this.getShapeDistTraveled(_row);
+    }
+
+    @Override
+    public int getSlackTime() {
+      return getDepartureTime() - getArrivalTime();
+    }
+
+    @Override
+    public int getAccumulatedSlackTime() {
+      return getInt(COL_ACCUMULATED_SLACK_TIME, _row);
+    }
+
+    @Override
+    public int getTotalStopsInTrip() {
+      return getInt(COL_TOTAL_STOPS_IN_TRIP, _row);
+    }
+
+    @Override
+    public void setShapePointIndex(int index) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setShapeDistTraveled(double distanceAlongShape) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setTrip(TripEntry tripEntry) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setTotalStopsInTrip(int size) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setArrivalTime(int arrivalTime) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDepartureTime(int departureTime) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccumulatedSlackTime(int accumulatedSlackTime) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+      return _row;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null || getClass() != obj.getClass())
+        return false;
+      StopTimeColumnEntry other = (StopTimeColumnEntry) obj;
+      return _row == other._row && getColumns() == other.getColumns();
+    }
+
+    @Override
+    public String toString() {
+      return "StopTimeColumnEntry(stop=" + getStop().getId() + " trip="
+          + _trip + " arrival=" + getArrivalTime() + " departure="
+          + getDepartureTime() + ")";
+    }
+
+    private StopTimeColumns getColumns() {
+      return StopTimeColumns.this;
+    }
+  }
+}
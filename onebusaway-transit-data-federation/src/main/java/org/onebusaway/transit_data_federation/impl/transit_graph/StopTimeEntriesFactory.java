@@ -22,6 +22,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.onebusaway.container.ConfigurationParameter;
 import org.onebusaway.geospatial.model.CoordinatePoint;
@@ -52,7 +53,7 @@ public class StopTimeEntriesFactory {
 
   private DistanceAlongShapeLibrary _distanceAlongShapeLibrary;
 
-  private long _invalidStopToShapeMappingExceptionCount;
+  private AtomicLong _invalidStopToShapeMappingExceptionCount = new AtomicLong();
   
   private boolean isLenientArrivalDepartureTimes = DEFAULT_LENIENT_MODE;
 
@@ -76,7 +77,7 @@ public class StopTimeEntriesFactory {
   }
 
   public long getInvalidStopToShapeMappingExceptionCount() {
-    return _invalidStopToShapeMappingExceptionCount;
+    return _invalidStopToShapeMappingExceptionCount.get();
   }
 
   public List<StopTimeEntry> processStopTimes(TransitGraphImpl graph,
@@ -257,7 +258,7 @@ private void removeDuplicateStopTimes(List<StopTime> stopTimes) {
             + point + " index=" + pindex.index + " distance="
             + pindex.distanceFromTarget);
       } catch (DistanceAlongShapeLibrary.DistanceAlongShapeException ex) {
-        _invalidStopToShapeMappingExceptionCount++;
+        _invalidStopToShapeMappingExceptionCount.incrementAndGet();
       } catch (IllegalArgumentException iae) {
         _log.warn("Stop has illegal coordinates along shapes=" + shapePoints);
       }
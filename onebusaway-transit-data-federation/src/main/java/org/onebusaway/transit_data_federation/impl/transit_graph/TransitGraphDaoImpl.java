@@ -78,6 +78,16 @@ public class TransitGraphDaoImpl implements TransitGraphDao {
       newGraph = ObjectSerializationLibrary.readObject(path);
       long delta = System.currentTimeMillis() - start;
       _log.info("Transit Graph load in {}s", delta/1000);
+
+      File stopTimesPath = _bundle.getTransitGraphStopTimesPath();
+      if (stopTimesPath.exists()) {
+        start = System.currentTimeMillis();
+        StopTimeColumns stopTimes = StopTimeColumns.map(stopTimesPath);
+        stopTimes.attach(newGraph);
+        delta = System.currentTimeMillis() - start;
+        _log.info("Transit Graph stop times ({} rows) mapped in {}ms",
+            stopTimes.getRowCount(), delta);
+      }
       newGraph.initialize();
     } else {
       newGraph = new TransitGraphImpl();
@@ -131,6 +141,12 @@ public class TransitGraphDaoImpl implements TransitGraphDao {
     return _graph.getStopsByLocation(bounds);
   }
 
+  @Override
+  public List<StopEntry> getNearestStops(double lat, double lon, int maxCount,
+      double maxRadius) {
+    return _graph.getNearestStops(lat, lon, maxCount, maxRadius);
+  }
+
   @Override
   public List<BlockEntry> getAllBlocks() {
     return _graph.getAllBlocks();
@@ -41,10 +41,6 @@ import org.onebusaway.transit_data_federation.model.transit_graph.TransitGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.ItemVisitor;
-import org.locationtech.jts.index.strtree.STRtree;
-
 public class TransitGraphImpl implements Serializable, TransitGraph {
 
   private static final long serialVersionUID = 2L;
@@ -77,7 +73,7 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
 
   private List<RouteEntryImpl> _routes = new ArrayList<RouteEntryImpl>();
 
-  private transient STRtree _stopLocationTree = null;
+  private transient StopLocationIndex _stopLocationIndex = null;
 
   private transient Map<String, AgencyEntryImpl> _agencyEntriesById = new HashMap<String, AgencyEntryImpl>();
 
@@ -110,11 +106,11 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
     _routes.clear();
     _agencies.clear();
 
-    _stopLocationTree = null;        
+    _stopLocationIndex = null;        
   }
   
   public void initialize() {
-    if (_stopLocationTree == null) {
+    if (_stopLocationIndex == null) {
       System.out.println("initializing transit graph...");
 
       if (_stops.size() == 0) {
@@ -123,17 +119,7 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
 
       } else {
 
-        _stopLocationTree = new STRtree(_stops.size());
-
-        for (int i = 0; i < _stops.size(); i++) {
-          StopEntry stop = _stops.get(i);
-          double x = stop.getStopLon();
-          double y = stop.getStopLat();
-          Envelope r = new Envelope(x, x, y, y);
-          _stopLocationTree.insert(r, stop);
-        }
-
-        _stopLocationTree.build();
+        _stopLocationIndex = new StopLocationIndex(_stops);
       }
 
       System.out.println("  stops=" + _stops.size());
@@ -322,27 +308,21 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
 
   @Override
   public List<StopEntry> getStopsByLocation(CoordinateBounds bounds) {
-    if (_stopLocationTree == null)
+    if (_stopLocationIndex == null)
       return Collections.emptyList();
-    Envelope r = new Envelope(bounds.getMinLon(), bounds.getMaxLon(),
-        bounds.getMinLat(), bounds.getMaxLat());
-    StopRTreeVisitor go = new StopRTreeVisitor();
-    _stopLocationTree.query(r, go);
-    return go.getStops();
+    List<StopEntry> stops = new ArrayList<StopEntry>();
+    _stopLocationIndex.getStopsInBounds(bounds, stops);
+    return stops;
   }
 
-  private class StopRTreeVisitor implements ItemVisitor {
-
-    private List<StopEntry> _nearbyStops = new ArrayList<StopEntry>();
-
-    public List<StopEntry> getStops() {
-      return _nearbyStops;
-    }
-
-    @Override
-    public void visitItem(Object obj) {
-      _nearbyStops.add((StopEntry) obj);
-    }
+  @Override
+  public List<StopEntry> getNearestStops(double lat, double lon, int maxCount,
+      double maxRadius) {
+    if (_stopLocationIndex == null)
+      return Collections.emptyList();
+    List<StopEntry> stops = new ArrayList<StopEntry>();
+    _stopLocationIndex.getNearestStops(lat, lon, maxCount, maxRadius, stops);
+    return stops;
   }
 
   /*****************************************************************************
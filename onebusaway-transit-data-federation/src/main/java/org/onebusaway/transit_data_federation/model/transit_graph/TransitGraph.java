@@ -40,6 +40,9 @@ public interface TransitGraph {
 
   public List<StopEntry> getStopsByLocation(CoordinateBounds bounds);
 
+  public List<StopEntry> getNearestStops(double lat, double lon, int maxCount,
+      double maxRadius);
+
   public BlockEntry getBlockEntryForId(AgencyAndId blockId);
 
   public TripEntry getTripEntryForId(AgencyAndId id);
@@ -16,9 +16,12 @@
 package org.onebusaway.transit_data_federation.services;
 
 import java.util.List;
+import java.util.Map;
 
 import org.onebusaway.transit_data_federation.model.TargetTime;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
 import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureInstance;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocation;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
 import org.onebusaway.transit_data_federation.model.StopTimeInstance;
 
@@ -39,6 +42,20 @@ public interface ArrivalAndDepartureService {
   public List<ArrivalAndDepartureInstance> getArrivalsAndDeparturesForStopInTimeRange(
       StopEntry stop, TargetTime targetTime, long fromTime, long toTime);
 
+  /**
+   * Same as
+   * {@link #getArrivalsAndDeparturesForStopInTimeRange(StopEntry, TargetTime, long, long)}
+   * , but block locations are looked up in, and added to, the supplied cache.
+   * Callers querying several stops at the same target time can share one cache
+   * so that a block serving more than one of the stops is only located once.
+   * 
+   * @param blockLocationCache block locations by block instance, all computed
+   *          for the same target time; may be null for no caching
+   */
+  public List<ArrivalAndDepartureInstance> getArrivalsAndDeparturesForStopInTimeRange(
+      StopEntry stop, TargetTime targetTime, long fromTime, long toTime,
+      Map<BlockInstance, List<BlockLocation>> blockLocationCache);
+
   /**
    * Determines the set of active arrivals and departures at a given stop, NOT
    * taking into account real-time arrival information.
@@ -60,6 +60,10 @@ public class FederatedTransitDataBundle {
     return new File(_path, "TransitGraph.obj");
   }
 
+  public File getTransitGraphStopTimesPath() {
+    return new File(_path, "TransitGraphStopTimes.bin");
+  }
+
   public File getNarrativeProviderPath() {
     return new File(_path, "NarrativeProvider.obj");
   }
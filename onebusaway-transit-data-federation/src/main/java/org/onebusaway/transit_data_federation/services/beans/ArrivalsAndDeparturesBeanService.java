@@ -15,7 +15,9 @@
  */
 package org.onebusaway.transit_data_federation.services.beans;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs.model.Stop;
@@ -43,6 +45,20 @@ public interface ArrivalsAndDeparturesBeanService {
   public List<ArrivalAndDepartureBean> getArrivalsAndDeparturesByStopId(
       AgencyAndId stopId, ArrivalsAndDeparturesQueryBean query);
 
+  /**
+   * Bulk form of
+   * {@link #getArrivalsAndDeparturesByStopId(AgencyAndId, ArrivalsAndDeparturesQueryBean)}
+   * . Block locations, trip status beans and stop beans are computed once for
+   * the whole request and shared between stops served by the same blocks.
+   * 
+   * @param stopIds see {@link Stop#getId()}
+   * @param query
+   * @return arrival and departure beans keyed by stop id, in the iteration
+   *         order of stopIds
+   */
+  public Map<AgencyAndId, List<ArrivalAndDepartureBean>> getArrivalsAndDeparturesByStopIds(
+      Collection<AgencyAndId> stopIds, ArrivalsAndDeparturesQueryBean query);
+
   /**
    * Return arrival and departure information for a single trip instance
    * arriving and departing a particular stop.
@@ -28,4 +28,13 @@ import java.util.List;
 public interface GeospatialBeanService {
   
   public List<AgencyAndId> getStopsByBounds(CoordinateBounds bounds);
+
+  /**
+   * @param lat
+   * @param lon
+   * @param radius in meters
+   * @return the ids of stops within the specified distance of the point
+   */
+  public List<AgencyAndId> getStopsWithinRadius(double lat, double lon,
+      double radius);
 }
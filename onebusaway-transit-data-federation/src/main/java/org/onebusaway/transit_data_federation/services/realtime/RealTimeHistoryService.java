@@ -26,4 +26,15 @@ public interface RealTimeHistoryService {
   public ScheduleDeviationSamples sampleScheduleDeviationsForVehicle(
       BlockInstance instance, VehicleLocationRecord record,
       ScheduledBlockLocation scheduledBlockLocation);
+
+  /**
+   * Records the schedule deviation of a real-time vehicle location so that it
+   * can contribute to the history of its trip.
+   * 
+   * @param record a vehicle location record with its schedule deviation set
+   * @param scheduledBlockLocation the scheduled location the deviation is
+   *          relative to
+   */
+  public void addScheduleDeviationSample(VehicleLocationRecord record,
+      ScheduledBlockLocation scheduledBlockLocation);
 }
@@ -82,6 +82,14 @@ public class VehicleLocationCacheEntry {
     return false;
   }
 
+  /**
+   * Close the entry to new elements, such as when it has been removed from the
+   * cache.
+   */
+  public synchronized void close() {
+    _closed = true;
+  }
+
   /**
    * 
    * @param time
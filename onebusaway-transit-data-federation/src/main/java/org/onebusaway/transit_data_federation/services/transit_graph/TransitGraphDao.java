@@ -61,6 +61,17 @@ public interface TransitGraphDao {
    */
   public List<StopEntry> getStopsByLocation(CoordinateBounds bounds);
 
+  /**
+   * @param lat query latitude
+   * @param lon query longitude
+   * @param maxCount the maximum number of stops to return
+   * @param maxRadius the maximum distance, in meters, of a returned stop
+   * @return up to maxCount stops within maxRadius of the query point, closest
+   *         first
+   */
+  public List<StopEntry> getNearestStops(double lat, double lon, int maxCount,
+      double maxRadius);
+
   /**
    * @return the list of all block entries in the transit graph
    */
@@ -16,6 +16,8 @@
 package org.onebusaway.transit_data_federation.siri;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
@@ -32,6 +34,7 @@ import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -162,11 +165,13 @@ public class SiriJsonSerializerV2 {
     }
   }
 
-  public String getJson(Siri siri) throws Exception {    
-    return getJson(siri, null);
-  }
+  /**
+   * Configured once; an ObjectWriter is immutable and safe to share, and each
+   * call works on its own copy of the date format.
+   */
+  private final ObjectWriter _writer;
 
-  public String getJson(Siri siri, String callback) throws Exception {    
+  public SiriJsonSerializerV2() {
     ObjectMapper mapper = new ObjectMapper();    
     mapper.setSerializationInclusion(Include.NON_EMPTY);
     mapper.setPropertyNamingStrategy(PropertyNamingStrategy.UPPER_CAMEL_CASE);
@@ -179,17 +184,37 @@ public class SiriJsonSerializerV2 {
     SiriJsonSerializerV2.SiriJacksonModule module = new SiriJsonSerializerV2.SiriJacksonModule();
     mapper.registerModule(module);
 
-    String output = "";
+    _writer = mapper.writer();
+  }
+
+  public String getJson(Siri siri) throws Exception {    
+    return getJson(siri, null);
+  }
+
+  public String getJson(Siri siri, String callback) throws Exception {    
+    StringWriter output = new StringWriter();
+    writeJson(siri, output, callback);
+    return output.toString();
+  }
+
+  /**
+   * Writes the SIRI document to the given writer, wrapped in the callback if
+   * there is one. The writer is flushed but not closed.
+   */
+  public void writeJson(Siri siri, Writer output, String callback)
+      throws Exception {
 
     if(callback != null)
-      output = callback + "(";
+      output.write(callback + "(");
 
-    output += mapper.writeValueAsString(siri);
+    JsonGenerator generator = _writer.getFactory().createGenerator(output);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    _writer.writeValue(generator, siri);
 
     if(callback != null)
-      output += ")";
+      output.write(")");
 
-    return output;
+    output.flush();
   }
 
 }
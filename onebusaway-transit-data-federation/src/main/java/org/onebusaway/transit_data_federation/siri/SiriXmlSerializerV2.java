@@ -17,37 +17,59 @@ package org.onebusaway.transit_data_federation.siri;
 
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
 
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import uk.org.siri.siri_2.Siri;
 
-/** 
+/**
  * Serializer for XSD-generated SIRI classes, creating XML in the format suitable
  * for Bus Time front-ends and third-party apps.
- * 
+ *
+ * Marshallers are expensive to create and not thread-safe, so they are pooled
+ * and reused across calls. The document is written through a StAX writer that
+ * drops the wrapper elements of the SIRI extensions on the way out, so it can
+ * go straight to the response without being held as a String first.
+ *
  * @author jmaki
  *
  */
 public class SiriXmlSerializerV2 {
 
-  private JAXBContext context = null;
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+  private static final Set<String> EXTENSION_WRAPPER_ELEMENTS = new HashSet<String>(
+      Arrays.asList("siriExtensionWrapper", "siriUpcomingServiceExtension",
+          "siriPolyLinesExtension"));
+
   private static Logger _log = LoggerFactory.getLogger(SiriXmlSerializerV2.class);
 
+  private final XMLOutputFactory _outputFactory = XMLOutputFactory.newInstance();
+
+  private final Queue<Marshaller> _marshallers = new ConcurrentLinkedQueue<Marshaller>();
+
+  private JAXBContext context = null;
+
   public SiriXmlSerializerV2() {
     try {
       context = JAXBContext.newInstance(
           Siri.class,
-          SiriExtensionWrapper.class, 
-          SiriDistanceExtension.class, 
+          SiriExtensionWrapper.class,
+          SiriDistanceExtension.class,
           SiriUpcomingServiceExtension.class,
           SiriPolyLinesExtension.class);
     } catch(Exception e) {
@@ -55,9 +77,55 @@ public class SiriXmlSerializerV2 {
     }
   }
 
-  public String getXml(Siri siri) throws Exception {    
+  public String getXml(Siri siri) throws Exception {
+    StringWriter output = new StringWriter();
+    writeXml(siri, output);
+    return output.toString();
+  }
+
+  /**
+   * Writes the SIRI document to the given writer, which is flushed but not
+   * closed.
+   */
+  public void writeXml(Siri siri, Writer output) throws Exception {
+
+    output.write(XML_DECLARATION);
+
+    XMLStreamWriter xmlWriter = new UnwrappingXMLStreamWriter(
+        _outputFactory.createXMLStreamWriter(output),
+        EXTENSION_WRAPPER_ELEMENTS);
+
+    Marshaller marshaller = _marshallers.poll();
+    if (marshaller == null)
+      marshaller = createMarshaller();
+
+    // a marshaller that failed part way may be left in a bad state, so only
+    // return it to the pool after a clean run
+    marshaller.marshal(siri, xmlWriter);
+    _marshallers.offer(marshaller);
+
+    xmlWriter.flush();
+    output.flush();
+  }
+
+  /*
+  public Siri fromXml(String xml) throws JAXBException {
+    Unmarshaller u = context.createUnmarshaller();
+    Siri siri = (Siri) u.unmarshal(new StringReader(xml));
+
+    return siri;
+  }
+  */
+
+  /****
+   * Private Methods
+   ****/
+
+  private Marshaller createMarshaller() throws JAXBException {
     Marshaller marshaller = context.createMarshaller();
     marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+    // the declaration is written ahead of the StAX writer
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
     marshaller.setEventHandler(
         new ValidationEventHandler() {
             public boolean handleEvent(ValidationEvent event ) {
@@ -66,42 +134,6 @@ public class SiriXmlSerializerV2 {
             }
         }
     );
-    
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    dbf.setNamespaceAware(true);
-
-    Writer output = new StringWriter();
-    marshaller.marshal(siri, output);
-
-    // FIXME: strip off ns6 namespaces on siri root namespace. super hack, please fix me!
-    String outputAsString = output.toString();   
-
-    /*outputAsString = outputAsString.replaceAll("<ns6:", "<");
-    outputAsString = outputAsString.replaceAll("</ns6:", "</");
-    outputAsString = outputAsString.replaceAll("xmlns:ns6", "xmlns");
-*/
-
-    String[] searchList = {
-      "<siriExtensionWrapper>", 
-      "</siriExtensionWrapper>",
-      "<siriUpcomingServiceExtension>",
-      "</siriUpcomingServiceExtension>",
-      "<siriPolyLinesExtension>",
-      "</siriPolyLinesExtension>"
-  };
-    
-    String[] replacementList = {"","","","","",""};
-    
-    outputAsString = StringUtils.replaceEach(outputAsString, searchList, replacementList);
-
-    return outputAsString;
+    return marshaller;
   }
-  /*
-  public Siri fromXml(String xml) throws JAXBException {
-    Unmarshaller u = context.createUnmarshaller();
-    Siri siri = (Siri) u.unmarshal(new StringReader(xml));
-    
-    return siri;
-  }
-  */
 }
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.siri;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * An {@link XMLStreamWriter} that passes everything through to another writer
+ * except for the start and end tags of the named elements, whose content ends
+ * up directly inside their parent. {@link SiriXmlSerializerV2} uses it to drop
+ * the root elements JAXB writes for the SIRI extension classes as the document
+ * is written, rather than stripping them from the finished text.
+ */
+class UnwrappingXMLStreamWriter implements XMLStreamWriter {
+
+  private final XMLStreamWriter _delegate;
+
+  private final Set<String> _unwrappedElementNames;
+
+  /**
+   * One bit per open element, set when that element's tags are being dropped
+   */
+  private final BitSet _unwrapped = new BitSet();
+
+  private int _depth = 0;
+
+  public UnwrappingXMLStreamWriter(XMLStreamWriter delegate,
+      Set<String> unwrappedElementNames) {
+    _delegate = delegate;
+    _unwrappedElementNames = unwrappedElementNames;
+  }
+
+  @Override
+  public void writeStartElement(String localName) throws XMLStreamException {
+    if (push(localName))
+      _delegate.writeStartElement(localName);
+  }
+
+  @Override
+  public void writeStartElement(String namespaceURI, String localName)
+      throws XMLStreamException {
+    if (push(localName))
+      _delegate.writeStartElement(namespaceURI, localName);
+  }
+
+  @Override
+  public void writeStartElement(String prefix, String localName,
+      String namespaceURI) throws XMLStreamException {
+    if (push(localName))
+      _delegate.writeStartElement(prefix, localName, namespaceURI);
+  }
+
+  @Override
+  public void writeEmptyElement(String namespaceURI, String localName)
+      throws XMLStreamException {
+    if (!_unwrappedElementNames.contains(localName))
+      _delegate.writeEmptyElement(namespaceURI, localName);
+  }
+
+  @Override
+  public void writeEmptyElement(String prefix, String localName,
+      String namespaceURI) throws XMLStreamException {
+    if (!_unwrappedElementNames.contains(localName))
+      _delegate.writeEmptyElement(prefix, localName, namespaceURI);
+  }
+
+  @Override
+  public void writeEmptyElement(String localName) throws XMLStreamException {
+    if (!_unwrappedElementNames.contains(localName))
+      _delegate.writeEmptyElement(localName);
+  }
+
+  @Override
+  public void writeEndElement() throws XMLStreamException {
+    if (_depth == 0) {
+      _delegate.writeEndElement();
+      return;
+    }
+    _depth--;
+    if (!_unwrapped.get(_depth))
+      _delegate.writeEndElement();
+  }
+
+  @Override
+  public void writeEndDocument() throws XMLStreamException {
+    _delegate.writeEndDocument();
+  }
+
+  @Override
+  public void close() throws XMLStreamException {
+    _delegate.close();
+  }
+
+  @Override
+  public void flush() throws XMLStreamException {
+    _delegate.flush();
+  }
+
+  @Override
+  public void writeAttribute(String localName, String value)
+      throws XMLStreamException {
+    if (!isCurrentElementUnwrapped())
+      _delegate.writeAttribute(localName, value);
+  }
+
+  @Override
+  public void writeAttribute(String prefix, String namespaceURI,
+      String localName, String value) throws XMLStreamException {
+    if (!isCurrentElementUnwrapped())
+      _delegate.writeAttribute(prefix, namespaceURI, localName, value);
+  }
+
+  @Override
+  public void writeAttribute(String namespaceURI, String localName,
+      String value) throws XMLStreamException {
+    if (!isCurrentElementUnwrapped())
+      _delegate.writeAttribute(namespaceURI, localName, value);
+  }
+
+  @Override
+  public void writeNamespace(String prefix, String namespaceURI)
+      throws XMLStreamException {
+    if (!isCurrentElementUnwrapped())
+      _delegate.writeNamespace(prefix, namespaceURI);
+  }
+
+  @Override
+  public void writeDefaultNamespace(String namespaceURI)
+      throws XMLStreamException {
+    if (!isCurrentElementUnwrapped())
+      _delegate.writeDefaultNamespace(namespaceURI);
+  }
+
+  @Override
+  public void writeComment(String data) throws XMLStreamException {
+    _delegate.writeComment(data);
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target)
+      throws XMLStreamException {
+    _delegate.writeProcessingInstruction(target);
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target, String data)
+      throws XMLStreamException {
+    _delegate.writeProcessingInstruction(target, data);
+  }
+
+  @Override
+  public void writeCData(String data) throws XMLStreamException {
+    _delegate.writeCData(data);
+  }
+
+  @Override
+  public void writeDTD(String dtd) throws XMLStreamException {
+    _delegate.writeDTD(dtd);
+  }
+
+  @Override
+  public void writeEntityRef(String name) throws XMLStreamException {
+    _delegate.writeEntityRef(name);
+  }
+
+  @Override
+  public void writeStartDocument() throws XMLStreamException {
+    _delegate.writeStartDocument();
+  }
+
+  @Override
+  public void writeStartDocument(String version) throws XMLStreamException {
+    _delegate.writeStartDocument(version);
+  }
+
+  @Override
+  public void writeStartDocument(String encoding, String version)
+      throws XMLStreamException {
+    _delegate.writeStartDocument(encoding, version);
+  }
+
+  @Override
+  public void writeCharacters(String text) throws XMLStreamException {
+    _delegate.writeCharacters(text);
+  }
+
+  @Override
+  public void writeCharacters(char[] text, int start, int len)
+      throws XMLStreamException {
+    _delegate.writeCharacters(text, start, len);
+  }
+
+  @Override
+  public String getPrefix(String uri) throws XMLStreamException {
+    return _delegate.getPrefix(uri);
+  }
+
+  @Override
+  public void setPrefix(String prefix, String uri) throws XMLStreamException {
+    _delegate.setPrefix(prefix, uri);
+  }
+
+  @Override
+  public void setDefaultNamespace(String uri) throws XMLStreamException {
+    _delegate.setDefaultNamespace(uri);
+  }
+
+  @Override
+  public void setNamespaceContext(NamespaceContext context)
+      throws XMLStreamException {
+    _delegate.setNamespaceContext(context);
+  }
+
+  @Override
+  public NamespaceContext getNamespaceContext() {
+    return _delegate.getNamespaceContext();
+  }
+
+  @Override
+  public Object getProperty(String name) throws IllegalArgumentException {
+    return _delegate.getProperty(name);
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * Records a newly opened element, returning true if its start tag should be
+   * written
+   */
+  private boolean push(String localName) {
+    boolean unwrapped = _unwrappedElementNames.contains(localName);
+    _unwrapped.set(_depth++, unwrapped);
+    return !unwrapped;
+  }
+
+  private boolean isCurrentElementUnwrapped() {
+    return _depth > 0 && _unwrapped.get(_depth - 1);
+  }
+}
@@ -51,9 +51,11 @@ import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.StopTimeEntryImpl;
 import org.onebusaway.transit_data_federation.services.blocks.BlockStopTimeIndex;
 import org.onebusaway.transit_data_federation.services.blocks.BlockTripIndex;
+import org.onebusaway.transit_data_federation.services.StopTimeService.EFrequencyStopTimeBehavior;
 import org.onebusaway.transit_data_federation.services.blocks.StaticBlockIndexService;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.ServiceIdActivation;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 import org.onebusaway.transit_data_federation.model.StopTimeInstance;
 
@@ -452,6 +454,101 @@ public class StopTimeServiceImplTest {
 
   }
 
+  @Test
+  public void testDepartureIndexMatchesStopTimeIndices() {
+
+    StopTimeEntryImpl stA = stopTime(0, _stop, trip("A", "sA"), time(10, 00),
+        time(10, 30), 0);
+    StopTimeEntryImpl stB = stopTime(1, _stop, trip("B", "sA"), time(25, 0),
+        time(25, 30), 0);
+    StopTimeEntryImpl stC = stopTime(2, _stop, trip("C", "sB"), time(10, 00),
+        time(10, 30), 0);
+    StopTimeEntryImpl stD = stopTime(3, _stop, trip("D", "sB"), time(25, 0),
+        time(25, 30), 0);
+
+    BlockConfigurationEntry bA = linkBlockTrips("bA", stA.getTrip());
+    BlockConfigurationEntry bB = linkBlockTrips("bB", stB.getTrip());
+    BlockConfigurationEntry bC = linkBlockTrips("bC", stC.getTrip());
+    BlockConfigurationEntry bD = linkBlockTrips("bD", stD.getTrip());
+
+    addFirstStopToBlockIndex(bA, bB);
+    addFirstStopToBlockIndex(bC, bD);
+
+    StopTimeServiceImpl perIndexService = new StopTimeServiceImpl();
+    perIndexService.setTransitGraphDao(_transitGraphDao);
+    perIndexService.setCalendarService(_calendarService);
+    perIndexService.setBlockIndexService(_blockIndexService);
+    perIndexService.setUseDepartureIndex(false);
+
+    String[][] ranges = {
+        {"2009-08-31 00:00", "2009-09-01 12:00"},
+        {"2009-09-01 10:10", "2009-09-01 10:40"},
+        {"2009-09-01 12:00", "2009-09-02 12:00"},
+        {"2009-09-02 01:00", "2009-09-02 01:00"},
+        {"2009-09-02 10:10", "2009-09-03 10:40"},
+        {"2009-09-03 12:00", "2009-09-04 12:00"},
+        {"2009-08-30 00:00", "2009-09-05 00:00"}};
+
+    for (String[] range : ranges) {
+      Date from = date(range[0]);
+      Date to = date(range[1]);
+      List<StopTimeInstance> expected = perIndexService.getStopTimeInstancesInTimeRange(
+          _stop, from, to, EFrequencyStopTimeBehavior.INCLUDE_UNSPECIFIED);
+      List<StopTimeInstance> actual = _service.getStopTimeInstancesInTimeRange(
+          _stop, from, to, EFrequencyStopTimeBehavior.INCLUDE_UNSPECIFIED);
+      sort(expected);
+      sort(actual);
+      assertEquals(range[0] + " - " + range[1], expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        StopTimeInstance e = expected.get(i);
+        StopTimeInstance a = actual.get(i);
+        assertEquals(e.getTrip().getTrip().getId(),
+            a.getTrip().getTrip().getId());
+        assertEquals(e.getServiceDate(), a.getServiceDate());
+        assertEquals(e.getArrivalTime(), a.getArrivalTime());
+        assertEquals(e.getDepartureTime(), a.getDepartureTime());
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedQueryReusesDepartureIndices() {
+
+    StopTimeEntryImpl stA = stopTime(0, _stop, trip("A", "sA"), time(10, 00),
+        time(10, 30), 0);
+    StopTimeEntryImpl stB = stopTime(1, _stop, trip("B", "sA"), time(25, 0),
+        time(25, 30), 0);
+
+    BlockConfigurationEntry bA = linkBlockTrips("bA", stA.getTrip());
+    BlockConfigurationEntry bB = linkBlockTrips("bB", stB.getTrip());
+
+    addFirstStopToBlockIndex(bA, bB);
+
+    ExtendedCalendarServiceImpl calendarService = Mockito.spy(_calendarService);
+    _service.setCalendarService(calendarService);
+
+    // with overnight service the query spans more service dates than we keep
+    _service.setMaxDepartureIndexServiceDates(3);
+
+    Date from = date("2009-09-02 10:10");
+    Date to = date("2009-09-02 10:40");
+
+    List<StopTimeInstance> results = _service.getStopTimeInstancesInTimeRange(
+        _stopId, from, to);
+    assertEquals(1, results.size());
+
+    // departure indices are built by checking service activation per date
+    Mockito.verify(calendarService, Mockito.atLeastOnce()).areServiceIdsActiveOnServiceDate(
+        Mockito.any(ServiceIdActivation.class), Mockito.any(Date.class));
+    Mockito.clearInvocations(calendarService);
+
+    results = _service.getStopTimeInstancesInTimeRange(_stopId, from, to);
+    assertEquals(1, results.size());
+
+    Mockito.verify(calendarService, Mockito.never()).areServiceIdsActiveOnServiceDate(
+        Mockito.any(ServiceIdActivation.class), Mockito.any(Date.class));
+  }
+
   /****
    * Private Methods
    ****/
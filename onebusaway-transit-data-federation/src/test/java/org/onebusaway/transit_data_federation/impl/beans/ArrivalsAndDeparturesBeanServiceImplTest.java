@@ -28,14 +28,17 @@ import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.model.ArrivalAndDepartureBean;
 import org.onebusaway.transit_data.model.ArrivalsAndDeparturesQueryBean;
 import org.onebusaway.transit_data.model.StopBean;
@@ -447,6 +450,92 @@ public class ArrivalsAndDeparturesBeanServiceImplTest {
     assertEquals("default", bean.getStatus());
   }
 
+  /**
+   * stops served by the same block share its trip status within a bulk request
+   */
+  @Test
+  public void testGetArrivalsAndDeparturesByStopIds() {
+
+    long stopTimeFrom = t - minutesBefore * 60 * 1000;
+    long stopTimeTo = t + minutesAfter * 60 * 1000;
+
+    StopTimeInstance stiB = new StopTimeInstance(bstBB, blockInstanceB.getState());
+    ArrivalAndDepartureInstance inB = new ArrivalAndDepartureInstance(stiB);
+    inB.setBlockLocation(blockLocationB);
+
+    StopTimeInstance stiC = new StopTimeInstance(bstCB, blockInstanceC.getState());
+    ArrivalAndDepartureInstance inCAtB = new ArrivalAndDepartureInstance(stiC);
+    inCAtB.setBlockLocation(blockLocationC);
+    ArrivalAndDepartureInstance inCAtC = new ArrivalAndDepartureInstance(stiC);
+    inCAtC.setBlockLocation(blockLocationC);
+
+    TargetTime target = new TargetTime(t, t);
+
+    Mockito.when(
+        _arrivalAndDepartureService.getArrivalsAndDeparturesForStopInTimeRange(
+            Mockito.eq(stopB), Mockito.eq(target), Mockito.eq(stopTimeFrom),
+            Mockito.eq(stopTimeTo), Mockito.anyMap())).thenReturn(
+        Arrays.asList(inB, inCAtB));
+
+    Mockito.when(
+        _arrivalAndDepartureService.getArrivalsAndDeparturesForStopInTimeRange(
+            Mockito.eq(stopC), Mockito.eq(target), Mockito.eq(stopTimeFrom),
+            Mockito.eq(stopTimeTo), Mockito.anyMap())).thenReturn(
+        Arrays.asList(inCAtC));
+
+    Mockito.when(_narrativeService.getStopTimeForEntry(stopTimeBB)).thenReturn(
+        StopTimeNarrative.builder().create());
+    Mockito.when(_narrativeService.getStopTimeForEntry(stopTimeCB)).thenReturn(
+        StopTimeNarrative.builder().create());
+
+    StopBean stopCBean = new StopBean();
+    stopCBean.setId("1_stopC");
+    Mockito.when(_stopBeanService.getStopForId(stopC.getId(), null)).thenReturn(
+        stopCBean);
+
+    Mockito.when(_tripBeanService.getTripForId(aid("tripB"))).thenReturn(
+        new TripBean());
+    Mockito.when(_tripBeanService.getTripForId(aid("tripC"))).thenReturn(
+        new TripBean());
+
+    TripStatusBean tripStatusBeanB = new TripStatusBean();
+    TripStatusBean tripStatusBeanC = new TripStatusBean();
+    Mockito.when(
+        _tripDetailsBeanService.getBlockLocationAsStatusBean(blockLocationB, t)).thenReturn(
+        tripStatusBeanB);
+    Mockito.when(
+        _tripDetailsBeanService.getBlockLocationAsStatusBean(blockLocationC, t)).thenReturn(
+        tripStatusBeanC);
+
+    ArrivalsAndDeparturesQueryBean query = new ArrivalsAndDeparturesQueryBean();
+    query.setTime(t);
+    query.setMinutesBefore(minutesBefore);
+    query.setMinutesAfter(minutesAfter);
+    query.setFrequencyMinutesBefore(minutesBefore);
+    query.setFrequencyMinutesAfter(minutesAfter);
+
+    Map<AgencyAndId, List<ArrivalAndDepartureBean>> results = _service.getArrivalsAndDeparturesByStopIds(
+        Arrays.asList(stopC.getId(), stopB.getId()), query);
+
+    assertEquals(Arrays.asList(stopC.getId(), stopB.getId()),
+        new ArrayList<AgencyAndId>(results.keySet()));
+
+    List<ArrivalAndDepartureBean> atC = results.get(stopC.getId());
+    assertEquals(1, atC.size());
+    assertSame(tripStatusBeanC, atC.get(0).getTripStatus());
+
+    List<ArrivalAndDepartureBean> atB = results.get(stopB.getId());
+    assertEquals(2, atB.size());
+    assertSame(tripStatusBeanB, atB.get(0).getTripStatus());
+    assertSame(tripStatusBeanC, atB.get(1).getTripStatus());
+
+    // the shared block location is only turned into a trip status once
+    Mockito.verify(_tripDetailsBeanService, Mockito.times(1)).getBlockLocationAsStatusBean(
+        blockLocationC, t);
+    Mockito.verify(_stopBeanService, Mockito.times(1)).getStopForId(
+        stopC.getId(), null);
+  }
+
   /**
    * confirm CANCELED trips flow through API when enabled.
    * BlockA is cancelled, others are active
@@ -25,8 +25,6 @@ import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
-import org.onebusaway.geospatial.model.CoordinateBounds;
-import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.model.StopBean;
 import org.onebusaway.transit_data_federation.services.beans.StopsBeanService;
@@ -67,9 +65,9 @@ public class NearbyStopsBeanServiceImplTest {
     stopIds.add(stopIdA);
     stopIds.add(stopIdB);
 
-    CoordinateBounds bounds = SphericalGeometryLibrary.bounds(stop.getLat(),
-        stop.getLon(), 400);
-    Mockito.when(_geoBeanService.getStopsByBounds(bounds)).thenReturn(stopIds);
+    Mockito.when(
+        _geoBeanService.getStopsWithinRadius(stop.getLat(), stop.getLon(), 400)).thenReturn(
+        stopIds);
 
     List<AgencyAndId> nearby = _service.getNearbyStops(stop, 400);
     assertEquals(1, nearby.size());
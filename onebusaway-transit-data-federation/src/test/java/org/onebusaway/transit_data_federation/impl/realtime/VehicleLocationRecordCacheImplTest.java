@@ -178,6 +178,46 @@ public class VehicleLocationRecordCacheImplTest {
     assertEquals(1, records.size());
   }
 
+  @Test
+  public void testBlockInstanceChange() {
+
+    long serviceDate = System.currentTimeMillis();
+
+    BlockEntryImpl blockA = block("blockA");
+    TripEntryImpl tripA = trip("tripA", "serviceId");
+    stopTime(0, null, tripA, time(9, 00), 0);
+    BlockConfigurationEntry blockConfigA = linkBlockTrips(blockA, tripA);
+    BlockInstance instanceA = new BlockInstance(blockConfigA, serviceDate);
+
+    BlockEntryImpl blockB = block("blockB");
+    TripEntryImpl tripB = trip("tripB", "serviceId");
+    stopTime(0, null, tripB, time(9, 00), 0);
+    BlockConfigurationEntry blockConfigB = linkBlockTrips(blockB, tripB);
+    BlockInstance instanceB = new BlockInstance(blockConfigB, serviceDate);
+
+    VehicleLocationRecordCacheImpl cache = new VehicleLocationRecordCacheImpl();
+
+    cache.addRecord(instanceA,
+        record(20, "blockA", serviceDate, "vehicleA", 10.0), null, null);
+    cache.addRecord(instanceA,
+        record(20, "blockA", serviceDate, "vehicleB", 10.0), null, null);
+    cache.addRecord(instanceB,
+        record(30, "blockB", serviceDate, "vehicleA", 20.0), null, null);
+
+    List<VehicleLocationCacheElements> records = cache.getRecordsForBlockInstance(instanceA);
+    assertEquals(1, records.size());
+    assertEquals(aid("vehicleB"),
+        records.get(0).getLastElement().getRecord().getVehicleId());
+
+    records = cache.getRecordsForBlockInstance(instanceB);
+    assertEquals(1, records.size());
+    assertEquals(30, records.get(0).getLastElement().getRecord().getTimeOfRecord());
+    assertSame(records.get(0), cache.getRecordForVehicleId(aid("vehicleA")));
+
+    cache.clearRecordsForVehicleId(aid("vehicleB"));
+    assertEquals(0, cache.getRecordsForBlockInstance(instanceA).size());
+  }
+
   @Test
   public void testConcurrentOperations() {
 
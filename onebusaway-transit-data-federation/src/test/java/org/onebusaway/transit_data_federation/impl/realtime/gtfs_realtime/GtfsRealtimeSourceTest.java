@@ -0,0 +1,320 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime.gtfs_realtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.blockConfiguration;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.serviceIds;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.onebusaway.geospatial.model.CoordinatePoint;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.realtime.api.VehicleLocationListener;
+import org.onebusaway.realtime.api.VehicleLocationRecord;
+import org.onebusaway.realtime.api.VehicleOccupancyListener;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocation;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocationService;
+
+import com.google.transit.realtime.GtfsRealtime.Position;
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import com.google.transit.realtime.GtfsRealtime.VehicleDescriptor;
+import com.google.transit.realtime.GtfsRealtime.VehiclePosition;
+
+public class GtfsRealtimeSourceTest {
+
+  private GtfsRealtimeSource _source;
+
+  private GtfsRealtimeTripLibrary _library;
+
+  private VehicleLocationListener _listener;
+
+  private BlockLocationService _blockLocationService;
+
+  private Map<String, Thread> _matchingThreads = new ConcurrentHashMap<String, Thread>();
+
+  @Before
+  public void before() throws Exception {
+    _library = Mockito.mock(GtfsRealtimeTripLibrary.class);
+    Mockito.when(_library.ensureMillis(Mockito.anyLong())).thenAnswer(
+        AdditionalAnswers.returnsFirstArg());
+    Mockito.when(
+        _library.createVehicleLocationRecordForUpdate(Mockito.any(),
+            Mockito.any(CombinedTripUpdatesAndVehiclePosition.class))).thenAnswer(
+        new Answer<VehicleLocationRecord>() {
+          @Override
+          public VehicleLocationRecord answer(InvocationOnMock invocation) {
+            MonitoredResult result = invocation.getArgument(0);
+            CombinedTripUpdatesAndVehiclePosition update = invocation.getArgument(1);
+            _matchingThreads.put(update.block.getVehicleId(),
+                Thread.currentThread());
+            result.addMatchedTripId(update.block.getVehicleId());
+            result.addLatLon(update.vehiclePosition.getPosition().getLatitude(),
+                update.vehiclePosition.getPosition().getLongitude());
+            VehicleLocationRecord record = new VehicleLocationRecord();
+            record.setVehicleId(new AgencyAndId("1", update.block.getVehicleId()));
+            record.setTimeOfRecord(update.vehiclePosition.getTimestamp());
+            return record;
+          }
+        });
+
+    _listener = Mockito.mock(VehicleLocationListener.class);
+    _blockLocationService = Mockito.mock(BlockLocationService.class);
+
+    _source = createSource(_listener);
+  }
+
+  @Test
+  public void testUnchangedUpdate() {
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+
+    Mockito.verify(_library, Mockito.times(1)).createVehicleLocationRecordForUpdate(
+        Mockito.any(), Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+    Mockito.verify(_listener, Mockito.times(1)).handleVehicleLocationRecord(
+        Mockito.any(VehicleLocationRecord.class));
+    Mockito.verify(_listener, Mockito.never()).resetVehicleLocation(
+        Mockito.any(AgencyAndId.class));
+  }
+
+  @Test
+  public void testChangedUpdate() {
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.001, 2000)));
+
+    Mockito.verify(_library, Mockito.times(2)).createVehicleLocationRecordForUpdate(
+        Mockito.any(), Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+    Mockito.verify(_listener, Mockito.times(2)).handleVehicleLocationRecord(
+        Mockito.any(VehicleLocationRecord.class));
+    Mockito.verify(_listener, Mockito.never()).resetVehicleLocation(
+        Mockito.any(AgencyAndId.class));
+  }
+
+  @Test
+  public void testVanishedVehicle() {
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000), update("vB", 47.0, 1000)));
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+
+    Mockito.verify(_listener).resetVehicleLocation(new AgencyAndId("1", "vB"));
+    Mockito.verify(_listener, Mockito.never()).resetVehicleLocation(
+        new AgencyAndId("1", "vA"));
+  }
+
+  @Test
+  public void testUnchangedUpdateIsRevalidated() {
+    _source.setMaxDeltaLocationMeters(100);
+    Mockito.when(
+        _blockLocationService.getScheduledLocationForBlockInstance(
+            Mockito.any(), Mockito.anyLong())).thenReturn(
+        blockLocation(47.0, -122.0), blockLocation(48.0, -122.0));
+
+    MonitoredResult result = new MonitoredResult();
+    _source.handleCombinedUpdates(result,
+        Arrays.asList(update("vA", 47.0, 1000)));
+    assertEquals(0, result.getUnmatchedTripIds().size());
+
+    // the vehicle is no longer where it is scheduled to be by now
+    result = new MonitoredResult();
+    _source.handleCombinedUpdates(result,
+        Arrays.asList(update("vA", 47.0, 1000)));
+    assertTrue(result.getUnmatchedTripIds().contains("tripA"));
+
+    Mockito.verify(_library, Mockito.times(1)).createVehicleLocationRecordForUpdate(
+        Mockito.any(), Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+    Mockito.verify(_listener).resetVehicleLocation(new AgencyAndId("1", "vA"));
+  }
+
+  @Test
+  public void testUnchangedUpdateMetrics() {
+    Mockito.doAnswer(new Answer<VehicleLocationRecord>() {
+      @Override
+      public VehicleLocationRecord answer(InvocationOnMock invocation) {
+        MonitoredResult result = invocation.getArgument(0);
+        CombinedTripUpdatesAndVehiclePosition update = invocation.getArgument(1);
+        AgencyAndId tripId = new AgencyAndId("1",
+            update.getTripUpdates().get(0).getTrip().getTripId());
+        result.addMatchedTripId(tripId.toString());
+        result.addMatchedStopId("stopA");
+        result.addLatLon(update.vehiclePosition.getPosition().getLatitude(),
+            update.vehiclePosition.getPosition().getLongitude());
+        VehicleLocationRecord record = new VehicleLocationRecord();
+        record.setVehicleId(new AgencyAndId("1", update.block.getVehicleId()));
+        record.setTripId(tripId);
+        record.setTimeOfRecord(update.vehiclePosition.getTimestamp());
+        return record;
+      }
+    }).when(_library).createVehicleLocationRecordForUpdate(Mockito.any(),
+        Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+
+    MonitoredResult first = new MonitoredResult();
+    _source.handleCombinedUpdates(first,
+        Arrays.asList(update("vA", 47.0, 1000)));
+
+    MonitoredResult second = new MonitoredResult();
+    _source.handleCombinedUpdates(second,
+        Arrays.asList(update("vA", 47.0, 1000)));
+
+    Mockito.verify(_library, Mockito.times(1)).createVehicleLocationRecordForUpdate(
+        Mockito.any(), Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+    assertEquals(1, second.getMatchedTripIds().size());
+    assertTrue(second.getMatchedTripIds().contains("1_tripA"));
+    assertEquals(0, second.getUnmatchedTripIds().size());
+    assertEquals(first.getMatchedStopIds(), second.getMatchedStopIds());
+    assertEquals(first.getAllCoordinates(), second.getAllCoordinates());
+    assertEquals(1, second.getAllCoordinates().size());
+  }
+
+  @Test
+  public void testNycDynamicTripIsMatchedEveryPoll() {
+    Mockito.when(
+        _library.isNycDynamicTrip(Mockito.any(CombinedTripUpdatesAndVehiclePosition.class))).thenReturn(
+        true);
+
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+    _source.handleCombinedUpdates(new MonitoredResult(),
+        Arrays.asList(update("vA", 47.0, 1000)));
+
+    Mockito.verify(_library, Mockito.times(2)).createVehicleLocationRecordForUpdate(
+        Mockito.any(), Mockito.any(CombinedTripUpdatesAndVehiclePosition.class));
+  }
+
+  @Test
+  public void testPartitionedMatching() throws Exception {
+    // trip updates alone mark the update for vehicle v3 as a dynamic trip
+    Mockito.when(
+        _library.isNycDynamicTrip(Mockito.any(CombinedTripUpdatesAndVehiclePosition.class))).thenAnswer(
+        new Answer<Boolean>() {
+          @Override
+          public Boolean answer(InvocationOnMock invocation) {
+            CombinedTripUpdatesAndVehiclePosition update = invocation.getArgument(0);
+            return "v3".equals(update.block.getVehicleId());
+          }
+        });
+
+    List<CombinedTripUpdatesAndVehiclePosition> updates = new ArrayList<CombinedTripUpdatesAndVehiclePosition>();
+    for (int i = 0; i < 12; i++) {
+      updates.add(update("v" + i, 47.0 + i * 0.01, 1000 + i));
+    }
+
+    MonitoredResult serialResult = new MonitoredResult();
+    _source.handleCombinedUpdates(serialResult, updates);
+
+    VehicleLocationListener listener = Mockito.mock(VehicleLocationListener.class);
+    GtfsRealtimeSource partitionedSource = createSource(listener);
+    partitionedSource.setMatchingThreadCount(4);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    partitionedSource.setMatchingExecutor(executor);
+    MonitoredResult partitionedResult = new MonitoredResult();
+    _matchingThreads.clear();
+    try {
+      partitionedSource.handleCombinedUpdates(partitionedResult, updates);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertSame(Thread.currentThread(), _matchingThreads.get("v3"));
+    assertNotSame(Thread.currentThread(), _matchingThreads.get("v0"));
+
+    assertEquals(getDispatchedVehicleIds(_listener, updates.size()),
+        getDispatchedVehicleIds(listener, updates.size()));
+    assertEquals(serialResult.getMatchedTripIds(),
+        partitionedResult.getMatchedTripIds());
+    assertEquals(serialResult.getUnmatchedTripIds(),
+        partitionedResult.getUnmatchedTripIds());
+    assertEquals(serialResult.getAllCoordinates(),
+        partitionedResult.getAllCoordinates());
+    assertEquals(12, partitionedResult.getMatchedTripIds().size());
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private GtfsRealtimeSource createSource(VehicleLocationListener listener)
+      throws Exception {
+    GtfsRealtimeSource source = new GtfsRealtimeSource();
+    source.setTripUpdatesUrl(new URL("http://localhost/trip-updates"));
+    source.setGtfsRealtimeTripLibrary(_library);
+    source.setVehicleLocationListener(listener);
+    source.setVehicleOccupancyListener(Mockito.mock(VehicleOccupancyListener.class));
+    source.setBlockLocationService(_blockLocationService);
+    source.setIncrementalUpdates(true);
+    return source;
+  }
+
+  private List<AgencyAndId> getDispatchedVehicleIds(
+      VehicleLocationListener listener, int count) {
+    ArgumentCaptor<VehicleLocationRecord> captor = ArgumentCaptor.forClass(VehicleLocationRecord.class);
+    Mockito.verify(listener, Mockito.times(count)).handleVehicleLocationRecord(
+        captor.capture());
+    List<AgencyAndId> vehicleIds = new ArrayList<AgencyAndId>();
+    for (VehicleLocationRecord record : captor.getAllValues()) {
+      vehicleIds.add(record.getVehicleId());
+    }
+    return vehicleIds;
+  }
+
+  private CombinedTripUpdatesAndVehiclePosition update(String vehicleId,
+      double lat, long timestamp) {
+    BlockDescriptor block = new BlockDescriptor();
+    block.setBlockInstance(new BlockInstance(blockConfiguration(
+        block("block" + vehicleId), serviceIds("s1")), 0L));
+    block.setVehicleId(vehicleId);
+
+    CombinedTripUpdatesAndVehiclePosition update = new CombinedTripUpdatesAndVehiclePosition();
+    update.block = block;
+    update.setTripUpdates(Arrays.asList(TripUpdate.newBuilder().setTrip(
+        TripDescriptor.newBuilder().setTripId("tripA")).build()));
+    update.vehiclePosition = VehiclePosition.newBuilder().setVehicle(
+        VehicleDescriptor.newBuilder().setId(vehicleId)).setPosition(
+        Position.newBuilder().setLatitude((float) lat).setLongitude(-122.0f)).setTimestamp(
+        timestamp).build();
+    return update;
+  }
+
+  private BlockLocation blockLocation(double lat, double lon) {
+    BlockLocation blockLocation = new BlockLocation();
+    blockLocation.setLocation(new CoordinatePoint(lat, lon));
+    return blockLocation;
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime.history;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.realtime.api.VehicleLocationRecord;
+import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocation;
+import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureInstance;
+import org.onebusaway.transit_data_federation.services.realtime.ScheduleDeviationHistogram;
+import org.onebusaway.transit_data_federation.services.realtime.ScheduleDeviationHistoryDao;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+public class RealTimeHistoryServiceImplTest {
+
+  private RealTimeHistoryServiceImpl _service;
+
+  private ScheduleDeviationHistoryDao _dao;
+
+  private AgencyAndId _tripId = new AgencyAndId("1", "tripA");
+
+  private BlockTripEntry _blockTrip;
+
+  @Before
+  public void setup() {
+    _dao = Mockito.mock(ScheduleDeviationHistoryDao.class);
+    _service = new RealTimeHistoryServiceImpl();
+    _service.setScheduleDeviationHistoryDao(_dao);
+
+    TripEntry trip = Mockito.mock(TripEntry.class);
+    Mockito.when(trip.getId()).thenReturn(_tripId);
+    _blockTrip = Mockito.mock(BlockTripEntry.class);
+    Mockito.when(_blockTrip.getTrip()).thenReturn(trip);
+  }
+
+  @Test
+  public void testHistoryCache() {
+    ScheduleDeviationHistory history = new ScheduleDeviationHistory(_tripId,
+        new double[] {0, 600}, new double[][] { {60, 120}, {180, 240}});
+    Mockito.when(_dao.getScheduleDeviationHistoryForTripId(_tripId)).thenReturn(
+        history);
+
+    for (int i = 0; i < 10; i++) {
+      ScheduleDeviationHistogram histogram = _service.getScheduleDeviationHistogramForArrivalAndDepartureInstance(
+          instance(300), 60);
+      assertNotNull(histogram);
+    }
+    Mockito.verify(_dao, Mockito.times(1)).getScheduleDeviationHistoryForTripId(
+        _tripId);
+    assertEquals(9, _service.getHistoryCacheHits());
+    assertEquals(1, _service.getHistoryCacheMisses());
+  }
+
+  @Test
+  public void testNoHistoryIsCached() {
+    for (int i = 0; i < 10; i++)
+      assertNull(_service.getScheduleDeviationHistogramForArrivalAndDepartureInstance(
+          instance(300), 60));
+    Mockito.verify(_dao, Mockito.times(1)).getScheduleDeviationHistoryForTripId(
+        _tripId);
+  }
+
+  @Test
+  public void testHistoryCacheSize() {
+    _service.setHistoryCacheSize(2);
+    for (int i = 0; i < 5; i++)
+      _service.getScheduleDeviationHistogramForArrivalAndDepartureInstance(
+          instance(new AgencyAndId("1", "trip" + i), 300), 60);
+    assertEquals(2, _service.getHistoryCacheSize());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testAggregateSamples() {
+    // samples are ignored unless aggregation is on
+    _service.addScheduleDeviationSample(record(1000, 60), location(0));
+    assertEquals(0, _service.getActiveTraceCount());
+
+    _service.setAggregateScheduleDeviationSamples(true);
+    _service.setSampleStepSize(300);
+
+    // two instances of the trip, 1 then 3 minutes late, with two samples
+    // averaged into the first bucket
+    _service.addScheduleDeviationSample(record(1000, 30), location(10));
+    _service.addScheduleDeviationSample(record(1000, 90), location(-10));
+    _service.addScheduleDeviationSample(record(1000, 60), location(600));
+    _service.addScheduleDeviationSample(record(2000, 180), location(0));
+    _service.addScheduleDeviationSample(record(2000, 180), location(600));
+    // too short to be kept
+    _service.addScheduleDeviationSample(record(3000, 180), location(600));
+    assertEquals(3, _service.getActiveTraceCount());
+
+    // nothing is idle yet
+    _service.flush(0);
+    Mockito.verify(_dao, Mockito.never()).saveScheduleDeviationHistory(
+        Mockito.anyList());
+
+    _service.flush(Long.MAX_VALUE);
+    assertEquals(0, _service.getActiveTraceCount());
+
+    ArgumentCaptor<List<ScheduleDeviationHistory>> captor = (ArgumentCaptor<List<ScheduleDeviationHistory>>) (ArgumentCaptor<?>) ArgumentCaptor.forClass(List.class);
+    Mockito.verify(_dao).saveScheduleDeviationHistory(captor.capture());
+    List<ScheduleDeviationHistory> histories = captor.getValue();
+    assertEquals(1, histories.size());
+
+    ScheduleDeviationHistory history = histories.get(0);
+    assertEquals(_tripId, history.getTripId());
+    assertArrayEquals(new double[] {0, 600}, history.getScheduleTimes(), 0.0);
+    assertEquals(2, history.getNumberOfSamples());
+
+    // the saved history is served from memory
+    ScheduleDeviationHistogram histogram = _service.getScheduleDeviationHistogramForArrivalAndDepartureInstance(
+        instance(600), 60);
+    assertEquals(2, sum(histogram.getCounts()));
+    Mockito.verify(_dao, Mockito.times(1)).getScheduleDeviationHistoryForTripId(
+        _tripId);
+  }
+
+  @Test
+  public void testMergeIntoExistingHistory() {
+    _service.setAggregateScheduleDeviationSamples(true);
+    _service.setMaxNumberOfSamples(3);
+
+    ScheduleDeviationHistory existing = new ScheduleDeviationHistory(_tripId,
+        new double[] {0, 300, 600}, new double[][] { {0, 0, 0}, {10, 10, 10},
+            {20, 20, 20}});
+    Mockito.when(_dao.getScheduleDeviationHistoryForTripId(_tripId)).thenReturn(
+        existing);
+
+    _service.addScheduleDeviationSample(record(1000, 60), location(300));
+    _service.addScheduleDeviationSample(record(1000, 120), location(900));
+    _service.flush(Long.MAX_VALUE);
+
+    ScheduleDeviationHistogram histogram = _service.getScheduleDeviationHistogramForArrivalAndDepartureInstance(
+        instance(600), 60);
+    assertNotNull(histogram);
+
+    // the oldest sample is dropped, and the new one is interpolated onto the
+    // existing schedule times
+    int[] deviations = histogram.getScheduleDeviations();
+    int[] counts = histogram.getCounts();
+    assertEquals(3, sum(counts));
+    boolean found = false;
+    for (int i = 0; i < deviations.length; i++) {
+      if (counts[i] > 0 && Math.abs(deviations[i] - 90) <= 30)
+        found = true;
+    }
+    assertTrue(found);
+  }
+
+  private ArrivalAndDepartureInstance instance(int departureTime) {
+    return instance(_tripId, departureTime);
+  }
+
+  private ArrivalAndDepartureInstance instance(AgencyAndId tripId,
+      int departureTime) {
+    TripEntry trip = Mockito.mock(TripEntry.class);
+    Mockito.when(trip.getId()).thenReturn(tripId);
+    BlockTripEntry blockTrip = Mockito.mock(BlockTripEntry.class);
+    Mockito.when(blockTrip.getTrip()).thenReturn(trip);
+    StopTimeEntry stopTime = Mockito.mock(StopTimeEntry.class);
+    Mockito.when(stopTime.getDepartureTime()).thenReturn(departureTime);
+    BlockStopTimeEntry blockStopTime = Mockito.mock(BlockStopTimeEntry.class);
+    Mockito.when(blockStopTime.getStopTime()).thenReturn(stopTime);
+
+    ArrivalAndDepartureInstance instance = Mockito.mock(ArrivalAndDepartureInstance.class);
+    Mockito.when(instance.getBlockTrip()).thenReturn(blockTrip);
+    Mockito.when(instance.getBlockStopTime()).thenReturn(blockStopTime);
+    return instance;
+  }
+
+  private VehicleLocationRecord record(long serviceDate,
+      double scheduleDeviation) {
+    VehicleLocationRecord record = new VehicleLocationRecord();
+    record.setServiceDate(serviceDate);
+    record.setScheduleDeviation(scheduleDeviation);
+    return record;
+  }
+
+  private ScheduledBlockLocation location(int scheduledTime) {
+    ScheduledBlockLocation location = new ScheduledBlockLocation();
+    location.setActiveTrip(_blockTrip);
+    location.setScheduledTime(scheduledTime);
+    return location;
+  }
+
+  private static int sum(int[] values) {
+    int sum = 0;
+    for (int value : values)
+      sum += value;
+    return sum;
+  }
+}
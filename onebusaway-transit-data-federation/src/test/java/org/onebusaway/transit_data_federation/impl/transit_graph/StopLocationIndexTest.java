@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.onebusaway.geospatial.model.CoordinateBounds;
+import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StopLocationIndexTest {
+
+  private static Logger _log = LoggerFactory.getLogger(StopLocationIndexTest.class);
+
+  @Test
+  public void testEmpty() {
+    StopLocationIndex index = new StopLocationIndex(
+        Collections.<StopEntry> emptyList());
+    List<StopEntry> results = new ArrayList<StopEntry>();
+    index.getStopsInBounds(new CoordinateBounds(-1, -1, 1, 1), results);
+    index.getStopsWithinRadius(0, 0, 1000, results);
+    index.getNearestStops(0, 0, 5, Double.POSITIVE_INFINITY, results);
+    assertTrue(results.isEmpty());
+  }
+
+  @Test
+  public void testSingleStop() {
+    StopEntry stopA = stop("a", 47.0, -122.0);
+    StopLocationIndex index = new StopLocationIndex(
+        Collections.singletonList(stopA));
+
+    List<StopEntry> results = new ArrayList<StopEntry>();
+    index.getStopsInBounds(new CoordinateBounds(47.0, -122.0, 47.0, -122.0),
+        results);
+    assertEquals(Collections.singletonList(stopA), results);
+
+    results.clear();
+    index.getNearestStops(48.0, -121.0, 3, Double.POSITIVE_INFINITY, results);
+    assertEquals(Collections.singletonList(stopA), results);
+
+    results.clear();
+    index.getNearestStops(48.0, -121.0, 3, 1000, results);
+    assertTrue(results.isEmpty());
+  }
+
+  @Test
+  public void testQueriesMatchBruteForce() {
+
+    Random random = new Random(42);
+    List<StopEntry> stops = createStops(random, 5000);
+    StopLocationIndex index = new StopLocationIndex(stops);
+    assertEquals(stops.size(), index.size());
+
+    for (int i = 0; i < 500; i++) {
+
+      final double lat = 47.4 + random.nextDouble() * 0.7;
+      final double lon = -122.6 + random.nextDouble() * 1.0;
+      double radius = random.nextDouble() * 3000;
+      int k = 1 + random.nextInt(20);
+
+      CoordinateBounds bounds = new CoordinateBounds(lat, lon,
+          lat + random.nextDouble() * 0.05, lon + random.nextDouble() * 0.05);
+
+      Set<StopEntry> expected = new HashSet<StopEntry>();
+      for (StopEntry stop : stops) {
+        if (bounds.contains(stop.getStopLat(), stop.getStopLon()))
+          expected.add(stop);
+      }
+      Set<StopEntry> actual = new HashSet<StopEntry>();
+      index.getStopsInBounds(bounds, actual);
+      assertEquals(expected, actual);
+
+      expected.clear();
+      for (StopEntry stop : stops) {
+        if (distance(lat, lon, stop) <= radius)
+          expected.add(stop);
+      }
+      actual.clear();
+      index.getStopsWithinRadius(lat, lon, radius, actual);
+      assertEquals(expected, actual);
+
+      List<StopEntry> sorted = new ArrayList<StopEntry>(stops);
+      Collections.sort(sorted, new Comparator<StopEntry>() {
+        @Override
+        public int compare(StopEntry a, StopEntry b) {
+          return Double.compare(distance(lat, lon, a), distance(lat, lon, b));
+        }
+      });
+      List<StopEntry> nearest = new ArrayList<StopEntry>();
+      index.getNearestStops(lat, lon, k, Double.POSITIVE_INFINITY, nearest);
+      assertEquals(sorted.subList(0, k), nearest);
+    }
+  }
+
+  /**
+   * Bounding box queries return the same stops as the JTS STRtree the transit
+   * graph used before
+   */
+  @Test
+  public void testMatchesSTRtree() {
+
+    Random random = new Random(7);
+    List<StopEntry> stops = createStops(random, 2000);
+
+    StopLocationIndex index = new StopLocationIndex(stops);
+
+    STRtree tree = new STRtree(stops.size());
+    for (StopEntry stop : stops) {
+      double x = stop.getStopLon();
+      double y = stop.getStopLat();
+      tree.insert(new Envelope(x, x, y, y), stop);
+    }
+    tree.build();
+
+    List<StopEntry> results = new ArrayList<StopEntry>();
+    final List<StopEntry> treeResults = new ArrayList<StopEntry>();
+    ItemVisitor visitor = new ItemVisitor() {
+      @Override
+      public void visitItem(Object item) {
+        treeResults.add((StopEntry) item);
+      }
+    };
+
+    for (int i = 0; i < 500; i++) {
+      double lat = 47.5 + random.nextDouble() * 0.5;
+      double lon = -122.5 + random.nextDouble() * 0.8;
+      CoordinateBounds b = SphericalGeometryLibrary.bounds(lat, lon, 1000);
+
+      results.clear();
+      treeResults.clear();
+      index.getStopsInBounds(b, results);
+      tree.query(new Envelope(b.getMinLon(), b.getMaxLon(), b.getMinLat(),
+          b.getMaxLat()), visitor);
+
+      assertEquals(new HashSet<StopEntry>(treeResults),
+          new HashSet<StopEntry>(results));
+    }
+  }
+
+  /**
+   * Compares the cost of bounding box queries against the JTS STRtree the
+   * transit graph used before
+   */
+  @Test
+  @Ignore("benchmark, run manually")
+  public void benchmarkAgainstSTRtree() {
+
+    Random random = new Random(7);
+    List<StopEntry> stops = createStops(random, 20000);
+
+    StopLocationIndex index = new StopLocationIndex(stops);
+
+    STRtree tree = new STRtree(stops.size());
+    for (StopEntry stop : stops) {
+      double x = stop.getStopLon();
+      double y = stop.getStopLat();
+      tree.insert(new Envelope(x, x, y, y), stop);
+    }
+    tree.build();
+
+    int queries = 20000;
+    CoordinateBounds[] bounds = new CoordinateBounds[queries];
+    for (int i = 0; i < queries; i++) {
+      double lat = 47.5 + random.nextDouble() * 0.5;
+      double lon = -122.5 + random.nextDouble() * 0.8;
+      bounds[i] = SphericalGeometryLibrary.bounds(lat, lon, 400);
+    }
+
+    long indexTime = 0;
+    long treeTime = 0;
+    List<StopEntry> results = new ArrayList<StopEntry>();
+    final List<StopEntry> treeResults = new ArrayList<StopEntry>();
+    ItemVisitor visitor = new ItemVisitor() {
+      @Override
+      public void visitItem(Object item) {
+        treeResults.add((StopEntry) item);
+      }
+    };
+
+    for (CoordinateBounds b : bounds) {
+      results.clear();
+      treeResults.clear();
+
+      long t0 = System.nanoTime();
+      index.getStopsInBounds(b, results);
+      long t1 = System.nanoTime();
+      tree.query(new Envelope(b.getMinLon(), b.getMaxLon(), b.getMinLat(),
+          b.getMaxLat()), visitor);
+      long t2 = System.nanoTime();
+
+      indexTime += t1 - t0;
+      treeTime += t2 - t1;
+    }
+
+    _log.info("bounds queries over " + stops.size() + " stops: index="
+        + (indexTime / queries) + "ns/query strtree=" + (treeTime / queries)
+        + "ns/query");
+  }
+
+  private static List<StopEntry> createStops(Random random, int count) {
+    List<StopEntry> stops = new ArrayList<StopEntry>();
+    for (int i = 0; i < count; i++) {
+      stops.add(stop("s" + i, 47.5 + random.nextDouble() * 0.5,
+          -122.5 + random.nextDouble() * 0.8));
+    }
+    return stops;
+  }
+
+  private static double distance(double lat, double lon, StopEntry stop) {
+    return SphericalGeometryLibrary.distance(lat, lon, stop.getStopLat(),
+        stop.getStopLon());
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.realtime.api.OccupancyStatus;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+
+public class StopTimeColumnsTest {
+
+  @Test
+  public void testWriteAndAttach() throws IOException {
+
+    StopEntryImpl stopA = stop("stopA", 47.0, -122.0);
+    StopEntryImpl stopB = stop("stopB", 47.1, -122.1);
+
+    TripEntryImpl tripA = trip("tripA", "serviceId");
+    TripEntryImpl tripB = trip("tripB", "serviceId");
+    TripEntryImpl tripC = trip("tripC", "serviceId");
+
+    stopTime(0, stopA, tripA, time(9, 00), time(9, 01), 0.0, 0);
+    stopTime(1, stopB, tripA, time(9, 10), time(9, 10), 150.5, 7);
+    StopTimeEntryImpl occupied = stopTime(2, stopB, tripB, time(10, 00), 0.0);
+    occupied.setHistoricalOccupancy(OccupancyStatus.FULL);
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+    graph.putStopEntry(stopA);
+    graph.putStopEntry(stopB);
+    graph.putTripEntry(tripA);
+    graph.putTripEntry(tripB);
+    graph.putTripEntry(tripC);
+    graph.initialize();
+
+    File path = File.createTempFile("StopTimeColumnsTest-", ".bin");
+    path.deleteOnExit();
+
+    StopTimeColumns.write(path, graph);
+    for (TripEntryImpl trip : graph.getTrips())
+      trip.setStopTimes(null);
+
+    StopTimeColumns columns = StopTimeColumns.map(path);
+    assertEquals(3, columns.getTripCount());
+    assertEquals(3, columns.getRowCount());
+    columns.attach(graph);
+
+    List<StopTimeEntry> stopTimes = tripA.getStopTimes();
+    assertEquals(2, stopTimes.size());
+
+    StopTimeEntry first = stopTimes.get(0);
+    assertEquals(0, first.getId());
+    assertSame(stopA, first.getStop());
+    assertSame(tripA, first.getTrip());
+    assertEquals(time(9, 00), first.getArrivalTime());
+    assertEquals(time(9, 01), first.getDepartureTime());
+    assertEquals(60, first.getSlackTime());
+    assertEquals(0, first.getSequence());
+    assertEquals(0, first.getShapePointIndex());
+    assertNull(first.getHistoricalOccupancy());
+
+    StopTimeEntry second = stopTimes.get(1);
+    assertSame(stopB, second.getStop());
+    assertEquals(1, second.getSequence());
+    assertEquals(60, second.getAccumulatedSlackTime());
+    assertEquals(150.5, second.getShapeDistTraveled(), 0.0);
+    assertEquals(7, second.getShapePointIndex());
+    assertEquals(first, stopTimes.get(0));
+
+    StopTimeEntry third = tripB.getStopTimes().get(0);
+    assertSame(tripB, third.getTrip());
+    assertEquals(OccupancyStatus.FULL, third.getHistoricalOccupancy());
+
+    assertEquals(0, tripC.getStopTimes().size());
+  }
+}
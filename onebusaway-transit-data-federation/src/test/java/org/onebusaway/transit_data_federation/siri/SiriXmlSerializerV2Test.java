@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.siri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import uk.org.siri.siri_2.ExtensionsStructure;
+import uk.org.siri.siri_2.LineRefStructure;
+import uk.org.siri.siri_2.LocationStructure;
+import uk.org.siri.siri_2.MonitoredCallStructure;
+import uk.org.siri.siri_2.ServiceDelivery;
+import uk.org.siri.siri_2.Siri;
+import uk.org.siri.siri_2.VehicleActivityStructure;
+import uk.org.siri.siri_2.VehicleActivityStructure.MonitoredVehicleJourney;
+import uk.org.siri.siri_2.VehicleMonitoringDeliveryStructure;
+import uk.org.siri.siri_2.VehicleRefStructure;
+
+public class SiriXmlSerializerV2Test {
+
+  private static Logger _log = LoggerFactory.getLogger(SiriXmlSerializerV2Test.class);
+
+  private static final String[] WRAPPER_TAGS = {
+      "<siriExtensionWrapper>", "</siriExtensionWrapper>",
+      "<siriUpcomingServiceExtension>", "</siriUpcomingServiceExtension>",
+      "<siriPolyLinesExtension>", "</siriPolyLinesExtension>"};
+
+  private static final String[] NO_TAGS = {"", "", "", "", "", ""};
+
+  private SiriXmlSerializerV2 _serializer = new SiriXmlSerializerV2();
+
+  @Test
+  public void testMatchesStrippedOutput() throws Exception {
+
+    Siri siri = createVehicleMonitoring(20);
+
+    String xml = _serializer.getXml(siri);
+    String expected = getXmlAsBefore(siri);
+
+    assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"));
+    assertFalse(xml.contains("siriExtensionWrapper"));
+    assertFalse(xml.contains("siriPolyLinesExtension"));
+    assertTrue(xml.contains("<Distances>"));
+    assertTrue(xml.contains("<Polylines>"));
+
+    // the two writers may differ in how they close empty elements
+    Document actualDocument = parse(xml);
+    Document expectedDocument = parse(expected);
+    assertTrue(expectedDocument.isEqualNode(actualDocument));
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    Siri siri = createVehicleMonitoring(3);
+    String xml = _serializer.getXml(siri);
+    for (int i = 0; i < 5; i++)
+      assertEquals(xml, _serializer.getXml(siri));
+  }
+
+  @Test
+  public void testJsonCallback() throws Exception {
+    SiriJsonSerializerV2 serializer = new SiriJsonSerializerV2();
+    Siri siri = createVehicleMonitoring(3);
+    String json = serializer.getJson(siri);
+    assertTrue(json.startsWith("{\"Siri\":{"));
+    assertEquals("cb(" + json + ")", serializer.getJson(siri, "cb"));
+  }
+
+  /**
+   * Rough comparison of a marshaller per call and a pass over the text to
+   * strip the extension wrappers against the pooled, streaming serializer, on
+   * a busy route's worth of vehicles
+   */
+  @Test
+  @Ignore("benchmark, run manually")
+  public void testBenchmark() throws Exception {
+
+    Siri siri = createVehicleMonitoring(200);
+    int iterations = 50;
+
+    for (int i = 0; i < 10; i++) {
+      getXmlAsBefore(siri);
+      _serializer.getXml(siri);
+    }
+
+    long t0 = System.nanoTime();
+    for (int i = 0; i < iterations; i++)
+      getXmlAsBefore(siri);
+    long t1 = System.nanoTime();
+    StringWriter out = null;
+    for (int i = 0; i < iterations; i++) {
+      out = new StringWriter();
+      _serializer.writeXml(siri, out);
+    }
+    long t2 = System.nanoTime();
+
+    _log.info("serialized " + out.getBuffer().length() + " chars: before="
+        + ((t1 - t0) / iterations / 1000) + "us streaming="
+        + ((t2 - t1) / iterations / 1000) + "us");
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * What SiriXmlSerializerV2 used to do for every response
+   */
+  private String getXmlAsBefore(Siri siri) throws Exception {
+    JAXBContext context = JAXBContext.newInstance(Siri.class,
+        SiriExtensionWrapper.class, SiriDistanceExtension.class,
+        SiriUpcomingServiceExtension.class, SiriPolyLinesExtension.class);
+    Marshaller marshaller = context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+    StringWriter output = new StringWriter();
+    marshaller.marshal(siri, output);
+    return StringUtils.replaceEach(output.toString(), WRAPPER_TAGS, NO_TAGS);
+  }
+
+  private Document parse(String xml) throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Document document = factory.newDocumentBuilder().parse(
+        new InputSource(new StringReader(xml)));
+    document.normalizeDocument();
+    return document;
+  }
+
+  private Siri createVehicleMonitoring(int vehicleCount) {
+
+    VehicleMonitoringDeliveryStructure delivery = new VehicleMonitoringDeliveryStructure();
+
+    for (int i = 0; i < vehicleCount; i++) {
+
+      LineRefStructure lineRef = new LineRefStructure();
+      lineRef.setValue("1_100" + (i % 5));
+
+      VehicleRefStructure vehicleRef = new VehicleRefStructure();
+      vehicleRef.setValue("1_" + (4000 + i));
+
+      LocationStructure location = new LocationStructure();
+      location.setLatitude(BigDecimal.valueOf(47.6 + i * 0.001));
+      location.setLongitude(BigDecimal.valueOf(-122.3 - i * 0.001));
+
+      SiriDistanceExtension distances = new SiriDistanceExtension();
+      distances.setStopsFromCall(i % 10);
+      distances.setCallDistanceAlongRoute(i * 100.0);
+      distances.setDistanceFromCall(i * 10.5);
+      distances.setPresentableDistance((i % 10) + " stops away & < 1 mile");
+
+      SiriExtensionWrapper wrapper = new SiriExtensionWrapper();
+      wrapper.setDistances(distances);
+
+      ExtensionsStructure callExtensions = new ExtensionsStructure();
+      callExtensions.setAny(wrapper);
+
+      MonitoredCallStructure call = new MonitoredCallStructure();
+      call.setVisitNumber(BigInteger.valueOf(1));
+      call.setNumberOfStopsAway(BigInteger.valueOf(i % 10));
+      call.setExtensions(callExtensions);
+
+      SiriPolyLinesExtension polylines = new SiriPolyLinesExtension();
+      polylines.getPolylines().add("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+
+      ExtensionsStructure journeyExtensions = new ExtensionsStructure();
+      journeyExtensions.setAny(polylines);
+
+      MonitoredVehicleJourney journey = new MonitoredVehicleJourney();
+      journey.setLineRef(lineRef);
+      journey.setVehicleRef(vehicleRef);
+      journey.setVehicleLocation(location);
+      journey.setBearing(90.0f);
+      journey.setMonitoredCall(call);
+
+      VehicleActivityStructure activity = new VehicleActivityStructure();
+      activity.setMonitoredVehicleJourney(journey);
+      activity.setExtensions(journeyExtensions);
+      delivery.getVehicleActivity().add(activity);
+    }
+
+    ServiceDelivery serviceDelivery = new ServiceDelivery();
+    serviceDelivery.getVehicleMonitoringDelivery().add(delivery);
+
+    Siri siri = new Siri();
+    siri.setServiceDelivery(serviceDelivery);
+    return siri;
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.onebusaway.geospatial.model.CoordinatePoint;
+import org.onebusaway.transit_data.model.trips.TripBean;
+import org.onebusaway.transit_data.model.trips.TripDetailsBean;
+import org.onebusaway.transit_data.model.trips.TripStatusBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+
+/**
+ * The heaviest TransitDataService payloads survive the gzipped Hessian
+ * encoding of the CompressingHessianServiceExporter, and shrink to well under
+ * a third of their plain Hessian size. The ignored benchmark logs their size
+ * and encoding cost, with Java serialization for reference.
+ */
+public class RemotingPayloadTest {
+
+  private static Logger _log = LoggerFactory.getLogger(RemotingPayloadTest.class);
+
+  private static final int ITERATIONS = 20;
+
+  @Test
+  public void testArrivalsAndDepartures() throws Exception {
+
+    List<ArrivalAndDepartureBean> beans = new ArrayList<ArrivalAndDepartureBean>();
+    for (int i = 0; i < 200; i++)
+      beans.add(createArrivalAndDeparture(i));
+
+    Object copy = roundTrip(beans);
+
+    @SuppressWarnings("unchecked")
+    List<ArrivalAndDepartureBean> copies = (List<ArrivalAndDepartureBean>) copy;
+    assertEquals(beans.size(), copies.size());
+    assertEquals(beans.get(10).getTrip().getId(),
+        copies.get(10).getTrip().getId());
+  }
+
+  @Test
+  public void testTripDetails() throws Exception {
+
+    ListBean<TripDetailsBean> details = new ListBean<TripDetailsBean>();
+    List<TripDetailsBean> list = new ArrayList<TripDetailsBean>();
+    for (int i = 0; i < 50; i++)
+      list.add(createTripDetails(i));
+    details.setList(list);
+
+    Object copy = roundTrip(details);
+
+    @SuppressWarnings("unchecked")
+    ListBean<TripDetailsBean> copies = (ListBean<TripDetailsBean>) copy;
+    assertEquals(list.size(), copies.getList().size());
+    assertEquals(60,
+        copies.getList().get(0).getSchedule().getStopTimes().size());
+  }
+
+  @Test
+  @Ignore("benchmark, run manually")
+  public void benchmark() throws Exception {
+
+    List<ArrivalAndDepartureBean> beans = new ArrayList<ArrivalAndDepartureBean>();
+    for (int i = 0; i < 200; i++)
+      beans.add(createArrivalAndDeparture(i));
+    benchmark("arrivals and departures for stop", beans);
+
+    ListBean<TripDetailsBean> details = new ListBean<TripDetailsBean>();
+    List<TripDetailsBean> list = new ArrayList<TripDetailsBean>();
+    for (int i = 0; i < 50; i++)
+      list.add(createTripDetails(i));
+    details.setList(list);
+    benchmark("trip details for vehicles", details);
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void benchmark(String name, Object value) throws IOException {
+
+    byte[] hessian = null;
+    byte[] gzipped = null;
+
+    // Warm up, then time the plain and compressed round trips
+    for (int i = 0; i < ITERATIONS; i++) {
+      hessian = toHessian(value);
+      fromHessian(new ByteArrayInputStream(hessian));
+      gzipped = gzip(hessian);
+      fromHessian(new GZIPInputStream(new ByteArrayInputStream(gzipped)));
+    }
+
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++)
+      fromHessian(new ByteArrayInputStream(toHessian(value)));
+    long t1 = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++)
+      fromHessian(new GZIPInputStream(new ByteArrayInputStream(
+          gzip(toHessian(value)))));
+    long t2 = System.nanoTime();
+
+    int javaSize = toJava(value).length;
+
+    _log.info(String.format(
+        "%s: java=%d bytes, hessian=%d bytes in %.2f ms, hessian+gzip=%d bytes in %.2f ms",
+        name, javaSize, hessian.length, (t1 - t0) / 1e6 / ITERATIONS,
+        gzipped.length, (t2 - t1) / 1e6 / ITERATIONS));
+  }
+
+  private Object roundTrip(Object value) throws IOException {
+
+    byte[] hessian = toHessian(value);
+    byte[] gzipped = gzip(hessian);
+
+    assertTrue(gzipped.length * 3 < hessian.length);
+
+    return fromHessian(new GZIPInputStream(new ByteArrayInputStream(gzipped)));
+  }
+
+  private static byte[] toHessian(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Hessian2Output out = new Hessian2Output(bytes);
+    out.writeObject(value);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static Object fromHessian(InputStream in) throws IOException {
+    Hessian2Input hessian = new Hessian2Input(in);
+    Object value = hessian.readObject();
+    hessian.close();
+    return value;
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    out.write(data);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static byte[] toJava(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(value);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static ArrivalAndDepartureBean createArrivalAndDeparture(int index) {
+
+    TripBean trip = createTrip(index % 20);
+    StopBean stop = createStop(0);
+
+    TripStatusBean status = new TripStatusBean();
+    status.setActiveTrip(trip);
+    status.setServiceDate(1700000000000L);
+    status.setPhase("IN_PROGRESS");
+    status.setStatus("default");
+    status.setLocation(new CoordinatePoint(47.6 + index * 0.001, -122.3));
+    status.setClosestStop(createStop(index % 30));
+    status.setNextStop(createStop(index % 30 + 1));
+    status.setDistanceAlongTrip(index * 100.0);
+    status.setTotalDistanceAlongTrip(12000.0);
+
+    ArrivalAndDepartureBean bean = new ArrivalAndDepartureBean();
+    bean.setTrip(trip);
+    bean.setStop(stop);
+    bean.setServiceDate(1700000000000L);
+    bean.setVehicleId("1_" + (4000 + index % 20));
+    bean.setStopSequence(index % 30);
+    bean.setScheduledArrivalTime(1700000000000L + index * 60000L);
+    bean.setScheduledDepartureTime(1700000000000L + index * 60000L);
+    bean.setPredictedArrivalTime(1700000000000L + index * 61000L);
+    bean.setPredictedDepartureTime(1700000000000L + index * 61000L);
+    bean.setPredicted(true);
+    bean.setStatus("default");
+    bean.setTripStatus(status);
+    bean.setArrivalEnabled(true);
+    bean.setDepartureEnabled(true);
+    return bean;
+  }
+
+  private static TripDetailsBean createTripDetails(int index) {
+
+    TripBean trip = createTrip(index);
+
+    List<TripStopTimeBean> stopTimes = new ArrayList<TripStopTimeBean>();
+    for (int i = 0; i < 60; i++) {
+      TripStopTimeBean stopTime = new TripStopTimeBean();
+      stopTime.setStop(createStop(i));
+      stopTime.setArrivalTime(21600 + index * 600 + i * 90);
+      stopTime.setDepartureTime(21600 + index * 600 + i * 90);
+      stopTime.setDistanceAlongTrip(i * 200.0);
+      stopTime.setGtfsSequence(i + 1);
+      stopTimes.add(stopTime);
+    }
+
+    TripStopTimesBean schedule = new TripStopTimesBean();
+    schedule.setStopTimes(stopTimes);
+    schedule.setTimeZone("America/Los_Angeles");
+
+    TripStatusBean status = new TripStatusBean();
+    status.setActiveTrip(trip);
+    status.setServiceDate(1700000000000L);
+    status.setPhase("IN_PROGRESS");
+    status.setLocation(new CoordinatePoint(47.6, -122.3 + index * 0.001));
+
+    TripDetailsBean details = new TripDetailsBean();
+    details.setTripId(trip.getId());
+    details.setServiceDate(1700000000000L);
+    details.setTrip(trip);
+    details.setSchedule(schedule);
+    details.setStatus(status);
+    return details;
+  }
+
+  private static TripBean createTrip(int index) {
+
+    AgencyBean agency = new AgencyBean();
+    agency.setId("1");
+    agency.setName("Metro Transit");
+    agency.setTimezone("America/Los_Angeles");
+
+    RouteBean.Builder route = RouteBean.builder();
+    route.setId("1_" + (100 + index % 5));
+    route.setShortName(Integer.toString(100 + index % 5));
+    route.setLongName("Downtown Seattle - University District");
+    route.setType(3);
+    route.setAgency(agency);
+
+    TripBean trip = new TripBean();
+    trip.setId("1_" + (500000 + index));
+    trip.setRoute(route.create());
+    trip.setTripHeadsign("University District");
+    trip.setServiceId("1_WEEKDAY");
+    trip.setShapeId("1_" + (10000 + index % 5));
+    trip.setDirectionId("0");
+    trip.setBlockId("1_" + (7000 + index));
+    return trip;
+  }
+
+  private static StopBean createStop(int index) {
+    StopBean stop = new StopBean();
+    stop.setId("1_" + (1000 + index));
+    stop.setCode(Integer.toString(1000 + index));
+    stop.setName("3rd Ave & Pine St Stop " + index);
+    stop.setLat(47.6 + index * 0.002);
+    stop.setLon(-122.3 - index * 0.002);
+    stop.setDirection("N");
+    stop.setRoutes(new ArrayList<RouteBean>());
+    return stop;
+  }
+}
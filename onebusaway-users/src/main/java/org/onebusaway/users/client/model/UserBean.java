@@ -42,6 +42,8 @@ public class UserBean implements Serializable {
 
   private Long minApiRequestInterval = null;
 
+  private Integer apiRequestBurst = null;
+
   private Map<String, Long> readServiceAlerts = null;
   
   private String contactName;
@@ -136,6 +138,14 @@ public class UserBean implements Serializable {
     this.minApiRequestInterval = minApiRequestInterval;
   }
 
+  public Integer getApiRequestBurst() {
+    return apiRequestBurst;
+  }
+
+  public void setApiRequestBurst(Integer apiRequestBurst) {
+    this.apiRequestBurst = apiRequestBurst;
+  }
+
   public Map<String, Long> getReadServiceAlerts() {
     return readServiceAlerts;
   }
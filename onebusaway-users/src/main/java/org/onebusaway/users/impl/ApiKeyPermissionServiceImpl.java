@@ -16,27 +16,85 @@
 package org.onebusaway.users.impl;
 
 import org.onebusaway.users.services.ApiKeyPermissionService;
+import org.onebusaway.users.services.ApiKeyQuotaStore;
 import org.onebusaway.users.services.UserService;
 import org.onebusaway.util.SystemTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Rate limits API keys with a token bucket per key. A key's bucket holds up to
+ * its API request burst (see {@link UserService#getApiRequestBurstForKey}) and
+ * refills at one token per minimum API request interval, so a key may make a
+ * short burst of calls while its sustained rate stays the same as before.
+ * Rejected calls don't consume tokens.
+ *
+ * Buckets are updated without locking and are dropped once they have been full
+ * for a while. When an {@link ApiKeyQuotaStore} is available it holds the
+ * buckets instead, so that several API nodes share one quota per key.
+ */
 @Component
+@ManagedResource("org.onebusaway.users.impl:name=ApiKeyPermissionServiceImpl")
 public class ApiKeyPermissionServiceImpl implements ApiKeyPermissionService {
 
-  private HashMap<String, Long> _lastVisitForUser;
+  private static Logger _log = LoggerFactory.getLogger(ApiKeyPermissionServiceImpl.class);
+
+  private ConcurrentHashMap<String, TokenBucket> _buckets = new ConcurrentHashMap<String, TokenBucket>();
+
   private UserService _userService;
 
+  private ApiKeyQuotaStore _quotaStore;
+
+  private int _defaultBurst = 1;
+
+  private long _idleKeyTimeout = 10 * 60 * 1000;
+
+  private AtomicLong _nextEvictionTime = new AtomicLong();
+
+  private AtomicLong _acceptedCount = new AtomicLong();
+
+  private AtomicLong _rejectedCount = new AtomicLong();
+
+  private AtomicLong _unauthorizedCount = new AtomicLong();
+
+  private AtomicLong _quotaStoreFailureCount = new AtomicLong();
+
   @Autowired
   public void setUserService(UserService userService) {
     _userService = userService;
   }
 
-  public ApiKeyPermissionServiceImpl() {
-    _lastVisitForUser = new HashMap<String, Long>();
+  @Autowired(required = false)
+  public void setQuotaStore(ApiKeyQuotaStore quotaStore) {
+    _quotaStore = quotaStore;
+  }
+
+  /**
+   * @param defaultBurst burst used for keys that don't specify one; the default
+   *          of 1 allows one request per minimum request interval
+   */
+  public void setDefaultBurst(int defaultBurst) {
+    _defaultBurst = Math.max(1, defaultBurst);
+  }
 
+  /**
+   * @param idleKeyTimeout ms after its bucket refills before a key's local
+   *          state, including its counts, is dropped
+   */
+  public void setIdleKeyTimeout(long idleKeyTimeout) {
+    _idleKeyTimeout = idleKeyTimeout;
   }
 
   @Override
@@ -44,20 +102,163 @@ public class ApiKeyPermissionServiceImpl implements ApiKeyPermissionService {
 
     Long minRequestInterval = _userService.getMinApiRequestIntervalForKey(key,false);
     if (minRequestInterval == null) {
+      _unauthorizedCount.incrementAndGet();
       return Status.UNAUTHORIZED;
     }
-    
+
+    Integer burst = _userService.getApiRequestBurstForKey(key, false);
+    int capacity = burst == null || burst < 1 ? _defaultBurst : burst;
+    long interval = Math.max(0, minRequestInterval);
+
     long now = SystemTime.currentTimeMillis();
-    Long lastVisit = _lastVisitForUser.get(key);
-    
-    Status ok = Status.RATE_EXCEEDED;
-    
-    if (lastVisit == null || lastVisit + minRequestInterval <= now) {
-      ok = Status.AUTHORIZED;
-    }
-    
-    _lastVisitForUser.put(key, now);
-    return ok;
-  }
-  
+    evictIdleKeys(now);
+
+    TokenBucket bucket = _buckets.get(key);
+    if (bucket == null) {
+      TokenBucket existing = _buckets.putIfAbsent(key, bucket = new TokenBucket());
+      if (existing != null)
+        bucket = existing;
+    }
+    bucket.lastAccess = now;
+
+    boolean accepted;
+    if (_quotaStore != null) {
+      accepted = tryAcquireFromStore(key, bucket, now, interval, capacity);
+    } else {
+      accepted = bucket.tryAcquire(now, interval, capacity);
+    }
+
+    if (accepted) {
+      bucket.accepted.incrementAndGet();
+      _acceptedCount.incrementAndGet();
+      return Status.AUTHORIZED;
+    }
+
+    bucket.rejected.incrementAndGet();
+    _rejectedCount.incrementAndGet();
+    return Status.RATE_EXCEEDED;
+  }
+
+  /****
+   * Statistics
+   ****/
+
+  @ManagedAttribute
+  public long getAcceptedCount() {
+    return _acceptedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getRejectedCount() {
+    return _rejectedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getUnauthorizedCount() {
+    return _unauthorizedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getQuotaStoreFailureCount() {
+    return _quotaStoreFailureCount.get();
+  }
+
+  @ManagedAttribute
+  public int getActiveKeyCount() {
+    return _buckets.size();
+  }
+
+  /**
+   * @return accepted and rejected calls for each key seen since its state was
+   *         last dropped as idle
+   */
+  @ManagedAttribute
+  public List<String> getKeyStatistics() {
+    List<String> lines = new ArrayList<String>();
+    for (Map.Entry<String, TokenBucket> entry : _buckets.entrySet()) {
+      TokenBucket bucket = entry.getValue();
+      lines.add(entry.getKey() + " accepted=" + bucket.accepted.get()
+          + " rejected=" + bucket.rejected.get());
+    }
+    Collections.sort(lines);
+    return lines;
+  }
+
+  @ManagedOperation
+  public long getAcceptedCountForKey(String key) {
+    TokenBucket bucket = _buckets.get(key);
+    return bucket == null ? 0 : bucket.accepted.get();
+  }
+
+  @ManagedOperation
+  public long getRejectedCountForKey(String key) {
+    TokenBucket bucket = _buckets.get(key);
+    return bucket == null ? 0 : bucket.rejected.get();
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private boolean tryAcquireFromStore(String key, TokenBucket bucket,
+      long now, long interval, int capacity) {
+    try {
+      return _quotaStore.tryAcquire(key, now, interval, capacity);
+    } catch (RuntimeException ex) {
+      // keep limiting this node on its own rather than failing the request
+      if (_quotaStoreFailureCount.getAndIncrement() % 1000 == 0)
+        _log.warn("error using api key quota store, falling back to local limit", ex);
+      return bucket.tryAcquire(now, interval, capacity);
+    }
+  }
+
+  /**
+   * At most once per idle timeout, one caller walks the buckets and drops the
+   * ones that have been full, and unused, for longer than the timeout. A
+   * dropped bucket would have been recreated full anyway, so no quota is lost.
+   */
+  private void evictIdleKeys(long now) {
+    long next = _nextEvictionTime.get();
+    if (now < next || !_nextEvictionTime.compareAndSet(next, now + _idleKeyTimeout))
+      return;
+    for (Map.Entry<String, TokenBucket> entry : _buckets.entrySet()) {
+      TokenBucket bucket = entry.getValue();
+      if (bucket.isIdle(now, _idleKeyTimeout))
+        _buckets.remove(entry.getKey(), bucket);
+    }
+  }
+
+  /**
+   * Token bucket kept as a single "theoretical arrival time": the time at which
+   * the bucket will next be full. Each accepted call pushes it one interval
+   * further out, and a call is rejected when that would put it more than burst
+   * intervals ahead of now. This is equivalent to counting tokens but needs
+   * only one compare-and-set to update.
+   */
+  static class TokenBucket {
+
+    private final AtomicLong _fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    final AtomicLong accepted = new AtomicLong();
+
+    final AtomicLong rejected = new AtomicLong();
+
+    volatile long lastAccess;
+
+    boolean tryAcquire(long now, long interval, int burst) {
+      long limit = now + interval * burst;
+      while (true) {
+        long fullAt = _fullAt.get();
+        long next = Math.max(fullAt, now) + interval;
+        if (next > limit)
+          return false;
+        if (_fullAt.compareAndSet(fullAt, next))
+          return true;
+      }
+    }
+
+    boolean isIdle(long now, long idleTimeout) {
+      return Math.max(_fullAt.get(), lastAccess) + idleTimeout < now;
+    }
+  }
 }
@@ -243,6 +243,14 @@ public class UserPropertiesServiceV1Impl implements UserPropertiesService {
     throw new IllegalStateException("V1 user properties don't support api keys");
   }
 
+  @Override
+  public void setApiRequestBurst(User user, Integer apiRequestBurst) {
+    // nothing to clear
+    if (apiRequestBurst == null)
+      return;
+    throw new IllegalStateException("V1 user properties don't support api keys");
+  }
+
   @Override
   public void markServiceAlertAsRead(User user, String situationId, long time,
       boolean isRead) {
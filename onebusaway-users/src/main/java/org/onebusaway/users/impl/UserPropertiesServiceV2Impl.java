@@ -230,6 +230,14 @@ public class UserPropertiesServiceV2Impl implements UserPropertiesService {
     _userDao.saveOrUpdateUser(user);
   }
 
+  @Override
+  public void setApiRequestBurst(User user, Integer apiRequestBurst) {
+    // nothing to clear
+    if (apiRequestBurst == null)
+      return;
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void markServiceAlertAsRead(User user, String situationId, long time,
       boolean isRead) {
@@ -234,6 +234,14 @@ public class UserPropertiesServiceV3Impl implements UserPropertiesService {
     _userDao.saveOrUpdateUser(user);
   }
 
+  @Override
+  public void setApiRequestBurst(User user, Integer apiRequestBurst) {
+    // nothing to clear
+    if (apiRequestBurst == null)
+      return;
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void markServiceAlertAsRead(User user, String situationId, long time,
       boolean isRead) {
@@ -103,6 +103,7 @@ public class UserPropertiesServiceV4Impl implements UserPropertiesService {
         }
 
         bean.setMinApiRequestInterval(properties.getMinApiRequestInterval());
+        bean.setApiRequestBurst(properties.getApiRequestBurst());
 
         Map<String, Long> readServiceAlerts = properties.getReadSituationIdsWithReadTime();
         if( readServiceAlerts == null)
@@ -233,6 +234,13 @@ public class UserPropertiesServiceV4Impl implements UserPropertiesService {
         _userDao.saveOrUpdateUser(user);
     }
 
+    @Override
+    public void setApiRequestBurst(User user, Integer apiRequestBurst) {
+        UserPropertiesV4 properties = getProperties(user);
+        properties.setApiRequestBurst(apiRequestBurst);
+        _userDao.saveOrUpdateUser(user);
+    }
+
     @Override
     public void markServiceAlertAsRead(User user, String situationId, long time,
                                        boolean isRead) {
@@ -572,6 +572,24 @@ public class UserServiceImpl implements UserService {
     return bean.getMinApiRequestInterval();
   }
 
+  @Cacheable
+  @Transactional
+  @Override
+  public Integer getApiRequestBurstForKey(String key,
+      @CacheableArgument(cacheRefreshIndicator = true) boolean forceRefresh) {
+
+    UserIndexKey indexKey = new UserIndexKey(UserIndexTypes.API_KEY, key);
+    UserIndex userIndex = getUserIndexForId(indexKey);
+
+    if (userIndex == null) {
+      return null;
+    }
+
+    User user = userIndex.getUser();
+    UserBean bean = getUserAsBean(user);
+    return bean.getApiRequestBurst();
+  }
+
   /**
    * Unfortunately, deleting a user is a somewhat complex operation, so we can
    * do it in bulk (TODO: maybe someone can figure out a clever cascading bulk
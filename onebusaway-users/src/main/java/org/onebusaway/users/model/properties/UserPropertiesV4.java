@@ -54,6 +54,8 @@ public class UserPropertiesV4 implements Serializable, UserProperties {
 
     private Long minApiRequestInterval = null;
 
+    private Integer apiRequestBurst = null;
+
     private Map<String, Long> readSituationIdsWithReadTime = new HashMap<String, Long>();
 
     // For version 3, add API Key contact info.
@@ -79,6 +81,7 @@ public class UserPropertiesV4 implements Serializable, UserProperties {
         this.defaultLocationLon = o.defaultLocationLon;
         this.defaultLocationName = o.defaultLocationName;
         this.minApiRequestInterval = o.minApiRequestInterval;
+        this.apiRequestBurst = o.apiRequestBurst;
         this.contactName = o.contactName;
         this.contactCompany = o.contactCompany;
         this.contactEmail = o.contactEmail;
@@ -189,6 +192,25 @@ public class UserPropertiesV4 implements Serializable, UserProperties {
         this.minApiRequestInterval = minApiRequestInterval;
     }
 
+    /**
+     * API request throttling information
+     *
+     * @return the number of API requests that may be made back to back before
+     *         the minimum request interval applies, or null for the default
+     */
+    public Integer getApiRequestBurst() {
+        return apiRequestBurst;
+    }
+
+    /**
+     * API request throttling information
+     *
+     * @param apiRequestBurst number of requests that may be made back to back
+     */
+    public void setApiRequestBurst(Integer apiRequestBurst) {
+        this.apiRequestBurst = apiRequestBurst;
+    }
+
     /**
      * Information about when a service alert situation id was read by the user.
      *
@@ -214,6 +236,7 @@ public class UserPropertiesV4 implements Serializable, UserProperties {
         this.defaultLocationLon = Double.NaN;
         this.defaultLocationName = null;
         this.minApiRequestInterval = null;
+        this.apiRequestBurst = null;
         this.readSituationIdsWithReadTime = null;
         this.contactName = null;
         this.contactCompany = null;
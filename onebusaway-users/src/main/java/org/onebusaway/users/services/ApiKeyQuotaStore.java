@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.users.services;
+
+/**
+ * Shared token bucket state for API keys. When an implementation backed by
+ * storage common to several API nodes is wired into the
+ * {@link ApiKeyPermissionService}, those nodes enforce a single quota per key
+ * instead of one quota each.
+ *
+ * Implementations must perform the check and the update atomically with
+ * respect to other nodes (a compare-and-set or a server-side script, for
+ * example).
+ */
+public interface ApiKeyQuotaStore {
+
+  /**
+   * Takes one token from the bucket for the specified key. The bucket holds at
+   * most burst tokens and gains one token every minRequestInterval ms.
+   *
+   * @param key an API key
+   * @param now the current time in ms
+   * @param minRequestInterval ms between tokens
+   * @param burst maximum number of tokens in the bucket
+   * @return true if a token was available
+   * @throws RuntimeException if the store can't be reached, in which case the
+   *           caller falls back to its local bucket
+   */
+  public boolean tryAcquire(String key, long now, long minRequestInterval,
+      int burst);
+}
@@ -65,6 +65,14 @@ public interface UserPropertiesService {
    */
   public void authorizeApi(User user, long minApiRequestInteval);
 
+  /**
+   * Set the number of api requests this user may make back to back
+   * 
+   * @param User the user
+   * @param apiRequestBurst the burst, or null for the default
+   */
+  public void setApiRequestBurst(User user, Integer apiRequestBurst);
+
   public void markServiceAlertAsRead(User user, String situationId, long time,
       boolean isRead);
   
@@ -294,6 +294,15 @@ public interface UserService {
    */
   public Long getMinApiRequestIntervalForKey(String key, boolean forceRefresh);
 
+  /**
+   * @param key an API key
+   * @param forceRefresh guarantees that supplied value has not been cached
+   * @return the number of requests the key may make back to back before the
+   *         minimum request interval applies, or null if the key has no
+   *         explicit burst and the default should be used
+   */
+  public Integer getApiRequestBurstForKey(String key, boolean forceRefresh);
+
   /**
    * Deletes stale users from the system. Stale users have a last access time of
    * more than a month ago.
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2024 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.users.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.onebusaway.users.impl.ApiKeyPermissionServiceImpl.TokenBucket;
+import org.onebusaway.users.services.ApiKeyPermissionService.Status;
+import org.onebusaway.users.services.ApiKeyQuotaStore;
+import org.onebusaway.users.services.UserService;
+
+public class ApiKeyPermissionServiceImplTest {
+
+  private ApiKeyPermissionServiceImpl _service;
+
+  private UserService _userService;
+
+  @Before
+  public void setup() {
+    _userService = Mockito.mock(UserService.class);
+    _service = new ApiKeyPermissionServiceImpl();
+    _service.setUserService(_userService);
+  }
+
+  @Test
+  public void testTokenBucket() {
+    TokenBucket bucket = new TokenBucket();
+
+    // a burst of three, then one call per 100 ms
+    assertTrue(bucket.tryAcquire(1000, 100, 3));
+    assertTrue(bucket.tryAcquire(1000, 100, 3));
+    assertTrue(bucket.tryAcquire(1010, 100, 3));
+    assertFalse(bucket.tryAcquire(1020, 100, 3));
+    assertFalse(bucket.tryAcquire(1099, 100, 3));
+    assertTrue(bucket.tryAcquire(1100, 100, 3));
+    assertFalse(bucket.tryAcquire(1100, 100, 3));
+
+    // rejected calls don't use up tokens, and the bucket refills to the burst
+    assertTrue(bucket.tryAcquire(5000, 100, 3));
+    assertTrue(bucket.tryAcquire(5000, 100, 3));
+    assertTrue(bucket.tryAcquire(5000, 100, 3));
+    assertFalse(bucket.tryAcquire(5000, 100, 3));
+
+    assertFalse(bucket.isIdle(5000, 1000));
+    assertTrue(bucket.isIdle(6301, 1000));
+  }
+
+  @Test
+  public void testTokenBucketConcurrent() throws Exception {
+    final TokenBucket bucket = new TokenBucket();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() {
+            int accepted = 0;
+            for (int i = 0; i < 1000; i++) {
+              if (bucket.tryAcquire(1000, 10, 250))
+                accepted++;
+            }
+            return accepted;
+          }
+        }));
+      }
+      int accepted = 0;
+      for (Future<Integer> future : futures)
+        accepted += future.get();
+      assertEquals(250, accepted);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testGetPermission() {
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("a", false)).thenReturn(60000L);
+    Mockito.when(_userService.getApiRequestBurstForKey("a", false)).thenReturn(2);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("b", false)).thenReturn(60000L);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("c", false)).thenReturn(0L);
+
+    assertEquals(Status.UNAUTHORIZED, _service.getPermission("unknown", "api"));
+
+    assertEquals(Status.AUTHORIZED, _service.getPermission("a", "api"));
+    assertEquals(Status.AUTHORIZED, _service.getPermission("a", "api"));
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("a", "api"));
+
+    // no burst configured, so one call per interval
+    assertEquals(Status.AUTHORIZED, _service.getPermission("b", "api"));
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("b", "api"));
+
+    for (int i = 0; i < 100; i++)
+      assertEquals(Status.AUTHORIZED, _service.getPermission("c", "api"));
+
+    assertEquals(2, _service.getAcceptedCountForKey("a"));
+    assertEquals(1, _service.getRejectedCountForKey("a"));
+    assertEquals(103, _service.getAcceptedCount());
+    assertEquals(2, _service.getRejectedCount());
+    assertEquals(1, _service.getUnauthorizedCount());
+    assertEquals(3, _service.getActiveKeyCount());
+  }
+
+  @Test
+  public void testDefaultBurst() {
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("a", false)).thenReturn(60000L);
+    _service.setDefaultBurst(3);
+    for (int i = 0; i < 3; i++)
+      assertEquals(Status.AUTHORIZED, _service.getPermission("a", "api"));
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("a", "api"));
+  }
+
+  @Test
+  public void testQuotaStore() {
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("a", false)).thenReturn(60000L);
+
+    ApiKeyQuotaStore store = Mockito.mock(ApiKeyQuotaStore.class);
+    Mockito.when(store.tryAcquire(Mockito.eq("a"), Mockito.anyLong(),
+        Mockito.eq(60000L), Mockito.eq(1))).thenReturn(false, true).thenThrow(
+        new IllegalStateException("unavailable"));
+    _service.setQuotaStore(store);
+
+    // the shared quota decides
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("a", "api"));
+    assertEquals(Status.AUTHORIZED, _service.getPermission("a", "api"));
+
+    // and when it is unavailable, the local bucket does
+    assertEquals(Status.AUTHORIZED, _service.getPermission("a", "api"));
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("a", "api"));
+    assertEquals(2, _service.getQuotaStoreFailureCount());
+  }
+}